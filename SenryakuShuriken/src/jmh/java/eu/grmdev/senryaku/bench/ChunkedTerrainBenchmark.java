@@ -0,0 +1,59 @@
+package eu.grmdev.senryaku.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.grmdev.senryaku.core.map.*;
+
+/**
+ * Streams synthetic 4096x4096 map without GL context. Chunks are built on
+ * calling thread, so <code>loadView</code> is the whole cost of making
+ * terrain around camera ready and <code>walk</code> is the cost of crossing
+ * map with eviction. Both depend on view distance only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChunkedTerrainBenchmark {
+	private static final int MAP_SIZE = 4096;
+	private static final int CHUNK_SIZE = 32;
+	@Param({"32", "64", "128"})
+	private float viewDistance;
+	private TileGrid tiles;
+	
+	@Setup
+	public void setup() {
+		byte[] ids = new byte[MAP_SIZE * MAP_SIZE];
+		Random rnd = new Random(42);
+		for (int i = 0; i < ids.length; i++) {
+			int r = rnd.nextInt(100);
+			ids[i] = (byte) (r < 10 ? Tile.WALL : r < 40 ? Tile.GRASS : Tile.FLOOR).getId();
+		}
+		tiles = new TileGrid(ids, MAP_SIZE, MAP_SIZE, MAP_SIZE);
+	}
+	
+	@Benchmark
+	public void loadView(Blackhole bh) {
+		TerrainStreamer streamer = new TerrainStreamer(tiles, 1f, CHUNK_SIZE, viewDistance, Runnable::run);
+		Vector3f camera = new Vector3f(MAP_SIZE / 2, 0, MAP_SIZE / 2);
+		streamer.update(camera);
+		streamer.update(camera);
+		bh.consume(streamer.getChunksInRange());
+	}
+	
+	@Benchmark
+	public void walk(Blackhole bh) {
+		TerrainStreamer streamer = new TerrainStreamer(tiles, 1f, CHUNK_SIZE, viewDistance, Runnable::run);
+		Vector3f camera = new Vector3f(0, 0, MAP_SIZE / 2);
+		for (int x = 0; x < 1024; x += 4) {
+			camera.x = x;
+			streamer.update(camera);
+			bh.consume(streamer.getChunksInRange());
+		}
+		bh.consume(streamer.getEvicted());
+	}
+}
@@ -0,0 +1,88 @@
+package eu.grmdev.senryaku.bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.openjdk.jmh.annotations.*;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.graphic.FrustumCullingFilter;
+import eu.grmdev.senryaku.graphic.culling.SceneBvh;
+
+/**
+ * Frustum culling of one frame, entities spread over a square map seen from
+ * a camera above its center. <code>linear</code> tests sphere of every slot,
+ * <code>bvh</code> fits {@link SceneBvh} to the frame and queries it,
+ * <code>bvhQuery</code> only queries the already fitted tree. Every twentieth
+ * entity moves, frame is interpolated before each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FrustumCullingBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	private int entities;
+	private SceneSnapshot frame;
+	private FrustumCullingFilter filter;
+	private SceneBvh bvh;
+	private int[] visibleSlots;
+	private long renderNanos;
+	
+	@Setup
+	public void setup() {
+		Random rnd = new Random(42);
+		float side = (float) Math.sqrt(entities) * 2;
+		frame = new SceneSnapshot();
+		frame.begin(2_000_000L, 1_000_000L);
+		Quaternionf rotation = new Quaternionf();
+		for (int i = 0; i < entities; i++) {
+			int slot = frame.addSlot(0, 0, i + 1, 0.5f);
+			int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+			float x = rnd.nextFloat() * side;
+			float z = rnd.nextFloat() * side;
+			SceneSnapshot.put(frame.getCurrent(), o, x, 0, z, rotation, 1);
+			float dx = i % 20 == 0 ? 1 : 0;
+			SceneSnapshot.put(frame.getPrevious(), o, x - dx, 0, z, rotation, 1);
+		}
+		frame.beginGroup(null);
+		for (int i = 0; i < entities; i++) {
+			frame.addItem(i);
+		}
+		filter = new FrustumCullingFilter();
+		Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(60), 16f / 9, 0.1f, 200);
+		Matrix4f view = new Matrix4f().lookAt(side / 2, 15, side / 2 + 10, side / 2, 0, side / 2, 0, 1, 0);
+		filter.updateFrustum(projection, view);
+		bvh = new SceneBvh(ForkJoinPool.commonPool(), 8192);
+		visibleSlots = new int[entities];
+		renderNanos = 1_000_000L;
+		frame.interpolate(renderNanos);
+		bvh.update(frame);
+	}
+	
+	@Setup(Level.Invocation)
+	public void nextFrame() {
+		renderNanos = renderNanos >= 2_000_000L ? 1_000_000L : renderNanos + 100_000L;
+		frame.interpolate(renderNanos);
+	}
+	
+	@Benchmark
+	public int linear() {
+		return filter.filter(frame, visibleSlots);
+	}
+	
+	@Benchmark
+	public int bvh() {
+		bvh.update(frame);
+		int count = bvh.cull(filter.getFrustum(), visibleSlots);
+		frame.setVisibleSlots(visibleSlots, count);
+		return count;
+	}
+	
+	@Benchmark
+	public int bvhQuery() {
+		return bvh.cull(filter.getFrustum(), visibleSlots);
+	}
+}
@@ -0,0 +1,88 @@
+package eu.grmdev.senryaku.bench;
+
+import java.nio.FloatBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
+import eu.grmdev.senryaku.graphic.Transformation;
+import eu.grmdev.senryaku.graphic.mesh.InstancePacker;
+
+/**
+ * Packs instance data of particles the way {@link eu.grmdev.senryaku.graphic.mesh.InstancedMesh}
+ * does, without GL context. <code>mapWalk</code> is the old per chunk
+ * key-iterator walk, <code>flatArray</code> is the current linear pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InstancePackingBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	private int particles;
+	private int chunkSize;
+	private Entity[] entities;
+	private ConcurrentHashMap<Integer, Entity> map;
+	private FloatBuffer buffer;
+	private Transformation transformation;
+	private Matrix4f viewMatrix;
+	
+	@Setup
+	public void setup() {
+		chunkSize = Config.MAX_PARICLES.<Integer> get();
+		entities = new Entity[particles];
+		map = new ConcurrentHashMap<>();
+		Random rnd = new Random(42);
+		EntityStore store = new EntityStore(particles);
+		for (int i = 0; i < particles; i++) {
+			Entity entity = new Entity(store, null);
+			entity.setPosition(rnd.nextFloat() * 100, rnd.nextFloat(), rnd.nextFloat() * 100);
+			entity.setScale(0.1f);
+			entity.setTextPos(i % 16);
+			entities[i] = entity;
+			map.put(i, entity);
+		}
+		buffer = MemoryUtil.memAllocFloat(chunkSize * InstancePacker.INSTANCE_SIZE_FLOATS);
+		transformation = new Transformation();
+		viewMatrix = new Matrix4f().lookAt(0, 10, 10, 0, 0, 0, 0, 1, 0);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		MemoryUtil.memFree(buffer);
+	}
+	
+	@Benchmark
+	public void flatArray(Blackhole bh) {
+		for (int i = 0; i < particles; i += chunkSize) {
+			int chunk = Math.min(chunkSize, particles - i);
+			InstancePacker.pack(entities, i, chunk, buffer, 4, 4, viewMatrix, transformation);
+			bh.consume(buffer);
+		}
+	}
+	
+	@Benchmark
+	public void mapWalk(Blackhole bh) {
+		for (int i = 0; i < particles; i += chunkSize) {
+			int end = Math.min(particles, i + chunkSize);
+			List<Entity> subList = new ArrayList<>();
+			Iterator<Integer> it = map.keySet().iterator();
+			for (int j = 0; j < end; j++) {
+				Entity entity = map.get(it.next());
+				if (j >= i) {
+					subList.add(entity);
+				}
+			}
+			Entity[] chunk = subList.toArray(new Entity[0]);
+			InstancePacker.pack(chunk, 0, chunk.length, buffer, 4, 4, viewMatrix, transformation);
+			bh.consume(buffer);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package eu.grmdev.senryaku.bench;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import eu.grmdev.senryaku.core.map.*;
+import eu.grmdev.senryaku.core.misc.VectorUtils;
+
+/**
+ * Parses synthetic square <code>.smap</code>. <code>hashMaps</code> is the
+ * previous line split and boxed <code>HashMap</code> parser followed by
+ * transpose, <code>streamReader</code> and <code>streamBuffer</code> are
+ * {@link SmapParser}, <code>binaryMapped</code> reads the same map from
+ * memory mapped {@link BinaryMapFormat} file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapParsingBenchmark {
+	@Param({"256", "1024", "2048"})
+	private int size;
+	private byte[] text;
+	private ByteBuffer directText;
+	private Path binaryFile;
+	
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder sb = new StringBuilder("0|0|1|1|Bench|default\n");
+		Random rnd = new Random(42);
+		for (int z = 0; z < size; z++) {
+			for (int x = 0; x < size; x++) {
+				sb.append(rnd.nextInt(5)).append(x + 1 < size ? " " : "\n");
+			}
+		}
+		text = sb.toString().getBytes(StandardCharsets.US_ASCII);
+		directText = ByteBuffer.allocateDirect(text.length);
+		directText.put(text).flip();
+		binaryFile = Files.createTempFile("bench", BinaryMapFormat.EXTENSION);
+		BinaryMapFormat.write(SmapParser.parse(directText), binaryFile);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(binaryFile);
+	}
+	
+	@Benchmark
+	public Tile[][] hashMaps() throws IOException {
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text)))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		lines.remove(0);
+		return legacyTiles(lines);
+	}
+	
+	@Benchmark
+	public MapData streamReader() throws IOException {
+		return SmapParser.parse(new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.US_ASCII));
+	}
+	
+	@Benchmark
+	public MapData streamBuffer() throws IOException {
+		return SmapParser.parse(directText);
+	}
+	
+	@Benchmark
+	public MapData binaryMapped() throws IOException {
+		return BinaryMapFormat.load(binaryFile);
+	}
+	
+	/**
+	 * Tile parsing as it was done before {@link SmapParser}.
+	 */
+	private static Tile[][] legacyTiles(List<String> fileLines) {
+		HashMap<Integer, HashMap<Integer, Tile>> data = new HashMap<>();
+		for (int i = 0; i < fileLines.size(); i++) {
+			String[] arg = fileLines.get(i).trim().split(" ");
+			HashMap<Integer, Tile> row = new HashMap<>();
+			for (int j = 0; j < arg.length; j++) {
+				char c = arg[j].trim().charAt(0);
+				int ci = Integer.parseInt(c + "");
+				Tile t = Tile.value(ci);
+				row.put(j, t == null ? Tile.EMPTY : t);
+			}
+			data.put(i, row);
+		}
+		int rows = data.size();
+		int columns = 0;
+		for (HashMap<Integer, Tile> row : data.values()) {
+			columns = Math.max(columns, row.size());
+		}
+		Tile[][] tiles = new Tile[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			HashMap<Integer, Tile> row = data.get(i);
+			for (int j = 0; j < columns; j++) {
+				tiles[i][j] = row.containsKey(j) ? row.get(j) : Tile.EMPTY;
+			}
+		}
+		return VectorUtils.transpose(tiles);
+	}
+}
@@ -0,0 +1,84 @@
+package eu.grmdev.senryaku.bench;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.graphic.mesh.InstancePacker;
+import eu.grmdev.senryaku.graphic.particles.ParticlePool;
+import eu.grmdev.senryaku.graphic.particles.ParticleSnapshot;
+
+/**
+ * One logic tick and one frame of single emitter with
+ * {@link ParticlePool}. <code>update</code> ages and moves every particle and
+ * respawns the expired ones so pool stays full, <code>publish</code> copies
+ * pool to render snapshot, <code>pack</code> writes billboard instance data in chunks like
+ * {@link eu.grmdev.senryaku.graphic.mesh.InstancedMesh} does. Run with
+ * <code>-prof gc</code> to check there are no allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParticlePoolBenchmark {
+	private static final float TICK_MILLIS = 1000f / 60;
+	@Param({"10000", "100000", "1000000"})
+	private int particles;
+	private int chunkSize;
+	private ParticlePool pool;
+	private ParticleSnapshot snapshot;
+	private Random rnd;
+	private FloatBuffer buffer;
+	private Matrix4f viewMatrix;
+	
+	@Setup
+	public void setup() {
+		chunkSize = Config.MAX_PARICLES.<Integer> get();
+		pool = new ParticlePool(particles);
+		rnd = new Random(42);
+		fill();
+		snapshot = new ParticleSnapshot(particles);
+		snapshot.copyFrom(pool);
+		buffer = MemoryUtil.memAllocFloat(chunkSize * InstancePacker.INSTANCE_SIZE_FLOATS);
+		viewMatrix = new Matrix4f().lookAt(0, 10, 10, 0, 0, 0, 0, 1, 0);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		MemoryUtil.memFree(buffer);
+	}
+	
+	private void fill() {
+		while (!pool.isFull()) {
+			pool.spawn(rnd.nextFloat() * 100, 0.5f, rnd.nextFloat() * 100, 0, 1.5f + rnd.nextFloat() * 0.2f, 0, rnd.nextFloat() * 1000, 0.1f, 100 + rnd.nextInt(10));
+		}
+	}
+	
+	@Benchmark
+	public int update() {
+		pool.update(TICK_MILLIS, 16);
+		fill();
+		return pool.getSize();
+	}
+	
+	@Benchmark
+	public ParticleSnapshot publish() {
+		snapshot.copyFrom(pool);
+		return snapshot;
+	}
+	
+	@Benchmark
+	public void pack(Blackhole bh) {
+		int count = snapshot.getSize();
+		for (int i = 0; i < count; i += chunkSize) {
+			int chunk = Math.min(chunkSize, count - i);
+			InstancePacker.pack(snapshot, i, chunk, buffer, 4, 4, viewMatrix);
+			bh.consume(buffer);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package eu.grmdev.senryaku.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import eu.grmdev.senryaku.core.entity.EntityStore;
+import eu.grmdev.senryaku.graphic.particles.*;
+
+/**
+ * One logic tick of {@link ParticleSimulation} on pools of 1 to N threads.
+ * <code>many</code> layout is a map full of small cone emitters,
+ * <code>large</code> is few emitters with 100k particles, which are split
+ * into particle ranges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParticleSimulationBenchmark {
+	private static final long TICK_MILLIS = 16;
+	@Param({"1", "2", "4", "8"})
+	private int threads;
+	@Param({"many", "large"})
+	private String layout;
+	private ForkJoinPool pool;
+	private ParticleSimulation simulation;
+	private List<IParticleEmitter> emitters;
+	
+	@Setup
+	public void setup() {
+		int count = "many".equals(layout) ? 1000 : 4;
+		int particles = "many".equals(layout) ? 200 : 100_000;
+		pool = new ForkJoinPool(threads);
+		simulation = new ParticleSimulation(pool, 8192);
+		emitters = new ArrayList<>();
+		EntityStore store = new EntityStore(count);
+		for (int i = 0; i < count; i++) {
+			Particle base = new Particle(null, store, new Vector3f(0, 1.5f, 0), 1000, 100, 16, null);
+			base.setPosition(i % 64, 0.5f, i / 64);
+			FlowParticleEmitter emitter = new FlowParticleEmitter(base, particles, 0, i);
+			emitter.setPositionRndRange(0.2f);
+			emitter.setSpeedRndRange(0.2f);
+			emitter.setAnimRange(10);
+			emitter.setActive(true);
+			emitters.add(emitter);
+		}
+		for (int i = 0; i < 100; i++) {
+			simulation.update(emitters, TICK_MILLIS);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Benchmark
+	public List<IParticleEmitter> tick() {
+		simulation.update(emitters, TICK_MILLIS);
+		return emitters;
+	}
+}
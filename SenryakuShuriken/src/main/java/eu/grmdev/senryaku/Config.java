@@ -13,6 +13,7 @@ public enum Config {
 	FONT_NAME("BOLD") ,
 	TARGET_UPS(20) ,
 	TARGET_FPS(60) ,
+	MAX_CATCH_UP_TICKS(5) ,
 	MAX_SPOT_LIGHTS(5) ,
 	MAX_POINT_LIGHTS(5) ,
 	Z_FAR(1000.f) ,
@@ -25,6 +26,10 @@ public enum Config {
 	SHADOW_CASCADE_SPLITS(Z_FAR.<Float> get() / 20.0f,Z_FAR.<Float> get() / 10.0f,Z_FAR.<Float> get()) ,
 	SHADOW_MAP_WIDTH((int) Math.pow(65, 2)) ,
 	SHADOW_MAP_HEIGHT(SHADOW_MAP_WIDTH.<Integer> get()) ,
+	SHADOW_CACHED_CASCADES(2) ,
+	SHADOW_CACHE_MARGIN(0.2f) ,
+	SHADOW_DEPTH_FORMAT("24") ,
+	SHADOW_LAYERED(true) ,
 	FOG_ENABLED(false) ,
 	SAVE_FILE_NAME("save.dat") ,
 	START_LEVEL(1) ,
@@ -37,11 +42,27 @@ public enum Config {
 	PARTICLE_LIFE_TIME(1000) ,
 	PARTICLE_SCALE(0.1f) ,
 	PARTICLE_RANGE(0.2f) ,
+	PARTICLE_SPLIT_SIZE(8192) ,
+	CULLING_SPLIT_SIZE(8192) ,
+	PARTICLE_BACKEND("CPU") ,
 	CURRENT_CAMERA(1) ,
 	CAMERA_POS_X(0f) ,
 	CAMERA_POS_Y(0f) ,
 	CAMERA_POS_Z(0f) ,
-	LAST_MAP_ID(3);
+	LAST_MAP_ID(3) ,
+	TERRAIN_STREAMING_MIN_TILES(256 * 256) ,
+	TERRAIN_CHUNK_SIZE(32) ,
+	TERRAIN_VIEW_DISTANCE(64f) ,
+	TERRAIN_CHUNK_UPLOADS(2) ,
+	OCCLUSION_BUFFER_WIDTH(256) ,
+	OCCLUSION_BUFFER_HEIGHT(128) ,
+	OCCLUDER_DISTANCE(48f) ,
+	TEXTURE_LOADER_THREADS(2) ,
+	TEXTURE_UPLOAD_BUDGET_MICROS(2000) ,
+	MAP_INIT_BUDGET_MICROS(2000) ,
+	GPU_MEMORY_BUDGET_MB(256) ,
+	TEXTURE_LAYER_SIZE(512) ,
+	COMPRESSED_TEXTURES(true);
 	
 	private @Setter Float f;
 	private @Setter Boolean b;
@@ -5,6 +5,7 @@ import eu.grmdev.senryaku.core.IGame;
 import eu.grmdev.senryaku.core.config.Configuration;
 import eu.grmdev.senryaku.game.Game;
 import eu.grmdev.senryaku.graphic.Window.WindowOptions;
+import eu.grmdev.senryaku.graphic.mesh.InstanceUpload;
 import eu.grmdev.senryaku.jfx.FxGui;
 import javafx.application.Application;
 import lombok.Getter;
@@ -57,10 +58,12 @@ public class Main {
 		opts.compatibleProfile = true;
 		opts.antialiasing = true;
 		opts.frustumCulling = false;
+		opts.occlusionCulling = false;
 		opts.maximized = false;
 		opts.width = 800;
 		opts.height = 600;
 		opts.vSync = true;
+		opts.instanceUpload = InstanceUpload.PERSISTENT;
 	}
 	
 	@SuppressWarnings("unused")
@@ -3,20 +3,25 @@ package eu.grmdev.senryaku.core;
 import static org.lwjgl.glfw.GLFW.glfwSetWindowShouldClose;
 
 import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.core.entity.throwable.Projectiles;
 import eu.grmdev.senryaku.core.map.Tile;
-import eu.grmdev.senryaku.core.misc.Timer;
+import eu.grmdev.senryaku.core.misc.FixedStepScheduler;
+import eu.grmdev.senryaku.core.misc.LoopStats;
 import eu.grmdev.senryaku.graphic.Window;
+import eu.grmdev.senryaku.graphic.mesh.ResourceManager;
 import lombok.Getter;
 
 public class GameEngine implements Runnable {
 	private @Getter static GameEngine instance;
 	private final Window window;
 	private Thread renderThread;
-	private final Timer timer;
+	/** Paces frames when vsync is off, one frame per step */
+	private final FixedStepScheduler frameScheduler;
+	/** One sample per rendered frame, with or without vsync */
+	private final LoopStats frameStats;
 	private final IGame game;
-	private double lastFps;
-	private int fps;
 	private String title;
+	private int shownWindow;
 	private LogicThread logicThread;
 	private boolean running;
 	
@@ -24,7 +29,8 @@ public class GameEngine implements Runnable {
 		GameEngine.instance = this;
 		this.title = windowTitle;
 		this.game = game;
-		timer = new Timer();
+		frameScheduler = new FixedStepScheduler(Config.TARGET_FPS.<Integer> get(), 1);
+		frameStats = new LoopStats();
 		window = new Window(windowTitle, opts, game.getCamera());
 		renderThread = new Thread(this, "GAME_RENDER_LOOP_THREAD");
 		logicThread = new LogicThread(game, window);
@@ -58,43 +64,49 @@ public class GameEngine implements Runnable {
 	
 	private void init() throws Exception {
 		window.init();
-		timer.init();
 		game.initRender(window);
-		fps = 0;
 	}
 	
 	private void renderLoop() {
 		running = true;
+		frameScheduler.start();
 		while (running && !window.windowShouldClose()) {
 			render();
 			if (!window.isVSync()) {
 				sync();
+			} else {
+				frameScheduler.advance();
 			}
 		}
 	}
 	
 	private void render() {
-		double dSub = timer.getLastLoopTime() - lastFps;
-		if (window.getWindowOptions().showFps && dSub > 0.99f) {
-			lastFps = timer.getLastLoopTime();
-			window.setWindowTitle(title + " - " + fps + " FPS");
-			fps = 0;
+		if (window.getWindowOptions().showFps && frameStats.getWindows() != shownWindow) {
+			shownWindow = frameStats.getWindows();
+			window.setWindowTitle(title + " - " + frameStats.getRate() + " FPS, jitter " + String.format("%.2f", frameStats.getMeanJitterMillis()) + " ms" + game.getRenderStats());
 		}
-		timer.getElapsedTime();
-		fps++;
 		game.render(window);
 		window.update();
+		frameStats.record(System.nanoTime(), getFrameNanos());
 	}
 	
+	/**
+	 * @return wanted interval between frames, refresh interval of monitor with
+	 *         vsync, frame slot of {@link Config#TARGET_FPS} otherwise
+	 */
+	private long getFrameNanos() {
+		if (window.isVSync() && window.getRefreshRate() > 0) { return 1_000_000_000L / window.getRefreshRate(); }
+		return frameScheduler.getStepNanos();
+	}
+	
+	/**
+	 * Waits for next frame slot of {@link Config#TARGET_FPS}. A frame which took
+	 * longer than its slot does not make following frames shorter.
+	 */
 	private void sync() {
-		float loopSlot = 1f / Config.TARGET_FPS.<Integer> get();
-		double endTime = timer.getLastLoopTime() + loopSlot;
-		while (timer.getTime() < endTime) {
-			try {
-				Thread.sleep(1);
-			}
-			catch (InterruptedException ie) {}
-		}
+		frameScheduler.setRate(Config.TARGET_FPS.<Integer> get());
+		frameScheduler.waitForNextStep();
+		frameScheduler.advance();
 	}
 	
 	public void stop() {
@@ -106,5 +118,7 @@ public class GameEngine implements Runnable {
 		game.destroy();
 		GameEngine.instance = null;
 		Tile.destroy();
+		Projectiles.destroy();
+		ResourceManager.destroy();
 	}
 }
@@ -1,6 +1,7 @@
 package eu.grmdev.senryaku.core;
 
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.core.handlers.EventHandler;
 import eu.grmdev.senryaku.core.handlers.MouseHandler;
 import eu.grmdev.senryaku.game.Game;
@@ -32,6 +33,13 @@ public interface IGame {
 	
 	void render(Window window);
 	
+	/**
+	 * Short render statistics shown next to FPS counter
+	 * 
+	 * @return text appended to window title
+	 */
+	String getRenderStats();
+	
 	Entity getPlayer();
 	
 	void destroy();
@@ -46,6 +54,13 @@ public interface IGame {
 	
 	Camera getCamera();
 	
+	/**
+	 * Store in which entities of this game are created
+	 * 
+	 * @return store of scene
+	 */
+	EntityStore getEntityStore();
+	
 	/**
 	 * Adds entity to scene
 	 * 
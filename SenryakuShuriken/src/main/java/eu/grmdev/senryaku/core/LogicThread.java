@@ -7,15 +7,17 @@ import eu.grmdev.senryaku.core.config.Configuration;
 import eu.grmdev.senryaku.core.events.GameEvent;
 import eu.grmdev.senryaku.core.events.listeners.GameEventListener;
 import eu.grmdev.senryaku.core.handlers.*;
+import eu.grmdev.senryaku.core.misc.FixedStepScheduler;
 import eu.grmdev.senryaku.graphic.Window;
 
+/**
+ * Runs game logic in fixed steps of 1 / {@link Config#TARGET_UPS} seconds.
+ * When a tick runs late, missed steps are caught up, at most
+ * {@link Config#MAX_CATCH_UP_TICKS} at once.
+ */
 public class LogicThread extends Thread {
-	private long startTickTime;
-	private float tps;
-	private long tickTime;
-	private long lastTickSpan;
+	private final FixedStepScheduler scheduler;
 	private int tickCounter;
-	private double startCycleTime;
 	private IGame game;
 	private final EventHandler eHandler;
 	private final MouseHandler mouseHandler;
@@ -25,7 +27,6 @@ public class LogicThread extends Thread {
 	private boolean isReady;
 	private GameEvent tickLoopEvent;
 	private GameEvent cycleLoopEvent;
-	private int lastTickCounter;
 	private GameEventListener showTpsListener;
 	private boolean confWasChanged;
 	
@@ -36,6 +37,7 @@ public class LogicThread extends Thread {
 		eHandler = new EventHandler(game);
 		mouseHandler = new MouseHandler(game, eHandler);
 		keyHandler = new KeyboardHandler(eHandler, game);
+		scheduler = new FixedStepScheduler(Config.TARGET_UPS.<Integer> get(), Config.MAX_CATCH_UP_TICKS.<Integer> get());
 	}
 	
 	public void initRender() {
@@ -53,11 +55,10 @@ public class LogicThread extends Thread {
 			tickLoopEvent = new GameEvent(window, game) {};
 			cycleLoopEvent = new GameEvent(window, game) {};
 			showTpsListener = event -> {
-				System.out.println("TPS: " + lastTickCounter);
+				System.out.println("TPS: " + scheduler.getStats());
 			};
 			onConfigurationChanged();
-			startTickTime = System.currentTimeMillis();
-			startCycleTime = startTickTime;
+			scheduler.start();
 			System.out.println("Start Logic Thread");
 			while (!shouldStop()) {
 				loop();
@@ -86,8 +87,7 @@ public class LogicThread extends Thread {
 		} else {
 			eHandler.removeCycleGameEventListener(showTpsListener);
 		}
-		tps = Config.TARGET_UPS.<Integer> get();
-		tickTime = (long) (1000 / tps);
+		scheduler.setRate(Config.TARGET_UPS.<Integer> get());
 	}
 	
 	private void waitForRenderStart() {
@@ -104,15 +104,23 @@ public class LogicThread extends Thread {
 	}
 	
 	private void loop() {
+		int steps = scheduler.advance();
+		for (int i = 0; i < steps && !shouldStop(); i++) {
+			tick();
+		}
+		scheduler.waitForNextStep();
+	}
+	
+	private void tick() {
 		input();
 		keyHandler.dispatchAllActiveKeyEvents();
 		if (tickCounter == 0) {
 			eHandler.dispatchCycleGameEvent(cycleLoopEvent);
 		}
 		eHandler.dispatchTickGameEvent(tickLoopEvent);
-		update(lastTickSpan);
+		update(scheduler.getStepMillis());
 		tickLoopEvent.reset();
-		sync();
+		tickCounter = (tickCounter + 1) % scheduler.getStepsPerSecond();
 	}
 	
 	private void input() {
@@ -131,32 +139,4 @@ public class LogicThread extends Thread {
 	public void setStop() {
 		indicateStop = true;
 	}
-	
-	private void sync() {
-		tickCounter++;
-		long endTickTime = System.currentTimeMillis();
-		long durationSpan = endTickTime - startTickTime;
-		long durationToSleep = tickTime - durationSpan;
-		if (durationToSleep > 0) {
-			sleepFor(durationToSleep);
-			endTickTime = System.currentTimeMillis();
-			durationSpan = endTickTime - startTickTime;
-		}
-		if (endTickTime - startCycleTime >= 998) {
-			startCycleTime = endTickTime;
-			lastTickCounter = tickCounter;
-			tickCounter = 0;
-		}
-		lastTickSpan = durationSpan;
-		startTickTime = endTickTime;
-	}
-	
-	private void sleepFor(long duration) {
-		try {
-			Thread.sleep(duration);
-		}
-		catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-	}
 }
@@ -4,7 +4,10 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.core.entity.SkyBox;
+import eu.grmdev.senryaku.core.misc.TripleBuffer;
+import eu.grmdev.senryaku.graphic.Camera;
 import eu.grmdev.senryaku.graphic.effects.Fog;
 import eu.grmdev.senryaku.graphic.mesh.InstancedMesh;
 import eu.grmdev.senryaku.graphic.mesh.Mesh;
@@ -12,7 +15,12 @@ import eu.grmdev.senryaku.graphic.particles.IParticleEmitter;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * Entities of the game. Their data live in {@link EntityStore} owned by
+ * scene, scene marks which of them are rendered and groups them by mesh.
+ */
 public class Scene {
+	private @Getter final EntityStore store;
 	private @Getter final ConcurrentHashMap<Mesh, List<Entity>> entityMeshes;
 	private @Getter final ConcurrentHashMap<InstancedMesh, List<Entity>> gameInstancedMeshes;
 	private @Getter @Setter SkyBox skyBox;
@@ -20,10 +28,16 @@ public class Scene {
 	private @Getter @Setter Fog fog;
 	private @Getter @Setter boolean renderShadows;
 	private @Getter @Setter List<IParticleEmitter> particleEmitters;
+	private final TripleBuffer<SceneSnapshot> snapshots;
+	private long lastPublishNanos;
+	private int publishId;
+	private float[] lastCamera;
 	
 	public Scene() {
+		store = new EntityStore();
 		entityMeshes = new ConcurrentHashMap<>();
 		gameInstancedMeshes = new ConcurrentHashMap<>();
+		snapshots = new TripleBuffer<>(SceneSnapshot::new);
 		fog = Fog.NOFOG;
 		renderShadows = true;
 	}
@@ -36,7 +50,16 @@ public class Scene {
 		}
 	}
 	
+	/**
+	 * @throws IllegalArgumentException
+	 *            when entity was created in another store
+	 */
 	public void addEntity(Entity entity) {
+		if (entity.getStore() != store) { throw new IllegalArgumentException("Entity does not belong to scene store"); }
+		int row = entity.getRow();
+		if (row < 0) { throw new IllegalArgumentException("Entity was released"); }
+		store.setFlag(row, EntityStore.FLAG_IN_SCENE, true);
+		store.setIndexed(row, true);
 		Mesh[] meshes = entity.getMeshes();
 		for (Mesh mesh : meshes) {
 			boolean instancedMesh = mesh instanceof InstancedMesh;
@@ -54,6 +77,11 @@ public class Scene {
 	}
 	
 	public void removeEntity(Entity entity) {
+		int row = entity.getRow();
+		if (row >= 0 && entity.getStore() == store) {
+			store.setFlag(row, EntityStore.FLAG_IN_SCENE, false);
+			store.setIndexed(row, false);
+		}
 		Mesh[] meshes = entity.getMeshes();
 		for (Mesh mesh : meshes) {
 			boolean instancedMesh = mesh instanceof InstancedMesh;
@@ -69,6 +97,106 @@ public class Scene {
 		}
 	}
 	
+	/**
+	 * Logic thread, packs transforms of all entities into snapshot for render
+	 * thread. Called once per tick after entities were updated.
+	 *
+	 * @param tickNanos
+	 *           {@link System#nanoTime()} of the tick
+	 * @param camera
+	 *           camera to interpolate with entities, can be null
+	 */
+	public void publishSnapshot(long tickNanos, Camera camera) {
+		SceneSnapshot frame = snapshots.getWriteBuffer();
+		frame.begin(tickNanos, lastPublishNanos == 0 ? tickNanos : lastPublishNanos);
+		if (camera != null) {
+			frame.setCamera(camera, lastCamera);
+			if (lastCamera == null) {
+				lastCamera = new float[SceneSnapshot.CAMERA_SIZE_FLOATS];
+			}
+			System.arraycopy(frame.getCamera(), 0, lastCamera, 0, SceneSnapshot.CAMERA_SIZE_FLOATS);
+		}
+		synchronized (store) {
+			publishId++;
+			float[] transforms = store.getTransforms();
+			float[] published = store.getPublished();
+			int[] flags = store.getFlags();
+			int[] textPos = store.getTextPos();
+			int[] slots = store.getSnapshotSlots();
+			int[] ids = store.getSnapshotIds();
+			Mesh[][] meshes = store.getMeshes();
+			for (int row = 0, size = store.getSize(); row < size; row++) {
+				int f = flags[row];
+				if ((f & EntityStore.FLAG_IN_SCENE) == 0) {
+					continue;
+				}
+				int slot = frame.addSlot(textPos[row], snapshotFlags(f), store.getHandle(row), boundingRadius(meshes[row]));
+				int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+				int t = row * EntityStore.TRANSFORM_SIZE_FLOATS;
+				int p = row * EntityStore.PUBLISHED_SIZE_FLOATS;
+				float[] current = frame.getCurrent();
+				for (int c = 0; c < 3; c++) {
+					current[o + SceneSnapshot.POSITION + c] = transforms[t + EntityStore.POSITION + c] + transforms[t + EntityStore.OFFSET + c];
+				}
+				System.arraycopy(transforms, t + EntityStore.ROTATION, current, o + SceneSnapshot.ROTATION, 4);
+				current[o + SceneSnapshot.SCALE] = transforms[t + EntityStore.SCALE];
+				boolean reset = (f & EntityStore.FLAG_PUBLISH_RESET) != 0;
+				System.arraycopy(reset ? current : published, reset ? o : p, frame.getPrevious(), o, SceneSnapshot.TRANSFORM_SIZE_FLOATS);
+				System.arraycopy(current, o, published, p, SceneSnapshot.TRANSFORM_SIZE_FLOATS);
+				flags[row] = f & ~EntityStore.FLAG_PUBLISH_RESET;
+				slots[row] = slot;
+				ids[row] = publishId;
+			}
+			addGroups(frame, entityMeshes);
+			addGroups(frame, gameInstancedMeshes);
+		}
+		lastPublishNanos = tickNanos;
+		snapshots.publish();
+	}
+	
+	private static float boundingRadius(Mesh[] meshes) {
+		float radius = 0;
+		if (meshes != null) {
+			for (Mesh mesh : meshes) {
+				radius = Math.max(radius, mesh.getBoundingRadius());
+			}
+		}
+		return radius;
+	}
+	
+	private static int snapshotFlags(int flags) {
+		return ((flags & EntityStore.FLAG_SELECTED) != 0 ? SceneSnapshot.FLAG_SELECTED : 0) | ((flags & EntityStore.FLAG_NO_CULLING) != 0 ? SceneSnapshot.FLAG_NO_CULLING : 0);
+	}
+	
+	/**
+	 * Adds entities which got a slot in this publish, entities added to scene
+	 * meanwhile are skipped.
+	 */
+	private void addGroups(SceneSnapshot frame, Map<? extends Mesh, List<Entity>> meshes) {
+		int[] slots = store.getSnapshotSlots();
+		int[] ids = store.getSnapshotIds();
+		for (Map.Entry<? extends Mesh, List<Entity>> entry : meshes.entrySet()) {
+			frame.beginGroup(entry.getKey());
+			List<Entity> list = entry.getValue();
+			synchronized (list) {
+				for (Entity entity : list) {
+					int row = entity.getRow();
+					if (row >= 0 && ids[row] == publishId) {
+						frame.addItem(slots[row]);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Render thread, latest published snapshot. Stays valid and unchanged
+	 * until next call.
+	 */
+	public SceneSnapshot acquireSnapshot() {
+		return snapshots.acquire();
+	}
+	
 	public void destroy() {
 		for (Mesh mesh : entityMeshes.keySet()) {
 			mesh.remove();
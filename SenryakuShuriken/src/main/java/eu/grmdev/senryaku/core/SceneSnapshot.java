@@ -0,0 +1,342 @@
+package eu.grmdev.senryaku.core;
+
+import java.util.Arrays;
+
+import org.joml.Quaternionf;
+
+import eu.grmdev.senryaku.graphic.Camera;
+import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import lombok.Getter;
+
+/**
+ * Transforms of all scene entities at one logic tick, packed into primitive
+ * arrays. Written by logic thread in {@link Scene#publishSnapshot(long, Camera)} and
+ * handed to render thread through triple buffer, so renderer never touches
+ * live {@link eu.grmdev.senryaku.core.entity.Entity} state.
+ * <p>
+ * Every entity has one slot with its transform of this tick and of the
+ * previous one. Items are entity slots grouped by mesh, one item per mesh of
+ * entity. Render thread calls {@link #interpolate(long)} and then reads
+ * {@link #getInterpolated()} and writes {@link #getVisible()}. Camera is
+ * carried the same way, so that it moves in step with entities it follows.
+ *
+ * <pre>
+ * 0 position xyz   3 rotation quaternion xyzw   7 scale
+ * </pre>
+ */
+public class SceneSnapshot {
+	public static final int TRANSFORM_SIZE_FLOATS = 8;
+	public static final int POSITION = 0;
+	public static final int ROTATION = 3;
+	public static final int SCALE = 7;
+	public static final int FLAG_SELECTED = 1;
+	public static final int FLAG_NO_CULLING = 2;
+	/** Camera position, offset and rotation in degrees */
+	public static final int CAMERA_SIZE_FLOATS = 9;
+	private static final int INITIAL_SLOTS = 16;
+	private @Getter long tickNanos;
+	private @Getter long previousTickNanos;
+	private @Getter int size;
+	private @Getter float[] current;
+	private @Getter float[] previous;
+	private @Getter float[] interpolated;
+	private @Getter int[] textPos;
+	private @Getter byte[] flags;
+	/** Entity handle of slot, stable between snapshots */
+	private @Getter int[] handles;
+	/** Bounding radius of slot meshes before scaling */
+	private @Getter float[] radii;
+	private boolean[] slotVisible;
+	private @Getter int itemCount;
+	private @Getter int[] itemSlots;
+	private @Getter boolean[] visible;
+	private @Getter int groupCount;
+	private Mesh[] groupMeshes;
+	private int[] groupStarts;
+	private Integer[] refs;
+	private final @Getter float[] camera;
+	private final float[] previousCamera;
+	private boolean hasCamera;
+	
+	public SceneSnapshot() {
+		current = new float[INITIAL_SLOTS * TRANSFORM_SIZE_FLOATS];
+		previous = new float[INITIAL_SLOTS * TRANSFORM_SIZE_FLOATS];
+		interpolated = new float[INITIAL_SLOTS * TRANSFORM_SIZE_FLOATS];
+		textPos = new int[INITIAL_SLOTS];
+		flags = new byte[INITIAL_SLOTS];
+		handles = new int[INITIAL_SLOTS];
+		radii = new float[INITIAL_SLOTS];
+		slotVisible = new boolean[INITIAL_SLOTS];
+		itemSlots = new int[INITIAL_SLOTS];
+		visible = new boolean[INITIAL_SLOTS];
+		groupMeshes = new Mesh[INITIAL_SLOTS];
+		groupStarts = new int[INITIAL_SLOTS + 1];
+		refs = new Integer[0];
+		camera = new float[CAMERA_SIZE_FLOATS];
+		previousCamera = new float[CAMERA_SIZE_FLOATS];
+	}
+	
+	/**
+	 * Writes one transform at <code>offset</code> of array.
+	 */
+	public static void put(float[] dest, int offset, float x, float y, float z, Quaternionf rotation, float scale) {
+		dest[offset + POSITION] = x;
+		dest[offset + POSITION + 1] = y;
+		dest[offset + POSITION + 2] = z;
+		dest[offset + ROTATION] = rotation.x;
+		dest[offset + ROTATION + 1] = rotation.y;
+		dest[offset + ROTATION + 2] = rotation.z;
+		dest[offset + ROTATION + 3] = rotation.w;
+		dest[offset + SCALE] = scale;
+	}
+	
+	/**
+	 * Logic thread, starts new frame. Previous contents are dropped.
+	 */
+	public void begin(long tickNanos, long previousTickNanos) {
+		this.tickNanos = tickNanos;
+		this.previousTickNanos = previousTickNanos;
+		Arrays.fill(groupMeshes, 0, groupCount, null);
+		size = 0;
+		itemCount = 0;
+		groupCount = 0;
+		groupStarts[0] = 0;
+		hasCamera = false;
+	}
+	
+	/**
+	 * Logic thread, stores camera of this tick.
+	 *
+	 * @param last
+	 *           camera of previous tick in {@link #getCamera()} layout, null
+	 *           when there was none
+	 */
+	public void setCamera(Camera source, float[] last) {
+		camera[0] = source.getPosition().x;
+		camera[1] = source.getPosition().y;
+		camera[2] = source.getPosition().z;
+		camera[3] = source.getOffset().x;
+		camera[4] = source.getOffset().y;
+		camera[5] = source.getOffset().z;
+		camera[6] = source.getRotation().x;
+		camera[7] = source.getRotation().y;
+		camera[8] = source.getRotation().z;
+		System.arraycopy(last != null ? last : camera, 0, previousCamera, 0, CAMERA_SIZE_FLOATS);
+		hasCamera = true;
+	}
+	
+	/**
+	 * Logic thread, reserves slot for one entity. Caller writes its transforms
+	 * to {@link #getCurrent()} and {@link #getPrevious()} at
+	 * <code>slot * TRANSFORM_SIZE_FLOATS</code>.
+	 *
+	 * @return slot index
+	 */
+	public int addSlot(int textPos, int flags) {
+		return addSlot(textPos, flags, 0, 0);
+	}
+	
+	/**
+	 * @param handle
+	 *           handle of entity in its store
+	 * @param radius
+	 *           bounding radius of entity meshes, scale not applied
+	 */
+	public int addSlot(int textPos, int flags, int handle, float radius) {
+		if (size == this.flags.length) {
+			int capacity = size * 2;
+			current = Arrays.copyOf(current, capacity * TRANSFORM_SIZE_FLOATS);
+			previous = Arrays.copyOf(previous, capacity * TRANSFORM_SIZE_FLOATS);
+			interpolated = new float[capacity * TRANSFORM_SIZE_FLOATS];
+			this.textPos = Arrays.copyOf(this.textPos, capacity);
+			this.flags = Arrays.copyOf(this.flags, capacity);
+			handles = Arrays.copyOf(handles, capacity);
+			radii = Arrays.copyOf(radii, capacity);
+			slotVisible = new boolean[capacity];
+		}
+		this.textPos[size] = textPos;
+		this.flags[size] = (byte) flags;
+		handles[size] = handle;
+		radii[size] = radius;
+		return size++;
+	}
+	
+	/**
+	 * Logic thread, starts group of items drawn with given mesh. Ends the
+	 * previous group.
+	 */
+	public void beginGroup(Mesh mesh) {
+		if (groupCount + 1 == groupStarts.length) {
+			groupMeshes = Arrays.copyOf(groupMeshes, groupMeshes.length * 2);
+			groupStarts = Arrays.copyOf(groupStarts, groupStarts.length * 2);
+		}
+		groupMeshes[groupCount] = mesh;
+		groupCount++;
+		groupStarts[groupCount] = itemCount;
+	}
+	
+	/**
+	 * Logic thread, adds slot to the last group.
+	 */
+	public void addItem(int slot) {
+		if (itemCount == itemSlots.length) {
+			itemSlots = Arrays.copyOf(itemSlots, itemCount * 2);
+			visible = new boolean[itemCount * 2];
+		}
+		itemSlots[itemCount++] = slot;
+		groupStarts[groupCount] = itemCount;
+	}
+	
+	public Mesh getGroupMesh(int group) {
+		return groupMeshes[group];
+	}
+	
+	/**
+	 * @return index of first item of group
+	 */
+	public int getGroupStart(int group) {
+		return groupStarts[group];
+	}
+	
+	/**
+	 * @return index after last item of group
+	 */
+	public int getGroupEnd(int group) {
+		return groupStarts[group + 1];
+	}
+	
+	/**
+	 * Render thread, how far between previous and current tick the frame shown
+	 * at <code>renderNanos</code> is. Rendering runs one tick behind logic, so
+	 * 0 shows previous tick, 1 the current one.
+	 */
+	public float alpha(long renderNanos) {
+		long span = tickNanos - previousTickNanos;
+		if (span <= 0) { return 1; }
+		float alpha = (float) (renderNanos - tickNanos) / span;
+		return alpha < 0 ? 0 : alpha > 1 ? 1 : alpha;
+	}
+	
+	/**
+	 * Render thread, fills {@link #getInterpolated()} for given render time.
+	 * Positions and scale are lerped, rotations nlerped along shorter arc.
+	 *
+	 * @return used interpolation factor
+	 */
+	public float interpolate(long renderNanos) {
+		float t = alpha(renderNanos);
+		float s = 1 - t;
+		int end = size * TRANSFORM_SIZE_FLOATS;
+		for (int o = 0; o < end; o += TRANSFORM_SIZE_FLOATS) {
+			interpolated[o] = s * previous[o] + t * current[o];
+			interpolated[o + 1] = s * previous[o + 1] + t * current[o + 1];
+			interpolated[o + 2] = s * previous[o + 2] + t * current[o + 2];
+			
+			int r = o + ROTATION;
+			float dot = previous[r] * current[r] + previous[r + 1] * current[r + 1] + previous[r + 2] * current[r + 2] + previous[r + 3] * current[r + 3];
+			float tq = dot < 0 ? -t : t;
+			float qx = s * previous[r] + tq * current[r];
+			float qy = s * previous[r + 1] + tq * current[r + 1];
+			float qz = s * previous[r + 2] + tq * current[r + 2];
+			float qw = s * previous[r + 3] + tq * current[r + 3];
+			float len = qx * qx + qy * qy + qz * qz + qw * qw;
+			float inv = len > 0 ? (float) (1.0 / Math.sqrt(len)) : 0;
+			interpolated[r] = qx * inv;
+			interpolated[r + 1] = qy * inv;
+			interpolated[r + 2] = qz * inv;
+			interpolated[r + 3] = len > 0 ? qw * inv : 1;
+			
+			interpolated[o + SCALE] = s * previous[o + SCALE] + t * current[o + SCALE];
+		}
+		return t;
+	}
+	
+	/**
+	 * Render thread, sets camera to its interpolated state and rebuilds its
+	 * view matrix. Does nothing when no camera was published.
+	 */
+	public void interpolateCamera(long renderNanos, Camera dest) {
+		if (!hasCamera) { return; }
+		float t = alpha(renderNanos);
+		float s = 1 - t;
+		float[] c = camera;
+		float[] p = previousCamera;
+		dest.setPosition(s * p[0] + t * c[0], s * p[1] + t * c[1], s * p[2] + t * c[2]);
+		dest.getOffset().set(s * p[3] + t * c[3], s * p[4] + t * c[4], s * p[5] + t * c[5]);
+		dest.setRotation(s * p[6] + t * c[6], s * p[7] + t * c[7], s * p[8] + t * c[8]);
+		dest.updateViewMatrix();
+	}
+	
+	public boolean hasCamera() {
+		return hasCamera;
+	}
+	
+	/**
+	 * Render thread, marks all items visible, used when frustum culling is off.
+	 */
+	public void setAllVisible() {
+		Arrays.fill(visible, 0, itemCount, true);
+	}
+	
+	/**
+	 * Render thread, marks items of given slots visible and all others hidden.
+	 *
+	 * @param slots
+	 *           visible slots, e.g. result of culling
+	 */
+	public void setVisibleSlots(int[] slots, int count) {
+		Arrays.fill(slotVisible, 0, size, false);
+		for (int i = 0; i < count; i++) {
+			slotVisible[slots[i]] = true;
+		}
+		for (int i = 0; i < itemCount; i++) {
+			visible[i] = slotVisible[itemSlots[i]];
+		}
+	}
+	
+	/**
+	 * @return bounding radius of slot with interpolated scale
+	 */
+	public float getBoundingRadius(int slot) {
+		return radii[slot] * interpolated[slot * TRANSFORM_SIZE_FLOATS + SCALE];
+	}
+	
+	/**
+	 * Render thread, copies slots of visible items of group to array, which
+	 * must hold at least {@link #getItemCount()} entries.
+	 *
+	 * @return number of copied slots
+	 */
+	public int gatherVisible(int group, int[] dest) {
+		int count = 0;
+		for (int i = groupStarts[group], end = groupStarts[group + 1]; i < end; i++) {
+			if (visible[i]) {
+				dest[count++] = itemSlots[i];
+			}
+		}
+		return count;
+	}
+	
+	public boolean isSelected(int slot) {
+		return (flags[slot] & FLAG_SELECTED) != 0;
+	}
+	
+	public boolean isCullable(int slot) {
+		return (flags[slot] & FLAG_NO_CULLING) == 0;
+	}
+	
+	/**
+	 * Boxed slot index for render queue items, cached so that queueing does not
+	 * allocate.
+	 */
+	public Integer ref(int slot) {
+		if (slot >= refs.length) {
+			int from = refs.length;
+			refs = Arrays.copyOf(refs, Math.max(slot + 1, from * 2));
+			for (int i = from; i < refs.length; i++) {
+				refs[i] = i;
+			}
+		}
+		return refs[slot];
+	}
+}
@@ -10,55 +10,78 @@ import eu.grmdev.senryaku.graphic.anim.TranslateAnimation;
 import eu.grmdev.senryaku.graphic.mesh.Mesh;
 import lombok.*;
 
+/**
+ * Facade of one {@link EntityStore} row. Transform, flags and meshes live in
+ * store; vector getters return copies, changes go through setters. Released
+ * entity ignores changes and its getters return defaults.
+ */
 public class Entity {
-	private @Getter @Setter boolean selected;
-	protected @Getter Mesh[] meshes;
-	protected @Getter final Vector3f position;
-	protected @Getter final Vector3f renderOffset;
-	protected @Getter @Setter float scale;
-	private @Getter final Quaternionf rotation;
+	private @Getter final EntityStore store;
+	private @Getter final int handle;
 	protected @Getter Direction direction;
-	private @Getter @Setter int textPos;
-	private @Getter @Setter boolean disableFrustumCulling;
-	private @Getter @Setter boolean insideFrustum;
 	protected TranslateAnimation tAnimation;
 	private @Getter double creationTime;
 	private @Getter(value = AccessLevel.PROTECTED) IGame game;
 	
+	/**
+	 * Entity in store of game.
+	 */
 	public Entity(IGame game) {
+		this(game.getEntityStore(), game);
+	}
+	
+	/**
+	 * Entity in given store, game may be null in tools and benchmarks.
+	 */
+	public Entity(EntityStore store, IGame game) {
 		this.game = game;
-		selected = false;
-		position = new Vector3f(0, 0, 0);
-		renderOffset = new Vector3f(0, 0, 0);
-		rotation = new Quaternionf();
+		this.store = store;
+		handle = store.create(this);
 		direction = Direction.DOWN;
-		tAnimation = new TranslateAnimation(position);
+		tAnimation = new TranslateAnimation(store, handle);
 		creationTime = glfwGetTime();
-		scale = 1;
-		textPos = 0;
-		insideFrustum = true;
-		disableFrustumCulling = false;
 	}
 	
 	public Entity(Mesh mesh, IGame game) {
 		this(game);
-		this.meshes = new Mesh[]{mesh};
+		setMesh(mesh);
 	}
 	
 	public Entity(Mesh[] meshes, IGame game) {
 		this(game);
-		this.meshes = meshes;
+		setMeshes(meshes);
 	}
 	
 	public Entity(Mesh[] meshes, float scale, IGame game) {
 		this(meshes, game);
-		this.scale = scale;
+		setScale(scale);
+	}
+	
+	/**
+	 * @return current row in store, -1 when entity was released
+	 */
+	public final int getRow() {
+		return store.rowOf(handle);
+	}
+	
+	public boolean isAlive() {
+		return getRow() >= 0;
+	}
+	
+	/**
+	 * Removes entity from store. Must be removed from scene first.
+	 */
+	public void release() {
+		store.destroy(handle);
 	}
 	
+	/**
+	 * Moves entity without interpolation from its previous position.
+	 */
 	public final void setPosition(float x, float y, float z) {
-		synchronized (position) {
-			this.position.set(x, y, z);
-			tAnimation.reset();
+		int row = getRow();
+		if (row >= 0) {
+			store.setPosition(row, x, y, z);
 		}
 	}
 	
@@ -66,22 +89,146 @@ public class Entity {
 		setPosition(v.x, v.y, v.z);
 	}
 	
+	public Vector3f getPosition() {
+		return getPosition(new Vector3f());
+	}
+	
+	public Vector3f getPosition(Vector3f dest) {
+		return get(EntityStore.POSITION, dest);
+	}
+	
+	public void setRenderOffset(float x, float y, float z) {
+		set(EntityStore.OFFSET, x, y, z);
+	}
+	
+	public Vector3f getRenderOffset() {
+		return get(EntityStore.OFFSET, new Vector3f());
+	}
+	
+	private void set(int component, float x, float y, float z) {
+		int row = getRow();
+		if (row < 0) { return; }
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS + component;
+		t[o] = x;
+		t[o + 1] = y;
+		t[o + 2] = z;
+	}
+	
+	private Vector3f get(int component, Vector3f dest) {
+		int row = getRow();
+		if (row < 0) { return dest; }
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS + component;
+		return dest.set(t[o], t[o + 1], t[o + 2]);
+	}
+	
 	public final void setRotation(Quaternionf q) {
-		this.rotation.set(q);
+		int row = getRow();
+		if (row < 0) { return; }
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.ROTATION;
+		t[o] = q.x;
+		t[o + 1] = q.y;
+		t[o + 2] = q.z;
+		t[o + 3] = q.w;
+	}
+	
+	public Quaternionf getRotation() {
+		Quaternionf q = new Quaternionf();
+		int row = getRow();
+		if (row < 0) { return q; }
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.ROTATION;
+		return q.set(t[o], t[o + 1], t[o + 2], t[o + 3]);
+	}
+	
+	public void setScale(float scale) {
+		int row = getRow();
+		if (row >= 0) {
+			store.getTransforms()[row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.SCALE] = scale;
+			store.updateIndex(row);
+		}
+	}
+	
+	public float getScale() {
+		int row = getRow();
+		return row >= 0 ? store.getTransforms()[row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.SCALE] : 1;
+	}
+	
+	public void setTextPos(int textPos) {
+		int row = getRow();
+		if (row >= 0) {
+			store.getTextPos()[row] = textPos;
+		}
+	}
+	
+	public int getTextPos() {
+		int row = getRow();
+		return row >= 0 ? store.getTextPos()[row] : 0;
+	}
+	
+	private void setFlag(int flag, boolean value) {
+		int row = getRow();
+		if (row >= 0) {
+			store.setFlag(row, flag, value);
+		}
+	}
+	
+	private boolean hasFlag(int flag) {
+		int row = getRow();
+		return row >= 0 && store.hasFlag(row, flag);
+	}
+	
+	public void setSelected(boolean selected) {
+		setFlag(EntityStore.FLAG_SELECTED, selected);
+	}
+	
+	public boolean isSelected() {
+		return hasFlag(EntityStore.FLAG_SELECTED);
+	}
+	
+	public void setDisableFrustumCulling(boolean disableFrustumCulling) {
+		setFlag(EntityStore.FLAG_NO_CULLING, disableFrustumCulling);
+	}
+	
+	public boolean isDisableFrustumCulling() {
+		return hasFlag(EntityStore.FLAG_NO_CULLING);
+	}
+	
+	public void setInsideFrustum(boolean insideFrustum) {
+		setFlag(EntityStore.FLAG_INSIDE_FRUSTUM, insideFrustum);
+	}
+	
+	public boolean isInsideFrustum() {
+		return hasFlag(EntityStore.FLAG_INSIDE_FRUSTUM);
+	}
+	
+	public Mesh[] getMeshes() {
+		int row = getRow();
+		return row >= 0 ? store.getMeshes()[row] : null;
+	}
+	
+	public void setMeshes(Mesh[] meshes) {
+		int row = getRow();
+		if (row >= 0) {
+			store.getMeshes()[row] = meshes;
+		}
 	}
 	
 	public Mesh getMesh() {
-		return meshes[0];
+		return getMeshes()[0];
 	}
 	
 	public void setMesh(Mesh mesh) {
-		this.meshes = new Mesh[]{mesh};
+		setMeshes(new Mesh[]{mesh});
 	}
 	
 	public void cleanup() {
-		int numMeshes = this.meshes != null ? this.meshes.length : 0;
+		Mesh[] meshes = getMeshes();
+		int numMeshes = meshes != null ? meshes.length : 0;
 		for (int i = 0; i < numMeshes; i++) {
-			this.meshes[i].remove();
+			meshes[i].remove();
 		}
 	}
 }
@@ -0,0 +1,355 @@
+package eu.grmdev.senryaku.core.entity;
+
+import java.util.Arrays;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import lombok.Getter;
+
+/**
+ * Data of entities in dense component arrays, one row per live entity. Rows
+ * are kept packed: removing an entity moves the last row into its place, so
+ * systems iterate <code>0 .. size</code> without holes. {@link Entity} is a
+ * facade keeping only a handle, which stays valid while rows move and
+ * becomes stale once the entity is destroyed. Entities flagged
+ * {@link #FLAG_INDEXED} are also kept in a {@link SpatialGrid} which follows
+ * their position.
+ * <p>
+ * Entities are created and destroyed under store lock. Components are
+ * written by logic thread only; component arrays are replaced when store
+ * grows, so always read them from the store, do not keep them.
+ *
+ * <pre>
+ * transform: 0 position xyz   3 render offset xyz   6 rotation quaternion xyzw   10 scale
+ * movement:  0 start xyz   3 next xyz   6 destination xyz   9 elapsed millis   10 duration millis
+ * </pre>
+ */
+public class EntityStore {
+	public static final int TRANSFORM_SIZE_FLOATS = 11;
+	public static final int POSITION = 0;
+	public static final int OFFSET = 3;
+	public static final int ROTATION = 6;
+	public static final int SCALE = 10;
+	public static final int PUBLISHED_SIZE_FLOATS = SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+	public static final int MOVEMENT_SIZE_FLOATS = 11;
+	public static final int MOVE_START = 0;
+	public static final int MOVE_NEXT = 3;
+	public static final int MOVE_DEST = 6;
+	public static final int MOVE_TIME = 9;
+	public static final int MOVE_DURATION = 10;
+	public static final int FLAG_SELECTED = 1;
+	public static final int FLAG_NO_CULLING = 2;
+	public static final int FLAG_INSIDE_FRUSTUM = 4;
+	public static final int FLAG_IN_SCENE = 8;
+	/** Next published transform does not interpolate from the previous one */
+	public static final int FLAG_PUBLISH_RESET = 16;
+	/** Entity is kept in {@link #getGrid()} */
+	public static final int FLAG_INDEXED = 32;
+	/** Handle which never points to entity */
+	public static final int NO_HANDLE = 0;
+	public static final float DEFAULT_MOVE_MILLIS = 500;
+	private static final int INDEX_BITS = 24;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+	private static final int GENERATION_MASK = 0xFF;
+	private static final int INITIAL_CAPACITY = 64;
+	private @Getter int size;
+	private @Getter float[] transforms;
+	private @Getter float[] movement;
+	/** Transform published to last scene snapshot, logic thread only */
+	private @Getter float[] published;
+	private @Getter int[] flags;
+	private @Getter int[] textPos;
+	private @Getter int[] snapshotSlots;
+	private @Getter int[] snapshotIds;
+	private @Getter Mesh[][] meshes;
+	/** Grid cell of indexed entities */
+	private long[] cells;
+	private @Getter final SpatialGrid grid;
+	private Entity[] owners;
+	private int[] handles;
+	/** Row of entity id, -1 for free ids */
+	private int[] rows;
+	private byte[] generations;
+	private int[] freeIds;
+	private int freeCount;
+	private int nextId;
+	
+	public EntityStore() {
+		this(INITIAL_CAPACITY);
+	}
+	
+	public EntityStore(int initialCapacity) {
+		this(initialCapacity, SpatialGrid.DEFAULT_CELL_SIZE);
+	}
+	
+	public EntityStore(int initialCapacity, float cellSize) {
+		grid = new SpatialGrid(cellSize);
+		int capacity = Math.max(1, initialCapacity);
+		transforms = new float[capacity * TRANSFORM_SIZE_FLOATS];
+		movement = new float[capacity * MOVEMENT_SIZE_FLOATS];
+		published = new float[capacity * PUBLISHED_SIZE_FLOATS];
+		flags = new int[capacity];
+		textPos = new int[capacity];
+		snapshotSlots = new int[capacity];
+		snapshotIds = new int[capacity];
+		meshes = new Mesh[capacity][];
+		cells = new long[capacity];
+		owners = new Entity[capacity];
+		handles = new int[capacity];
+		rows = new int[capacity];
+		generations = new byte[capacity];
+		freeIds = new int[capacity];
+	}
+	
+	/**
+	 * Adds entity with identity transform, scale 1 and no movement.
+	 *
+	 * @param owner
+	 *           facade of entity, can be null
+	 * @return handle of new entity
+	 */
+	public synchronized int create(Entity owner) {
+		int id;
+		if (freeCount > 0) {
+			id = freeIds[--freeCount];
+		} else {
+			if (nextId > INDEX_MASK) { throw new IllegalStateException("Entity store is full"); }
+			id = nextId++;
+			if (id == rows.length) {
+				rows = Arrays.copyOf(rows, id * 2);
+				generations = Arrays.copyOf(generations, id * 2);
+			}
+		}
+		if (size == flags.length) {
+			grow(size * 2);
+		}
+		int row = size++;
+		int handle = handle(id, generations[id]);
+		rows[id] = row;
+		handles[row] = handle;
+		owners[row] = owner;
+		meshes[row] = null;
+		flags[row] = FLAG_INSIDE_FRUSTUM | FLAG_PUBLISH_RESET;
+		textPos[row] = 0;
+		snapshotIds[row] = 0;
+		int t = row * TRANSFORM_SIZE_FLOATS;
+		Arrays.fill(transforms, t, t + TRANSFORM_SIZE_FLOATS, 0);
+		transforms[t + ROTATION + 3] = 1;
+		transforms[t + SCALE] = 1;
+		int m = row * MOVEMENT_SIZE_FLOATS;
+		Arrays.fill(movement, m, m + MOVEMENT_SIZE_FLOATS, 0);
+		movement[m + MOVE_TIME] = DEFAULT_MOVE_MILLIS;
+		movement[m + MOVE_DURATION] = DEFAULT_MOVE_MILLIS;
+		return handle;
+	}
+	
+	/**
+	 * Removes entity, last row is moved into its place. Handle and all copies
+	 * of it become stale. Does nothing for stale handle.
+	 */
+	public synchronized void destroy(int handle) {
+		int row = rowOf(handle);
+		if (row < 0) { return; }
+		if (hasFlag(row, FLAG_INDEXED)) {
+			grid.remove(handle, cells[row]);
+		}
+		int id = handle & INDEX_MASK;
+		int last = --size;
+		if (row != last) {
+			System.arraycopy(transforms, last * TRANSFORM_SIZE_FLOATS, transforms, row * TRANSFORM_SIZE_FLOATS, TRANSFORM_SIZE_FLOATS);
+			System.arraycopy(movement, last * MOVEMENT_SIZE_FLOATS, movement, row * MOVEMENT_SIZE_FLOATS, MOVEMENT_SIZE_FLOATS);
+			System.arraycopy(published, last * PUBLISHED_SIZE_FLOATS, published, row * PUBLISHED_SIZE_FLOATS, PUBLISHED_SIZE_FLOATS);
+			flags[row] = flags[last];
+			textPos[row] = textPos[last];
+			snapshotSlots[row] = snapshotSlots[last];
+			snapshotIds[row] = snapshotIds[last];
+			meshes[row] = meshes[last];
+			cells[row] = cells[last];
+			owners[row] = owners[last];
+			handles[row] = handles[last];
+			rows[handles[row] & INDEX_MASK] = row;
+		}
+		meshes[last] = null;
+		owners[last] = null;
+		rows[id] = -1;
+		generations[id] = (byte) ((generations[id] + 1) & GENERATION_MASK);
+		if (freeCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+		}
+		freeIds[freeCount++] = id;
+	}
+	
+	private void grow(int capacity) {
+		transforms = Arrays.copyOf(transforms, capacity * TRANSFORM_SIZE_FLOATS);
+		movement = Arrays.copyOf(movement, capacity * MOVEMENT_SIZE_FLOATS);
+		published = Arrays.copyOf(published, capacity * PUBLISHED_SIZE_FLOATS);
+		flags = Arrays.copyOf(flags, capacity);
+		textPos = Arrays.copyOf(textPos, capacity);
+		snapshotSlots = Arrays.copyOf(snapshotSlots, capacity);
+		snapshotIds = Arrays.copyOf(snapshotIds, capacity);
+		meshes = Arrays.copyOf(meshes, capacity);
+		cells = Arrays.copyOf(cells, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+		handles = Arrays.copyOf(handles, capacity);
+	}
+	
+	private static int handle(int id, byte generation) {
+		// generation is shifted by one so that no handle equals NO_HANDLE
+		return (((generation & GENERATION_MASK) + 1) << INDEX_BITS) | id;
+	}
+	
+	/**
+	 * @return index part of handle, unique among live entities of store
+	 */
+	public static int idOf(int handle) {
+		return handle & INDEX_MASK;
+	}
+	
+	/**
+	 * @return current row of entity, -1 when handle is stale
+	 */
+	public int rowOf(int handle) {
+		int id = handle & INDEX_MASK;
+		int[] rows = this.rows;
+		if (handle == NO_HANDLE || id >= rows.length) { return -1; }
+		int row = rows[id];
+		return row >= 0 && handles[row] == handle ? row : -1;
+	}
+	
+	public boolean isAlive(int handle) {
+		return rowOf(handle) >= 0;
+	}
+	
+	public int getHandle(int row) {
+		return handles[row];
+	}
+	
+	public Entity getOwner(int row) {
+		return owners[row];
+	}
+	
+	public boolean hasFlag(int row, int flag) {
+		return (flags[row] & flag) != 0;
+	}
+	
+	public void setFlag(int row, int flag, boolean value) {
+		if (value) {
+			flags[row] |= flag;
+		} else {
+			flags[row] &= ~flag;
+		}
+	}
+	
+	/**
+	 * Moves entity without interpolation and stops its movement.
+	 */
+	public void setPosition(int row, float x, float y, float z) {
+		int t = row * TRANSFORM_SIZE_FLOATS;
+		transforms[t + POSITION] = x;
+		transforms[t + POSITION + 1] = y;
+		transforms[t + POSITION + 2] = z;
+		resetMovement(row);
+		flags[row] |= FLAG_PUBLISH_RESET;
+		updateIndex(row);
+	}
+	
+	/**
+	 * Adds entity to spatial grid or removes it from there.
+	 */
+	public void setIndexed(int row, boolean indexed) {
+		if (indexed == hasFlag(row, FLAG_INDEXED)) { return; }
+		int t = row * TRANSFORM_SIZE_FLOATS;
+		if (indexed) {
+			cells[row] = grid.insert(handles[row], transforms[t + POSITION], transforms[t + POSITION + 1], transforms[t + POSITION + 2], transforms[t + SCALE]);
+		} else {
+			grid.remove(handles[row], cells[row]);
+		}
+		setFlag(row, FLAG_INDEXED, indexed);
+	}
+	
+	/**
+	 * Moves indexed entity to grid cell of its position, must be called after
+	 * position or scale was written directly to component arrays.
+	 */
+	public void updateIndex(int row) {
+		if ((flags[row] & FLAG_INDEXED) == 0) { return; }
+		int t = row * TRANSFORM_SIZE_FLOATS;
+		cells[row] = grid.move(handles[row], cells[row], transforms[t + POSITION], transforms[t + POSITION + 1], transforms[t + POSITION + 2], transforms[t + SCALE]);
+	}
+	
+	/**
+	 * Sets start, next and destination of movement to current position.
+	 */
+	public void resetMovement(int row) {
+		int t = row * TRANSFORM_SIZE_FLOATS;
+		int m = row * MOVEMENT_SIZE_FLOATS;
+		for (int c = 0; c < 3; c++) {
+			float p = transforms[t + POSITION + c];
+			movement[m + MOVE_START + c] = p;
+			movement[m + MOVE_NEXT + c] = p;
+			movement[m + MOVE_DEST + c] = p;
+		}
+		movement[m + MOVE_TIME] = movement[m + MOVE_DURATION];
+	}
+	
+	/**
+	 * Moves destination by given offset, movement starts from next position.
+	 */
+	public void move(int row, float rx, float rz) {
+		int m = row * MOVEMENT_SIZE_FLOATS;
+		movement[m + MOVE_DEST] += rx;
+		movement[m + MOVE_DEST + 2] += rz;
+		System.arraycopy(movement, m + MOVE_NEXT, movement, m + MOVE_START, 3);
+		movement[m + MOVE_TIME] = 0;
+	}
+	
+	/**
+	 * Advances movement of one entity. Position follows next position one tick
+	 * behind, both depend only on elapsed time.
+	 *
+	 * @param interval
+	 *           elapsed milliseconds
+	 */
+	public void animate(int row, float interval) {
+		int t = row * TRANSFORM_SIZE_FLOATS;
+		int m = row * MOVEMENT_SIZE_FLOATS;
+		float duration = movement[m + MOVE_DURATION];
+		if (movement[m + MOVE_TIME] < duration) {
+			System.arraycopy(movement, m + MOVE_NEXT, transforms, t + POSITION, 3);
+			float time = movement[m + MOVE_TIME] + interval;
+			movement[m + MOVE_TIME] = time;
+			float f = Math.min(1, time / duration);
+			for (int c = 0; c < 3; c++) {
+				float start = movement[m + MOVE_START + c];
+				movement[m + MOVE_NEXT + c] = start + (movement[m + MOVE_DEST + c] - start) * f;
+			}
+		} else {
+			System.arraycopy(movement, m + MOVE_DEST, transforms, t + POSITION, 3);
+		}
+		updateIndex(row);
+	}
+	
+	/**
+	 * Runs system over all rows.
+	 */
+	public void run(EntitySystem system) {
+		system.process(this, 0, size);
+	}
+	
+	/**
+	 * Collects rows having all given flags.
+	 *
+	 * @param dest
+	 *           must hold at least {@link #getSize()} entries
+	 * @return number of collected rows
+	 */
+	public int query(int requiredFlags, int[] dest) {
+		int count = 0;
+		for (int row = 0; row < size; row++) {
+			if ((flags[row] & requiredFlags) == requiredFlags) {
+				dest[count++] = row;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,16 @@
+package eu.grmdev.senryaku.core.entity;
+
+/**
+ * Logic run over a range of {@link EntityStore} rows, reading and writing
+ * component arrays directly.
+ */
+@FunctionalInterface
+public interface EntitySystem {
+	/**
+	 * @param from
+	 *           first row, inclusive
+	 * @param to
+	 *           last row, exclusive
+	 */
+	void process(EntityStore store, int from, int to);
+}
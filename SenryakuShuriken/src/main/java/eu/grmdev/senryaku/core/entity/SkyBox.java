@@ -11,7 +11,7 @@ public class SkyBox extends Entity {
 	public SkyBox(String objModel, String textureFile, IGame game) throws Exception {
 		super(game);
 		Mesh skyBoxMesh = StaticMeshesLoader.load(objModel, "")[0];
-		Texture skyBoxtexture = new Texture(textureFile);
+		Texture skyBoxtexture = TextureLoader.getInstance().load(textureFile);
 		skyBoxMesh.setMaterial(new Material(skyBoxtexture, 0.0f));
 		skyBoxMesh.setNormalsEnabled(false);
 		setMesh(skyBoxMesh);
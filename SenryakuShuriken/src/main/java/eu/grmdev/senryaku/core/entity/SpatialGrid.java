@@ -0,0 +1,254 @@
+package eu.grmdev.senryaku.core.entity;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Uniform grid of entity handles hashed by cell coordinates. Entity is kept
+ * in the cell of its position only, entities reaching out of their cell are
+ * found by also looking into neighbour cells up to the largest extent ever
+ * inserted. Cells are never removed, so grid only grows with the area ever
+ * occupied.
+ */
+public class SpatialGrid {
+	public static final float DEFAULT_CELL_SIZE = 1f;
+	private static final int COORD_BITS = 21;
+	private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+	private static final int INITIAL_TABLE = 64;
+	private static final int INITIAL_BUCKET = 2;
+	private @Getter final float cellSize;
+	/** Open addressing table, cell key to bucket index + 1, 0 is empty */
+	private long[] keys;
+	private int[] table;
+	private int[][] buckets;
+	private int[] bucketSizes;
+	private int[] stamps;
+	private int bucketCount;
+	private int stamp;
+	private @Getter int size;
+	private float maxExtent;
+	private int minX, minY, minZ, maxX, maxY, maxZ;
+	/** Cells looked into by last raycast */
+	private @Getter int visitedCells;
+	
+	public SpatialGrid(float cellSize) {
+		this.cellSize = cellSize;
+		keys = new long[INITIAL_TABLE];
+		table = new int[INITIAL_TABLE];
+		buckets = new int[INITIAL_TABLE / 2][];
+		bucketSizes = new int[INITIAL_TABLE / 2];
+		stamps = new int[INITIAL_TABLE / 2];
+		minX = minY = minZ = Integer.MAX_VALUE;
+		maxX = maxY = maxZ = Integer.MIN_VALUE;
+	}
+	
+	/**
+	 * Tests one entity against ray.
+	 */
+	@FunctionalInterface
+	public interface RayTest {
+		/**
+		 * @return ray parameter of hit, {@link Float#POSITIVE_INFINITY} on miss
+		 */
+		float intersect(int handle);
+	}
+	
+	public int cell(float v) {
+		return (int) Math.floor(v / cellSize);
+	}
+	
+	public static long key(int x, int y, int z) {
+		return ((x & COORD_MASK) << (2 * COORD_BITS)) | ((y & COORD_MASK) << COORD_BITS) | (z & COORD_MASK);
+	}
+	
+	/**
+	 * @param extent
+	 *           largest distance between position and bounds of entity
+	 * @return key of cell entity was put into
+	 */
+	public synchronized long insert(int handle, float x, float y, float z, float extent) {
+		int cx = cell(x), cy = cell(y), cz = cell(z);
+		long key = key(cx, cy, cz);
+		int b = bucket(key, true);
+		int[] bucket = buckets[b];
+		if (bucketSizes[b] == bucket.length) {
+			bucket = buckets[b] = Arrays.copyOf(bucket, bucket.length * 2);
+		}
+		bucket[bucketSizes[b]++] = handle;
+		size++;
+		maxExtent = Math.max(maxExtent, extent);
+		minX = Math.min(minX, cx);
+		minY = Math.min(minY, cy);
+		minZ = Math.min(minZ, cz);
+		maxX = Math.max(maxX, cx);
+		maxY = Math.max(maxY, cy);
+		maxZ = Math.max(maxZ, cz);
+		return key;
+	}
+	
+	public synchronized void remove(int handle, long key) {
+		int b = bucket(key, false);
+		if (b < 0) { return; }
+		int[] bucket = buckets[b];
+		for (int i = 0, n = bucketSizes[b]; i < n; i++) {
+			if (bucket[i] == handle) {
+				bucket[i] = bucket[n - 1];
+				bucketSizes[b]--;
+				size--;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Moves entity to cell of new position, cheap when cell does not change.
+	 *
+	 * @return key of cell entity is in now
+	 */
+	public long move(int handle, long key, float x, float y, float z, float extent) {
+		long newKey = key(cell(x), cell(y), cell(z));
+		if (newKey == key && extent <= maxExtent) { return key; }
+		synchronized (this) {
+			remove(handle, key);
+			return insert(handle, x, y, z, extent);
+		}
+	}
+	
+	/**
+	 * @return bucket index of cell, -1 when cell does not exist and
+	 *         <code>create</code> is false
+	 */
+	private int bucket(long key, boolean create) {
+		int mask = table.length - 1;
+		int i = hash(key) & mask;
+		while (table[i] != 0) {
+			if (keys[i] == key) { return table[i] - 1; }
+			i = (i + 1) & mask;
+		}
+		if (!create) { return -1; }
+		if (bucketCount == buckets.length) {
+			int capacity = bucketCount * 2;
+			buckets = Arrays.copyOf(buckets, capacity);
+			bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+		}
+		int b = bucketCount++;
+		buckets[b] = new int[INITIAL_BUCKET];
+		keys[i] = key;
+		table[i] = b + 1;
+		if (bucketCount * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return b;
+	}
+	
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldTable = table;
+		keys = new long[capacity];
+		table = new int[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldTable.length; j++) {
+			if (oldTable[j] != 0) {
+				int i = hash(oldKeys[j]) & mask;
+				while (table[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				table[i] = oldTable[j];
+			}
+		}
+	}
+	
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+	
+	/**
+	 * Walks cells along the ray with 3D DDA, in order of distance, and tests
+	 * entities of visited cells and their neighbours. Stops once no cell ahead
+	 * can hold a closer hit or ray leaves occupied area.
+	 *
+	 * @return handle of closest hit, {@link EntityStore#NO_HANDLE} when nothing
+	 *         was hit
+	 */
+	public synchronized int raycast(float ox, float oy, float oz, float dx, float dy, float dz, RayTest test) {
+		visitedCells = 0;
+		if (size == 0) { return EntityStore.NO_HANDLE; }
+		int reach = (int) Math.ceil(maxExtent / cellSize);
+		float[] o = {ox, oy, oz};
+		float[] d = {dx, dy, dz};
+		int[] lo = {minX - reach, minY - reach, minZ - reach};
+		int[] hi = {maxX + reach, maxY + reach, maxZ + reach};
+		float tEnter = 0;
+		float tExit = Float.POSITIVE_INFINITY;
+		for (int a = 0; a < 3; a++) {
+			float min = lo[a] * cellSize;
+			float max = (hi[a] + 1) * cellSize;
+			if (d[a] == 0) {
+				if (o[a] < min || o[a] >= max) { return EntityStore.NO_HANDLE; }
+			} else {
+				float t0 = (min - o[a]) / d[a];
+				float t1 = (max - o[a]) / d[a];
+				tEnter = Math.max(tEnter, Math.min(t0, t1));
+				tExit = Math.min(tExit, Math.max(t0, t1));
+			}
+		}
+		if (tEnter > tExit) { return EntityStore.NO_HANDLE; }
+		int[] c = new int[3];
+		int[] step = new int[3];
+		float[] tMax = new float[3];
+		float[] tDelta = new float[3];
+		for (int a = 0; a < 3; a++) {
+			float p = o[a] + d[a] * tEnter;
+			c[a] = Math.max(lo[a], Math.min(hi[a], cell(p)));
+			if (d[a] > 0) {
+				step[a] = 1;
+				tMax[a] = ((c[a] + 1) * cellSize - o[a]) / d[a];
+				tDelta[a] = cellSize / d[a];
+			} else if (d[a] < 0) {
+				step[a] = -1;
+				tMax[a] = (c[a] * cellSize - o[a]) / d[a];
+				tDelta[a] = -cellSize / d[a];
+			} else {
+				tMax[a] = Float.POSITIVE_INFINITY;
+				tDelta[a] = Float.POSITIVE_INFINITY;
+			}
+		}
+		// hit in a neighbour cell can be closer than the cell being entered
+		float slack = (float) ((reach + 1) * cellSize * Math.sqrt(3) / Math.sqrt(dx * dx + dy * dy + dz * dz));
+		stamp++;
+		float best = Float.POSITIVE_INFINITY;
+		int bestHandle = EntityStore.NO_HANDLE;
+		float t = tEnter;
+		while (t <= tExit && t <= best + slack) {
+			for (int x = c[0] - reach; x <= c[0] + reach; x++) {
+				for (int y = c[1] - reach; y <= c[1] + reach; y++) {
+					for (int z = c[2] - reach; z <= c[2] + reach; z++) {
+						int b = bucket(key(x, y, z), false);
+						if (b < 0 || stamps[b] == stamp) {
+							continue;
+						}
+						stamps[b] = stamp;
+						visitedCells++;
+						int[] bucket = buckets[b];
+						for (int i = 0, n = bucketSizes[b]; i < n; i++) {
+							float hit = test.intersect(bucket[i]);
+							if (hit < best) {
+								best = hit;
+								bestHandle = bucket[i];
+							}
+						}
+					}
+				}
+			}
+			int a = tMax[0] < tMax[1] ? (tMax[0] < tMax[2] ? 0 : 2) : (tMax[1] < tMax[2] ? 1 : 2);
+			t = tMax[a];
+			c[a] += step[a];
+			tMax[a] += tDelta[a];
+		}
+		return bestHandle;
+	}
+}
@@ -32,8 +32,8 @@ public class Projectile extends Entity implements Movable {
 		this.eh = eh;
 		this.startPos = new Vector3f(startPos);
 		this.dir = new Vector3f(dir);
-		this.meshes = projectile.getMesh();
-		this.scale = projectile.getScale();
+		setMeshes(projectile.getMesh());
+		setScale(projectile.getScale());
 		this.setPosition(startPos.x, startPos.y + 0.5f, startPos.z);
 		this.setRotation(projectile.getInitialRotation());
 		this.levelManager = LevelManager.getInstance();
@@ -66,7 +66,7 @@ public class Projectile extends Entity implements Movable {
 	public void animate(float interval) {
 		tAnimation.animate(interval);
 		checkCollisions(tAnimation.getDestPosition());
-		getRotation().rotate(rot.x, rot.y, rot.z);
+		setRotation(getRotation().rotate(rot.x, rot.y, rot.z));
 	}
 	
 	@Override
@@ -92,6 +92,7 @@ public class Projectile extends Entity implements Movable {
 	public void die() {
 		getGame().removeEntity(this);
 		objects.remove(this);
+		release();
 	}
 	
 }
@@ -46,4 +46,15 @@ public enum Projectiles {
 		}
 		return mesh;
 	}
+	
+	public static void destroy() {
+		for (Projectiles p : values()) {
+			if (p.mesh != null) {
+				for (Mesh m : p.mesh) {
+					m.remove();
+				}
+				p.mesh = null;
+			}
+		}
+	}
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import org.joml.*;
 
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.graphic.Camera;
 
 /**
@@ -29,6 +30,11 @@ public class CameraBoxSelectionDetector {
 		selectEntity(entities, camera.getPosition(), dir);
 	}
 	
+	public Entity selectEntity(EntityStore store, Camera camera) {
+		dir = camera.getViewMatrix().positiveZ(dir).negate();
+		return selectClosestEntity(store, camera.getPosition(), dir);
+	}
+	
 	protected Entity selectEntity(Entity[] entities, Vector3f center, Vector3f dir) {
 		selectedEntity = null;
 		float closestDistance = Float.POSITIVE_INFINITY;
@@ -51,6 +57,34 @@ public class CameraBoxSelectionDetector {
 		return selectedEntity;
 	}
 	
+	/**
+	 * Selects closest indexed entity of store. Ray walks spatial grid of the
+	 * store, so only entities in cells along the ray are tested.
+	 */
+	protected Entity selectClosestEntity(EntityStore store, Vector3f center, Vector3f dir) {
+		if (selectedEntity != null) {
+			selectedEntity.setSelected(false);
+		}
+		int handle = store.getGrid().raycast(center.x, center.y, center.z, dir.x, dir.y, dir.z, h -> intersect(store, h, center, dir));
+		int row = store.rowOf(handle);
+		selectedEntity = row >= 0 ? store.getOwner(row) : null;
+		markSelected();
+		return selectedEntity;
+	}
+	
+	private float intersect(EntityStore store, int handle, Vector3f center, Vector3f dir) {
+		int row = store.rowOf(handle);
+		if (row < 0) { return Float.POSITIVE_INFINITY; }
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.POSITION;
+		float scale = t[row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.SCALE];
+		min.set(t[o], t[o + 1], t[o + 2]);
+		max.set(min);
+		min.sub(scale, scale, scale);
+		max.add(scale / 2, scale / 2, scale / 2);
+		return Intersectionf.intersectRayAab(center, dir, min, max, nearFar) ? nearFar.x : Float.POSITIVE_INFINITY;
+	}
+	
 	private void markSelected() {
 		if (selectedEntity != null) {
 			selectedEntity.setSelected(true);
@@ -60,8 +94,8 @@ public class CameraBoxSelectionDetector {
 	private float selectEntity(Vector3f center, Vector3f dir, float closestDistance, Entity entity) {
 		if (entity != null) {
 			entity.setSelected(false);
-			min.set(entity.getPosition());
-			max.set(entity.getPosition());
+			entity.getPosition(min);
+			max.set(min);
 			min.sub(entity.getScale(), entity.getScale(), entity.getScale());
 			max.add(entity.getScale() / 2, entity.getScale() / 2, entity.getScale() / 2);
 			if (Intersectionf.intersectRayAab(center, dir, min, max, nearFar) && nearFar.x < closestDistance) {
@@ -1,12 +1,14 @@
 package eu.grmdev.senryaku.core.handlers;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.joml.*;
 
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.core.map.GameMap;
+import eu.grmdev.senryaku.core.map.Terrain;
+import eu.grmdev.senryaku.core.map.TileHit;
 import eu.grmdev.senryaku.graphic.Camera;
 import eu.grmdev.senryaku.graphic.Window;
 
@@ -27,25 +29,27 @@ public class MouseBoxSelectionDetector extends CameraBoxSelectionDetector {
 		tmpVec = new Vector4f();
 	}
 	
-	public Entity selectTile(GameMap map, Window window, Vector2d mousePos, Camera camera) {
-		Entity[][] entities2 = map.getTerrain().getEntitiesByPos();
-		List<Entity> entities = new ArrayList<>();
-		if (entities2 != null) {
-			for (int i = 0; i < entities2.length; i++) {
-				Entity[] entities3 = entities2[i];
-				for (int j = 0; j < entities3.length; j++) {
-					Entity entity = entities3[j];
-					if (entity != null) {
-						entities.add(entity);
-					} else {
-						System.out.println("NULL entity at [" + i + " " + j + "]");
-					}
-				}
-			}
-			setMouseDir(window, mousePos, camera);
-			return selectClosestEntity(entities, camera.getOffsetPosition(), mouseDir);
-		}
-		return null;
+	/**
+	 * Picks tile through spatial grid of terrain. Streamed terrain has no tile
+	 * entities, its tile grid is walked along the ray instead.
+	 *
+	 * @return closest tile hit, null on miss
+	 */
+	public TileHit selectTile(GameMap map, Window window, Vector2d mousePos, Camera camera) {
+		Terrain terrain = map.getTerrain();
+		setMouseDir(window, mousePos, camera);
+		Vector3f origin = camera.getOffsetPosition();
+		if (terrain.getEntitiesByPos() == null) { return terrain.getTiles().raycast(origin.x, origin.y, origin.z, mouseDir.x, mouseDir.y, mouseDir.z, terrain.getTileScale()); }
+		Entity entity = selectClosestEntity(terrain.getStore(), origin, mouseDir);
+		if (entity == null) { return null; }
+		int x = java.lang.Math.round(entity.getPosition().x / terrain.getTileScale());
+		int z = java.lang.Math.round(entity.getPosition().z / terrain.getTileScale());
+		return new TileHit(x, z, terrain.getTiles().get(x, z), entity);
+	}
+	
+	public Entity selectClosestEntity(EntityStore store, Window window, Vector2d mousePos, Camera camera) {
+		setMouseDir(window, mousePos, camera);
+		return selectClosestEntity(store, camera.getOffsetPosition(), mouseDir);
 	}
 	
 	public Entity selectClosestEntity(List<Entity> entities, Window window, Vector2d mousePos, Camera camera) {
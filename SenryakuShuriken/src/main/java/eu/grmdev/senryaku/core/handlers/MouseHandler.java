@@ -44,11 +44,11 @@ public class MouseHandler implements GLFWMouseButtonCallbackI {
 		// eHandler.addMouseEventListener(event -> {
 		// if (event.getKey() == MouseEvent.LEFT_KEY && event.getAction() ==
 		// MouseEvent.PRESSED) {
-		// Entity entity =
+		// TileHit tile =
 		// detector.selectTile(LevelManager.getInstance().getCurrentMap(), window,
 		// currentPos, this.window.getCamera());
-		// if (entity != null) {
-		// System.out.println(entity.getPosition().toString(NumberFormat.getIntegerInstance()));
+		// if (tile != null) {
+		// System.out.println(tile);
 		// }
 		// }
 		// });
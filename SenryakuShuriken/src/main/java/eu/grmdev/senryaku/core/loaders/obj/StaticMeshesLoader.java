@@ -20,9 +20,15 @@ public class StaticMeshesLoader {
 		return load(resourcePath, texturesDir, DEF_FLAGS);
 	}
 	
+	/**
+	 * Meshes are shared through {@link ResourceManager}, each must be released
+	 * by {@link Mesh#remove()}.
+	 */
 	public static Mesh[] load(String resourcePath, String texturesDir, int flags) throws Exception {
-		AIScene aiScene = Utils.loadAssimpObject(resourcePath, flags);
-		return load(texturesDir, aiScene);
+		return ResourceManager.getInstance().acquireMeshes(resourcePath + "|" + texturesDir + "|" + flags, () -> {
+			AIScene aiScene = Utils.loadAssimpObject(resourcePath, flags);
+			return load(texturesDir, aiScene);
+		});
 	}
 	
 	public static Mesh[] load(String texturesDir, AIScene aiScene) throws Exception {
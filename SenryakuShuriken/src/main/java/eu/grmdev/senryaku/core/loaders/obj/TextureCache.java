@@ -1,19 +1,17 @@
 package eu.grmdev.senryaku.core.loaders.obj;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import eu.grmdev.senryaku.graphic.mesh.ResourceManager;
 import eu.grmdev.senryaku.graphic.mesh.Texture;
 
+/**
+ * Textures of loaded models, kept by {@link ResourceManager} while meshes
+ * using them are resident.
+ */
 public class TextureCache {
 	
 	private static TextureCache INSTANCE;
 	
-	private Map<String, Texture> texturesMap;
-	
-	private TextureCache() {
-		texturesMap = new HashMap<>();
-	}
+	private TextureCache() {}
 	
 	public static synchronized TextureCache getInstance() {
 		if (INSTANCE == null) {
@@ -23,11 +21,6 @@ public class TextureCache {
 	}
 	
 	public Texture getTexture(String path) throws Exception {
-		Texture texture = texturesMap.get(path);
-		if (texture == null) {
-			texture = new Texture(path);
-			texturesMap.put(path, texture);
-		}
-		return texture;
+		return ResourceManager.getInstance().getTexture(path);
 	}
 }
@@ -0,0 +1,183 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+import org.joml.Vector2i;
+
+import eu.grmdev.senryaku.graphic.particles.ParticleType;
+
+/**
+ * Binary map file (<code>.bmap</code>), little endian:
+ *
+ * <pre>
+ * 0  magic "SBMP"        4  short version, short reserved
+ * 8  int sizeX, sizeZ    16 int startX, startY, endX, endY
+ * 32 int emitterCount    36 int gridOffset
+ * 40 short length + UTF-8 title, short length + UTF-8 background
+ *    emitterCount * (int x, int z, int particle type ordinal)
+ * gridOffset: sizeX * sizeZ tile id bytes, compact {@link TileGrid}
+ * </pre>
+ *
+ * Files are memory mapped and tile grid is used in place, nothing is parsed
+ * per tile.
+ */
+public final class BinaryMapFormat {
+	public static final String EXTENSION = ".bmap";
+	public static final short VERSION = 1;
+	private static final byte[] MAGIC = {'S', 'B', 'M', 'P'};
+	private static final int HEADER_SIZE = 40;
+	private static final int EMITTER_SIZE = 3 * 4;
+	private static final int GRID_ALIGNMENT = 8;
+	/** Strings are prefixed by unsigned short length */
+	private static final int MAX_STRING_BYTES = 0xffff;
+	
+	private BinaryMapFormat() {}
+	
+	/**
+	 * Maps file into memory and reads it.
+	 */
+	public static MapData load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+	
+	/**
+	 * Loads classpath resource, mapped when it is a plain file, read into
+	 * memory when it is packed in jar.
+	 */
+	public static MapData loadResource(String fileName) throws IOException {
+		URL url = BinaryMapFormat.class.getResource(fileName);
+		if (url == null) { throw new FileNotFoundException("Map " + fileName + " does not exist"); }
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return load(Paths.get(url.toURI()));
+			}
+			catch (URISyntaxException e) {
+				throw new IOException("Invalid map path " + url, e);
+			}
+		}
+		try (InputStream is = url.openStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8192];
+			int read;
+			while ((read = is.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return read(ByteBuffer.wrap(out.toByteArray()));
+		}
+	}
+	
+	/**
+	 * Reads map from buffer, tile grid stays a view into it.
+	 *
+	 * @throws IOException
+	 *            when buffer does not hold valid map
+	 */
+	public static MapData read(ByteBuffer source) throws IOException {
+		ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < HEADER_SIZE) { throw new IOException("Map file too short: " + buffer.remaining() + " bytes"); }
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (buffer.get() != MAGIC[i]) { throw new IOException("Not a binary map file"); }
+		}
+		short version = buffer.getShort();
+		if (version != VERSION) { throw new IOException("Unsupported map version " + version); }
+		buffer.getShort();
+		int sizeX = buffer.getInt();
+		int sizeZ = buffer.getInt();
+		Vector2i start = new Vector2i(buffer.getInt(), buffer.getInt());
+		Vector2i end = new Vector2i(buffer.getInt(), buffer.getInt());
+		int emitterCount = buffer.getInt();
+		int gridOffset = buffer.getInt();
+		if (sizeX <= 0 || sizeZ <= 0 || emitterCount < 0 || (long) gridOffset + (long) sizeX * sizeZ > buffer.limit()) { throw new IOException("Corrupted map header"); }
+		String title = readString(buffer);
+		String background = readString(buffer);
+		
+		if (buffer.remaining() < emitterCount * EMITTER_SIZE) { throw new IOException("Corrupted map emitters"); }
+		int types = ParticleType.values().length;
+		int[] emitters = new int[emitterCount * 3];
+		for (int i = 0; i < emitters.length; i += 3) {
+			emitters[i] = buffer.getInt();
+			emitters[i + 1] = buffer.getInt();
+			emitters[i + 2] = buffer.getInt();
+			if (emitters[i + 2] < 0 || emitters[i + 2] >= types) { throw new IOException("Unknown particle type " + emitters[i + 2] + " of emitter " + i / 3); }
+		}
+		
+		buffer.limit(gridOffset + sizeX * sizeZ).position(gridOffset);
+		return new MapData(title, background, start, end, new TileGrid(buffer, sizeX, sizeZ, sizeZ), emitters);
+	}
+	
+	private static String readString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getShort() & 0xffff;
+		if (buffer.remaining() < length) { throw new IOException("Corrupted map string"); }
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 *            when title or background is longer than 65535 bytes in UTF-8,
+	 *            file is not touched then
+	 */
+	public static void write(MapData data, Path path) throws IOException {
+		ByteBuffer header = writeHeader(data);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			ByteBuffer grid = data.getGrid().compact().getIds();
+			while (grid.hasRemaining()) {
+				channel.write(grid);
+			}
+		}
+	}
+	
+	/**
+	 * Everything before tile grid, padded to grid offset.
+	 */
+	static ByteBuffer writeHeader(MapData data) {
+		byte[] title = stringBytes("Title", data.getTitle());
+		byte[] background = stringBytes("Background", data.getBackground());
+		int size = HEADER_SIZE + 2 + title.length + 2 + background.length + data.getEmitterCount() * EMITTER_SIZE;
+		int gridOffset = (size + GRID_ALIGNMENT - 1) / GRID_ALIGNMENT * GRID_ALIGNMENT;
+		
+		ByteBuffer buffer = ByteBuffer.allocate(gridOffset).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short) 0);
+		buffer.putInt(data.getSizeX());
+		buffer.putInt(data.getSizeZ());
+		buffer.putInt(data.getStartPos().x);
+		buffer.putInt(data.getStartPos().y);
+		buffer.putInt(data.getEndPos().x);
+		buffer.putInt(data.getEndPos().y);
+		buffer.putInt(data.getEmitterCount());
+		buffer.putInt(gridOffset);
+		buffer.putShort((short) title.length);
+		buffer.put(title);
+		buffer.putShort((short) background.length);
+		buffer.put(background);
+		for (int i = 0; i < data.getEmitterCount(); i++) {
+			buffer.putInt(data.getEmitterX(i));
+			buffer.putInt(data.getEmitterZ(i));
+			buffer.putInt(data.getEmitterType(i).ordinal());
+		}
+		buffer.clear();
+		return buffer;
+	}
+	
+	private static byte[] stringBytes(String name, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_STRING_BYTES) { throw new IllegalArgumentException(name + " of map has " + bytes.length + " bytes, at most " + MAX_STRING_BYTES + " can be stored"); }
+		return bytes;
+	}
+}
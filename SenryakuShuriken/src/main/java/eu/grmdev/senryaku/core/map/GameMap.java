@@ -1,31 +1,50 @@
 package eu.grmdev.senryaku.core.map;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.joml.Vector2i;
 import org.joml.Vector3f;
 
+import eu.grmdev.senryaku.Config;
 import eu.grmdev.senryaku.core.IGame;
 import eu.grmdev.senryaku.game.GameSave;
-import eu.grmdev.senryaku.graphic.particles.FlowParticleEmitter;
-import eu.grmdev.senryaku.graphic.particles.IParticleEmitter;
+import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import eu.grmdev.senryaku.graphic.mesh.ResourceManager;
+import eu.grmdev.senryaku.graphic.particles.*;
 import lombok.Getter;
 import lombok.Setter;
 
 public class GameMap {
 	private @Getter Terrain terrain;
-	private @Getter List<IParticleEmitter> particleEmitters;
+	/** Null until map is initialized */
+	private volatile @Getter List<IParticleEmitter> particleEmitters;
 	private final @Getter int level;
 	private @Getter String title;
 	private int columns;
 	private int rows;
 	private @Getter Vector2i startPos;
 	private @Getter Vector2i endPos;
-	private @Getter boolean initialized;
+	private volatile @Getter boolean initialized;
+	private boolean prepared;
+	private boolean terrainInitialized;
+	/** Type and tile position of every emitter, known after prepare */
+	private ParticleType[] emitterTypes;
+	private int[] emitterX;
+	private int[] emitterZ;
+	private List<IParticleEmitter> createdEmitters;
 	private boolean finished;
 	private @Getter @Setter int stepCounter = 0;
 	private @Getter int score = 0;
 	private IGame game;
+	private MapData data;
+	private final ParticleSimulation particleSimulation = new ParticleSimulation(ForkJoinPool.commonPool(), Config.PARTICLE_SPLIT_SIZE.<Integer> get());
+	
+	public GameMap(int level, MapData data, Terrain terrain, IGame game) throws Exception {
+		this(level, data.getTitle(), data.getSizeZ(), data.getSizeX(), terrain, data.getStartPos(), data.getEndPos(), game);
+		this.data = data;
+	}
 	
 	public GameMap(int level, String title, int rows, int columns, Terrain terrain, Vector2i startPos, Vector2i endPos, IGame game) throws Exception {
 		this.level = level;
@@ -38,18 +57,100 @@ public class GameMap {
 		this.game = game;
 	}
 	
+	/**
+	 * Prepares CPU side of map, terrain entities, occluders and emitter
+	 * positions. Does not touch OpenGL, may run on any thread.
+	 */
+	public synchronized void prepare() throws Exception {
+		if (prepared) { return; }
+		terrain.prepare();
+		if (data != null) {
+			int count = data.getEmitterCount();
+			setEmitterCount(count);
+			for (int i = 0; i < count; i++) {
+				emitterTypes[i] = data.getEmitterType(i);
+				emitterX[i] = data.getEmitterX(i);
+				emitterZ[i] = data.getEmitterZ(i);
+			}
+		} else {
+			TileGrid tiles = terrain.getTiles();
+			List<int[]> cones = new ArrayList<>();
+			for (int i = 0; i < tiles.getSizeX(); i++) {
+				for (int j = 0; j < tiles.getSizeZ(); j++) {
+					if (tiles.get(i, j) == Tile.CONE) {
+						cones.add(new int[]{i, j});
+					}
+				}
+			}
+			setEmitterCount(cones.size());
+			for (int i = 0; i < cones.size(); i++) {
+				emitterTypes[i] = Tile.CONE.getEmitter();
+				emitterX[i] = cones.get(i)[0];
+				emitterZ[i] = cones.get(i)[1];
+			}
+		}
+		prepared = true;
+	}
+	
+	private void setEmitterCount(int count) {
+		emitterTypes = new ParticleType[count];
+		emitterX = new int[count];
+		emitterZ = new int[count];
+	}
+	
+	/**
+	 * Render thread, runs next GPU step of initialization. Terrain is the
+	 * first step, then every particle emitter is one step, so that map can be
+	 * initialized over several frames.
+	 *
+	 * @return true when map is initialized
+	 */
+	public synchronized boolean initStep() throws Exception {
+		if (initialized) { return true; }
+		prepare();
+		if (!terrainInitialized) {
+			terrain.init();
+			terrainInitialized = true;
+			createdEmitters = new ArrayList<>(emitterTypes.length);
+		} else if (createdEmitters.size() < emitterTypes.length) {
+			int i = createdEmitters.size();
+			createdEmitters.add(GameMapFactory.setupParticlesEmitter(emitterTypes[i], game, emitterX[i], emitterZ[i]));
+		}
+		if (terrainInitialized && createdEmitters.size() == emitterTypes.length) {
+			particleEmitters = createdEmitters;
+			initialized = true;
+		}
+		return initialized;
+	}
+	
+	/**
+	 * Render thread, deletes GPU resources of map, shared ones are released.
+	 * They are created again by {@link #initStep()} when map is shown again.
+	 */
+	public synchronized void release() {
+		if (!terrainInitialized) { return; }
+		initialized = false;
+		terrainInitialized = false;
+		particleEmitters = null;
+		for (IParticleEmitter emitter : createdEmitters) {
+			emitter.cleanup();
+			Mesh mesh = emitter.getBaseParticle().getMesh();
+			mesh.remove();
+			ResourceManager.getInstance().release(mesh.getMaterial().getTexture());
+		}
+		createdEmitters = null;
+		terrain.release();
+	}
+	
+	/**
+	 * Render thread, runs all remaining steps of initialization.
+	 */
 	public void init() throws Exception {
-		terrain.init();
-		particleEmitters = GameMapFactory.prepareEmitters(terrain.getTiles(), game);
-		initialized = true;
+		while (!initStep());
 	}
 	
 	public void update(float interval) {
-		if (particleEmitters != null && !particleEmitters.isEmpty()) {
-			for (IParticleEmitter emitter : particleEmitters) {
-				((FlowParticleEmitter) emitter).update((long) interval);
-			}
-		}
+		particleSimulation.update(particleEmitters, (long) interval);
 	}
 	
 	public boolean canPassTo(float x, float y, float z) {
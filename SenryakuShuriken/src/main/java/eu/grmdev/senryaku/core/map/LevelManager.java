@@ -1,6 +1,7 @@
 package eu.grmdev.senryaku.core.map;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.joml.Vector2i;
 
@@ -12,6 +13,13 @@ import eu.grmdev.senryaku.game.Player;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * Keeps loaded maps. While a level is played, next one is parsed and
+ * prepared on background thread and its GPU resources are created by render
+ * thread in small steps, so that going to next level does not stall. GPU
+ * resources of maps left are released, so that only played and next map
+ * hold them.
+ */
 public class LevelManager {
 	private Map<Integer, GameMap> maps;
 	private @Getter GameMap currentMap;
@@ -19,21 +27,44 @@ public class LevelManager {
 	private @Setter Entity portal;
 	private static @Getter LevelManager instance;
 	private IGame game;
+	private final ExecutorService preloader;
+	private volatile Future<GameMap> preloaded;
+	private volatile int preloadedLevel;
+	/** Maps whose GPU resources are to be released by render thread */
+	private final Queue<GameMap> left;
 	
 	public LevelManager(IGame game) {
 		instance = this;
 		this.game = game;
 		this.maps = new HashMap<>();
+		this.left = new ConcurrentLinkedQueue<>();
+		this.preloader = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "LEVEL_PRELOAD_THREAD");
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 	
 	/**
 	 * Changes map to map_'i' index
-	 * 
+	 *
 	 * @param i
 	 *           map index
 	 * @throws Exception
 	 */
 	public void goTo(int i) throws Exception {
+		if (currentMap != null && currentMap.getLevel() != i) {
+			left.add(currentMap);
+		}
+		Future<GameMap> future = preloaded;
+		if (future != null && preloadedLevel == i && !maps.containsKey(i)) {
+			try {
+				maps.put(i, future.get());
+			}
+			catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
 		if (maps.containsKey(i)) {
 			currentMap = maps.get(i);
 			currentMap.reset();
@@ -42,6 +73,74 @@ public class LevelManager {
 			maps.put(i, currentMap);
 		}
 		setStartEndObjectsPositions(currentMap.getStartPos(), currentMap.getEndPos());
+		preloadNext();
+	}
+	
+	/**
+	 * Starts loading next level on background thread, unless it is loaded
+	 * already or does not exist.
+	 */
+	private void preloadNext() {
+		int next = currentMap.getLevel() + 1;
+		if (maps.containsKey(next) || preloaded != null && preloadedLevel == next || !GameMapFactory.exist(next)) { return; }
+		GameMap unused = getPreloadedMap();
+		if (unused != null && !maps.containsValue(unused)) {
+			left.add(unused);
+		}
+		preloadedLevel = next;
+		preloaded = preloader.submit(() -> {
+			GameMap map = GameMapFactory.create(next, game);
+			map.prepare();
+			return map;
+		});
+	}
+	
+	/**
+	 * @return preloaded map if its loading has finished successfully
+	 */
+	private GameMap getPreloadedMap() {
+		Future<GameMap> future = preloaded;
+		if (future == null || !future.isDone()) { return null; }
+		try {
+			return future.get();
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Render thread, releases GPU resources of maps left since last call,
+	 * unless they are played or preloaded again.
+	 */
+	public void releaseLeftMaps() {
+		for (GameMap map; (map = left.poll()) != null;) {
+			if (map != currentMap && map != getPreloadedMap()) {
+				map.release();
+			}
+		}
+	}
+	
+	/**
+	 * Render thread, creates GPU resources of preloaded map until budget runs
+	 * out. At least one step is done when map is not initialized yet.
+	 */
+	public void initPreloaded(long budgetNanos) {
+		Future<GameMap> future = preloaded;
+		if (future == null || !future.isDone()) { return; }
+		long start = System.nanoTime();
+		try {
+			GameMap map = future.get();
+			while (!map.initStep() && System.nanoTime() - start < budgetNanos);
+		}
+		catch (ExecutionException e) {
+			preloaded = null;
+			e.getCause().printStackTrace();
+		}
+		catch (Exception e) {
+			preloaded = null;
+			e.printStackTrace();
+		}
 	}
 	
 	public void restartLevel() {
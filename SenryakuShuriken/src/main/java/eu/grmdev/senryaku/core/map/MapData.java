@@ -0,0 +1,115 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Vector2i;
+
+import eu.grmdev.senryaku.graphic.particles.ParticleType;
+import lombok.Getter;
+
+/**
+ * Map content independent of file format. Tiles are kept in primitive
+ * {@link TileGrid}, which may be a view into memory mapped file.
+ */
+public class MapData {
+	private final @Getter String title;
+	private final @Getter String background;
+	private final @Getter Vector2i startPos;
+	private final @Getter Vector2i endPos;
+	private final @Getter TileGrid grid;
+	/** Emitter records, x, z and {@link ParticleType} ordinal for each */
+	private final int[] emitters;
+	
+	public MapData(String title, String background, Vector2i startPos, Vector2i endPos, TileGrid grid, int[] emitters) {
+		this.title = title;
+		this.background = background;
+		this.startPos = startPos;
+		this.endPos = endPos;
+		this.grid = grid;
+		this.emitters = emitters;
+	}
+	
+	/**
+	 * Creates map data with emitter record for each tile which has emitter.
+	 */
+	public static MapData of(String title, String background, Vector2i startPos, Vector2i endPos, Tile[][] tiles) {
+		return of(title, background, startPos, endPos, TileGrid.of(tiles));
+	}
+	
+	/**
+	 * Creates map data with emitter record for each tile which has emitter.
+	 */
+	public static MapData of(String title, String background, Vector2i startPos, Vector2i endPos, TileGrid grid) {
+		return new MapData(title, background, startPos, endPos, grid, findEmitters(grid));
+	}
+	
+	private static int[] findEmitters(TileGrid grid) {
+		int emitterCount = 0;
+		for (int x = 0; x < grid.getSizeX(); x++) {
+			for (int z = 0; z < grid.getSizeZ(); z++) {
+				if (grid.get(x, z).getEmitter() != null) {
+					emitterCount++;
+				}
+			}
+		}
+		int[] emitters = new int[emitterCount * 3];
+		int e = 0;
+		for (int x = 0; x < grid.getSizeX() && e < emitters.length; x++) {
+			for (int z = 0; z < grid.getSizeZ(); z++) {
+				ParticleType emitter = grid.get(x, z).getEmitter();
+				if (emitter != null) {
+					emitters[e++] = x;
+					emitters[e++] = z;
+					emitters[e++] = emitter.ordinal();
+				}
+			}
+		}
+		return emitters;
+	}
+	
+	public int getSizeX() {
+		return grid.getSizeX();
+	}
+	
+	public int getSizeZ() {
+		return grid.getSizeZ();
+	}
+	
+	public int getTileId(int x, int z) {
+		return grid.getId(x, z);
+	}
+	
+	/**
+	 * @return tile at position, {@link Tile#EMPTY} for unknown id
+	 */
+	public Tile getTile(int x, int z) {
+		return grid.get(x, z);
+	}
+	
+	public Tile[][] toTiles() {
+		return grid.toTiles();
+	}
+	
+	/**
+	 * @return read only view of tile ids without column padding
+	 */
+	public ByteBuffer getTiles() {
+		return grid.compact().getIds();
+	}
+	
+	public int getEmitterCount() {
+		return emitters.length / 3;
+	}
+	
+	public int getEmitterX(int emitter) {
+		return emitters[emitter * 3];
+	}
+	
+	public int getEmitterZ(int emitter) {
+		return emitters[emitter * 3 + 1];
+	}
+	
+	public ParticleType getEmitterType(int emitter) {
+		return ParticleType.values()[emitters[emitter * 3 + 2]];
+	}
+}
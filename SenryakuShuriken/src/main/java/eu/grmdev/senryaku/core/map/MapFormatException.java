@@ -0,0 +1,21 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+/**
+ * Malformed map file, points at line and column (both counted from 1) where
+ * parsing failed.
+ */
+public class MapFormatException extends IOException {
+	private static final long serialVersionUID = 1L;
+	private final @Getter int line;
+	private final @Getter int column;
+	
+	public MapFormatException(int line, int column, String message) {
+		super("Line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+}
@@ -0,0 +1,45 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * Converts text maps to {@link BinaryMapFormat}. Usage:
+ * <code>SmapConverter &lt;output dir&gt; &lt;file.smap | dir&gt;...</code>,
+ * each <code>map.smap</code> is written as <code>map.bmap</code>.
+ */
+public class SmapConverter {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: SmapConverter <output dir> <file.smap | dir>...");
+			System.exit(1);
+		}
+		Path outDir = Paths.get(args[0]);
+		Files.createDirectories(outDir);
+		for (int i = 1; i < args.length; i++) {
+			Path input = Paths.get(args[i]);
+			if (Files.isDirectory(input)) {
+				try (DirectoryStream<Path> maps = Files.newDirectoryStream(input, "*" + GameMapFactory.TEXT_EXTENSION)) {
+					for (Path map : maps) {
+						convert(map, outDir);
+					}
+				}
+			} else {
+				convert(input, outDir);
+			}
+		}
+	}
+	
+	/**
+	 * @return written binary map file
+	 */
+	public static Path convert(Path smap, Path outDir) throws IOException {
+		MapData data = SmapParser.load(smap);
+		String name = smap.getFileName().toString();
+		name = name.substring(0, name.length() - GameMapFactory.TEXT_EXTENSION.length()) + BinaryMapFormat.EXTENSION;
+		Path out = outDir.resolve(name);
+		BinaryMapFormat.write(data, out);
+		System.out.println("Converted " + smap + " -> " + out);
+		return out;
+	}
+}
@@ -0,0 +1,266 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+import org.joml.Vector2i;
+
+import eu.grmdev.senryaku.graphic.particles.ParticleType;
+
+/**
+ * Single pass <code>.smap</code> parser. Header line
+ * <code>startX|startY|endX|endY|title|background</code> is followed by rows
+ * of space separated tile ids, each row is one <code>z</code>, each id one
+ * <code>x</code>. Ids are written straight into {@link TileGrid} in its final
+ * x major order, missing ids at the end of short rows are
+ * {@link Tile#EMPTY}.
+ */
+public final class SmapParser {
+	private static final int HEADER_FIELDS = 6;
+	private static final int INITIAL_COLUMNS = 16;
+	private static final int INITIAL_ROWS = 64;
+	private static final int READ_BUFFER_SIZE = 8192;
+	private final String title;
+	private final String background;
+	private final Vector2i startPos;
+	private final Vector2i endPos;
+	/** Grid bytes after header, -1 when unknown */
+	private final int expectedLength;
+	private byte[] ids;
+	private int capacityX;
+	private int capacityZ;
+	private int sizeX;
+	private int sizeZ;
+	private int[] emitters;
+	private int emitterCount;
+	private int x;
+	private int z;
+	private int value;
+	private int line;
+	private int column;
+	private int tokenColumn;
+	
+	private SmapParser(String header, int expectedLength) throws MapFormatException {
+		if (header.startsWith("\uFEFF")) {
+			header = header.substring(1);
+		}
+		if (header.endsWith("\r")) {
+			header = header.substring(0, header.length() - 1);
+		}
+		String[] fields = new String[HEADER_FIELDS];
+		int[] fieldColumns = new int[HEADER_FIELDS];
+		int field = 0;
+		int start = 0;
+		for (int i = 0; i <= header.length() && field < HEADER_FIELDS; i++) {
+			if (i == header.length() || header.charAt(i) == '|') {
+				fields[field] = header.substring(start, i).trim();
+				fieldColumns[field] = start + 1;
+				field++;
+				start = i + 1;
+			}
+		}
+		if (field < HEADER_FIELDS) { throw new MapFormatException(1, header.length() + 1, "Expected " + HEADER_FIELDS + " header fields separated by '|', found " + field); }
+		startPos = new Vector2i(parseNumber(fields, fieldColumns, 0), parseNumber(fields, fieldColumns, 1));
+		endPos = new Vector2i(parseNumber(fields, fieldColumns, 2), parseNumber(fields, fieldColumns, 3));
+		title = fields[4];
+		background = fields[5];
+		
+		this.expectedLength = expectedLength;
+		capacityX = INITIAL_COLUMNS;
+		capacityZ = INITIAL_ROWS;
+		ids = new byte[capacityX * capacityZ];
+		emitters = new int[3 * 4];
+		value = -1;
+		line = 2;
+		column = 1;
+	}
+	
+	private static int parseNumber(String[] fields, int[] columns, int field) throws MapFormatException {
+		try {
+			return Integer.parseInt(fields[field]);
+		}
+		catch (NumberFormatException e) {
+			throw new MapFormatException(1, columns[field], "Expected number, found '" + fields[field] + "'");
+		}
+	}
+	
+	/**
+	 * Parses map from bytes, header may be UTF-8, tile rows must be ASCII.
+	 */
+	public static MapData parse(ByteBuffer source) throws MapFormatException {
+		int start = source.position();
+		int end = source.limit();
+		int newLine = start;
+		while (newLine < end && source.get(newLine) != '\n') {
+			newLine++;
+		}
+		if (newLine == end) { throw new MapFormatException(2, 1, "Map has no tiles"); }
+		byte[] header = new byte[newLine - start];
+		ByteBuffer headerView = source.duplicate();
+		headerView.get(header);
+		
+		SmapParser parser = new SmapParser(new String(header, StandardCharsets.UTF_8), end - newLine - 1);
+		for (int i = newLine + 1; i < end; i++) {
+			parser.next(source.get(i) & 0xff);
+		}
+		return parser.finish();
+	}
+	
+	public static MapData parse(Reader reader) throws IOException {
+		char[] buffer = new char[READ_BUFFER_SIZE];
+		StringBuilder header = new StringBuilder();
+		SmapParser parser = null;
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			int i = 0;
+			if (parser == null) {
+				while (i < read && buffer[i] != '\n') {
+					header.append(buffer[i++]);
+				}
+				if (i == read) {
+					continue;
+				}
+				parser = new SmapParser(header.toString(), -1);
+				i++;
+			}
+			for (; i < read; i++) {
+				parser.next(buffer[i]);
+			}
+		}
+		if (parser == null) { throw new MapFormatException(2, 1, "Map has no tiles"); }
+		return parser.finish();
+	}
+	
+	/**
+	 * Maps file into memory and parses it.
+	 */
+	public static MapData load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return parse(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+	
+	/**
+	 * Loads classpath resource, mapped when it is a plain file, streamed when it
+	 * is packed in jar.
+	 */
+	public static MapData loadResource(String fileName) throws IOException {
+		URL url = SmapParser.class.getResource(fileName);
+		if (url == null) { throw new FileNotFoundException("Map " + fileName + " does not exist"); }
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return load(Paths.get(url.toURI()));
+			}
+			catch (URISyntaxException e) {
+				throw new IOException("Invalid map path " + url, e);
+			}
+		}
+		try (Reader reader = new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)) {
+			return parse(reader);
+		}
+	}
+	
+	private void next(int c) throws MapFormatException {
+		if (c >= '0' && c <= '9') {
+			if (value < 0) {
+				value = 0;
+				tokenColumn = column;
+			}
+			value = value * 10 + c - '0';
+			if (value > 0xff) { throw new MapFormatException(line, tokenColumn, "Tile id is too large"); }
+		} else if (c == ' ' || c == '\t' || c == '\r') {
+			endToken();
+		} else if (c == '\n') {
+			endToken();
+			endRow();
+		} else {
+			throw new MapFormatException(line, column, "Unexpected character '" + (char) c + "'");
+		}
+		column++;
+	}
+	
+	private void endToken() {
+		if (value < 0) { return; }
+		Tile tile = Tile.value(value);
+		if (tile == null) {
+			System.err.println("ERROR!: Wrong Tile at line " + line + ", column " + tokenColumn + " with value [" + value + "]");
+			tile = Tile.EMPTY;
+		}
+		if (x >= capacityX) {
+			growColumns(x + 1);
+		}
+		if (z >= capacityZ) {
+			growRows(z + 1);
+		}
+		ids[x * capacityZ + z] = (byte) tile.getId();
+		if (tile.getEmitter() != null) {
+			addEmitter(tile.getEmitter());
+		}
+		x++;
+		sizeX = Math.max(sizeX, x);
+		value = -1;
+	}
+	
+	/**
+	 * Empty rows count only when followed by non empty one. Length of first row
+	 * is used to guess number of rows, so rectangular maps do not regrow.
+	 */
+	private void endRow() {
+		if (x > 0) {
+			if (sizeZ == 0 && expectedLength > 0) {
+				growRows(expectedLength / column + 1);
+			}
+			sizeZ = z + 1;
+		}
+		z++;
+		x = 0;
+		line++;
+		column = 0;
+	}
+	
+	private void growColumns(int min) {
+		capacityX = Math.max(min, capacityX * 2);
+		ids = Arrays.copyOf(ids, capacityX * capacityZ);
+	}
+	
+	/**
+	 * Changes stride, every column is moved.
+	 */
+	private void growRows(int min) {
+		if (min <= capacityZ) { return; }
+		int newCapacityZ = Math.max(min, capacityZ * 2);
+		byte[] moved = new byte[capacityX * newCapacityZ];
+		for (int col = 0; col < sizeX; col++) {
+			System.arraycopy(ids, col * capacityZ, moved, col * newCapacityZ, capacityZ);
+		}
+		ids = moved;
+		capacityZ = newCapacityZ;
+	}
+	
+	private void addEmitter(ParticleType type) {
+		if (emitterCount * 3 == emitters.length) {
+			emitters = Arrays.copyOf(emitters, emitters.length * 2);
+		}
+		emitters[emitterCount * 3] = x;
+		emitters[emitterCount * 3 + 1] = z;
+		emitters[emitterCount * 3 + 2] = type.ordinal();
+		emitterCount++;
+	}
+	
+	private MapData finish() throws MapFormatException {
+		endToken();
+		if (x > 0) {
+			sizeZ = z + 1;
+		}
+		if (sizeZ == 0) { throw new MapFormatException(line, column, "Map has no tiles"); }
+		TileGrid grid = new TileGrid(ids, sizeX, sizeZ, capacityZ);
+		return new MapData(title, background, startPos, endPos, grid, Arrays.copyOf(emitters, emitterCount * 3));
+	}
+}
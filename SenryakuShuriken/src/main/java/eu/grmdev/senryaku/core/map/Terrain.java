@@ -4,15 +4,20 @@ import java.util.*;
 
 import org.joml.Vector3f;
 
+import eu.grmdev.senryaku.Config;
 import eu.grmdev.senryaku.core.IGame;
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.core.misc.VectorUtils;
 import eu.grmdev.senryaku.graphic.mesh.*;
 import lombok.Getter;
 
 public class Terrain extends Entity {
 	private @Getter final Map<Mesh, List<Entity>> entitiesByMesh;
-	private @Getter final Entity[][] entitiesByPos;
+	private @Getter TerrainBlock[][] entitiesByPos;
+	private @Getter TerrainBatch batch;
+	private @Getter TerrainStreamer streamer;
+	private @Getter WallOccluders occluders;
 	private final int[] terrainSize;
 	// @formatter:off
 	public static final float[] VERTICES=new float[]{
@@ -122,31 +127,78 @@ public class Terrain extends Entity {
 	};
 	private String textureFile;
 // @formatter:on	
-	private @Getter Tile[][] tiles;
-	private float tileScale = 1.0f;
+	private @Getter TileGrid tiles;
+	private @Getter float tileScale = 1.0f;
+	private boolean prepared;
 	
 	public Terrain(Tile[][] tiles, String textureFile, IGame game) throws Exception {
-		super(game);
+		this(TileGrid.of(tiles), textureFile, game);
+	}
+	
+	/**
+	 * Terrain and its tiles are kept in own {@link EntityStore}, they are not
+	 * part of scene and are dropped together with the map.
+	 */
+	public Terrain(TileGrid tiles, String textureFile, IGame game) throws Exception {
+		super(new EntityStore(), game);
 		this.tiles = tiles;
 		this.textureFile = textureFile;
-		this.terrainSize = new int[]{tiles.length, tiles[0].length};
+		this.terrainSize = new int[]{tiles.getSizeX(), tiles.getSizeZ()};
 		entitiesByMesh = new HashMap<>();
-		entitiesByPos = new Entity[terrainSize[0]][terrainSize[1]];
 	}
 	
+	/**
+	 * Creates entity per tile, indexed in spatial grid of terrain store for
+	 * picking. Maps with at least {@link Config#TERRAIN_STREAMING_MIN_TILES}
+	 * tiles are streamed in chunks instead and have no tile entities. Walls of
+	 * both become occluders. Does not touch OpenGL, so may run on any thread,
+	 * but tile entities are left to {@link #init()} until
+	 * {@link Tile#createMeshes()} was called.
+	 */
+	public void prepare() throws Exception {
+		if (occluders == null) {
+			occluders = new WallOccluders(tiles, tileScale);
+		}
+		if (terrainSize[0] * terrainSize[1] >= Config.TERRAIN_STREAMING_MIN_TILES.<Integer> get()) {
+			if (streamer == null) {
+				streamer = new TerrainStreamer(tiles, tileScale);
+			}
+			prepared = true;
+		} else if (!prepared && Tile.isMeshesCreated()) {
+			createBlocks();
+			prepared = true;
+		}
+	}
+	
+	/**
+	 * Render thread, finishes {@link #prepare()} and creates background mesh
+	 * and one static batch of tile entities.
+	 */
 	public void init() throws Exception {
 		createBackgroundMesh();
-		
+		prepare();
+		if (!prepared) {
+			createBlocks();
+			prepared = true;
+		}
+		if (!isStreamed()) {
+			batch = new TerrainBatch(tiles, entitiesByPos, Config.TERRAIN_CHUNK_SIZE.<Integer> get());
+		}
+	}
+	
+	private void createBlocks() throws Exception {
+		entitiesByPos = new TerrainBlock[terrainSize[0]][terrainSize[1]];
 		for (int row = 0; row < terrainSize[0]; row++) {
 			for (int col = 0; col < terrainSize[1]; col++) {
-				Tile tile = tiles[row][col];
+				Tile tile = tiles.get(row, col);
 				float xDisplacement = row * tileScale;
 				float zDisplacement = col * tileScale;
 				float yDisplacement = tile.getHeight();
 				Mesh mesh = tile.getMesh();
-				Entity terrainBlock = new Entity(mesh, getGame());
+				TerrainBlock terrainBlock = new TerrainBlock(mesh, getStore(), getGame());
 				terrainBlock.setScale(tileScale);
 				terrainBlock.setPosition(xDisplacement, yDisplacement, zDisplacement);
+				getStore().setIndexed(terrainBlock.getRow(), true);
 				if (!entitiesByMesh.containsKey(mesh)) {
 					entitiesByMesh.put(mesh, new ArrayList<>());
 				}
@@ -156,12 +208,37 @@ public class Terrain extends Entity {
 		}
 	}
 	
+	/**
+	 * Render thread, deletes GPU resources created by {@link #init()}, shared
+	 * ones are released. Terrain can be initialized again.
+	 */
+	public void release() {
+		if (getMeshes() != null) {
+			Mesh mesh = getMesh();
+			mesh.remove();
+			ResourceManager.getInstance().release(mesh.getMaterial().getTexture());
+		}
+		if (batch != null) {
+			batch.cleanup();
+			batch = null;
+		}
+		if (streamer != null) {
+			streamer.cleanup();
+			streamer = null;
+			prepared = false;
+		}
+	}
+	
+	public boolean isStreamed() {
+		return streamer != null;
+	}
+	
 	private void createBackgroundMesh() throws Exception {
 		Mesh mesh = new Mesh(VERTICES, TEX_COORDS, VectorUtils.calcNormals(VERTICES, INDICES), INDICES);
-		Texture texture = new Texture(textureFile);
+		Texture texture = ResourceManager.getInstance().acquireTexture(textureFile);
 		Material material = new Material(texture);
 		mesh.setMaterial(material);
-		this.meshes = new Mesh[]{mesh};
+		setMesh(mesh);
 		setScale(100f);
 	}
 	
@@ -183,7 +260,7 @@ public class Terrain extends Entity {
 	
 	public Tile getTile(int x, int z) {
 		if (x < 0 || z < 0 || x > terrainSize[0] - 1 || z > terrainSize[1] - 1) { return null; }
-		return tiles[x][z];
+		return tiles.get(x, z);
 	}
 	
 	public Tile getTile(float x, float z) {
@@ -0,0 +1,223 @@
+package eu.grmdev.senryaku.core.map;
+
+import static eu.grmdev.senryaku.graphic.mesh.InstancePacker.INSTANCE_SIZE_FLOATS;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.misc.VectorUtils;
+import eu.grmdev.senryaku.graphic.Transformation;
+import eu.grmdev.senryaku.graphic.mesh.*;
+import lombok.Getter;
+
+/**
+ * All tiles of terrain in one static instance buffer, grouped by
+ * {@link Tile} type. Built once when map is initialized. Inside a group
+ * tiles are ordered by square chunk of map, so hidden chunks can be skipped
+ * while neighbouring visible ones are still drawn with single instanced draw
+ * call.
+ */
+public class TerrainBatch {
+	private final StaticInstancedMesh mesh;
+	private final Tile[] groupTiles;
+	private final @Getter int chunkCount;
+	/** Min xyz, max xyz of tiles of every chunk */
+	private final float[] chunkBounds;
+	private final boolean[] chunkVisible;
+	/** First instance and instance count of group and chunk */
+	private final int[] rangeFirst;
+	private final int[] rangeCount;
+	private final Queue<TerrainBlock> selectionChanges;
+	
+	/**
+	 * Packs tiles into instance buffer. Must be called from render thread.
+	 *
+	 * @param tiles
+	 *           tiles of map
+	 * @param blocks
+	 *           tile entities at the same positions as <code>tiles</code>
+	 * @param chunkSize
+	 *           chunk size in tiles
+	 * @throws Exception
+	 *            when tile mesh cannot be loaded
+	 */
+	public TerrainBatch(TileGrid tiles, TerrainBlock[][] blocks, int chunkSize) throws Exception {
+		Tile[] types = Tile.values();
+		int chunksX = (tiles.getSizeX() + chunkSize - 1) / chunkSize;
+		int chunksZ = (tiles.getSizeZ() + chunkSize - 1) / chunkSize;
+		chunkCount = chunksX * chunksZ;
+		chunkBounds = new float[chunkCount * 6];
+		for (int c = 0; c < chunkCount; c++) {
+			Arrays.fill(chunkBounds, c * 6, c * 6 + 3, Float.MAX_VALUE);
+			Arrays.fill(chunkBounds, c * 6 + 3, c * 6 + 6, -Float.MAX_VALUE);
+		}
+		int[] counts = new int[types.length * chunkCount];
+		int total = 0;
+		for (int row = 0; row < tiles.getSizeX(); row++) {
+			for (int col = 0; col < tiles.getSizeZ(); col++) {
+				int chunk = row / chunkSize * chunksZ + col / chunkSize;
+				counts[tiles.get(row, col).ordinal() * chunkCount + chunk]++;
+				total++;
+				TerrainBlock block = blocks[row][col];
+				Vector3f pos = block.getPosition();
+				float half = block.getScale() * 0.5f;
+				int b = chunk * 6;
+				chunkBounds[b] = Math.min(chunkBounds[b], pos.x - half);
+				chunkBounds[b + 1] = Math.min(chunkBounds[b + 1], pos.y - half);
+				chunkBounds[b + 2] = Math.min(chunkBounds[b + 2], pos.z - half);
+				chunkBounds[b + 3] = Math.max(chunkBounds[b + 3], pos.x + half);
+				chunkBounds[b + 4] = Math.max(chunkBounds[b + 4], pos.y + half);
+				chunkBounds[b + 5] = Math.max(chunkBounds[b + 5], pos.z + half);
+			}
+		}
+		
+		int[] typeTotals = new int[types.length];
+		for (int i = 0; i < counts.length; i++) {
+			typeTotals[i / chunkCount] += counts[i];
+		}
+		int groups = 0;
+		for (int count : typeTotals) {
+			if (count > 0) {
+				groups++;
+			}
+		}
+		groupTiles = new Tile[groups];
+		rangeFirst = new int[groups * chunkCount];
+		rangeCount = new int[groups * chunkCount];
+		int[] groupFirst = new int[groups];
+		int[] groupCount = new int[groups];
+		int[] groupOf = new int[types.length];
+		int[] next = new int[groups * chunkCount];
+		int group = 0;
+		int first = 0;
+		for (Tile type : types) {
+			if (typeTotals[type.ordinal()] == 0) {
+				continue;
+			}
+			groupTiles[group] = type;
+			groupFirst[group] = first;
+			groupCount[group] = typeTotals[type.ordinal()];
+			groupOf[type.ordinal()] = group;
+			for (int c = 0; c < chunkCount; c++) {
+				int r = group * chunkCount + c;
+				rangeFirst[r] = first;
+				rangeCount[r] = counts[type.ordinal() * chunkCount + c];
+				next[r] = first;
+				first += rangeCount[r];
+			}
+			group++;
+		}
+		chunkVisible = new boolean[chunkCount];
+		Arrays.fill(chunkVisible, true);
+		
+		Entity[] sorted = new Entity[total];
+		for (int row = 0; row < tiles.getSizeX(); row++) {
+			for (int col = 0; col < tiles.getSizeZ(); col++) {
+				TerrainBlock block = blocks[row][col];
+				int chunk = row / chunkSize * chunksZ + col / chunkSize;
+				int index = next[groupOf[tiles.get(row, col).ordinal()] * chunkCount + chunk]++;
+				block.setBatchIndex(index);
+				block.setBatch(this);
+				sorted[index] = block;
+			}
+		}
+		
+		FloatBuffer instanceData = MemoryUtil.memAllocFloat(Math.max(1, total) * INSTANCE_SIZE_FLOATS);
+		try {
+			Transformation transformation = new Transformation();
+			for (int i = 0; i < groups; i++) {
+				Texture texture = groupTiles[i].getMesh().getMaterial().getTexture();
+				int numCols = texture != null ? texture.getNumCols() : 0;
+				int numRows = texture != null ? texture.getNumRows() : 0;
+				instanceData.position(groupFirst[i] * INSTANCE_SIZE_FLOATS);
+				InstancePacker.pack(sorted, groupFirst[i], groupCount[i], instanceData.slice(), numCols, numRows, null, transformation);
+			}
+			instanceData.clear().limit(total * INSTANCE_SIZE_FLOATS);
+			mesh = new StaticInstancedMesh(Terrain.VERTICES, Terrain.TEX_COORDS, VectorUtils.calcNormals(Terrain.VERTICES, Terrain.INDICES), Terrain.INDICES, instanceData);
+		}
+		finally {
+			MemoryUtil.memFree(instanceData);
+		}
+		selectionChanges = new ConcurrentLinkedQueue<>();
+	}
+	
+	public int getGroupCount() {
+		return groupTiles.length;
+	}
+	
+	public Material getGroupMaterial(int group) throws Exception {
+		return groupTiles[group].getMesh().getMaterial();
+	}
+	
+	/**
+	 * Copies bounds of tiles of chunk to min and max.
+	 */
+	public void getChunkBounds(int chunk, Vector3f min, Vector3f max) {
+		int b = chunk * 6;
+		min.set(chunkBounds[b], chunkBounds[b + 1], chunkBounds[b + 2]);
+		max.set(chunkBounds[b + 3], chunkBounds[b + 4], chunkBounds[b + 5]);
+	}
+	
+	/**
+	 * Hidden chunks are skipped by {@link #renderGroup(int)}, all chunks are
+	 * visible initially.
+	 */
+	public void setChunkVisible(int chunk, boolean visible) {
+		chunkVisible[chunk] = visible;
+	}
+	
+	public void setAllChunksVisible() {
+		Arrays.fill(chunkVisible, true);
+	}
+	
+	/**
+	 * Draws visible tiles of one type with material of that type, one draw
+	 * call per run of visible chunks.
+	 */
+	public void renderGroup(int group) throws Exception {
+		mesh.setMaterial(getGroupMaterial(group));
+		int base = group * chunkCount;
+		int first = 0;
+		int count = 0;
+		for (int c = 0; c < chunkCount; c++) {
+			if (rangeCount[base + c] == 0) {
+				continue;
+			}
+			if (chunkVisible[c]) {
+				if (count == 0) {
+					first = rangeFirst[base + c];
+				}
+				count += rangeCount[base + c];
+			} else if (count > 0) {
+				mesh.renderRange(first, count);
+				count = 0;
+			}
+		}
+		mesh.renderRange(first, count);
+	}
+	
+	void selectionChanged(TerrainBlock block) {
+		selectionChanges.add(block);
+	}
+	
+	/**
+	 * Sends selection flags changed since last call. Must be called from
+	 * render thread.
+	 */
+	public void flushSelection() {
+		TerrainBlock block;
+		while ((block = selectionChanges.poll()) != null) {
+			mesh.setSelected(block.getBatchIndex(), block.isSelected());
+		}
+	}
+	
+	public void cleanup() {
+		mesh.remove();
+	}
+}
@@ -0,0 +1,32 @@
+package eu.grmdev.senryaku.core.map;
+
+import eu.grmdev.senryaku.core.IGame;
+import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
+import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Single terrain tile. Knows its instance in {@link TerrainBatch}, so
+ * selection change can be sent to GPU without rebuilding the batch.
+ */
+public class TerrainBlock extends Entity {
+	private @Getter @Setter int batchIndex;
+	private @Setter TerrainBatch batch;
+	
+	public TerrainBlock(Mesh mesh, EntityStore store, IGame game) {
+		super(store, game);
+		setMesh(mesh);
+		batchIndex = -1;
+	}
+	
+	@Override
+	public void setSelected(boolean selected) {
+		if (selected == isSelected()) { return; }
+		super.setSelected(selected);
+		if (batch != null) {
+			batch.selectionChanged(this);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package eu.grmdev.senryaku.core.map;
+
+import org.joml.Vector3f;
+
+import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import lombok.Getter;
+
+/**
+ * Fixed size square of terrain drawn as one static mesh per {@link Tile}
+ * type. Mesh data is built by {@link TerrainStreamer} in background, GL
+ * buffers are created on first draw.
+ */
+public class TerrainChunk {
+	private final @Getter int chunkX;
+	private final @Getter int chunkZ;
+	private final @Getter Vector3f min;
+	private final @Getter Vector3f max;
+	private final @Getter int faceCount;
+	private TerrainChunkData data;
+	private Mesh[] meshes;
+	
+	public TerrainChunk(int chunkX, int chunkZ, TerrainChunkData data) {
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		this.data = data;
+		this.min = data.getMin();
+		this.max = data.getMax();
+		this.faceCount = data.getFaceCount();
+	}
+	
+	public boolean isUploaded() {
+		return meshes != null;
+	}
+	
+	/**
+	 * Creates GL buffers and drops CPU copy of mesh data. Must be called from
+	 * render thread.
+	 *
+	 * @throws Exception
+	 *            when tile texture cannot be loaded
+	 */
+	public void upload() throws Exception {
+		if (meshes != null) { return; }
+		Mesh[] created = new Mesh[data.getGroupCount()];
+		for (int i = 0; i < created.length; i++) {
+			created[i] = new Mesh(data.getPositions()[i], data.getTexCoords()[i], data.getNormals()[i], data.getIndices()[i]);
+			created[i].setMaterial(data.getGroupTiles()[i].getMesh().getMaterial());
+		}
+		meshes = created;
+		data = null;
+	}
+	
+	public int getGroupCount() {
+		if (meshes != null) { return meshes.length; }
+		return data != null ? data.getGroupCount() : 0;
+	}
+	
+	public Mesh getGroupMesh(int group) {
+		return meshes[group];
+	}
+	
+	/**
+	 * Deletes buffers only, materials are shared with {@link Tile} meshes.
+	 * Must be called from render thread.
+	 */
+	public void cleanup() {
+		if (meshes != null) {
+			for (Mesh mesh : meshes) {
+				mesh.deleteBuffers();
+			}
+			meshes = null;
+		}
+		data = null;
+	}
+	
+	static long key(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xffffffffL);
+	}
+}
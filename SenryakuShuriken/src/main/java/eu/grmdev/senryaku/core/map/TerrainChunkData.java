@@ -0,0 +1,192 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.util.Arrays;
+
+import org.joml.Vector3f;
+
+import eu.grmdev.senryaku.core.misc.VectorUtils;
+import lombok.Getter;
+
+/**
+ * CPU side mesh of one terrain chunk. Tiles of chunk are merged into one
+ * vertex list per {@link Tile} type, side faces covered by neighbour tile of
+ * the same height are skipped. Does not touch OpenGL, so it can be built on
+ * background thread and measured without a context.
+ */
+public class TerrainChunkData {
+	private static final int FACES = Terrain.INDICES.length / 6;
+	/** Cube vertices used by each face */
+	private static final int[][] FACE_VERTICES = new int[FACES][];
+	/** Face indices pointing into {@link #FACE_VERTICES} of the same face */
+	private static final int[][] FACE_INDICES = new int[FACES][6];
+	/** Row and column offset of tile covering the face, 0,0 for top and bottom */
+	private static final int[][] FACE_NEIGHBOUR = new int[FACES][2];
+	private static final float[] CUBE_NORMALS = VectorUtils.calcNormals(Terrain.VERTICES, Terrain.INDICES);
+	private final @Getter Tile[] groupTiles;
+	private final @Getter float[][] positions;
+	private final @Getter float[][] texCoords;
+	private final @Getter float[][] normals;
+	private final @Getter int[][] indices;
+	private final @Getter Vector3f min;
+	private final @Getter Vector3f max;
+	private final @Getter int faceCount;
+	
+	static {
+		for (int face = 0; face < FACES; face++) {
+			int[] unique = new int[6];
+			int count = 0;
+			for (int i = 0; i < 6; i++) {
+				int vertex = Terrain.INDICES[face * 6 + i];
+				int local = 0;
+				while (local < count && unique[local] != vertex) {
+					local++;
+				}
+				if (local == count) {
+					unique[count++] = vertex;
+				}
+				FACE_INDICES[face][i] = local;
+			}
+			FACE_VERTICES[face] = Arrays.copyOf(unique, count);
+			
+			int v0 = FACE_VERTICES[face][0] * 3;
+			boolean sameX = true;
+			boolean sameZ = true;
+			for (int vertex : FACE_VERTICES[face]) {
+				sameX &= Terrain.VERTICES[vertex * 3] == Terrain.VERTICES[v0];
+				sameZ &= Terrain.VERTICES[vertex * 3 + 2] == Terrain.VERTICES[v0 + 2];
+			}
+			if (sameX) {
+				FACE_NEIGHBOUR[face][0] = (int) Math.signum(Terrain.VERTICES[v0]);
+			} else if (sameZ) {
+				FACE_NEIGHBOUR[face][1] = (int) Math.signum(Terrain.VERTICES[v0 + 2]);
+			}
+		}
+	}
+	
+	private TerrainChunkData(int groups, Vector3f min, Vector3f max, int faceCount) {
+		this.groupTiles = new Tile[groups];
+		this.positions = new float[groups][];
+		this.texCoords = new float[groups][];
+		this.normals = new float[groups][];
+		this.indices = new int[groups][];
+		this.min = min;
+		this.max = max;
+		this.faceCount = faceCount;
+	}
+	
+	/**
+	 * Merges tiles of one chunk.
+	 *
+	 * @param tiles
+	 *           tiles of whole map, neighbours outside chunk are used for face
+	 *           culling
+	 * @param firstRow
+	 *           first row of chunk
+	 * @param firstCol
+	 *           first column of chunk
+	 * @param size
+	 *           chunk size in tiles, truncated at map border
+	 * @param tileScale
+	 *           size of one tile in world units
+	 * @return merged mesh data of chunk
+	 */
+	public static TerrainChunkData build(TileGrid tiles, int firstRow, int firstCol, int size, float tileScale) {
+		int endRow = Math.min(tiles.getSizeX(), firstRow + size);
+		int endCol = Math.min(tiles.getSizeZ(), firstCol + size);
+		Tile[] types = Tile.values();
+		int[] faces = new int[types.length];
+		float minHeight = Float.MAX_VALUE;
+		float maxHeight = -Float.MAX_VALUE;
+		for (int row = firstRow; row < endRow; row++) {
+			for (int col = firstCol; col < endCol; col++) {
+				Tile tile = tiles.get(row, col);
+				for (int face = 0; face < FACES; face++) {
+					if (!isCovered(tiles, row, col, face)) {
+						faces[tile.ordinal()]++;
+					}
+				}
+				minHeight = Math.min(minHeight, tile.getHeight());
+				maxHeight = Math.max(maxHeight, tile.getHeight());
+			}
+		}
+		
+		int groups = 0;
+		int faceCount = 0;
+		for (int count : faces) {
+			if (count > 0) {
+				groups++;
+				faceCount += count;
+			}
+		}
+		float half = tileScale * 0.5f;
+		Vector3f min = new Vector3f(firstRow * tileScale - half, minHeight - half, firstCol * tileScale - half);
+		Vector3f max = new Vector3f((endRow - 1) * tileScale + half, maxHeight + half, (endCol - 1) * tileScale + half);
+		TerrainChunkData data = new TerrainChunkData(groups, min, max, faceCount);
+		
+		int[] groupOf = new int[types.length];
+		int group = 0;
+		for (Tile type : types) {
+			int count = faces[type.ordinal()];
+			if (count > 0) {
+				data.groupTiles[group] = type;
+				data.positions[group] = new float[count * 4 * 3];
+				data.texCoords[group] = new float[count * 4 * 2];
+				data.normals[group] = new float[count * 4 * 3];
+				data.indices[group] = new int[count * 6];
+				groupOf[type.ordinal()] = group;
+				group++;
+			}
+		}
+		
+		int[] vertexCount = new int[groups];
+		int[] indexCount = new int[groups];
+		for (int row = firstRow; row < endRow; row++) {
+			for (int col = firstCol; col < endCol; col++) {
+				Tile tile = tiles.get(row, col);
+				int g = groupOf[tile.ordinal()];
+				float x = row * tileScale;
+				float y = tile.getHeight();
+				float z = col * tileScale;
+				for (int face = 0; face < FACES; face++) {
+					if (isCovered(tiles, row, col, face)) {
+						continue;
+					}
+					int base = vertexCount[g];
+					for (int local : FACE_INDICES[face]) {
+						data.indices[g][indexCount[g]++] = base + local;
+					}
+					for (int vertex : FACE_VERTICES[face]) {
+						int v = vertexCount[g]++;
+						data.positions[g][v * 3] = Terrain.VERTICES[vertex * 3] * tileScale + x;
+						data.positions[g][v * 3 + 1] = Terrain.VERTICES[vertex * 3 + 1] * tileScale + y;
+						data.positions[g][v * 3 + 2] = Terrain.VERTICES[vertex * 3 + 2] * tileScale + z;
+						data.texCoords[g][v * 2] = Terrain.TEX_COORDS[vertex * 2];
+						data.texCoords[g][v * 2 + 1] = Terrain.TEX_COORDS[vertex * 2 + 1];
+						data.normals[g][v * 3] = CUBE_NORMALS[vertex * 3];
+						data.normals[g][v * 3 + 1] = CUBE_NORMALS[vertex * 3 + 1];
+						data.normals[g][v * 3 + 2] = CUBE_NORMALS[vertex * 3 + 2];
+					}
+				}
+			}
+		}
+		return data;
+	}
+	
+	/**
+	 * Side face is hidden when neighbour tile has the same height, top and
+	 * bottom faces are always drawn.
+	 */
+	private static boolean isCovered(TileGrid tiles, int row, int col, int face) {
+		int dRow = FACE_NEIGHBOUR[face][0];
+		int dCol = FACE_NEIGHBOUR[face][1];
+		if (dRow == 0 && dCol == 0) { return false; }
+		int nRow = row + dRow;
+		int nCol = col + dCol;
+		if (!tiles.contains(nRow, nCol)) { return false; }
+		return tiles.get(nRow, nCol).getHeight() == tiles.get(row, col).getHeight();
+	}
+	
+	public int getGroupCount() {
+		return groupTiles.length;
+	}
+}
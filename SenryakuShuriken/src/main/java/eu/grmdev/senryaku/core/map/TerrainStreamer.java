@@ -0,0 +1,199 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.joml.Vector3f;
+
+import eu.grmdev.senryaku.Config;
+import lombok.Getter;
+
+/**
+ * Keeps only terrain chunks around camera in memory. Missing chunks in view
+ * distance are built on background executor nearest first, chunks out of
+ * range stay cached until least recently used ones have to make room. Memory
+ * and load time depend on view distance, not on map size. Chunks whose build
+ * failed are logged and not requested again.
+ */
+public class TerrainStreamer {
+	private final TileGrid tiles;
+	private final @Getter int chunkSize;
+	private final float tileScale;
+	private final int viewChunks;
+	private final @Getter int capacity;
+	private final int chunksX;
+	private final int chunksZ;
+	private final Executor executor;
+	private final ExecutorService ownExecutor;
+	private final LinkedHashMap<Long, TerrainChunk> resident;
+	private final Set<Long> pending;
+	private final Queue<TerrainChunk> built;
+	private final Queue<BuildFailure> failures;
+	private final Set<Long> failed;
+	private final @Getter List<TerrainChunk> chunksInRange;
+	private @Getter int evicted;
+	
+	/**
+	 * Streamer with chunk size and view distance from {@link Config}, chunks are
+	 * built on own daemon thread.
+	 */
+	public TerrainStreamer(TileGrid tiles, float tileScale) {
+		this(tiles, tileScale, Config.TERRAIN_CHUNK_SIZE.<Integer> get(), Config.TERRAIN_VIEW_DISTANCE.<Float> get(), null);
+	}
+	
+	/**
+	 * @param tiles
+	 *           tiles of whole map
+	 * @param tileScale
+	 *           size of one tile in world units
+	 * @param chunkSize
+	 *           chunk size in tiles
+	 * @param viewDistance
+	 *           distance from camera in world units in which chunks are loaded
+	 * @param executor
+	 *           runs chunk builds, when null own daemon thread is used
+	 */
+	public TerrainStreamer(TileGrid tiles, float tileScale, int chunkSize, float viewDistance, Executor executor) {
+		this.tiles = tiles;
+		this.tileScale = tileScale;
+		this.chunkSize = chunkSize;
+		this.viewChunks = (int) Math.ceil(viewDistance / (chunkSize * tileScale));
+		int side = 2 * viewChunks + 3;
+		this.capacity = side * side;
+		this.chunksX = (tiles.getSizeX() + chunkSize - 1) / chunkSize;
+		this.chunksZ = (tiles.getSizeZ() + chunkSize - 1) / chunkSize;
+		if (executor == null) {
+			ownExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "TerrainStreamer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.executor = ownExecutor;
+		} else {
+			ownExecutor = null;
+			this.executor = executor;
+		}
+		resident = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+		pending = new HashSet<>();
+		built = new ConcurrentLinkedQueue<>();
+		failures = new ConcurrentLinkedQueue<>();
+		failed = new HashSet<>();
+		chunksInRange = new ArrayList<>();
+	}
+	
+	/**
+	 * Collects finished chunks, requests missing ones around camera and evicts
+	 * least recently used chunks over capacity. Must be called from render
+	 * thread, evicted chunks delete their GL buffers.
+	 *
+	 * @param cameraPos
+	 *           world position of camera
+	 */
+	public void update(Vector3f cameraPos) {
+		TerrainChunk chunk;
+		while ((chunk = built.poll()) != null) {
+			long key = TerrainChunk.key(chunk.getChunkX(), chunk.getChunkZ());
+			pending.remove(key);
+			resident.put(key, chunk);
+		}
+		BuildFailure failure;
+		while ((failure = failures.poll()) != null) {
+			long key = TerrainChunk.key(failure.chunkX, failure.chunkZ);
+			pending.remove(key);
+			failed.add(key);
+			System.err.println("Cannot build terrain chunk " + failure.chunkX + ", " + failure.chunkZ + ": " + failure.cause);
+		}
+		
+		int centerX = Math.floorDiv(Math.round(cameraPos.x / tileScale), chunkSize);
+		int centerZ = Math.floorDiv(Math.round(cameraPos.z / tileScale), chunkSize);
+		chunksInRange.clear();
+		for (int ring = 0; ring <= viewChunks; ring++) {
+			for (int x = centerX - ring; x <= centerX + ring; x++) {
+				for (int z = centerZ - ring; z <= centerZ + ring; z++) {
+					if (Math.max(Math.abs(x - centerX), Math.abs(z - centerZ)) == ring) {
+						request(x, z);
+					}
+				}
+			}
+		}
+		
+		Iterator<TerrainChunk> it = resident.values().iterator();
+		while (resident.size() > capacity && it.hasNext()) {
+			TerrainChunk eldest = it.next();
+			it.remove();
+			eldest.cleanup();
+			evicted++;
+		}
+	}
+	
+	private void request(int x, int z) {
+		if (x < 0 || z < 0 || x >= chunksX || z >= chunksZ) { return; }
+		long key = TerrainChunk.key(x, z);
+		TerrainChunk chunk = resident.get(key);
+		if (chunk != null) {
+			chunksInRange.add(chunk);
+		} else if (!failed.contains(key) && pending.add(key)) {
+			try {
+				executor.execute(() -> build(x, z));
+			}
+			catch (RejectedExecutionException e) {
+				pending.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * Background thread, hands chunk or its failure over to {@link #update(Vector3f)}.
+	 */
+	private void build(int x, int z) {
+		try {
+			built.add(new TerrainChunk(x, z, TerrainChunkData.build(tiles, x * chunkSize, z * chunkSize, chunkSize, tileScale)));
+		}
+		catch (RuntimeException e) {
+			failures.add(new BuildFailure(x, z, e));
+		}
+	}
+	
+	public int getResidentCount() {
+		return resident.size();
+	}
+	
+	public int getPendingCount() {
+		return pending.size();
+	}
+	
+	public int getFailedCount() {
+		return failed.size();
+	}
+	
+	/**
+	 * Stops background builds and deletes all chunks. Must be called from
+	 * render thread.
+	 */
+	public void cleanup() {
+		if (ownExecutor != null) {
+			ownExecutor.shutdownNow();
+		}
+		for (TerrainChunk chunk : resident.values()) {
+			chunk.cleanup();
+		}
+		resident.clear();
+		pending.clear();
+		built.clear();
+		failures.clear();
+		failed.clear();
+		chunksInRange.clear();
+	}
+	
+	private static class BuildFailure {
+		private final int chunkX;
+		private final int chunkZ;
+		private final RuntimeException cause;
+		
+		BuildFailure(int chunkX, int chunkZ, RuntimeException cause) {
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.cause = cause;
+		}
+	}
+}
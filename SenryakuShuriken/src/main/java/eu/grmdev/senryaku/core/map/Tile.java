@@ -22,6 +22,20 @@ public enum Tile {
 	private @Getter float height;
 	private @Getter ParticleType emitter;
 	private Mesh mesh;
+	private static final Tile[] BY_ID;
+	/** Set when meshes of all tiles exist, so other threads may read them */
+	private static volatile @Getter boolean meshesCreated;
+	
+	static {
+		int maxId = 0;
+		for (Tile t : values()) {
+			maxId = Math.max(maxId, t.id);
+		}
+		BY_ID = new Tile[maxId + 1];
+		for (Tile t : values()) {
+			BY_ID[t.id] = t;
+		}
+	}
 	
 	private Tile(int id, String textureFile, boolean throwable, float height, boolean passable, ParticleType emitter) {
 		this(id, textureFile, throwable, height, passable);
@@ -36,20 +50,23 @@ public enum Tile {
 		this.height = height;
 	}
 	
+	/**
+	 * @return tile with given id or null for unknown id
+	 */
 	public static Tile value(int id) {
-		for (Tile t : values()) {
-			if (t.id == id) { return t; }
-		}
-		return null;
+		if (id < 0 || id >= BY_ID.length) { return null; }
+		return BY_ID[id];
 	}
 	
 	public Mesh getMesh() throws Exception {
 		if (mesh == null) {
 			try {
-				mesh = new Mesh(Terrain.VERTICES, Terrain.TEX_COORDS, VectorUtils.calcNormals(Terrain.VERTICES, Terrain.INDICES), Terrain.INDICES);
-				Texture texture = new Texture("/textures/tile_" + textureFile + ".png");
-				Material material = new Material(texture);
-				mesh.setMaterial(material);
+				mesh = ResourceManager.getInstance().acquireMeshes("tile_" + textureFile, () -> {
+					Mesh tileMesh = new Mesh(Terrain.VERTICES, Terrain.TEX_COORDS, VectorUtils.calcNormals(Terrain.VERTICES, Terrain.INDICES), Terrain.INDICES);
+					Texture texture = ResourceManager.getInstance().getTexture("/textures/tile_" + textureFile + ".png");
+					tileMesh.setMaterial(new Material(texture));
+					return new Mesh[]{tileMesh};
+				})[0];
 			}
 			catch (Exception ex) {
 				throw new FileNotFoundException("Cannot create texture " + textureFile + "." + Config.IMAGE_FORMAT + ". Probably file does not exits.");
@@ -58,8 +75,23 @@ public enum Tile {
 		return mesh;
 	}
 	
+	/**
+	 * Render thread, creates meshes of all tiles, after that maps can build
+	 * their tile entities on any thread.
+	 */
+	public static void createMeshes() throws Exception {
+		for (Tile t : values()) {
+			t.getMesh();
+		}
+		meshesCreated = true;
+	}
+	
 	public static void destroy() {
+		meshesCreated = false;
 		for (Tile t : values()) {
+			if (t.mesh != null) {
+				t.mesh.remove();
+			}
 			t.mesh = null;
 		}
 	}
@@ -0,0 +1,177 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.nio.ByteBuffer;
+
+import lombok.Getter;
+
+/**
+ * Primitive grid of {@link Tile} ids, one byte per tile, x major: tile
+ * <code>(x, z)</code> is at <code>x * stride + z</code>. Backed either by
+ * plain <code>byte[]</code> or by view into memory mapped map file.
+ */
+public class TileGrid {
+	private final ByteBuffer ids;
+	private final @Getter int sizeX;
+	private final @Getter int sizeZ;
+	private final @Getter int stride;
+	
+	/**
+	 * @param ids
+	 *           tile ids from position, at least
+	 *           <code>(sizeX - 1) * stride + sizeZ</code> bytes
+	 * @param stride
+	 *           distance between columns, not less than <code>sizeZ</code>
+	 */
+	public TileGrid(ByteBuffer ids, int sizeX, int sizeZ, int stride) {
+		if (sizeX <= 0 || sizeZ <= 0 || stride < sizeZ) { throw new IllegalArgumentException("Invalid grid size " + sizeX + "x" + sizeZ + " with stride " + stride); }
+		if (ids.remaining() < (long) (sizeX - 1) * stride + sizeZ) { throw new IllegalArgumentException("Tile grid has " + ids.remaining() + " bytes, too few for " + sizeX + "x" + sizeZ); }
+		this.ids = ids.slice();
+		this.sizeX = sizeX;
+		this.sizeZ = sizeZ;
+		this.stride = stride;
+	}
+	
+	public TileGrid(byte[] ids, int sizeX, int sizeZ, int stride) {
+		this(ByteBuffer.wrap(ids), sizeX, sizeZ, stride);
+	}
+	
+	public static TileGrid of(Tile[][] tiles) {
+		int sizeX = tiles.length;
+		int sizeZ = tiles[0].length;
+		byte[] ids = new byte[sizeX * sizeZ];
+		for (int x = 0; x < sizeX; x++) {
+			for (int z = 0; z < tiles[x].length; z++) {
+				ids[x * sizeZ + z] = (byte) tiles[x][z].getId();
+			}
+		}
+		return new TileGrid(ids, sizeX, sizeZ, sizeZ);
+	}
+	
+	public int getId(int x, int z) {
+		return ids.get(x * stride + z) & 0xff;
+	}
+	
+	/**
+	 * @return tile at position, {@link Tile#EMPTY} for unknown id
+	 */
+	public Tile get(int x, int z) {
+		Tile tile = Tile.value(getId(x, z));
+		return tile != null ? tile : Tile.EMPTY;
+	}
+	
+	public boolean contains(int x, int z) {
+		return x >= 0 && z >= 0 && x < sizeX && z < sizeZ;
+	}
+	
+	/**
+	 * @return grid with <code>stride == sizeZ</code>, this grid when it
+	 *         already is compact
+	 */
+	public TileGrid compact() {
+		if (stride == sizeZ) { return this; }
+		byte[] compact = new byte[sizeX * sizeZ];
+		for (int x = 0; x < sizeX; x++) {
+			ByteBuffer column = ids.duplicate();
+			column.position(x * stride);
+			column.get(compact, x * sizeZ, sizeZ);
+		}
+		return new TileGrid(compact, sizeX, sizeZ, sizeZ);
+	}
+	
+	/**
+	 * @return read only view of ids, from first tile to the last one
+	 */
+	public ByteBuffer getIds() {
+		ByteBuffer view = ids.asReadOnlyBuffer();
+		view.limit((sizeX - 1) * stride + sizeZ);
+		return view;
+	}
+	
+	/**
+	 * Walks tiles along ray with 2D DDA, so only tiles under the ray are
+	 * looked at. Tile <code>(x, z)</code> is cube of size
+	 * <code>tileScale</code> centered at
+	 * <code>(x * tileScale, height, z * tileScale)</code>, as terrain chunks
+	 * draw it.
+	 *
+	 * @return closest tile hit by ray, null on miss
+	 */
+	public TileHit raycast(float ox, float oy, float oz, float dx, float dy, float dz, float tileScale) {
+		float half = tileScale / 2;
+		float minHeight = Float.POSITIVE_INFINITY;
+		float maxHeight = Float.NEGATIVE_INFINITY;
+		for (Tile tile : Tile.values()) {
+			minHeight = Math.min(minHeight, tile.getHeight());
+			maxHeight = Math.max(maxHeight, tile.getHeight());
+		}
+		float[] o = {ox, oy, oz};
+		float[] d = {dx, dy, dz};
+		float[] lo = {-half, minHeight - half, -half};
+		float[] hi = {sizeX * tileScale - half, maxHeight + half, sizeZ * tileScale - half};
+		float tEnter = 0;
+		float tExit = Float.POSITIVE_INFINITY;
+		for (int a = 0; a < 3; a++) {
+			if (d[a] == 0) {
+				if (o[a] < lo[a] || o[a] > hi[a]) { return null; }
+			} else {
+				float t0 = (lo[a] - o[a]) / d[a];
+				float t1 = (hi[a] - o[a]) / d[a];
+				tEnter = Math.max(tEnter, Math.min(t0, t1));
+				tExit = Math.min(tExit, Math.max(t0, t1));
+			}
+		}
+		if (tEnter > tExit) { return null; }
+		
+		int x = Math.min(Math.max((int) Math.floor((ox + dx * tEnter + half) / tileScale), 0), sizeX - 1);
+		int z = Math.min(Math.max((int) Math.floor((oz + dz * tEnter + half) / tileScale), 0), sizeZ - 1);
+		int stepX = dx > 0 ? 1 : -1;
+		int stepZ = dz > 0 ? 1 : -1;
+		float tDeltaX = dx != 0 ? tileScale / Math.abs(dx) : Float.POSITIVE_INFINITY;
+		float tDeltaZ = dz != 0 ? tileScale / Math.abs(dz) : Float.POSITIVE_INFINITY;
+		float tMaxX = dx != 0 ? ((x + (dx > 0 ? 1 : 0)) * tileScale - half - ox) / dx : Float.POSITIVE_INFINITY;
+		float tMaxZ = dz != 0 ? ((z + (dz > 0 ? 1 : 0)) * tileScale - half - oz) / dz : Float.POSITIVE_INFINITY;
+		for (float t = tEnter; t <= tExit && contains(x, z);) {
+			float tNext = Math.min(Math.min(tMaxX, tMaxZ), tExit);
+			Tile tile = get(x, z);
+			float bottom = tile.getHeight() - half;
+			float top = tile.getHeight() + half;
+			// part of ray above tile, between its entry and exit of tile column
+			float from = t;
+			float to = tNext;
+			if (dy == 0) {
+				if (oy < bottom || oy > top) {
+					from = Float.POSITIVE_INFINITY;
+				}
+			} else {
+				float t0 = (bottom - oy) / dy;
+				float t1 = (top - oy) / dy;
+				from = Math.max(from, Math.min(t0, t1));
+				to = Math.min(to, Math.max(t0, t1));
+			}
+			if (from <= to) { return new TileHit(x, z, tile, null); }
+			if (tMaxX < tMaxZ) {
+				x += stepX;
+				t = tMaxX;
+				tMaxX += tDeltaX;
+			} else {
+				z += stepZ;
+				t = tMaxZ;
+				tMaxZ += tDeltaZ;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Decodes whole grid, only for code which still needs objects per tile.
+	 */
+	public Tile[][] toTiles() {
+		Tile[][] result = new Tile[sizeX][sizeZ];
+		for (int x = 0; x < sizeX; x++) {
+			for (int z = 0; z < sizeZ; z++) {
+				result[x][z] = get(x, z);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,27 @@
+package eu.grmdev.senryaku.core.map;
+
+import eu.grmdev.senryaku.core.entity.Entity;
+import lombok.Getter;
+
+/**
+ * Tile hit by picking ray. Streamed terrain has no tile entities, so entity
+ * is null there.
+ */
+public class TileHit {
+	private final @Getter int x;
+	private final @Getter int z;
+	private final @Getter Tile tile;
+	private final @Getter Entity entity;
+	
+	public TileHit(int x, int z, Tile tile, Entity entity) {
+		this.x = x;
+		this.z = z;
+		this.tile = tile;
+		this.entity = entity;
+	}
+	
+	@Override
+	public String toString() {
+		return tile + " [" + x + ", " + z + "]";
+	}
+}
@@ -0,0 +1,114 @@
+package eu.grmdev.senryaku.core.map;
+
+import java.util.Arrays;
+
+import org.joml.FrustumIntersection;
+import org.joml.Vector3f;
+
+import eu.grmdev.senryaku.graphic.culling.OcclusionBuffer;
+import lombok.Getter;
+
+/**
+ * Occluder boxes of raised tiles of map. Neighbour tiles of the same height
+ * are merged, first along rows into runs, then runs equal in consecutive
+ * rows into rectangles, so a straight wall is a single box. Boxes are
+ * shrunk a little, so that tiles never occlude themselves.
+ */
+public class WallOccluders {
+	private static final float INSET = 0.01f;
+	/** Min xyz, max xyz of every box */
+	private float[] boxes;
+	private @Getter int count;
+	
+	public WallOccluders(TileGrid tiles, float tileScale) {
+		boxes = new float[6 * 16];
+		int[] runs = new int[0];
+		int[] previous = new int[0];
+		int previousCount = 0;
+		for (int x = 0; x < tiles.getSizeX(); x++) {
+			int runCount = 0;
+			if (runs.length < tiles.getSizeZ() * 4) {
+				runs = new int[tiles.getSizeZ() * 4];
+			}
+			for (int z = 0; z < tiles.getSizeZ();) {
+				float height = tiles.get(x, z).getHeight();
+				int end = z + 1;
+				while (end < tiles.getSizeZ() && tiles.get(x, end).getHeight() == height) {
+					end++;
+				}
+				if (height > 0) {
+					int box = find(previous, previousCount, z, end, height);
+					if (box < 0) {
+						box = add(x, z, end, height, tileScale);
+					} else {
+						boxes[box * 6 + 3] = (x + 0.5f - INSET) * tileScale;
+					}
+					runs[runCount * 4] = z;
+					runs[runCount * 4 + 1] = end;
+					runs[runCount * 4 + 2] = box;
+					runs[runCount * 4 + 3] = Float.floatToIntBits(height);
+					runCount++;
+				}
+				z = end;
+			}
+			int[] swap = previous;
+			previous = runs;
+			runs = swap;
+			previousCount = runCount;
+		}
+	}
+	
+	/**
+	 * @return box of previous row run with same span and height, -1 if none
+	 */
+	private static int find(int[] runs, int count, int from, int to, float height) {
+		for (int i = 0; i < count; i++) {
+			if (runs[i * 4] == from && runs[i * 4 + 1] == to && runs[i * 4 + 3] == Float.floatToIntBits(height)) { return runs[i * 4 + 2]; }
+			if (runs[i * 4] > from) {
+				break;
+			}
+		}
+		return -1;
+	}
+	
+	private int add(int x, int from, int to, float height, float tileScale) {
+		if ((count + 1) * 6 > boxes.length) {
+			boxes = Arrays.copyOf(boxes, boxes.length * 2);
+		}
+		float half = 0.5f - INSET;
+		int b = count * 6;
+		boxes[b] = (x - half) * tileScale;
+		boxes[b + 1] = height - half * tileScale;
+		boxes[b + 2] = (from - half) * tileScale;
+		boxes[b + 3] = (x + half) * tileScale;
+		boxes[b + 4] = height + half * tileScale;
+		boxes[b + 5] = (to - 1 + half) * tileScale;
+		return count++;
+	}
+	
+	/**
+	 * Rasterizes boxes inside frustum and closer than <code>maxDistance</code>
+	 * to eye into buffer.
+	 */
+	public void rasterize(OcclusionBuffer buffer, FrustumIntersection frustum, Vector3f eye, float maxDistance) {
+		float maxDistanceSq = maxDistance * maxDistance;
+		for (int b = 0, end = count * 6; b < end; b += 6) {
+			float dx = Math.max(0, Math.max(boxes[b] - eye.x, eye.x - boxes[b + 3]));
+			float dy = Math.max(0, Math.max(boxes[b + 1] - eye.y, eye.y - boxes[b + 4]));
+			float dz = Math.max(0, Math.max(boxes[b + 2] - eye.z, eye.z - boxes[b + 5]));
+			if (dx * dx + dy * dy + dz * dz > maxDistanceSq || !frustum.testAab(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4], boxes[b + 5])) {
+				continue;
+			}
+			buffer.addOccluder(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4], boxes[b + 5]);
+		}
+	}
+	
+	/**
+	 * Copies bounds of box to min and max.
+	 */
+	public void getBox(int box, Vector3f min, Vector3f max) {
+		int b = box * 6;
+		min.set(boxes[b], boxes[b + 1], boxes[b + 2]);
+		max.set(boxes[b + 3], boxes[b + 4], boxes[b + 5]);
+	}
+}
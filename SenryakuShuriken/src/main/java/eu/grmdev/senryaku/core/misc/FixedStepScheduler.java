@@ -0,0 +1,118 @@
+package eu.grmdev.senryaku.core.misc;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import lombok.Getter;
+
+/**
+ * Fixed timestep loop clock on {@link System#nanoTime()}. Elapsed time is
+ * accumulated and {@link #advance()} tells how many whole steps are due, so
+ * every step simulates exactly {@link #getStepMillis()} no matter how long
+ * the loop took. When loop falls behind by more than
+ * <code>maxCatchUpSteps</code> the rest of time is dropped instead of
+ * running an ever growing burst of steps.
+ */
+public class FixedStepScheduler {
+	/**
+	 * Last part of wait which is spun, parking wakes up late by up to a
+	 * scheduler quantum
+	 */
+	private static final long SPIN_NANOS = 1_000_000L;
+	private final LongSupplier clock;
+	private final int maxCatchUpSteps;
+	private @Getter int stepsPerSecond;
+	private @Getter long stepNanos;
+	private long accumulator;
+	private long lastNanos;
+	private @Getter final LoopStats stats;
+	
+	public FixedStepScheduler(int stepsPerSecond, int maxCatchUpSteps) {
+		this(stepsPerSecond, maxCatchUpSteps, System::nanoTime);
+	}
+	
+	/**
+	 * @param clock
+	 *           source of nanosecond time, replaced in tests
+	 */
+	public FixedStepScheduler(int stepsPerSecond, int maxCatchUpSteps, LongSupplier clock) {
+		this.clock = clock;
+		this.maxCatchUpSteps = Math.max(1, maxCatchUpSteps);
+		this.stats = new LoopStats();
+		setRate(stepsPerSecond);
+	}
+	
+	public void setRate(int stepsPerSecond) {
+		this.stepsPerSecond = Math.max(1, stepsPerSecond);
+		stepNanos = 1_000_000_000L / this.stepsPerSecond;
+	}
+	
+	/**
+	 * Starts clock, first step is due right away.
+	 */
+	public void start() {
+		lastNanos = clock.getAsLong();
+		accumulator = stepNanos;
+	}
+	
+	/**
+	 * Adds time passed since last call and takes due steps out of it.
+	 *
+	 * @return number of steps to run now, at most
+	 *         <code>maxCatchUpSteps</code>
+	 */
+	public int advance() {
+		long now = clock.getAsLong();
+		accumulator += now - lastNanos;
+		lastNanos = now;
+		long due = accumulator / stepNanos;
+		int steps = (int) Math.min(due, maxCatchUpSteps);
+		accumulator -= steps * stepNanos;
+		if (due > steps) {
+			stats.addDropped(due - steps);
+			accumulator %= stepNanos;
+		}
+		for (int i = 0; i < steps; i++) {
+			stats.record(now, stepNanos);
+		}
+		return steps;
+	}
+	
+	public float getStepMillis() {
+		return stepNanos / 1e6f;
+	}
+	
+	/**
+	 * @return part of next step which already passed, 0 to 1
+	 */
+	public float getAlpha() {
+		return Math.min(1, (float) (accumulator + clock.getAsLong() - lastNanos) / stepNanos);
+	}
+	
+	/**
+	 * @return nanoseconds until next step is due
+	 */
+	public long getWaitNanos() {
+		return Math.max(0, stepNanos - accumulator - (clock.getAsLong() - lastNanos));
+	}
+	
+	/**
+	 * Blocks until next step is due. Parks the thread for most of the time and
+	 * spins the last {@link #SPIN_NANOS}, so wake up is precise below a
+	 * millisecond.
+	 */
+	public void waitForNextStep() {
+		long deadline = lastNanos + stepNanos - accumulator;
+		long left;
+		while ((left = deadline - clock.getAsLong()) > SPIN_NANOS) {
+			LockSupport.parkNanos(left - SPIN_NANOS);
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		while (deadline - clock.getAsLong() > 0) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package eu.grmdev.senryaku.core.misc;
+
+import lombok.Getter;
+
+/**
+ * Rate and jitter of a loop over one second windows. Jitter is difference
+ * between measured interval of two iterations and target interval. Values
+ * of the last complete window are exposed, so they change once per second.
+ */
+public class LoopStats {
+	private static final long WINDOW_NANOS = 1_000_000_000L;
+	private boolean started;
+	private long windowStart;
+	private long lastNanos;
+	private int count;
+	private long jitterSum;
+	private long jitterMax;
+	private long droppedInWindow;
+	/** Iterations in last window */
+	private @Getter int rate;
+	private @Getter float meanJitterMillis;
+	private @Getter float maxJitterMillis;
+	/** Number of completed windows */
+	private @Getter int windows;
+	/** Steps skipped in last window because loop could not catch up */
+	private @Getter long droppedSteps;
+	
+	/**
+	 * Records one iteration.
+	 *
+	 * @param nanos
+	 *           {@link System#nanoTime()} of iteration
+	 * @param targetNanos
+	 *           wanted interval between iterations
+	 * @return true when window was completed and statistics were updated
+	 */
+	public boolean record(long nanos, long targetNanos) {
+		if (!started) {
+			started = true;
+			windowStart = nanos;
+			lastNanos = nanos;
+			return false;
+		}
+		long jitter = Math.abs(nanos - lastNanos - targetNanos);
+		jitterSum += jitter;
+		jitterMax = Math.max(jitterMax, jitter);
+		lastNanos = nanos;
+		count++;
+		if (nanos - windowStart < WINDOW_NANOS) { return false; }
+		rate = count;
+		meanJitterMillis = count > 0 ? jitterSum / count / 1e6f : 0;
+		maxJitterMillis = jitterMax / 1e6f;
+		droppedSteps = droppedInWindow;
+		windows++;
+		windowStart = nanos;
+		count = 0;
+		jitterSum = 0;
+		jitterMax = 0;
+		droppedInWindow = 0;
+		return true;
+	}
+	
+	public void addDropped(long steps) {
+		droppedInWindow += steps;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%d/s, jitter %.2f ms (max %.2f ms), dropped %d", rate, meanJitterMillis, maxJitterMillis, droppedSteps);
+	}
+}
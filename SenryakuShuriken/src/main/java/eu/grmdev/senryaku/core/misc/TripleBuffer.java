@@ -0,0 +1,55 @@
+package eu.grmdev.senryaku.core.misc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock free hand-off of data between one writer and one reader thread.
+ * Writer fills {@link #getWriteBuffer()} and calls {@link #publish()}, reader
+ * calls {@link #acquire()} and gets the latest published buffer. Neither side
+ * waits, buffer being read is never written.
+ */
+public class TripleBuffer<T> {
+	private static final int INDEX_MASK = 0b11;
+	private static final int FRESH = 0b100;
+	private final Object[] buffers;
+	/** Index of buffer between writer and reader, with {@link #FRESH} bit */
+	private final AtomicInteger middle;
+	private int back;
+	private int front;
+	
+	public TripleBuffer(Supplier<T> factory) {
+		buffers = new Object[]{factory.get(), factory.get(), factory.get()};
+		front = 0;
+		middle = new AtomicInteger(1);
+		back = 2;
+	}
+	
+	/**
+	 * Writer side, buffer to fill before {@link #publish()}. It holds data
+	 * published two times ago, not the last one.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) buffers[back];
+	}
+	
+	/**
+	 * Writer side, makes write buffer the latest one.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+	
+	/**
+	 * Reader side, latest published buffer or the previously acquired one when
+	 * nothing was published since.
+	 */
+	@SuppressWarnings("unchecked")
+	public T acquire() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}
+		return (T) buffers[front];
+	}
+}
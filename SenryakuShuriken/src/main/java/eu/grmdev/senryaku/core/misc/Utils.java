@@ -79,7 +79,7 @@ public class Utils {
 	
 	public static List<String> readAllLines(String fileName) throws IOException {
 		List<String> list = new ArrayList<>();
-		try (BufferedReader br = new BufferedReader(new InputStreamReader(Utils.class.getClass().getResourceAsStream(fileName)))) {
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(Utils.class.getResourceAsStream(fileName)))) {
 			String line;
 			while ((line = br.readLine()) != null) {
 				list.add(line);
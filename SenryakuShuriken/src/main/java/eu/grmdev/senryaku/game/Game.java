@@ -18,6 +18,7 @@ import eu.grmdev.senryaku.core.handlers.EventHandler;
 import eu.grmdev.senryaku.core.handlers.MouseHandler;
 import eu.grmdev.senryaku.core.loaders.obj.StaticMeshesLoader;
 import eu.grmdev.senryaku.core.map.LevelManager;
+import eu.grmdev.senryaku.core.map.Tile;
 import eu.grmdev.senryaku.game.hud.Hud;
 import eu.grmdev.senryaku.graphic.*;
 import eu.grmdev.senryaku.graphic.effects.Fog;
@@ -63,6 +64,7 @@ public class Game implements IGame {
 	public void initRender(Window window) throws Exception {
 		renderer.init(window);
 		camera.setWindow(window);
+		Tile.createMeshes();
 		
 		List<Entity> entities = setupStartEntities();
 		scene.setEntities(entities.toArray(new Entity[0]));
@@ -270,6 +272,7 @@ public class Game implements IGame {
 		if (Configuration.isChanged()) {
 			onConfigurationChanged();
 		}
+		scene.publishSnapshot(System.nanoTime(), camera);
 	}
 	
 	private void onConfigurationChanged() {
@@ -289,6 +292,11 @@ public class Game implements IGame {
 		hud.render();
 	}
 	
+	@Override
+	public String getRenderStats() {
+		return " - " + renderer.getEliminatedStateChanges() + " state changes saved";
+	}
+	
 	/**
 	 * Called on game closing. Throws the thrash out of memory
 	 */
@@ -315,6 +323,11 @@ public class Game implements IGame {
 		scene.removeEntity(entity);
 	}
 	
+	@Override
+	public EntityStore getEntityStore() {
+		return scene.getStore();
+	}
+	
 	@Override
 	public Entity getPlayer() {
 		return player;
@@ -35,7 +35,7 @@ public class Player extends Entity implements Movable {
 		this.levelManager = levelManager;
 		this.hud = hud;
 		Mesh[] mesh = StaticMeshesLoader.load("models/player/ninja.obj", "/models/player");
-		this.meshes = mesh;
+		setMeshes(mesh);
 		setScale(0.5f);
 		applyRenderOffset();
 		this.levelManager.setPlayer(this);
@@ -107,28 +107,30 @@ public class Player extends Entity implements Movable {
 		if (cRot.x != rx || cRot.z != rz) {
 			Direction d = Direction.getDirInvY(rx, rz);
 			float angle = direction.angle(d);
-			getRotation().rotateLocalY(angle);
+			setRotation(getRotation().rotateLocalY(angle));
 			cRot.x = rx;
 			cRot.z = rz;
 			direction = d;
 			applyRenderOffset();
 		}
-		checkEnd(position);
+		checkEnd(getPosition());
 		levelManager.getCurrentMap().incCounter();
 	}
 	
 	private void applyRenderOffset() {
+		Vector3f renderOffset = getRenderOffset();
 		if (direction == Direction.DOWN) {
-			getRenderOffset().x = offset;
+			renderOffset.x = offset;
 		} else if (direction == Direction.RIGHT) {
-			getRenderOffset().z = -offset;
+			renderOffset.z = -offset;
 		} else if (direction == Direction.LEFT) {
-			getRenderOffset().x = -offset;
-			getRenderOffset().z = offset;
+			renderOffset.x = -offset;
+			renderOffset.z = offset;
 		} else {
-			getRenderOffset().x = -offset;
-			getRenderOffset().z = -offset;
+			renderOffset.x = -offset;
+			renderOffset.z = -offset;
 		}
+		setRenderOffset(renderOffset.x, renderOffset.y, renderOffset.z);
 	}
 	
 	/*
@@ -138,7 +140,8 @@ public class Player extends Entity implements Movable {
 	@Override
 	public void animate(float interval) {
 		tAnimation.animate(interval);
-		camera.setPosition(tAnimation.getPosition().x, camera.getPosition().y, tAnimation.getPosition().z);
+		Vector3f position = getPosition();
+		camera.setPosition(position.x, camera.getPosition().y, position.z);
 		checkCollisions(tAnimation.getDestPosition());
 		checkEnd(position);
 	}
@@ -5,7 +5,9 @@ import java.util.Map;
 
 import org.joml.*;
 
+import eu.grmdev.senryaku.core.SceneSnapshot;
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.graphic.mesh.Mesh;
 
 public class FrustumCullingFilter {
@@ -31,18 +33,70 @@ public class FrustumCullingFilter {
 	}
 	
 	public void filter(List<Entity> gameItems, float meshBoundingRadius) {
-		float boundingRadius;
-		Vector3f pos;
 		for (Entity gameItem : gameItems) {
-			if (!gameItem.isDisableFrustumCulling()) {
-				boundingRadius = gameItem.getScale() * meshBoundingRadius;
-				pos = gameItem.getPosition();
-				gameItem.setInsideFrustum(insideFrustum(pos.x, pos.y, pos.z, boundingRadius));
+			EntityStore store = gameItem.getStore();
+			int row = gameItem.getRow();
+			if (row >= 0 && !store.hasFlag(row, EntityStore.FLAG_NO_CULLING)) {
+				float[] t = store.getTransforms();
+				int o = row * EntityStore.TRANSFORM_SIZE_FLOATS;
+				float boundingRadius = t[o + EntityStore.SCALE] * meshBoundingRadius;
+				store.setFlag(row, EntityStore.FLAG_INSIDE_FRUSTUM, insideFrustum(t[o], t[o + 1], t[o + 2], boundingRadius));
 			}
 		}
 	}
 	
+	/**
+	 * Sets {@link EntityStore#FLAG_INSIDE_FRUSTUM} of all scene entities in
+	 * store, bounding radius is taken from first mesh of entity.
+	 */
+	public void filter(EntityStore store) {
+		store.run((s, from, to) -> {
+			float[] t = s.getTransforms();
+			int[] flags = s.getFlags();
+			Mesh[][] meshes = s.getMeshes();
+			for (int row = from; row < to; row++) {
+				int f = flags[row];
+				if ((f & EntityStore.FLAG_IN_SCENE) == 0 || (f & EntityStore.FLAG_NO_CULLING) != 0 || meshes[row] == null) {
+					continue;
+				}
+				int o = row * EntityStore.TRANSFORM_SIZE_FLOATS;
+				float boundingRadius = t[o + EntityStore.SCALE] * meshes[row][0].getBoundingRadius();
+				s.setFlag(row, EntityStore.FLAG_INSIDE_FRUSTUM, insideFrustum(t[o], t[o + 1], t[o + 2], boundingRadius));
+			}
+		});
+	}
+	
+	/**
+	 * Sets visibility of snapshot items from interpolated positions, testing
+	 * every slot. Must be called after {@link SceneSnapshot#interpolate(long)}.
+	 *
+	 * @param visibleSlots
+	 *           receives visible slots, must hold {@link SceneSnapshot#getSize()}
+	 *           entries
+	 * @return number of visible slots
+	 */
+	public int filter(SceneSnapshot frame, int[] visibleSlots) {
+		float[] t = frame.getInterpolated();
+		int count = 0;
+		for (int slot = 0; slot < frame.getSize(); slot++) {
+			int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+			if (!frame.isCullable(slot) || insideFrustum(t[o], t[o + 1], t[o + 2], frame.getBoundingRadius(slot))) {
+				visibleSlots[count++] = slot;
+			}
+		}
+		frame.setVisibleSlots(visibleSlots, count);
+		return count;
+	}
+	
+	public FrustumIntersection getFrustum() {
+		return frustumInt;
+	}
+	
 	public boolean insideFrustum(float x0, float y0, float z0, float boundingRadius) {
 		return frustumInt.testSphere(x0, y0, z0, boundingRadius);
 	}
+	
+	public boolean insideFrustum(Vector3f min, Vector3f max) {
+		return frustumInt.testAab(min, max);
+	}
 }
@@ -1,10 +1,10 @@
 package eu.grmdev.senryaku.graphic;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL13.GL_TEXTURE2;
+import static org.lwjgl.opengl.GL13.*;
 
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 import org.joml.*;
 
@@ -12,40 +12,117 @@ import eu.grmdev.senryaku.Config;
 import eu.grmdev.senryaku.Main;
 import eu.grmdev.senryaku.core.Scene;
 import eu.grmdev.senryaku.core.SceneLight;
-import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.SceneSnapshot;
 import eu.grmdev.senryaku.core.entity.SkyBox;
 import eu.grmdev.senryaku.core.map.*;
 import eu.grmdev.senryaku.core.misc.Utils;
-import eu.grmdev.senryaku.graphic.effects.shadow.ShadowCascade;
+import eu.grmdev.senryaku.graphic.culling.*;
+import eu.grmdev.senryaku.graphic.effects.shadow.CascadesBlock;
 import eu.grmdev.senryaku.graphic.effects.shadow.ShadowRenderer;
 import eu.grmdev.senryaku.graphic.lights.*;
 import eu.grmdev.senryaku.graphic.mesh.*;
-import eu.grmdev.senryaku.graphic.particles.IParticleEmitter;
+import eu.grmdev.senryaku.graphic.particles.*;
+import eu.grmdev.senryaku.graphic.queue.*;
+import eu.grmdev.senryaku.graphic.uniform.*;
+import lombok.Getter;
 
 public class Renderer {
+	private static final int LIGHTS_BINDING = 0;
+	private static final int CASCADES_BINDING = 1;
 	private final Transformation transformation;
 	private final ShadowRenderer shadowRenderer;
 	private ShaderProgram sceneShaderProgram;
 	private ShaderProgram skyBoxShaderProgram;
 	private ShaderProgram particlesShaderProgram;
+	private ShaderProgram feedbackParticlesShaderProgram;
+	private ParticleUpdateProgram particleUpdateProgram;
 	private final float specularPower;
 	private final FrustumCullingFilter frustumFilter;
-	private final ConcurrentHashMap<Integer, Entity> filteredItems;
-	private int nextId = 0;
+	private final SceneBvh sceneBvh;
+	private int[] visibleSlots;
+	private final DrawListBuilder drawListBuilder;
+	/** Visible slots of every mesh group of current frame */
+	private final DrawLists drawLists;
+	private final OcclusionBuffer occlusionBuffer;
+	/** Occlusion buffer was filled for current frame */
+	private boolean occlusionReady;
+	private final Vector3f chunkMin;
+	private final Vector3f chunkMax;
+	private final Matrix4f identityMatrix;
+	private final RenderQueue<Mesh, Integer> sceneQueue;
+	/** Camera interpolated from scene snapshot, render thread only */
+	private final Camera renderCamera;
+	private final SceneQueueVisitor sceneQueueVisitor;
+	/** Render state changes avoided by sorting draws in last frame */
+	private @Getter int eliminatedStateChanges;
+	private final LightsBlock lightsBlock;
+	private UniformBuffer lightsBuffer;
+	private UniformBuffer cascadesBuffer;
+	private Mat4Uniform sceneViewMatrix;
+	private Mat4Uniform sceneProjectionMatrix;
+	private Mat4Uniform sceneModelMatrix;
+	private IntUniform sceneTextureSampler;
+	private IntUniform sceneNormalMap;
+	private IntUniform sceneShadowMaps;
+	private IntUniform sceneTextureLayers;
+	private IntUniform sceneRenderShadow;
+	private IntUniform sceneIsInstanced;
+	private IntUniform sceneNumCols;
+	private IntUniform sceneNumRows;
+	private FloatUniform sceneSelected;
+	private MaterialUniform sceneMaterial;
+	private FogUniform sceneFog;
+	private Mat4Uniform skyBoxProjectionMatrix;
+	private Mat4Uniform skyBoxModelViewMatrix;
+	private IntUniform skyBoxTextureSampler;
+	private Vec3Uniform skyBoxAmbientLight;
+	private Vec4Uniform skyBoxColour;
+	private IntUniform skyBoxHasTexture;
+	private Mat4Uniform particlesViewMatrix;
+	private Mat4Uniform particlesProjectionMatrix;
+	private IntUniform particlesTextureSampler;
+	private IntUniform particlesNumCols;
+	private IntUniform particlesNumRows;
+	private IntUniform particlesTextureLayers;
+	private IntUniform particlesLayer;
+	private Mat4Uniform feedbackParticlesViewMatrix;
+	private Mat4Uniform feedbackParticlesProjectionMatrix;
+	private IntUniform feedbackParticlesTextureSampler;
+	private IntUniform feedbackParticlesNumCols;
+	private IntUniform feedbackParticlesNumRows;
+	private IntUniform feedbackParticlesTextureLayers;
+	private IntUniform feedbackParticlesLayer;
 	
 	public Renderer() {
 		transformation = new Transformation();
 		specularPower = 10f;
 		shadowRenderer = new ShadowRenderer();
 		frustumFilter = new FrustumCullingFilter();
-		filteredItems = new ConcurrentHashMap<>();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int splitSize = Config.CULLING_SPLIT_SIZE.<Integer> get();
+		sceneBvh = new SceneBvh(pool, splitSize);
+		visibleSlots = new int[0];
+		drawListBuilder = new DrawListBuilder(pool, splitSize);
+		drawLists = new DrawLists();
+		occlusionBuffer = new OcclusionBuffer(Config.OCCLUSION_BUFFER_WIDTH.<Integer> get(), Config.OCCLUSION_BUFFER_HEIGHT.<Integer> get());
+		chunkMin = new Vector3f();
+		chunkMax = new Vector3f();
+		renderCamera = new Camera();
+		identityMatrix = new Matrix4f();
+		sceneQueue = new RenderQueue<>(Config.MAX_PARICLES.<Integer> get());
+		sceneQueueVisitor = new SceneQueueVisitor();
+		lightsBlock = new LightsBlock();
 	}
 	
 	public void init(Window window) throws Exception {
+		if (window.getWindowOptions().instanceUpload != null) {
+			InstanceRingBuffer.setDefaultUpload(window.getWindowOptions().instanceUpload);
+		}
 		shadowRenderer.init(window);
 		setupSkyBoxShader();
 		setupSceneShader();
 		setupParticlesShader();
+		TextureLayers.getInstance().build(TextureLayers.MANIFEST, Config.TEXTURE_LAYER_SIZE.<Integer> get());
 	}
 	
 	private void setupSkyBoxShader() throws Exception {
@@ -54,12 +131,12 @@ public class Renderer {
 		skyBoxShaderProgram.createFragmentShader(Utils.loadResourceContent("/shaders/sb_fragment.fs"));
 		skyBoxShaderProgram.link();
 		
-		skyBoxShaderProgram.createUniform("projectionMatrix");
-		skyBoxShaderProgram.createUniform("modelViewMatrix");
-		skyBoxShaderProgram.createUniform("texture_sampler");
-		skyBoxShaderProgram.createUniform("ambientLight");
-		skyBoxShaderProgram.createUniform("colour");
-		skyBoxShaderProgram.createUniform("hasTexture");
+		skyBoxProjectionMatrix = skyBoxShaderProgram.createMat4Uniform("projectionMatrix");
+		skyBoxModelViewMatrix = skyBoxShaderProgram.createMat4Uniform("modelViewMatrix");
+		skyBoxTextureSampler = skyBoxShaderProgram.createIntUniform("texture_sampler");
+		skyBoxAmbientLight = skyBoxShaderProgram.createVec3Uniform("ambientLight");
+		skyBoxColour = skyBoxShaderProgram.createVec4Uniform("colour");
+		skyBoxHasTexture = skyBoxShaderProgram.createIntUniform("hasTexture");
 	}
 	
 	private void setupSceneShader() throws Exception {
@@ -68,34 +145,30 @@ public class Renderer {
 		sceneShaderProgram.createFragmentShader(Utils.loadResourceContent("/shaders/scene_fragment.fs"));
 		sceneShaderProgram.link();
 		
-		sceneShaderProgram.createUniform("viewMatrix");
-		sceneShaderProgram.createUniform("projectionMatrix");
-		sceneShaderProgram.createUniform("texture_sampler");
-		sceneShaderProgram.createUniform("normalMap");
-		sceneShaderProgram.createMaterialUniform("material");
-		sceneShaderProgram.createUniform("specularPower");
-		sceneShaderProgram.createUniform("ambientLight");
-		sceneShaderProgram.createPointLightListUniform("pointLights", Config.MAX_POINT_LIGHTS.<Integer> get());
-		sceneShaderProgram.createSpotLightListUniform("spotLights", Config.MAX_SPOT_LIGHTS.<Integer> get());
-		sceneShaderProgram.createDirectionalLightUniform("directionalLight");
-		sceneShaderProgram.createFogUniform("fog");
-		
-		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
-			sceneShaderProgram.createUniform("shadowMap_" + i);
-		}
-		sceneShaderProgram.createUniform("orthoProjectionMatrix", Config.NUM_SHADOW_CASCADES.<Integer> get());
-		sceneShaderProgram.createUniform("modelNonInstancedMatrix");
-		sceneShaderProgram.createUniform("lightViewMatrix", Config.NUM_SHADOW_CASCADES.<Integer> get());
-		sceneShaderProgram.createUniform("cascadeFarPlanes", Config.NUM_SHADOW_CASCADES.<Integer> get());
-		sceneShaderProgram.createUniform("renderShadow");
+		sceneViewMatrix = sceneShaderProgram.createMat4Uniform("viewMatrix");
+		sceneProjectionMatrix = sceneShaderProgram.createMat4Uniform("projectionMatrix");
+		sceneTextureSampler = sceneShaderProgram.createIntUniform("texture_sampler");
+		sceneNormalMap = sceneShaderProgram.createIntUniform("normalMap");
+		sceneMaterial = sceneShaderProgram.createMaterialUniform("material");
+		sceneFog = sceneShaderProgram.createFogUniform("fog");
+		
+		sceneShadowMaps = sceneShaderProgram.createIntUniform("shadowMaps");
+		sceneTextureLayers = sceneShaderProgram.createIntUniform("textureLayers");
+		sceneModelMatrix = sceneShaderProgram.createMat4Uniform("modelNonInstancedMatrix");
+		sceneRenderShadow = sceneShaderProgram.createIntUniform("renderShadow");
 		
 		sceneShaderProgram.createUniform("jointsMatrix");
 		
-		sceneShaderProgram.createUniform("isInstanced");
-		sceneShaderProgram.createUniform("numCols");
-		sceneShaderProgram.createUniform("numRows");
+		sceneIsInstanced = sceneShaderProgram.createIntUniform("isInstanced");
+		sceneNumCols = sceneShaderProgram.createIntUniform("numCols");
+		sceneNumRows = sceneShaderProgram.createIntUniform("numRows");
 		
-		sceneShaderProgram.createUniform("selectedNonInstanced");
+		sceneSelected = sceneShaderProgram.createFloatUniform("selectedNonInstanced");
+		
+		lightsBuffer = new UniformBuffer(LIGHTS_BINDING, LightsBlock.SIZE);
+		sceneShaderProgram.bindUniformBlock("Lights", lightsBuffer);
+		cascadesBuffer = new UniformBuffer(CASCADES_BINDING, CascadesBlock.SIZE);
+		sceneShaderProgram.bindUniformBlock("Cascades", cascadesBuffer);
 	}
 	
 	private void setupParticlesShader() throws Exception {
@@ -104,31 +177,86 @@ public class Renderer {
 		particlesShaderProgram.createFragmentShader(Utils.loadResourceContent("/shaders/particles_fragment.fs"));
 		particlesShaderProgram.link();
 		
-		particlesShaderProgram.createUniform("viewMatrix");
-		particlesShaderProgram.createUniform("projectionMatrix");
-		particlesShaderProgram.createUniform("texture_sampler");
+		particlesViewMatrix = particlesShaderProgram.createMat4Uniform("viewMatrix");
+		particlesProjectionMatrix = particlesShaderProgram.createMat4Uniform("projectionMatrix");
+		particlesTextureSampler = particlesShaderProgram.createIntUniform("texture_sampler");
+		
+		particlesNumCols = particlesShaderProgram.createIntUniform("numCols");
+		particlesNumRows = particlesShaderProgram.createIntUniform("numRows");
+		particlesTextureLayers = particlesShaderProgram.createIntUniform("textureLayers");
+		particlesLayer = particlesShaderProgram.createIntUniform("layer");
 		
-		particlesShaderProgram.createUniform("numCols");
-		particlesShaderProgram.createUniform("numRows");
+		feedbackParticlesShaderProgram = new ShaderProgram();
+		feedbackParticlesShaderProgram.createVertexShader(Utils.loadResourceContent("/shaders/particles_feedback_vertex.vs"));
+		feedbackParticlesShaderProgram.createFragmentShader(Utils.loadResourceContent("/shaders/particles_fragment.fs"));
+		feedbackParticlesShaderProgram.link();
+		
+		feedbackParticlesViewMatrix = feedbackParticlesShaderProgram.createMat4Uniform("viewMatrix");
+		feedbackParticlesProjectionMatrix = feedbackParticlesShaderProgram.createMat4Uniform("projectionMatrix");
+		feedbackParticlesTextureSampler = feedbackParticlesShaderProgram.createIntUniform("texture_sampler");
+		feedbackParticlesNumCols = feedbackParticlesShaderProgram.createIntUniform("numCols");
+		feedbackParticlesNumRows = feedbackParticlesShaderProgram.createIntUniform("numRows");
+		feedbackParticlesTextureLayers = feedbackParticlesShaderProgram.createIntUniform("textureLayers");
+		feedbackParticlesLayer = feedbackParticlesShaderProgram.createIntUniform("layer");
+		
+		particleUpdateProgram = new ParticleUpdateProgram();
 	}
 	
+	/**
+	 * Renders latest scene snapshot published by logic thread, entities and
+	 * camera interpolated between its two ticks.
+	 *
+	 * @param camera
+	 *           used only until logic thread publishes first snapshot
+	 */
 	public void render(Window window, Camera camera, Scene scene, LevelManager levelManager) {
 		clear();
+		TextureLoader.getInstance().update(Config.TEXTURE_UPLOAD_BUDGET_MICROS.<Integer> get() * 1000L);
+		levelManager.releaseLeftMaps();
+		levelManager.initPreloaded(Config.MAP_INIT_BUDGET_MICROS.<Integer> get() * 1000L);
+		ResourceManager.getInstance().trim(Config.GPU_MEMORY_BUDGET_MB.<Integer> get() * 1024L * 1024L);
+		// packed material textures, the only bind of them this frame
+		TextureLayers.getInstance().bind(GL_TEXTURE3);
 		
-		if (window.getWindowOptions().frustumCulling) {
+		SceneSnapshot frame = scene.acquireSnapshot();
+		long renderNanos = System.nanoTime();
+		frame.interpolate(renderNanos);
+		if (frame.hasCamera()) {
+			frame.interpolateCamera(renderNanos, renderCamera);
+			camera = renderCamera;
+		}
+		if (visibleSlots.length < frame.getSize()) {
+			visibleSlots = new int[frame.getSize()];
+		}
+		
+		occlusionReady = false;
+		boolean culling = window.getWindowOptions().frustumCulling;
+		if (culling) {
 			frustumFilter.updateFrustum(window.getProjectionMatrix(), camera.getViewMatrix());
-			frustumFilter.filter(scene.getEntityMeshes());
-			frustumFilter.filter(scene.getGameInstancedMeshes());
+			if (window.getWindowOptions().occlusionCulling) {
+				fillOcclusionBuffer(window, camera, levelManager.getCurrentMap());
+			}
+			sceneBvh.update(frame);
+			int visibleCount = sceneBvh.cull(frustumFilter.getFrustum(), visibleSlots);
+			if (occlusionReady) {
+				visibleCount = occlusionBuffer.filter(frame, visibleSlots, visibleCount);
+			}
+			drawListBuilder.build(frame, visibleSlots, visibleCount, drawLists);
+		} else {
+			drawListBuilder.buildAll(frame, drawLists);
 		}
 		
 		if (scene.isRenderShadows()) {
-			shadowRenderer.render(window, scene, camera, transformation, this);
+			shadowRenderer.render(window, scene, frame, culling ? sceneBvh : null, camera, transformation, this);
+		}
+		else {
+			shadowRenderer.resetStats();
 		}
 		
 		glViewport(0, 0, window.getWidth(), window.getHeight());
 		window.updateProjectionMatrix();
 		
-		renderScene(window, camera, scene, levelManager);
+		renderScene(window, camera, scene, frame, levelManager);
 		renderSkyBox(window, camera, scene);
 		GameMap map = levelManager.getCurrentMap();
 		if (map != null) {
@@ -141,52 +269,67 @@ public class Renderer {
 		}
 	}
 	
+	/**
+	 * Rasterizes walls of current map near camera into occlusion buffer.
+	 */
+	private void fillOcclusionBuffer(Window window, Camera camera, GameMap map) {
+		if (map == null || !map.isInitialized() || map.getTerrain().getOccluders() == null) { return; }
+		occlusionBuffer.begin(window.getProjectionMatrix(), camera.getViewMatrix());
+		map.getTerrain().getOccluders().rasterize(occlusionBuffer, frustumFilter.getFrustum(), camera.getPosition(), Config.OCCLUDER_DISTANCE.<Float> get());
+		occlusionBuffer.finish();
+		occlusionReady = true;
+	}
+	
+	private boolean isVisible(Vector3f min, Vector3f max) {
+		return frustumFilter.insideFrustum(min, max) && (!occlusionReady || occlusionBuffer.isVisible(min, max));
+	}
+	
 	private void clear() {
 		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT | GL_STENCIL_BUFFER_BIT);
 	}
 	
-	private void renderScene(Window window, Camera camera, Scene scene, LevelManager levelManager) {
+	private void renderScene(Window window, Camera camera, Scene scene, SceneSnapshot frame, LevelManager levelManager) {
 		sceneShaderProgram.bind();
 		
 		Matrix4f viewMatrix = camera.getViewMatrix();
 		Matrix4f projectionMatrix = window.getProjectionMatrix();
-		sceneShaderProgram.setUniformm4f("viewMatrix", viewMatrix);
-		sceneShaderProgram.setUniformm4f("projectionMatrix", projectionMatrix);
+		sceneViewMatrix.set(viewMatrix);
+		sceneProjectionMatrix.set(projectionMatrix);
 		
-		List<ShadowCascade> shadowCascades = shadowRenderer.getShadowCascades();
-		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
-			ShadowCascade shadowCascade = shadowCascades.get(i);
-			sceneShaderProgram.setUniformm4fi("orthoProjectionMatrix", shadowCascade.getOrthoProjMatrix(), i);
-			sceneShaderProgram.setUniformfi("cascadeFarPlanes", Config.SHADOW_CASCADE_SPLITS.getArray()[i], i);
-			sceneShaderProgram.setUniformm4fi("lightViewMatrix", shadowCascade.getLightViewMatrix(), i);
-		}
+		CascadesBlock.pack(cascadesBuffer.getData(), shadowRenderer.getShadowCascades(), Config.SHADOW_CASCADE_SPLITS.getArray());
+		cascadesBuffer.upload();
 		
 		SceneLight sceneLight = scene.getSceneLight();
 		renderLights(viewMatrix, sceneLight);
 		
 		renderEffects(scene);
+		shadowRenderer.bindTextures(GL_TEXTURE2);
+		glActiveTexture(GL_TEXTURE0);
 		
 		try {
+			sceneQueue.clear();
 			renderGameMap(window, camera, levelManager.getCurrentMap());
-			renderNonInstancedMeshes(scene);
-			renderInstancedMeshes(scene, viewMatrix);
+			queueNonInstancedMeshes(frame, drawLists, camera);
+			sceneIsInstanced.set(0);
+			sceneQueueVisitor.frame = frame;
+			sceneQueue.submit(sceneQueueVisitor);
+			renderInstancedMeshes(frame, drawLists, viewMatrix);
 		}
 		catch (Exception e) {
 			e.printStackTrace();
 		}
+		eliminatedStateChanges = sceneQueue.getEliminatedStateChanges() + shadowRenderer.getEliminatedStateChanges();
 		
 		sceneShaderProgram.unbind();
 	}
 	
 	private void renderEffects(Scene scene) {
-		sceneShaderProgram.setUniformFog("fog", scene.getFog());
-		sceneShaderProgram.setUniformi("texture_sampler", 0);
-		sceneShaderProgram.setUniformi("normalMap", 1);
-		int start = 2;
-		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
-			sceneShaderProgram.setUniformi("shadowMap_" + i, start + i);
-		}
-		sceneShaderProgram.setUniformi("renderShadow", scene.isRenderShadows() ? 1 : 0);
+		sceneFog.set(scene.getFog());
+		sceneTextureSampler.set(0);
+		sceneNormalMap.set(1);
+		sceneShadowMaps.set(2);
+		sceneTextureLayers.set(3);
+		sceneRenderShadow.set(scene.isRenderShadows());
 	}
 	
 	private void renderSkyBox(Window window, Camera camera, Scene scene) {
@@ -194,10 +337,10 @@ public class Renderer {
 		if (skyBox != null) {
 			skyBoxShaderProgram.bind();
 			
-			skyBoxShaderProgram.setUniformi("texture_sampler", 0);
+			skyBoxTextureSampler.set(0);
 			
 			Matrix4f projectionMatrix = window.getProjectionMatrix();
-			skyBoxShaderProgram.setUniformm4f("projectionMatrix", projectionMatrix);
+			skyBoxProjectionMatrix.set(projectionMatrix);
 			Matrix4f viewMatrix = camera.getViewMatrix();
 			float m30 = viewMatrix.m30();
 			viewMatrix.m30(0);
@@ -208,10 +351,10 @@ public class Renderer {
 			
 			Mesh mesh = skyBox.getMesh();
 			Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(skyBox, viewMatrix);
-			skyBoxShaderProgram.setUniformm4f("modelViewMatrix", modelViewMatrix);
-			skyBoxShaderProgram.setUniformv3f("ambientLight", scene.getSceneLight().getSkyBoxLight());
-			skyBoxShaderProgram.setUniformv4f("colour", mesh.getMaterial().getAmbientColor());
-			skyBoxShaderProgram.setUniformi("hasTexture", mesh.getMaterial().isTextured() ? 1 : 0);
+			skyBoxModelViewMatrix.set(modelViewMatrix);
+			skyBoxAmbientLight.set(scene.getSceneLight().getSkyBoxLight());
+			skyBoxColour.set(mesh.getMaterial().getAmbientColor());
+			skyBoxHasTexture.set(mesh.getMaterial().isTextured());
 			glDisable(GL_LIGHTING);
 			mesh.render();
 			glDisable(GL_LIGHTING);
@@ -229,163 +372,198 @@ public class Renderer {
 				map.init();
 			}
 			Terrain terrain = map.getTerrain();
-			sceneShaderProgram.setUniformi("isInstanced", 0);
+			sceneIsInstanced.set(0);
 			Mesh terrainMesh = terrain.getMesh();
-			sceneShaderProgram.setUniformMat("material", terrainMesh.getMaterial());
+			sceneMaterial.set(terrainMesh.getMaterial());
 			Texture texture = terrainMesh.getMaterial().getTexture();
 			if (texture != null) {
-				sceneShaderProgram.setUniformi("numCols", texture.getNumCols());
-				sceneShaderProgram.setUniformi("numRows", texture.getNumRows());
+				sceneNumCols.set(texture.getNumCols());
+				sceneNumRows.set(texture.getNumRows());
 			}
 			
-			shadowRenderer.bindTextures(GL_TEXTURE2);
 			Matrix4f modelMatrix = transformation.buildModelMatrix(terrain);
-			sceneShaderProgram.setUniformm4f("modelNonInstancedMatrix", modelMatrix);
+			sceneModelMatrix.set(modelMatrix);
 			terrainMesh.render();
-			for (Mesh mesh : terrain.getEntitiesByMesh().keySet()) {
-				renderTiles(mesh, terrain.getEntitiesByMesh().get(mesh));
+			if (terrain.isStreamed()) {
+				renderTerrainChunks(window, camera, terrain.getStreamer());
+			} else {
+				renderTerrainBatch(window, terrain.getBatch());
 			}
 		}
 	}
 	
-	private void renderTiles(Mesh mesh, List<Entity> entities) {
-		sceneShaderProgram.setUniformMat("material", mesh.getMaterial());
-		Texture texture = mesh.getMaterial().getTexture();
-		if (texture != null) {
-			sceneShaderProgram.setUniformi("numCols", texture.getNumCols());
-			sceneShaderProgram.setUniformi("numRows", texture.getNumRows());
+	/**
+	 * Streams chunks around camera and draws loaded ones, one draw call per
+	 * tile type of chunk. At most {@link Config#TERRAIN_CHUNK_UPLOADS} new
+	 * chunks are sent to GPU per frame.
+	 */
+	private void renderTerrainChunks(Window window, Camera camera, TerrainStreamer streamer) throws Exception {
+		streamer.update(camera.getPosition());
+		boolean culling = window.getWindowOptions().frustumCulling;
+		int uploads = Config.TERRAIN_CHUNK_UPLOADS.<Integer> get();
+		sceneIsInstanced.set(0);
+		sceneSelected.set(0);
+		sceneModelMatrix.set(identityMatrix);
+		for (TerrainChunk chunk : streamer.getChunksInRange()) {
+			if (culling && !isVisible(chunk.getMin(), chunk.getMax())) {
+				continue;
+			}
+			if (!chunk.isUploaded()) {
+				if (uploads == 0) {
+					continue;
+				}
+				chunk.upload();
+				uploads--;
+			}
+			for (int i = 0; i < chunk.getGroupCount(); i++) {
+				Mesh mesh = chunk.getGroupMesh(i);
+				sceneMaterial.set(mesh.getMaterial());
+				Texture texture = mesh.getMaterial().getTexture();
+				if (texture != null) {
+					sceneNumCols.set(texture.getNumCols());
+					sceneNumRows.set(texture.getNumRows());
+				}
+				mesh.render();
+			}
 		}
-		shadowRenderer.bindTextures(GL_TEXTURE2);
-		mesh.renderList(entities, (Entity entity) -> {
-			sceneShaderProgram.setUniformf("selectedNonInstanced", entity.isSelected() ? 1.0f : 0.0f);
-			Matrix4f modelMatrix = transformation.buildModelMatrix(entity);
-			sceneShaderProgram.setUniformm4f("modelNonInstancedMatrix", modelMatrix);
-		});
 	}
 	
-	private void renderNonInstancedMeshes(Scene scene) {
-		sceneShaderProgram.setUniformi("isInstanced", 0);
-		
-		ConcurrentHashMap<Mesh, List<Entity>> mapMeshes = scene.getEntityMeshes();
-		for (Mesh mesh : mapMeshes.keySet()) {
-			sceneShaderProgram.setUniformMat("material", mesh.getMaterial());
-			Texture text = mesh.getMaterial().getTexture();
-			if (text != null) {
-				sceneShaderProgram.setUniformi("numCols", text.getNumCols());
-				sceneShaderProgram.setUniformi("numRows", text.getNumRows());
+	/**
+	 * Draws tiles of visible chunks, one instanced draw call per tile type and
+	 * run of visible chunks.
+	 */
+	private void renderTerrainBatch(Window window, TerrainBatch batch) throws Exception {
+		batch.flushSelection();
+		if (window.getWindowOptions().frustumCulling) {
+			for (int c = 0; c < batch.getChunkCount(); c++) {
+				batch.getChunkBounds(c, chunkMin, chunkMax);
+				batch.setChunkVisible(c, isVisible(chunkMin, chunkMax));
 			}
-			
-			shadowRenderer.bindTextures(GL_TEXTURE2);
-			
-			mesh.renderList(mapMeshes.get(mesh), (Entity entity) -> {
-				sceneShaderProgram.setUniformf("selectedNonInstanced", entity.isSelected() ? 1.0f : 0.0f);
-				Matrix4f modelMatrix = transformation.buildModelMatrix(entity);
-				sceneShaderProgram.setUniformm4f("modelNonInstancedMatrix", modelMatrix);
-			});
+		} else {
+			batch.setAllChunksVisible();
+		}
+		sceneIsInstanced.set(1);
+		for (int i = 0; i < batch.getGroupCount(); i++) {
+			Material material = batch.getGroupMaterial(i);
+			sceneMaterial.set(material);
+			Texture texture = material.getTexture();
+			if (texture != null) {
+				sceneNumCols.set(texture.getNumCols());
+				sceneNumRows.set(texture.getNumRows());
+			}
+			batch.renderGroup(i);
 		}
 	}
 	
-	private void renderInstancedMeshes(Scene scene, Matrix4f viewMatrix) {
-		sceneShaderProgram.setUniformi("isInstanced", 1);
+	/**
+	 * Adds visible entities to scene render queue, they are drawn sorted by
+	 * material, texture, mesh and distance to camera.
+	 */
+	private void queueNonInstancedMeshes(SceneSnapshot frame, DrawLists lists, Camera camera) {
+		Vector3f cameraPos = camera.getPosition();
+		float zFar = Config.Z_FAR.<Float> get();
+		float[] t = frame.getInterpolated();
+		int[] slots = lists.getSlots();
+		for (int g = 0; g < frame.getGroupCount(); g++) {
+			Mesh mesh = frame.getGroupMesh(g);
+			if (mesh instanceof InstancedMesh) {
+				continue;
+			}
+			Material material = mesh.getMaterial();
+			// layered materials share one texture state
+			Object texture = material == null ? null : material.isLayered() ? TextureLayers.getInstance() : material.getTexture();
+			long meshKey = sceneQueue.key(sceneShaderProgram, material, texture, mesh, 0);
+			for (int i = lists.getStart(g), end = i + lists.getCount(g); i < end; i++) {
+				int o = slots[i] * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+				int depth = RenderKey.quantizeDepth(cameraPos.distance(t[o], t[o + 1], t[o + 2]), zFar);
+				sceneQueue.add(meshKey | depth, mesh, frame.ref(slots[i]));
+			}
+		}
+	}
+	
+	private void renderInstancedMeshes(SceneSnapshot frame, DrawLists lists, Matrix4f viewMatrix) {
+		sceneIsInstanced.set(1);
 		
-		ConcurrentHashMap<InstancedMesh, List<Entity>> mapMeshes = scene.getGameInstancedMeshes();
-		for (InstancedMesh mesh : mapMeshes.keySet()) {
+		for (int g = 0; g < frame.getGroupCount(); g++) {
+			if (!(frame.getGroupMesh(g) instanceof InstancedMesh)) {
+				continue;
+			}
+			InstancedMesh mesh = (InstancedMesh) frame.getGroupMesh(g);
 			Texture text = mesh.getMaterial().getTexture();
 			if (text != null) {
-				sceneShaderProgram.setUniformi("numCols", text.getNumCols());
-				sceneShaderProgram.setUniformi("numRows", text.getNumRows());
+				sceneNumCols.set(text.getNumCols());
+				sceneNumRows.set(text.getNumRows());
 			}
 			
-			sceneShaderProgram.setUniformMat("material", mesh.getMaterial());
-			
-			filteredItems.clear();
-			nextId = 0;
-			for (Entity gameItem : mapMeshes.get(mesh)) {
-				if (gameItem.isInsideFrustum()) {
-					filteredItems.put(nextId++, gameItem);
-				}
-			}
-			shadowRenderer.bindTextures(GL_TEXTURE2);
+			sceneMaterial.set(mesh.getMaterial());
 			
-			mesh.renderListInstanced(filteredItems, transformation, viewMatrix);
+			mesh.renderListInstanced(frame, lists.getSlots(), lists.getStart(g), lists.getCount(g), false, transformation, viewMatrix);
 		}
 	}
 	
 	private void renderLights(Matrix4f viewMatrix, SceneLight sceneLight) {
-		sceneShaderProgram.setUniformv3f("ambientLight", sceneLight.getAmbientLight());
-		sceneShaderProgram.setUniformf("specularPower", specularPower);
-		
-		// Point Lights
-		PointLight[] pointLightList = sceneLight.getPointLightList();
-		int numLights = pointLightList != null ? pointLightList.length : 0;
-		for (int i = 0; i < numLights; i++) {
-			PointLight currPointLight = new PointLight(pointLightList[i]);
-			Vector3f lightPos = currPointLight.getPosition();
-			Vector4f aux = new Vector4f(lightPos, 1);
-			aux.mul(viewMatrix);
-			lightPos.x = aux.x;
-			lightPos.y = aux.y;
-			lightPos.z = aux.z;
-			sceneShaderProgram.setUniformPl("pointLights", currPointLight, i);
-		}
-		
-		// Spot Ligths
-		SpotLight[] spotLightList = sceneLight.getSpotLightList();
-		numLights = spotLightList != null ? spotLightList.length : 0;
-		for (int i = 0; i < numLights; i++) {
-			SpotLight currSpotLight = new SpotLight(spotLightList[i]);
-			Vector4f dir = new Vector4f(currSpotLight.getConeDirection(), 0);
-			dir.mul(viewMatrix);
-			currSpotLight.setConeDirection(new Vector3f(dir.x, dir.y, dir.z));
-			
-			Vector3f lightPos = currSpotLight.getPointLight().getPosition();
-			Vector4f aux = new Vector4f(lightPos, 1);
-			aux.mul(viewMatrix);
-			lightPos.x = aux.x;
-			lightPos.y = aux.y;
-			lightPos.z = aux.z;
-			
-			sceneShaderProgram.setUniformSli("spotLights", currSpotLight, i);
-		}
-		
-		DirectionalLight directionalLight = sceneLight.getDirectionalLight();
-		DirectionalLight currDirLight = new DirectionalLight(directionalLight);
-		Vector4f dir = new Vector4f(currDirLight.getDirection(), 0);
-		dir.mul(viewMatrix);
-		currDirLight.setDirection(new Vector3f(dir.x, dir.y, dir.z));
-		sceneShaderProgram.setUniformDl("directionalLight", currDirLight);
+		lightsBlock.pack(lightsBuffer.getData(), sceneLight, specularPower, viewMatrix);
+		lightsBuffer.upload();
 	}
 	
 	private void renderParticles(Window window, Camera camera, List<IParticleEmitter> list) {
 		if (list == null || list.isEmpty()) { return; }
-		particlesShaderProgram.bind();
+		int numEmitters = list.size();
+		boolean hasFeedback = false;
+		for (int i = 0; i < numEmitters; i++) {
+			IParticleEmitter emitter = list.get(i);
+			if (emitter instanceof FeedbackParticleEmitter) {
+				((FeedbackParticleEmitter) emitter).simulate(particleUpdateProgram);
+				hasFeedback = true;
+			}
+		}
 		
 		Matrix4f viewMatrix = camera.getViewMatrix();
-		particlesShaderProgram.setUniformm4f("viewMatrix", viewMatrix);
-		particlesShaderProgram.setUniformi("texture_sampler", 0);
 		Matrix4f projectionMatrix = window.getProjectionMatrix();
-		particlesShaderProgram.setUniformm4f("projectionMatrix", projectionMatrix);
-		
 		glDepthMask(false);
 		glBlendFunc(GL_SRC_ALPHA, GL_ONE);
 		
-		int numEmitters = list.size();
+		particlesShaderProgram.bind();
+		particlesViewMatrix.set(viewMatrix);
+		particlesTextureSampler.set(0);
+		particlesTextureLayers.set(3);
+		particlesProjectionMatrix.set(projectionMatrix);
 		for (int i = 0; i < numEmitters; i++) {
 			IParticleEmitter emitter = list.get(i);
-			if (emitter.isActive()) {
+			if (emitter.isActive() && emitter instanceof FlowParticleEmitter) {
 				InstancedMesh mesh = (InstancedMesh) emitter.getBaseParticle().getMesh();
 				Texture text = mesh.getMaterial().getTexture();
-				particlesShaderProgram.setUniformi("numCols", text.getNumCols());
-				particlesShaderProgram.setUniformi("numRows", text.getNumRows());
+				particlesNumCols.set(text.getNumCols());
+				particlesNumRows.set(text.getNumRows());
+				particlesLayer.set(text.getLayer());
 				
-				mesh.renderListInstanced(emitter.getParticles(), true, transformation, viewMatrix);
+				mesh.renderListInstanced(((FlowParticleEmitter) emitter).acquireSnapshot(), true, viewMatrix);
+			}
+		}
+		particlesShaderProgram.unbind();
+		
+		if (hasFeedback) {
+			feedbackParticlesShaderProgram.bind();
+			feedbackParticlesViewMatrix.set(viewMatrix);
+			feedbackParticlesTextureSampler.set(0);
+			feedbackParticlesTextureLayers.set(3);
+			feedbackParticlesProjectionMatrix.set(projectionMatrix);
+			for (int i = 0; i < numEmitters; i++) {
+				IParticleEmitter emitter = list.get(i);
+				if (emitter.isActive() && emitter instanceof FeedbackParticleEmitter) {
+					Texture text = emitter.getBaseParticle().getMesh().getMaterial().getTexture();
+					feedbackParticlesNumCols.set(text.getNumCols());
+					feedbackParticlesNumRows.set(text.getNumRows());
+					feedbackParticlesLayer.set(text.getLayer());
+					
+					((FeedbackParticleEmitter) emitter).render();
+				}
 			}
+			feedbackParticlesShaderProgram.unbind();
 		}
 		
 		glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 		glDepthMask(true);
-		
-		particlesShaderProgram.unbind();
 	}
 	
 	private void renderCrossHair(Window window) {
@@ -453,6 +631,8 @@ public class Renderer {
 	}
 	
 	public void cleanup() {
+		TextureLoader.getInstance().cleanup();
+		TextureLayers.getInstance().cleanup();
 		if (shadowRenderer != null) {
 			shadowRenderer.cleanup();
 		}
@@ -465,5 +645,61 @@ public class Renderer {
 		if (particlesShaderProgram != null) {
 			particlesShaderProgram.cleanup();
 		}
+		if (feedbackParticlesShaderProgram != null) {
+			feedbackParticlesShaderProgram.cleanup();
+		}
+		if (particleUpdateProgram != null) {
+			particleUpdateProgram.cleanup();
+		}
+		if (lightsBuffer != null) {
+			lightsBuffer.cleanup();
+		}
+		if (cascadesBuffer != null) {
+			cascadesBuffer.cleanup();
+		}
+	}
+	
+	/**
+	 * Binds state of sorted non instanced draws. Scene shader is already bound
+	 * for whole pass.
+	 */
+	private class SceneQueueVisitor implements RenderQueueVisitor<Mesh, Integer> {
+		private SceneSnapshot frame;
+		
+		@Override
+		public void bindShader(Mesh mesh) {}
+		
+		@Override
+		public void bindMaterial(Mesh mesh) {
+			sceneMaterial.set(mesh.getMaterial());
+			Texture text = mesh.getMaterial().getTexture();
+			if (text != null) {
+				sceneNumCols.set(text.getNumCols());
+				sceneNumRows.set(text.getNumRows());
+			}
+		}
+		
+		@Override
+		public void bindTexture(Mesh mesh) {
+			mesh.bindTextures();
+		}
+		
+		@Override
+		public void bindMesh(Mesh mesh) {
+			mesh.bindVertexArray();
+		}
+		
+		@Override
+		public void unbindMesh(Mesh mesh) {
+			mesh.unbindVertexArray();
+		}
+		
+		@Override
+		public void draw(Mesh mesh, Integer slot) {
+			sceneSelected.set(frame.isSelected(slot) ? 1.0f : 0.0f);
+			Matrix4f modelMatrix = transformation.buildModelMatrix(frame, slot);
+			sceneModelMatrix.set(modelMatrix);
+			mesh.drawElements();
+		}
 	}
 }
@@ -1,6 +1,9 @@
 package eu.grmdev.senryaku.graphic;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL32.GL_GEOMETRY_SHADER;
 
 import java.nio.FloatBuffer;
 import java.util.HashMap;
@@ -12,6 +15,7 @@ import org.lwjgl.system.MemoryStack;
 import eu.grmdev.senryaku.graphic.effects.Fog;
 import eu.grmdev.senryaku.graphic.lights.*;
 import eu.grmdev.senryaku.graphic.mesh.Material;
+import eu.grmdev.senryaku.graphic.uniform.*;
 
 public class ShaderProgram {
 	private final int id;
@@ -34,6 +38,10 @@ public class ShaderProgram {
 		fragmentShaderId = createShader(shaderCode, GL_FRAGMENT_SHADER);
 	}
 	
+	public void createGeometryShader(String shaderCode) throws Exception {
+		geometryShaderId = createShader(shaderCode, GL_GEOMETRY_SHADER);
+	}
+	
 	private int createShader(String shaderCode, int shaderType) throws Exception {
 		int shaderId = glCreateShader(shaderType);
 		if (shaderId == 0) { throw new Exception("Error creating shader. Type: " + shaderType); }
@@ -48,6 +56,14 @@ public class ShaderProgram {
 		return shaderId;
 	}
 	
+	/**
+	 * Captures vertex shader outputs into one interleaved buffer, must be
+	 * called before {@link #link()}.
+	 */
+	public void setTransformFeedbackVaryings(CharSequence... varyings) {
+		glTransformFeedbackVaryings(id, varyings, GL_INTERLEAVED_ATTRIBS);
+	}
+	
 	public void link() throws Exception {
 		glLinkProgram(id);
 		if (glGetProgrami(id, GL_LINK_STATUS) == 0) { throw new Exception("Error linking Shader code: " + glGetProgramInfoLog(id, 1024)); }
@@ -84,9 +100,53 @@ public class ShaderProgram {
 	}
 	
 	public void createUniform(String uniformName) throws Exception {
+		createUniformLocation(uniformName);
+	}
+	
+	private int createUniformLocation(String uniformName) throws Exception {
 		int uniformLocation = glGetUniformLocation(id, uniformName);
 		if (uniformLocation < 0) { throw new Exception("Could not find uniform:" + uniformName); }
 		uniforms.put(uniformName, uniformLocation);
+		return uniformLocation;
+	}
+	
+	public IntUniform createIntUniform(String uniformName) throws Exception {
+		return new IntUniform(createUniformLocation(uniformName));
+	}
+	
+	public FloatUniform createFloatUniform(String uniformName) throws Exception {
+		return new FloatUniform(createUniformLocation(uniformName));
+	}
+	
+	public Vec3Uniform createVec3Uniform(String uniformName) throws Exception {
+		return new Vec3Uniform(createUniformLocation(uniformName));
+	}
+	
+	public Vec4Uniform createVec4Uniform(String uniformName) throws Exception {
+		return new Vec4Uniform(createUniformLocation(uniformName));
+	}
+	
+	public Mat4Uniform createMat4Uniform(String uniformName) throws Exception {
+		return new Mat4Uniform(createUniformLocation(uniformName));
+	}
+	
+	/**
+	 * Connects uniform block of this program with binding point of
+	 * {@link UniformBuffer}.
+	 *
+	 * @param blockName
+	 *           name of block in shader
+	 * @param buffer
+	 *           buffer with std140 layout of the block
+	 * @throws Exception
+	 *            when block does not exist or is bigger than buffer
+	 */
+	public void bindUniformBlock(String blockName, UniformBuffer buffer) throws Exception {
+		int blockIndex = glGetUniformBlockIndex(id, blockName);
+		if (blockIndex == GL_INVALID_INDEX) { throw new Exception("Could not find uniform block:" + blockName); }
+		int blockSize = glGetActiveUniformBlocki(id, blockIndex, GL_UNIFORM_BLOCK_DATA_SIZE);
+		if (blockSize > buffer.getSize()) { throw new Exception("Uniform block " + blockName + " needs " + blockSize + " bytes, buffer has " + buffer.getSize()); }
+		glUniformBlockBinding(id, blockIndex, buffer.getBinding());
 	}
 	
 	public void createUniform(String uniformName, int size) throws Exception {
@@ -128,19 +188,22 @@ public class ShaderProgram {
 		createUniform(uniformName + ".intensity");
 	}
 	
-	public void createMaterialUniform(String uniformName) throws Exception {
-		createUniform(uniformName + ".ambient");
-		createUniform(uniformName + ".diffuse");
-		createUniform(uniformName + ".specular");
-		createUniform(uniformName + ".hasTexture");
-		createUniform(uniformName + ".hasNormalMap");
-		createUniform(uniformName + ".reflectance");
+	public MaterialUniform createMaterialUniform(String uniformName) throws Exception {
+		Vec4Uniform ambient = createVec4Uniform(uniformName + ".ambient");
+		Vec4Uniform diffuse = createVec4Uniform(uniformName + ".diffuse");
+		Vec4Uniform specular = createVec4Uniform(uniformName + ".specular");
+		IntUniform hasTexture = createIntUniform(uniformName + ".hasTexture");
+		IntUniform hasNormalMap = createIntUniform(uniformName + ".hasNormalMap");
+		FloatUniform reflectance = createFloatUniform(uniformName + ".reflectance");
+		IntUniform layer = createIntUniform(uniformName + ".layer");
+		return new MaterialUniform(ambient, diffuse, specular, hasTexture, hasNormalMap, reflectance, layer);
 	}
 	
-	public void createFogUniform(String uniformName) throws Exception {
-		createUniform(uniformName + ".activeFog");
-		createUniform(uniformName + ".colour");
-		createUniform(uniformName + ".density");
+	public FogUniform createFogUniform(String uniformName) throws Exception {
+		IntUniform activeFog = createIntUniform(uniformName + ".activeFog");
+		Vec3Uniform colour = createVec3Uniform(uniformName + ".colour");
+		FloatUniform density = createFloatUniform(uniformName + ".density");
+		return new FogUniform(activeFog, colour, density);
 	}
 	
 	public void setUniformm4f(String uniformName, Matrix4f value) {
@@ -237,6 +300,7 @@ public class ShaderProgram {
 		setUniformi(uniformName + ".hasTexture", material.isTextured() ? 1 : 0);
 		setUniformi(uniformName + ".hasNormalMap", material.hasNormalMap() ? 1 : 0);
 		setUniformf(uniformName + ".reflectance", material.getReflectance());
+		setUniformi(uniformName + ".layer", material.getLayer());
 	}
 	
 	public void setUniformFog(String uniformName, Fog fog) {
@@ -4,7 +4,9 @@ import java.lang.Math;
 
 import org.joml.*;
 
+import eu.grmdev.senryaku.core.SceneSnapshot;
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import lombok.Getter;
 
 public class Transformation {
@@ -45,11 +47,33 @@ public class Transformation {
 	}
 	
 	public Matrix4f buildModelMatrix(Entity entity) {
-		Quaternionf rotation = entity.getRotation();
-		float tx = entity.getPosition().x + entity.getRenderOffset().x;
-		float ty = entity.getPosition().y + entity.getRenderOffset().y;
-		float tz = entity.getPosition().z + entity.getRenderOffset().z;
-		return modelMatrix.translationRotateScale(tx, ty, tz, rotation.x, rotation.y, rotation.z, rotation.w, entity.getScale(), entity.getScale(), entity.getScale());
+		int row = entity.getRow();
+		return row >= 0 ? buildModelMatrix(entity.getStore(), row) : modelMatrix.identity();
+	}
+	
+	/**
+	 * Model matrix of entity transform in given store row, render offset
+	 * included.
+	 */
+	public Matrix4f buildModelMatrix(EntityStore store, int row) {
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS;
+		int p = o + EntityStore.POSITION;
+		int d = o + EntityStore.OFFSET;
+		int r = o + EntityStore.ROTATION;
+		float scale = t[o + EntityStore.SCALE];
+		return modelMatrix.translationRotateScale(t[p] + t[d], t[p + 1] + t[d + 1], t[p + 2] + t[d + 2], t[r], t[r + 1], t[r + 2], t[r + 3], scale, scale, scale);
+	}
+	
+	/**
+	 * Model matrix of interpolated transform of snapshot slot.
+	 */
+	public Matrix4f buildModelMatrix(SceneSnapshot frame, int slot) {
+		float[] t = frame.getInterpolated();
+		int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+		int r = o + SceneSnapshot.ROTATION;
+		float scale = t[o + SceneSnapshot.SCALE];
+		return modelMatrix.translationRotateScale(t[o], t[o + 1], t[o + 2], t[r], t[r + 1], t[r + 2], t[r + 3], scale, scale, scale);
 	}
 	
 	public Matrix4f buildModelViewMatrix(Entity entity, Matrix4f viewMatrix) {
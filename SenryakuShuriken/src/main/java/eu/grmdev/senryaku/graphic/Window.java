@@ -16,9 +16,12 @@ import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.*;
 import org.lwjgl.glfw.GLFWImage.Buffer;
 import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
 
 import eu.grmdev.senryaku.Config;
 import eu.grmdev.senryaku.Main;
+import eu.grmdev.senryaku.graphic.mesh.CompressedImage;
+import eu.grmdev.senryaku.graphic.mesh.InstanceUpload;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -29,6 +32,8 @@ public class Window {
 	private @Getter final WindowOptions windowOptions;
 	private @Getter final Matrix4f projectionMatrix;
 	private @Getter Camera camera;
+	/** Refresh rate of primary monitor in Hz, 0 when unknown */
+	private @Getter int refreshRate;
 	
 	public Window(String title, WindowOptions opts, Camera camera) {
 		this.title = title;
@@ -42,6 +47,8 @@ public class Window {
 		GLFWErrorCallback.createPrint(System.err).set();
 		
 		if (!glfwInit()) { throw new IllegalStateException("Unable to initialize GLFW"); }
+		GLFWVidMode vidmode = glfwGetVideoMode(glfwGetPrimaryMonitor());
+		refreshRate = vidmode != null ? vidmode.refreshRate() : 0;
 		createWindow();
 		setupWindowCallbacks();
 		if (!windowOptions.maximized) {
@@ -54,7 +61,10 @@ public class Window {
 			glfwSwapInterval(1);
 		}
 		
-		GL.createCapabilities();
+		GLCapabilities caps = GL.createCapabilities();
+		if (Config.COMPRESSED_TEXTURES.<Boolean> get()) {
+			CompressedImage.Format.detectSupport(caps);
+		}
 		
 		setWindowIcon();
 		
@@ -223,8 +233,11 @@ public class Window {
 		public boolean compatibleProfile;
 		public boolean antialiasing;
 		public boolean frustumCulling;
+		/** Rejects tiles and entities hidden behind walls, needs frustum culling */
+		public boolean occlusionCulling;
 		public boolean maximized;
 		public boolean vSync;
+		public InstanceUpload instanceUpload;
 	}
 	
 }
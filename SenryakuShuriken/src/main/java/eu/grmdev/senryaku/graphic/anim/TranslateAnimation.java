@@ -2,53 +2,83 @@ package eu.grmdev.senryaku.graphic.anim;
 
 import org.joml.Vector3f;
 
-import eu.grmdev.senryaku.Config;
-import lombok.Getter;
-import lombok.Setter;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 
+/**
+ * Movement of one entity, state is kept in movement component of
+ * {@link EntityStore}.
+ */
 public class TranslateAnimation {
-	private @Getter Vector3f position;
-	private @Getter Vector3f nextPosition;
-	private @Getter Vector3f destPosition;
-	private Vector3f v;
-	private int moveCounter = 0;
-	private @Getter @Setter float speed = 0.5f;
-	private int tps = Config.TARGET_UPS.<Integer> get() / 2;
+	private final EntityStore store;
+	private final int handle;
 	
-	public TranslateAnimation(Vector3f position) {
-		this.position = position;
-		this.destPosition = new Vector3f(position);
-		this.v = new Vector3f();
-		this.nextPosition = new Vector3f(position);
+	public TranslateAnimation(EntityStore store, int handle) {
+		this.store = store;
+		this.handle = handle;
 	}
 	
 	public void move(float rx, float rz) {
-		destPosition.x += rx;
-		destPosition.z += rz;
-		recalc();
+		int row = store.rowOf(handle);
+		if (row >= 0) {
+			store.move(row, rx, rz);
+		}
 	}
 	
 	public void reset() {
-		destPosition.set(position);
-		nextPosition.set(position);
+		int row = store.rowOf(handle);
+		if (row >= 0) {
+			store.resetMovement(row);
+		}
+	}
+	
+	/**
+	 * Logic thread only, renderer reads positions from
+	 * {@link eu.grmdev.senryaku.core.SceneSnapshot}. Position follows
+	 * {@link #getNextPosition()} one tick behind, both depend only on elapsed
+	 * time, not on number of ticks.
+	 *
+	 * @param interval
+	 *           elapsed milliseconds
+	 */
+	public void animate(float interval) {
+		int row = store.rowOf(handle);
+		if (row >= 0) {
+			store.animate(row, interval);
+		}
 	}
 	
-	private void recalc() {
-		moveCounter = 0;
-		v.x = (destPosition.x - position.x) / tps;
-		v.z = (destPosition.z - position.z) / tps;
+	public Vector3f getPosition() {
+		return get(store.getTransforms(), EntityStore.TRANSFORM_SIZE_FLOATS, EntityStore.POSITION);
 	}
 	
-	public void animate(float interval) {
-		synchronized (position) {
-			if (moveCounter < tps) {
-				position.set(nextPosition);
-				nextPosition.x += v.x * interval * 0.02f;
-				nextPosition.z += v.z * interval * 0.02f;
-				moveCounter++;
-			} else {
-				position.set(destPosition);
-			}
+	public Vector3f getNextPosition() {
+		return get(store.getMovement(), EntityStore.MOVEMENT_SIZE_FLOATS, EntityStore.MOVE_NEXT);
+	}
+	
+	public Vector3f getDestPosition() {
+		return get(store.getMovement(), EntityStore.MOVEMENT_SIZE_FLOATS, EntityStore.MOVE_DEST);
+	}
+	
+	private Vector3f get(float[] component, int stride, int offset) {
+		Vector3f v = new Vector3f();
+		int row = store.rowOf(handle);
+		if (row < 0) { return v; }
+		int o = row * stride + offset;
+		return v.set(component[o], component[o + 1], component[o + 2]);
+	}
+	
+	/**
+	 * @return duration of one move in seconds
+	 */
+	public float getSpeed() {
+		int row = store.rowOf(handle);
+		return row >= 0 ? store.getMovement()[row * EntityStore.MOVEMENT_SIZE_FLOATS + EntityStore.MOVE_DURATION] / 1000 : 0;
+	}
+	
+	public void setSpeed(float speed) {
+		int row = store.rowOf(handle);
+		if (row >= 0) {
+			store.getMovement()[row * EntityStore.MOVEMENT_SIZE_FLOATS + EntityStore.MOVE_DURATION] = speed * 1000;
 		}
 	}
 }
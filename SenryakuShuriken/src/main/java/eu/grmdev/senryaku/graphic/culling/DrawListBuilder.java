@@ -0,0 +1,153 @@
+package eu.grmdev.senryaku.graphic.culling;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import lombok.Getter;
+
+/**
+ * Builds {@link DrawLists} of a snapshot on fork/join pool. Items are cut
+ * into chunks of at most {@link #splitSize} items which never cross a group,
+ * every chunk packs its visible slots in place, then chunks of each group
+ * are moved together. Builder of camera lists also fills
+ * {@link SceneSnapshot#getVisible()}.
+ */
+public class DrawListBuilder {
+	private final @Getter ForkJoinPool pool;
+	private final @Getter int splitSize;
+	/** Lists are of camera view, not e.g. of a light */
+	private final boolean markVisible;
+	private boolean[] slotVisible;
+	private int[] chunkStarts;
+	private int[] chunkEnds;
+	private int[] chunkCounts;
+	private int chunkCount;
+	
+	public DrawListBuilder(ForkJoinPool pool, int splitSize) {
+		this(pool, splitSize, true);
+	}
+	
+	/**
+	 * @param markVisible
+	 *           whether built lists set visibility of snapshot items
+	 */
+	public DrawListBuilder(ForkJoinPool pool, int splitSize, boolean markVisible) {
+		this.pool = pool;
+		this.splitSize = Math.max(1, splitSize);
+		this.markVisible = markVisible;
+		slotVisible = new boolean[0];
+		chunkStarts = new int[0];
+		chunkEnds = new int[0];
+		chunkCounts = new int[0];
+	}
+	
+	/**
+	 * Builds lists from given visible slots, e.g. result of culling.
+	 */
+	public void build(SceneSnapshot frame, int[] visibleSlots, int count, DrawLists dest) {
+		if (slotVisible.length < frame.getSize()) {
+			slotVisible = new boolean[frame.getSize()];
+		} else {
+			Arrays.fill(slotVisible, 0, frame.getSize(), false);
+		}
+		for (int i = 0; i < count; i++) {
+			slotVisible[visibleSlots[i]] = true;
+		}
+		build(frame, dest);
+	}
+	
+	/**
+	 * Builds lists holding every item, used when culling is off.
+	 */
+	public void buildAll(SceneSnapshot frame, DrawLists dest) {
+		if (slotVisible.length < frame.getSize()) {
+			slotVisible = new boolean[frame.getSize()];
+		}
+		Arrays.fill(slotVisible, 0, frame.getSize(), true);
+		build(frame, dest);
+	}
+	
+	private void build(SceneSnapshot frame, DrawLists dest) {
+		dest.reset(frame);
+		splitChunks(frame);
+		if (chunkCount == 1) {
+			packChunk(frame, dest, 0);
+		} else if (chunkCount > 1) {
+			pool.invoke(new ChunksTask(frame, dest, 0, chunkCount));
+		}
+		int[] slots = dest.getSlots();
+		int c = 0;
+		for (int g = 0; g < frame.getGroupCount(); g++) {
+			int start = frame.getGroupStart(g);
+			int offset = start;
+			int end = frame.getGroupEnd(g);
+			for (; c < chunkCount && chunkStarts[c] < end; c++) {
+				System.arraycopy(slots, chunkStarts[c], slots, offset, chunkCounts[c]);
+				offset += chunkCounts[c];
+			}
+			dest.setCount(g, offset - start);
+		}
+	}
+	
+	private void splitChunks(SceneSnapshot frame) {
+		chunkCount = 0;
+		for (int g = 0; g < frame.getGroupCount(); g++) {
+			for (int i = frame.getGroupStart(g), end = frame.getGroupEnd(g); i < end; i += splitSize) {
+				if (chunkCount == chunkStarts.length) {
+					int capacity = Math.max(16, chunkCount * 2);
+					chunkStarts = Arrays.copyOf(chunkStarts, capacity);
+					chunkEnds = Arrays.copyOf(chunkEnds, capacity);
+					chunkCounts = Arrays.copyOf(chunkCounts, capacity);
+				}
+				chunkStarts[chunkCount] = i;
+				chunkEnds[chunkCount] = Math.min(end, i + splitSize);
+				chunkCount++;
+			}
+		}
+	}
+	
+	private void packChunk(SceneSnapshot frame, DrawLists dest, int chunk) {
+		int[] itemSlots = frame.getItemSlots();
+		boolean[] visible = frame.getVisible();
+		int[] slots = dest.getSlots();
+		int start = chunkStarts[chunk];
+		int count = 0;
+		for (int i = start, end = chunkEnds[chunk]; i < end; i++) {
+			boolean v = slotVisible[itemSlots[i]];
+			if (markVisible) {
+				visible[i] = v;
+			}
+			if (v) {
+				slots[start + count++] = itemSlots[i];
+			}
+		}
+		chunkCounts[chunk] = count;
+	}
+	
+	private class ChunksTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final SceneSnapshot frame;
+		private final DrawLists dest;
+		private final int from;
+		private final int to;
+		
+		ChunksTask(SceneSnapshot frame, DrawLists dest, int from, int to) {
+			this.frame = frame;
+			this.dest = dest;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				packChunk(frame, dest, from);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ChunksTask(frame, dest, from, mid), new ChunksTask(frame, dest, mid, to));
+			}
+		}
+	}
+}
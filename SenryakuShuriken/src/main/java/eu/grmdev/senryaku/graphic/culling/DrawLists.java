@@ -0,0 +1,58 @@
+package eu.grmdev.senryaku.graphic.culling;
+
+import java.util.Arrays;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import lombok.Getter;
+
+/**
+ * Visible snapshot slots of every mesh group, packed in one primitive array.
+ * List of group starts at index of first item of group, so lists never
+ * overlap and are filled in parallel by {@link DrawListBuilder}. Render
+ * thread hands them straight to instanced draws.
+ */
+public class DrawLists {
+	private @Getter int[] slots;
+	private int[] starts;
+	private int[] counts;
+	private @Getter int groupCount;
+	
+	public DrawLists() {
+		slots = new int[0];
+		starts = new int[0];
+		counts = new int[0];
+	}
+	
+	void reset(SceneSnapshot frame) {
+		groupCount = frame.getGroupCount();
+		if (slots.length < frame.getItemCount()) {
+			slots = new int[frame.getItemCount()];
+		}
+		if (starts.length < groupCount) {
+			starts = new int[groupCount];
+			counts = new int[groupCount];
+		}
+		for (int g = 0; g < groupCount; g++) {
+			starts[g] = frame.getGroupStart(g);
+		}
+		Arrays.fill(counts, 0, groupCount, 0);
+	}
+	
+	void setCount(int group, int count) {
+		counts[group] = count;
+	}
+	
+	/**
+	 * @return index in {@link #getSlots()} of first visible slot of group
+	 */
+	public int getStart(int group) {
+		return starts[group];
+	}
+	
+	/**
+	 * @return number of visible slots of group
+	 */
+	public int getCount(int group) {
+		return counts[group];
+	}
+}
@@ -0,0 +1,355 @@
+package eu.grmdev.senryaku.graphic.culling;
+
+import java.util.Arrays;
+
+import org.joml.FrustumIntersection;
+
+import lombok.Getter;
+
+/**
+ * Dynamic bounding volume hierarchy of axis aligned boxes, nodes kept in
+ * primitive arrays. Leaves store fat boxes, so objects moving a little do not
+ * change the tree; moving out of its fat box reinserts the leaf. Inserts
+ * pick the sibling with the lowest surface area growth and the tree is kept
+ * balanced with rotations, as in Box2D dynamic tree.
+ */
+public class DynamicAabbTree {
+	public static final int NULL = -1;
+	private static final int INITIAL_CAPACITY = 16;
+	/** Bounds of node: min xyz, max xyz */
+	private float[] bounds;
+	private int[] parent;
+	private int[] child1;
+	private int[] child2;
+	/** Leaf 0, free node -1 */
+	private int[] height;
+	private int[] data;
+	private @Getter int root;
+	private int freeList;
+	private @Getter int leafCount;
+	private int[] stack;
+	
+	public DynamicAabbTree() {
+		root = NULL;
+		allocate(INITIAL_CAPACITY);
+		stack = new int[64];
+	}
+	
+	private void allocate(int capacity) {
+		int from = parent == null ? 0 : parent.length;
+		bounds = bounds == null ? new float[capacity * 6] : Arrays.copyOf(bounds, capacity * 6);
+		parent = parent == null ? new int[capacity] : Arrays.copyOf(parent, capacity);
+		child1 = child1 == null ? new int[capacity] : Arrays.copyOf(child1, capacity);
+		child2 = child2 == null ? new int[capacity] : Arrays.copyOf(child2, capacity);
+		height = height == null ? new int[capacity] : Arrays.copyOf(height, capacity);
+		data = data == null ? new int[capacity] : Arrays.copyOf(data, capacity);
+		for (int i = from; i < capacity; i++) {
+			parent[i] = i + 1 < capacity ? i + 1 : NULL;
+			height[i] = -1;
+		}
+		freeList = from;
+	}
+	
+	private int allocateNode() {
+		if (freeList == NULL) {
+			allocate(parent.length * 2);
+		}
+		int node = freeList;
+		freeList = parent[node];
+		parent[node] = NULL;
+		child1[node] = NULL;
+		child2[node] = NULL;
+		height[node] = 0;
+		return node;
+	}
+	
+	private void freeNode(int node) {
+		parent[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+	}
+	
+	/**
+	 * @return number of node slots, valid node indices are below it
+	 */
+	public int getCapacity() {
+		return parent.length;
+	}
+	
+	public boolean isLeaf(int node) {
+		return height[node] == 0;
+	}
+	
+	public int getData(int leaf) {
+		return data[leaf];
+	}
+	
+	/**
+	 * @return height of tree, 0 for a single leaf, -1 for empty tree
+	 */
+	public int getHeight() {
+		return root == NULL ? -1 : height[root];
+	}
+	
+	/**
+	 * Adds leaf with given box, grown by <code>margin</code> on each side.
+	 *
+	 * @return leaf node, stays the same until leaf is removed or reinserted
+	 */
+	public int insert(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float margin, int userData) {
+		int leaf = allocateNode();
+		int b = leaf * 6;
+		bounds[b] = minX - margin;
+		bounds[b + 1] = minY - margin;
+		bounds[b + 2] = minZ - margin;
+		bounds[b + 3] = maxX + margin;
+		bounds[b + 4] = maxY + margin;
+		bounds[b + 5] = maxZ + margin;
+		data[leaf] = userData;
+		insertLeaf(leaf);
+		leafCount++;
+		return leaf;
+	}
+	
+	public void remove(int leaf) {
+		removeLeaf(leaf);
+		freeNode(leaf);
+		leafCount--;
+	}
+	
+	/**
+	 * Reinserts leaf when given box left its fat box.
+	 *
+	 * @return true when tree changed
+	 */
+	public boolean update(int leaf, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float margin) {
+		if (contains(leaf, minX, minY, minZ, maxX, maxY, maxZ)) { return false; }
+		removeLeaf(leaf);
+		int b = leaf * 6;
+		bounds[b] = minX - margin;
+		bounds[b + 1] = minY - margin;
+		bounds[b + 2] = minZ - margin;
+		bounds[b + 3] = maxX + margin;
+		bounds[b + 4] = maxY + margin;
+		bounds[b + 5] = maxZ + margin;
+		insertLeaf(leaf);
+		return true;
+	}
+	
+	/**
+	 * @return true when fat box of node encloses given box
+	 */
+	public boolean contains(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		int b = node * 6;
+		return bounds[b] <= minX && bounds[b + 1] <= minY && bounds[b + 2] <= minZ && bounds[b + 3] >= maxX && bounds[b + 4] >= maxY && bounds[b + 5] >= maxZ;
+	}
+	
+	private static float area(float dx, float dy, float dz) {
+		return 2 * (dx * dy + dy * dz + dz * dx);
+	}
+	
+	private float area(int node) {
+		int b = node * 6;
+		return area(bounds[b + 3] - bounds[b], bounds[b + 4] - bounds[b + 1], bounds[b + 5] - bounds[b + 2]);
+	}
+	
+	/**
+	 * @return area of box enclosing both nodes
+	 */
+	private float unionArea(int a, int b) {
+		int i = a * 6, j = b * 6;
+		float dx = Math.max(bounds[i + 3], bounds[j + 3]) - Math.min(bounds[i], bounds[j]);
+		float dy = Math.max(bounds[i + 4], bounds[j + 4]) - Math.min(bounds[i + 1], bounds[j + 1]);
+		float dz = Math.max(bounds[i + 5], bounds[j + 5]) - Math.min(bounds[i + 2], bounds[j + 2]);
+		return area(dx, dy, dz);
+	}
+	
+	private void setUnion(int dest, int a, int b) {
+		int d = dest * 6, i = a * 6, j = b * 6;
+		for (int k = 0; k < 3; k++) {
+			bounds[d + k] = Math.min(bounds[i + k], bounds[j + k]);
+			bounds[d + 3 + k] = Math.max(bounds[i + 3 + k], bounds[j + 3 + k]);
+		}
+	}
+	
+	private void insertLeaf(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+		int index = root;
+		while (!isLeaf(index)) {
+			int c1 = child1[index];
+			int c2 = child2[index];
+			float area = area(index);
+			float combinedArea = unionArea(index, leaf);
+			float cost = 2 * combinedArea;
+			float inheritanceCost = 2 * (combinedArea - area);
+			float cost1 = descendCost(c1, leaf) + inheritanceCost;
+			float cost2 = descendCost(c2, leaf) + inheritanceCost;
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? c1 : c2;
+		}
+		int sibling = index;
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		setUnion(newParent, leaf, sibling);
+		height[newParent] = height[sibling] + 1;
+		if (oldParent != NULL) {
+			if (child1[oldParent] == sibling) {
+				child1[oldParent] = newParent;
+			} else {
+				child2[oldParent] = newParent;
+			}
+		} else {
+			root = newParent;
+		}
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		refit(parent[leaf]);
+	}
+	
+	private float descendCost(int child, int leaf) {
+		float union = unionArea(child, leaf);
+		return isLeaf(child) ? union : union - area(child);
+	}
+	
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+		int p = parent[leaf];
+		int grandParent = parent[p];
+		int sibling = child1[p] == leaf ? child2[p] : child1[p];
+		if (grandParent != NULL) {
+			if (child1[grandParent] == p) {
+				child1[grandParent] = sibling;
+			} else {
+				child2[grandParent] = sibling;
+			}
+			parent[sibling] = grandParent;
+			freeNode(p);
+			refit(grandParent);
+		} else {
+			root = sibling;
+			parent[sibling] = NULL;
+			freeNode(p);
+		}
+	}
+	
+	/**
+	 * Walks from node to root, balancing and fixing heights and bounds.
+	 */
+	private void refit(int index) {
+		while (index != NULL) {
+			index = balance(index);
+			int c1 = child1[index];
+			int c2 = child2[index];
+			height[index] = 1 + Math.max(height[c1], height[c2]);
+			setUnion(index, c1, c2);
+			index = parent[index];
+		}
+	}
+	
+	/**
+	 * Rotates the higher child of <code>a</code> up when children heights
+	 * differ by more than one.
+	 *
+	 * @return node now standing at place of <code>a</code>
+	 */
+	private int balance(int a) {
+		if (isLeaf(a)) { return a; }
+		int b = child1[a];
+		int c = child2[a];
+		int diff = height[c] - height[b];
+		if (diff > 1) { return rotate(a, c, b, false); }
+		if (diff < -1) { return rotate(a, b, c, true); }
+		return a;
+	}
+	
+	/**
+	 * Moves <code>up</code>, child of <code>a</code>, to place of
+	 * <code>a</code>. Lower child of <code>up</code> goes under <code>a</code>.
+	 */
+	private int rotate(int a, int up, int other, boolean upIsChild1) {
+		int f = child1[up];
+		int g = child2[up];
+		child1[up] = a;
+		parent[up] = parent[a];
+		parent[a] = up;
+		if (parent[up] != NULL) {
+			if (child1[parent[up]] == a) {
+				child1[parent[up]] = up;
+			} else {
+				child2[parent[up]] = up;
+			}
+		} else {
+			root = up;
+		}
+		int keep = height[f] > height[g] ? f : g;
+		int move = keep == f ? g : f;
+		child2[up] = keep;
+		if (upIsChild1) {
+			child1[a] = move;
+		} else {
+			child2[a] = move;
+		}
+		parent[move] = a;
+		setUnion(a, other, move);
+		height[a] = 1 + Math.max(height[other], height[move]);
+		setUnion(up, a, keep);
+		height[up] = 1 + Math.max(height[a], height[keep]);
+		return up;
+	}
+	
+	/**
+	 * Collects data of leaves whose boxes touch the frustum. Subtrees fully
+	 * outside are skipped, subtrees fully inside are collected without further
+	 * tests.
+	 *
+	 * @param dest
+	 *           must hold at least {@link #getLeafCount()} entries
+	 * @return number of collected entries
+	 */
+	public int query(FrustumIntersection frustum, int[] dest) {
+		if (root == NULL) { return 0; }
+		int count = 0;
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			int b = node * 6;
+			int result = frustum.intersectAab(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5]);
+			if (result == FrustumIntersection.INSIDE) {
+				count = collect(node, dest, count);
+			} else if (result == FrustumIntersection.INTERSECT) {
+				if (isLeaf(node)) {
+					dest[count++] = data[node];
+				} else {
+					if (top + 2 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[top++] = child1[node];
+					stack[top++] = child2[node];
+				}
+			}
+		}
+		return count;
+	}
+	
+	private int collect(int node, int[] dest, int count) {
+		if (isLeaf(node)) {
+			dest[count++] = data[node];
+			return count;
+		}
+		count = collect(child1[node], dest, count);
+		return collect(child2[node], dest, count);
+	}
+}
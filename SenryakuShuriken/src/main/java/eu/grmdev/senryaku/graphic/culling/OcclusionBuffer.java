@@ -0,0 +1,223 @@
+package eu.grmdev.senryaku.graphic.culling;
+
+import java.util.Arrays;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import lombok.Getter;
+
+/**
+ * Small CPU depth buffer for occlusion culling. Occluder boxes are
+ * rasterized in software, then a pyramid keeping the farthest depth of
+ * every 2x2 texels is built, so a box is tested against at most 16x16 texels
+ * of the finest level its screen rectangle fits in. Does not touch OpenGL.
+ * <p>
+ * Occluders crossing the near plane are skipped and tested boxes crossing it
+ * are visible, so errors only ever keep things visible.
+ */
+public class OcclusionBuffer {
+	/** Screen rectangle of tested box spans at most this many texels */
+	private static final int TEST_TEXELS = 16;
+	private static final float MIN_W = 1e-4f;
+	/** Box corner order used by {@link #BOX_TRIANGLES} */
+	private static final int[][] BOX_CORNERS = {{0, 0, 0}, {1, 0, 0}, {1, 1, 0}, {0, 1, 0}, {0, 0, 1}, {1, 0, 1}, {1, 1, 1}, {0, 1, 1}};
+	private static final int[] BOX_TRIANGLES = {
+		0, 1, 2, 0, 2, 3, 4, 6, 5, 4, 7, 6, 0, 4, 5, 0, 5, 1,
+		3, 2, 6, 3, 6, 7, 0, 3, 7, 0, 7, 4, 1, 5, 6, 1, 6, 2};
+	private final @Getter int width;
+	private final @Getter int height;
+	/** Level 0 is full resolution depth */
+	private final float[][] levels;
+	private final int[] levelWidths;
+	private final int[] levelHeights;
+	private final Matrix4f projView;
+	private final float[] screen;
+	private @Getter int occluderCount;
+	private @Getter int testedCount;
+	private @Getter int occludedCount;
+	
+	public OcclusionBuffer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int count = 1;
+		for (int w = width, h = height; w > 1 || h > 1; w = (w + 1) >> 1, h = (h + 1) >> 1) {
+			count++;
+		}
+		levels = new float[count][];
+		levelWidths = new int[count];
+		levelHeights = new int[count];
+		for (int l = 0, w = width, h = height; l < count; l++, w = (w + 1) >> 1, h = (h + 1) >> 1) {
+			levels[l] = new float[w * h];
+			levelWidths[l] = w;
+			levelHeights[l] = h;
+		}
+		projView = new Matrix4f();
+		screen = new float[BOX_CORNERS.length * 3];
+	}
+	
+	/**
+	 * Clears buffer for new frame seen with given projection and view.
+	 */
+	public void begin(Matrix4f projection, Matrix4f view) {
+		projView.set(projection).mul(view);
+		Arrays.fill(levels[0], Float.POSITIVE_INFINITY);
+		occluderCount = 0;
+		testedCount = 0;
+		occludedCount = 0;
+	}
+	
+	/**
+	 * Rasterizes depth of box faces. Must be called between
+	 * {@link #begin(Matrix4f, Matrix4f)} and {@link #finish()}.
+	 */
+	public void addOccluder(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		if (!project(minX, minY, minZ, maxX, maxY, maxZ)) { return; }
+		occluderCount++;
+		for (int i = 0; i < BOX_TRIANGLES.length; i += 3) {
+			rasterize(BOX_TRIANGLES[i] * 3, BOX_TRIANGLES[i + 1] * 3, BOX_TRIANGLES[i + 2] * 3);
+		}
+	}
+	
+	/**
+	 * Builds depth pyramid, after that boxes can be tested.
+	 */
+	public void finish() {
+		for (int l = 1; l < levels.length; l++) {
+			float[] src = levels[l - 1];
+			float[] dst = levels[l];
+			int sw = levelWidths[l - 1], sh = levelHeights[l - 1];
+			int w = levelWidths[l], h = levelHeights[l];
+			for (int y = 0; y < h; y++) {
+				int y0 = y * 2, y1 = Math.min(y0 + 1, sh - 1);
+				for (int x = 0; x < w; x++) {
+					int x0 = x * 2, x1 = Math.min(x0 + 1, sw - 1);
+					float a = Math.max(src[y0 * sw + x0], src[y0 * sw + x1]);
+					float b = Math.max(src[y1 * sw + x0], src[y1 * sw + x1]);
+					dst[y * w + x] = Math.max(a, b);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return false when box is fully behind rasterized occluders
+	 */
+	public boolean isVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		testedCount++;
+		if (!project(minX, minY, minZ, maxX, maxY, maxZ)) { return true; }
+		float sx0 = Float.MAX_VALUE, sy0 = Float.MAX_VALUE, sx1 = -Float.MAX_VALUE, sy1 = -Float.MAX_VALUE;
+		float depth = Float.MAX_VALUE;
+		for (int i = 0; i < screen.length; i += 3) {
+			sx0 = Math.min(sx0, screen[i]);
+			sx1 = Math.max(sx1, screen[i]);
+			sy0 = Math.min(sy0, screen[i + 1]);
+			sy1 = Math.max(sy1, screen[i + 1]);
+			depth = Math.min(depth, screen[i + 2]);
+		}
+		int x0 = Math.max(0, (int) Math.floor(sx0));
+		int y0 = Math.max(0, (int) Math.floor(sy0));
+		int x1 = Math.min(width - 1, (int) Math.floor(sx1));
+		int y1 = Math.min(height - 1, (int) Math.floor(sy1));
+		if (x0 > x1 || y0 > y1) { return true; }
+		int l = 0;
+		while (l + 1 < levels.length && ((x1 >> l) - (x0 >> l) >= TEST_TEXELS || (y1 >> l) - (y0 >> l) >= TEST_TEXELS)) {
+			l++;
+		}
+		float[] level = levels[l];
+		int w = levelWidths[l];
+		for (int y = y0 >> l; y <= y1 >> l; y++) {
+			for (int x = x0 >> l; x <= x1 >> l; x++) {
+				if (level[y * w + x] >= depth) { return true; }
+			}
+		}
+		occludedCount++;
+		return false;
+	}
+	
+	public boolean isVisible(Vector3f min, Vector3f max) {
+		return isVisible(min.x, min.y, min.z, max.x, max.y, max.z);
+	}
+	
+	/**
+	 * Removes occluded slots from list of visible slots, slots excluded from
+	 * culling are kept.
+	 *
+	 * @return new number of visible slots
+	 */
+	public int filter(SceneSnapshot frame, int[] visibleSlots, int count) {
+		float[] t = frame.getInterpolated();
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int slot = visibleSlots[i];
+			int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+			float r = frame.getBoundingRadius(slot);
+			float x = t[o], y = t[o + 1], z = t[o + 2];
+			if (!frame.isCullable(slot) || isVisible(x - r, y - r, z - r, x + r, y + r, z + r)) {
+				visibleSlots[kept++] = slot;
+			}
+		}
+		return kept;
+	}
+	
+	/**
+	 * Projects box corners to {@link #screen} as pixel x, y and depth.
+	 *
+	 * @return false when a corner is behind the near plane
+	 */
+	private boolean project(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		Matrix4f m = projView;
+		for (int i = 0; i < BOX_CORNERS.length; i++) {
+			int[] c = BOX_CORNERS[i];
+			float x = c[0] == 0 ? minX : maxX;
+			float y = c[1] == 0 ? minY : maxY;
+			float z = c[2] == 0 ? minZ : maxZ;
+			float w = m.m03() * x + m.m13() * y + m.m23() * z + m.m33();
+			if (w < MIN_W) { return false; }
+			float inv = 1 / w;
+			float ndcX = (m.m00() * x + m.m10() * y + m.m20() * z + m.m30()) * inv;
+			float ndcY = (m.m01() * x + m.m11() * y + m.m21() * z + m.m31()) * inv;
+			float ndcZ = (m.m02() * x + m.m12() * y + m.m22() * z + m.m32()) * inv;
+			screen[i * 3] = (ndcX * 0.5f + 0.5f) * width;
+			screen[i * 3 + 1] = (ndcY * 0.5f + 0.5f) * height;
+			screen[i * 3 + 2] = ndcZ;
+		}
+		return true;
+	}
+	
+	/**
+	 * Writes nearest depth of triangle at centers of covered pixels, both
+	 * windings are drawn.
+	 */
+	private void rasterize(int a, int b, int c) {
+		float ax = screen[a], ay = screen[a + 1], az = screen[a + 2];
+		float bx = screen[b], by = screen[b + 1], bz = screen[b + 2];
+		float cx = screen[c], cy = screen[c + 1], cz = screen[c + 2];
+		float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (area == 0) { return; }
+		int x0 = Math.max(0, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+		int x1 = Math.min(width - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+		int y0 = Math.max(0, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+		int y1 = Math.min(height - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+		float inv = 1 / area;
+		float[] depth = levels[0];
+		for (int y = y0; y <= y1; y++) {
+			float py = y + 0.5f;
+			for (int x = x0; x <= x1; x++) {
+				float px = x + 0.5f;
+				float w0 = ((cx - bx) * (py - by) - (cy - by) * (px - bx)) * inv;
+				float w1 = ((ax - cx) * (py - cy) - (ay - cy) * (px - cx)) * inv;
+				float w2 = 1 - w0 - w1;
+				if (w0 < 0 || w1 < 0 || w2 < 0) {
+					continue;
+				}
+				float z = w0 * az + w1 * bz + w2 * cz;
+				int i = y * width + x;
+				if (z < depth[i]) {
+					depth[i] = z;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package eu.grmdev.senryaku.graphic.culling;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.joml.FrustumIntersection;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.core.entity.EntityStore;
+import lombok.Getter;
+
+/**
+ * Render thread {@link DynamicAabbTree} over entities of scene snapshots.
+ * Leaves are keyed by entity handle, so they survive between snapshots and
+ * only entities which moved out of their fat box change the tree. Culling
+ * gives a compact list of visible slots instead of flagging every entity.
+ */
+public class SceneBvh {
+	/** Fat box margin in world units */
+	private static final float MARGIN = 0.5f;
+	private static final byte KEPT = 0;
+	private static final byte CHANGED = 1;
+	private static final byte UNCULLABLE = 2;
+	private final DynamicAabbTree tree;
+	private final @Getter ForkJoinPool pool;
+	private final @Getter int splitSize;
+	/** Leaf of entity id */
+	private int[] leaves;
+	private int[] leafSlots;
+	private int[] leafStamps;
+	private int[] uncullable;
+	private int uncullableCount;
+	private int[] hits;
+	private byte[] states;
+	private int stamp;
+	/** Leaves inserted or moved in tree by last update */
+	private @Getter int reinserted;
+	
+	public SceneBvh(ForkJoinPool pool, int splitSize) {
+		this.pool = pool;
+		this.splitSize = Math.max(1, splitSize);
+		tree = new DynamicAabbTree();
+		leaves = new int[0];
+		leafSlots = new int[0];
+		leafStamps = new int[0];
+		uncullable = new int[0];
+		hits = new int[0];
+		states = new byte[0];
+	}
+	
+	/**
+	 * Fits tree to interpolated transforms of frame. Leaves of entities missing
+	 * in frame are removed. Slots are first checked against their fat boxes in
+	 * parallel, only slots which left them change the tree.
+	 */
+	public void update(SceneSnapshot frame) {
+		stamp++;
+		reinserted = 0;
+		uncullableCount = 0;
+		int size = frame.getSize();
+		if (uncullable.length < size) {
+			uncullable = new int[size];
+			states = new byte[size];
+		}
+		if (size > splitSize) {
+			pool.invoke(new ClassifyTask(frame, 0, size));
+		} else {
+			classify(frame, 0, size);
+		}
+		float[] t = frame.getInterpolated();
+		int[] handles = frame.getHandles();
+		for (int slot = 0; slot < size; slot++) {
+			if (states[slot] == KEPT) {
+				continue;
+			}
+			if (states[slot] == UNCULLABLE) {
+				uncullable[uncullableCount++] = slot;
+				continue;
+			}
+			int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+			float r = frame.getBoundingRadius(slot);
+			float x = t[o], y = t[o + 1], z = t[o + 2];
+			int handle = handles[slot];
+			int id = EntityStore.idOf(handle);
+			if (id >= leaves.length) {
+				int from = leaves.length;
+				leaves = Arrays.copyOf(leaves, Math.max(id + 1, from * 2));
+				Arrays.fill(leaves, from, leaves.length, DynamicAabbTree.NULL);
+			}
+			int leaf = leaves[id];
+			if (leaf != DynamicAabbTree.NULL && tree.getData(leaf) != handle) {
+				tree.remove(leaf);
+				leaf = DynamicAabbTree.NULL;
+			}
+			if (leaf == DynamicAabbTree.NULL) {
+				leaf = tree.insert(x - r, y - r, z - r, x + r, y + r, z + r, MARGIN, handle);
+				leaves[id] = leaf;
+				if (leafSlots.length < tree.getCapacity()) {
+					leafSlots = Arrays.copyOf(leafSlots, tree.getCapacity());
+					leafStamps = Arrays.copyOf(leafStamps, tree.getCapacity());
+				}
+				reinserted++;
+			} else if (tree.update(leaf, x - r, y - r, z - r, x + r, y + r, z + r, MARGIN)) {
+				reinserted++;
+			}
+			leafSlots[leaf] = slot;
+			leafStamps[leaf] = stamp;
+		}
+		if (tree.getLeafCount() > size - uncullableCount) {
+			removeStale();
+		}
+	}
+	
+	/**
+	 * Marks slots still inside fat box of their leaf as kept, does not change
+	 * the tree, so ranges may run in parallel.
+	 */
+	private void classify(SceneSnapshot frame, int from, int to) {
+		float[] t = frame.getInterpolated();
+		int[] handles = frame.getHandles();
+		for (int slot = from; slot < to; slot++) {
+			int handle = handles[slot];
+			if (handle == EntityStore.NO_HANDLE || !frame.isCullable(slot)) {
+				states[slot] = UNCULLABLE;
+				continue;
+			}
+			int id = EntityStore.idOf(handle);
+			int leaf = id < leaves.length ? leaves[id] : DynamicAabbTree.NULL;
+			int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+			float r = frame.getBoundingRadius(slot);
+			float x = t[o], y = t[o + 1], z = t[o + 2];
+			if (leaf != DynamicAabbTree.NULL && tree.getData(leaf) == handle && tree.contains(leaf, x - r, y - r, z - r, x + r, y + r, z + r)) {
+				leafSlots[leaf] = slot;
+				leafStamps[leaf] = stamp;
+				states[slot] = KEPT;
+			} else {
+				states[slot] = CHANGED;
+			}
+		}
+	}
+	
+	private void removeStale() {
+		for (int node = 0; node < tree.getCapacity(); node++) {
+			if (tree.isLeaf(node) && leafStamps[node] != stamp) {
+				leaves[EntityStore.idOf(tree.getData(node))] = DynamicAabbTree.NULL;
+				tree.remove(node);
+			}
+		}
+	}
+	
+	/**
+	 * Collects slots visible in frustum, slots excluded from culling are
+	 * always visible. Must be called after {@link #update(SceneSnapshot)}.
+	 *
+	 * @param visibleSlots
+	 *           must hold {@link SceneSnapshot#getSize()} entries
+	 * @return number of visible slots
+	 */
+	public int cull(FrustumIntersection frustum, int[] visibleSlots) {
+		if (hits.length < tree.getLeafCount()) {
+			hits = new int[tree.getLeafCount()];
+		}
+		int count = tree.query(frustum, hits);
+		for (int i = 0; i < count; i++) {
+			visibleSlots[i] = leafSlots[leaves[EntityStore.idOf(hits[i])]];
+		}
+		System.arraycopy(uncullable, 0, visibleSlots, count, uncullableCount);
+		return count + uncullableCount;
+	}
+	
+	public int getHeight() {
+		return tree.getHeight();
+	}
+	
+	private class ClassifyTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final SceneSnapshot frame;
+		private final int from;
+		private final int to;
+		
+		ClassifyTask(SceneSnapshot frame, int from, int to) {
+			this.frame = frame;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= splitSize) {
+				classify(frame, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ClassifyTask(frame, from, mid), new ClassifyTask(frame, mid, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package eu.grmdev.senryaku.graphic.effects.shadow;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import eu.grmdev.senryaku.Config;
+
+/**
+ * Writes shadow cascades into <code>Cascades</code> uniform block (std140
+ * layout) shared by scene vertex and fragment shaders:
+ *
+ * <pre>
+ * mat4 lightViewMatrix[NUM_CASCADES];
+ * mat4 orthoProjectionMatrix[NUM_CASCADES];
+ * float cascadeFarPlanes[NUM_CASCADES]; // 16 bytes stride
+ * </pre>
+ */
+public final class CascadesBlock {
+	public static final int MATRIX_SIZE = 64;
+	public static final int FLOAT_ARRAY_STRIDE = 16;
+	public static final int LIGHT_VIEW_OFFSET = 0;
+	public static final int ORTHO_PROJECTION_OFFSET = LIGHT_VIEW_OFFSET + MATRIX_SIZE * Config.NUM_SHADOW_CASCADES.<Integer> get();
+	public static final int FAR_PLANES_OFFSET = ORTHO_PROJECTION_OFFSET + MATRIX_SIZE * Config.NUM_SHADOW_CASCADES.<Integer> get();
+	public static final int SIZE = FAR_PLANES_OFFSET + FLOAT_ARRAY_STRIDE * Config.NUM_SHADOW_CASCADES.<Integer> get();
+	
+	private CascadesBlock() {}
+	
+	public static void pack(ByteBuffer dest, List<ShadowCascade> cascades, float[] farPlanes) {
+		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
+			ShadowCascade cascade = cascades.get(i);
+			cascade.getLightViewMatrix().get(LIGHT_VIEW_OFFSET + i * MATRIX_SIZE, dest);
+			cascade.getOrthoProjMatrix().get(ORTHO_PROJECTION_OFFSET + i * MATRIX_SIZE, dest);
+			dest.putFloat(FAR_PLANES_OFFSET + i * FLOAT_ARRAY_STRIDE, farPlanes[i]);
+		}
+	}
+}
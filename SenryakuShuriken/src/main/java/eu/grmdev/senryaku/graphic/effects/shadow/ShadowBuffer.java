@@ -2,12 +2,18 @@ package eu.grmdev.senryaku.graphic.effects.shadow;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL14.*;
 import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.glFramebufferTexture;
 
 import eu.grmdev.senryaku.Config;
 import eu.grmdev.senryaku.graphic.mesh.ArrTexture;
 import lombok.Getter;
 
+/**
+ * Depth maps of all cascades as layers of one texture array, attached one
+ * layer at a time or all layers at once for layered rendering.
+ */
 public class ShadowBuffer {
 	/** depth map FBO */
 	@Getter
@@ -18,10 +24,10 @@ public class ShadowBuffer {
 	
 	public ShadowBuffer() throws Exception {
 		depthMapFBO = glGenFramebuffers();
-		depthMapTexture = new ArrTexture(Config.NUM_SHADOW_CASCADES.<Integer> get(), Config.SHADOW_MAP_WIDTH.<Integer> get(), Config.SHADOW_MAP_HEIGHT.<Integer> get(), GL_DEPTH_COMPONENT);
+		depthMapTexture = new ArrTexture(Config.NUM_SHADOW_CASCADES.<Integer> get(), Config.SHADOW_MAP_WIDTH.<Integer> get(), Config.SHADOW_MAP_HEIGHT.<Integer> get(), depthFormat(Config.SHADOW_DEPTH_FORMAT.<String> get()), GL_DEPTH_COMPONENT, GL_FLOAT);
 		
 		glBindFramebuffer(GL_FRAMEBUFFER, depthMapFBO);
-		glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, depthMapTexture.getIds()[0], 0);
+		attachLayer(0);
 		
 		glDrawBuffer(GL_NONE);
 		glReadBuffer(GL_NONE);
@@ -31,13 +37,43 @@ public class ShadowBuffer {
 		glBindFramebuffer(GL_FRAMEBUFFER, 0);
 	}
 	
-	public void bindTextures(int start) {
-		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
-			glActiveTexture(start + i);
-			glBindTexture(GL_TEXTURE_2D, depthMapTexture.getIds()[i]);
+	/**
+	 * @param format
+	 *           16, 24 or 32F bits of depth
+	 */
+	private static int depthFormat(String format) throws Exception {
+		switch (format) {
+			case "16" :
+				return GL_DEPTH_COMPONENT16;
+			case "24" :
+				return GL_DEPTH_COMPONENT24;
+			case "32F" :
+				return GL_DEPTH_COMPONENT32F;
+			default :
+				throw new Exception("Unknown shadow depth format: " + format);
 		}
 	}
 	
+	/**
+	 * Renders into depth map of one cascade, FBO must be bound.
+	 */
+	public void attachLayer(int layer) {
+		glFramebufferTextureLayer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, depthMapTexture.getId(), 0, layer);
+	}
+	
+	/**
+	 * Renders into all depth maps, geometry shader picks layer. FBO must be
+	 * bound.
+	 */
+	public void attachLayers() {
+		glFramebufferTexture(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, depthMapTexture.getId(), 0);
+	}
+	
+	public void bindTextures(int unit) {
+		glActiveTexture(unit);
+		depthMapTexture.bind();
+	}
+	
 	public void cleanup() {
 		glDeleteFramebuffers(depthMapFBO);
 		depthMapTexture.cleanup();
@@ -5,94 +5,136 @@ import java.lang.Math;
 import org.joml.*;
 
 import eu.grmdev.senryaku.Config;
-import eu.grmdev.senryaku.graphic.Transformation;
 import eu.grmdev.senryaku.graphic.Window;
 import eu.grmdev.senryaku.graphic.lights.DirectionalLight;
 import lombok.Getter;
 
+/**
+ * Light space ortho box around one slice of camera frustum. Box is fitted to
+ * bounding sphere of slice, so its size does not change when camera turns,
+ * and its center is snapped to whole shadow map texels, so shadow edges do
+ * not shimmer when camera moves.
+ * <p>
+ * Cached cascade is fitted with margin and kept while slice stays inside of
+ * it and light does not turn, so its shadow map can be reused between
+ * frames.
+ */
 public class ShadowCascade {
 	private static final int FRUSTUM_CORNERS = 8;
+	/** Bounding radius is rounded up to this fraction of world unit */
+	private static final float RADIUS_STEP = 1 / 16f;
 	private final Matrix4f projViewMatrix;
 	private @Getter final Matrix4f orthoProjMatrix;
 	private @Getter final Matrix4f lightViewMatrix;
+	private @Getter final Matrix4f lightProjViewMatrix;
+	/** Light frustum of ortho box, for culling shadow casters */
+	private @Getter final FrustumIntersection frustum;
 	/**
-	 * Center of the view cuboid un world space coordinates.
+	 * Center of the view cuboid in world space coordinates.
 	 */
 	private final Vector3f centroid;
 	private final Vector3f[] frustumCorners;
 	private final float zNear;
 	private final float zFar;
-	private final Vector4f tmpVec;
+	private final int mapSize;
+	/** Fitted radius is enlarged by this fraction, negative when not cached */
+	private final float cacheMargin;
+	private final Vector3f fittedCenter;
+	private float fittedRadius;
+	private final Vector3f fittedLightDirection;
+	private final Vector3f tmpVec;
+	/** Ortho box was moved by last update, shadow map must be redrawn */
+	private @Getter boolean boundsChanged;
 	
-	public ShadowCascade(float zNear, float zFar) {
+	/**
+	 * @param mapSize
+	 *           shadow map size in texels, bounds are snapped to its texels
+	 * @param cacheMargin
+	 *           enlarges box of cached cascade, negative when not cached
+	 */
+	public ShadowCascade(float zNear, float zFar, int mapSize, float cacheMargin) {
 		this.zNear = zNear;
 		this.zFar = zFar;
+		this.mapSize = mapSize;
+		this.cacheMargin = cacheMargin;
 		this.projViewMatrix = new Matrix4f();
 		this.orthoProjMatrix = new Matrix4f();
 		this.centroid = new Vector3f();
 		this.lightViewMatrix = new Matrix4f();
+		this.lightProjViewMatrix = new Matrix4f();
+		this.frustum = new FrustumIntersection();
 		this.frustumCorners = new Vector3f[FRUSTUM_CORNERS];
 		for (int i = 0; i < FRUSTUM_CORNERS; i++) {
 			frustumCorners[i] = new Vector3f();
 		}
-		tmpVec = new Vector4f();
+		fittedCenter = new Vector3f();
+		fittedRadius = -1;
+		fittedLightDirection = new Vector3f();
+		tmpVec = new Vector3f();
+	}
+	
+	public boolean isCached() {
+		return cacheMargin >= 0;
 	}
 	
 	public void update(Window window, Matrix4f viewMatrix, DirectionalLight light) {
 		float aspectRatio = (float) window.getWidth() / (float) window.getHeight();
+		update(aspectRatio, viewMatrix, light.getDirection());
+	}
+	
+	public void update(float aspectRatio, Matrix4f viewMatrix, Vector3f lightDirection) {
 		projViewMatrix.setPerspective(Config.FOV.<Float> get(), aspectRatio, zNear, zFar);
 		projViewMatrix.mul(viewMatrix);
 		// Calculate frustum corners in world space matrix
-		float maxZ = Float.MIN_VALUE;
-		float minZ = Float.MAX_VALUE;
+		centroid.zero();
+		for (int i = 0; i < FRUSTUM_CORNERS; i++) {
+			projViewMatrix.frustumCorner(i, frustumCorners[i]);
+			centroid.add(frustumCorners[i]);
+		}
+		centroid.div(FRUSTUM_CORNERS);
+		float radius = 0;
 		for (int i = 0; i < FRUSTUM_CORNERS; i++) {
-			Vector3f corner = frustumCorners[i];
-			corner.set(0, 0, 0);
-			projViewMatrix.frustumCorner(i, corner);
-			centroid.add(corner);
-			centroid.div(8.0f);
-			minZ = Math.min(minZ, corner.z);
-			maxZ = Math.max(maxZ, corner.z);
+			radius = Math.max(radius, centroid.distance(frustumCorners[i]));
 		}
+		radius = (float) Math.ceil(radius / RADIUS_STEP) * RADIUS_STEP;
 		
-		Vector3f lightDirection = light.getDirection();
-		Vector3f lightPosInc = new Vector3f().set(lightDirection);
-		float distance = maxZ - minZ;
-		lightPosInc.mul(distance);
-		Vector3f lightPosition = new Vector3f();
-		lightPosition.set(centroid);
-		lightPosition.add(lightPosInc);
+		boundsChanged = false;
+		if (fittedRadius >= 0 && isCached() && fittedLightDirection.equals(lightDirection) && centroid.distance(fittedCenter) + radius <= fittedRadius) { return; }
+		fittedCenter.set(centroid);
+		fittedRadius = isCached() ? radius * (1 + cacheMargin) : radius;
+		fittedLightDirection.set(lightDirection);
 		
-		updateLightViewMatrix(lightDirection, lightPosition);
+		updateLightViewMatrix(lightDirection);
 		updateLightProjectionMatrix();
+		// slice is no longer needed, its matrix is reused
+		projViewMatrix.set(orthoProjMatrix).mul(lightViewMatrix);
+		if (!projViewMatrix.equals(lightProjViewMatrix)) {
+			boundsChanged = true;
+			lightProjViewMatrix.set(projViewMatrix);
+			frustum.set(lightProjViewMatrix);
+		}
 	}
 	
-	private void updateLightViewMatrix(Vector3f lightDirection, Vector3f lightPosition) {
-		float lightAngleX = (float) Math.toDegrees(Math.acos(lightDirection.z));
-		float lightAngleY = (float) Math.toDegrees(Math.asin(lightDirection.x));
-		float lightAngleZ = 0;
-		Transformation.updateGenericViewMatrix(lightPosition, new Vector3f(lightAngleX, lightAngleY, lightAngleZ), lightViewMatrix);
+	/**
+	 * Light view only rotates, box is placed by ortho projection.
+	 */
+	private void updateLightViewMatrix(Vector3f lightDirection) {
+		float lightAngleX = (float) Math.acos(lightDirection.z);
+		float lightAngleY = (float) Math.asin(lightDirection.x);
+		lightViewMatrix.rotationX(lightAngleX).rotateY(lightAngleY);
 	}
 	
+	/**
+	 * Square box of fitted sphere, its center snapped to texels. Box is as deep
+	 * again towards light, for casters between light and slice.
+	 */
 	private void updateLightProjectionMatrix() {
-		float minX = Float.MAX_VALUE;
-		float maxX = -Float.MIN_VALUE;
-		float minY = Float.MAX_VALUE;
-		float maxY = -Float.MIN_VALUE;
-		float minZ = Float.MAX_VALUE;
-		float maxZ = -Float.MIN_VALUE;
-		for (int i = 0; i < FRUSTUM_CORNERS; i++) {
-			Vector3f corner = frustumCorners[i];
-			tmpVec.set(corner, 1);
-			tmpVec.mul(lightViewMatrix);
-			minX = Math.min(tmpVec.x, minX);
-			maxX = Math.max(tmpVec.x, maxX);
-			minY = Math.min(tmpVec.y, minY);
-			maxY = Math.max(tmpVec.y, maxY);
-			minZ = Math.min(tmpVec.z, minZ);
-			maxZ = Math.max(tmpVec.z, maxZ);
-		}
-		float distz = maxZ - minZ;
-		orthoProjMatrix.setOrtho(minX, maxX, minY, maxY, 0, distz);
+		float r = fittedRadius;
+		float texel = 2 * r / mapSize;
+		lightViewMatrix.transformPosition(fittedCenter, tmpVec);
+		float x = (float) Math.floor(tmpVec.x / texel) * texel;
+		float y = (float) Math.floor(tmpVec.y / texel) * texel;
+		float z = (float) Math.floor(tmpVec.z / texel) * texel;
+		orthoProjMatrix.setOrtho(x - r, x + r, y - r, y + r, -z - 2 * r, -z + r + texel);
 	}
 }
@@ -1,35 +1,74 @@
 package eu.grmdev.senryaku.graphic.effects.shadow;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL13.GL_TEXTURE2;
 import static org.lwjgl.opengl.GL30.*;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.joml.Matrix4f;
 
 import eu.grmdev.senryaku.Config;
 import eu.grmdev.senryaku.core.Scene;
 import eu.grmdev.senryaku.core.SceneLight;
-import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.SceneSnapshot;
 import eu.grmdev.senryaku.core.misc.Utils;
 import eu.grmdev.senryaku.graphic.*;
+import eu.grmdev.senryaku.graphic.culling.*;
 import eu.grmdev.senryaku.graphic.lights.DirectionalLight;
-import eu.grmdev.senryaku.graphic.mesh.InstancedMesh;
-import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import eu.grmdev.senryaku.graphic.mesh.*;
+import eu.grmdev.senryaku.graphic.queue.RenderQueue;
+import eu.grmdev.senryaku.graphic.queue.RenderQueueVisitor;
+import eu.grmdev.senryaku.graphic.uniform.IntUniform;
+import eu.grmdev.senryaku.graphic.uniform.Mat4Uniform;
 import lombok.Getter;
 
+/**
+ * Renders depth of shadow casters into layers of shadow map array. Casters
+ * are culled against light frustum of each cascade. Shadow map of cascade is
+ * redrawn only when its bounds moved or its casters changed, so cached far
+ * cascades are mostly reused. When more cascades need redrawing, their
+ * casters are drawn once and geometry shader copies them to every layer.
+ */
 public class ShadowRenderer {
-	private ShaderProgram depthShaderProgram;
+	private static final Matrix4f IDENTITY = new Matrix4f();
+	/** Draws into one layer attached to FBO */
+	private DepthShader depthShader;
+	/** Draws into layers of all cascades in {@link #depthLayerMask} */
+	private DepthShader layeredDepthShader;
+	private Mat4Uniform[] depthLayerMatrices;
+	private IntUniform depthLayerMask;
+	/** Shader current draws use */
+	private DepthShader shader;
 	@Getter
 	private List<ShadowCascade> shadowCascades;
 	private ShadowBuffer shadowBuffer;
-	private final ConcurrentHashMap<Integer, Entity> filteredItems;
-	private int nextId;
+	private final RenderQueue<Mesh, Integer> depthQueue;
+	private final DepthQueueVisitor depthQueueVisitor;
+	private final DrawListBuilder drawListBuilder;
+	/** Casters of every cascade */
+	private DrawLists[] cascadeLists;
+	private int[] casterSlots;
+	/** Casters of all cascades drawn by layered pass */
+	private final DrawLists layeredLists;
+	private int[] layeredSlots;
+	/** Hash of casters shadow map of cascade was drawn with */
+	private long[] casterHashes;
+	private boolean[] drawn;
+	/** Cascades drawn in last frame, others were reused */
+	private @Getter int drawnCascades;
+	/** Render state changes avoided by sorting draws in all cascades */
+	private @Getter int eliminatedStateChanges;
 	
 	public ShadowRenderer() {
-		filteredItems = new ConcurrentHashMap<>();
+		depthQueue = new RenderQueue<>(Config.MAX_PARICLES.<Integer> get());
+		depthQueueVisitor = new DepthQueueVisitor();
+		drawListBuilder = new DrawListBuilder(ForkJoinPool.commonPool(), Config.CULLING_SPLIT_SIZE.<Integer> get(), false);
+		casterSlots = new int[0];
+		layeredLists = new DrawLists();
+		layeredSlots = new int[0];
 	}
 	
 	public void init(Window window) throws Exception {
@@ -39,24 +78,33 @@ public class ShadowRenderer {
 		setupDepthShader();
 		
 		float zNear = Config.Z_NEAR.<Float> get();
-		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
-			ShadowCascade shadowCascade = new ShadowCascade(zNear, Config.SHADOW_CASCADE_SPLITS.getArray()[i]);
+		int count = Config.NUM_SHADOW_CASCADES.<Integer> get();
+		int firstCached = count - Config.SHADOW_CACHED_CASCADES.<Integer> get();
+		float margin = Config.SHADOW_CACHE_MARGIN.<Float> get();
+		for (int i = 0; i < count; i++) {
+			ShadowCascade shadowCascade = new ShadowCascade(zNear, Config.SHADOW_CASCADE_SPLITS.getArray()[i], Config.SHADOW_MAP_WIDTH.<Integer> get(), i >= firstCached ? margin : -1);
 			shadowCascades.add(shadowCascade);
 			zNear = Config.SHADOW_CASCADE_SPLITS.getArray()[i];
 		}
+		cascadeLists = new DrawLists[count];
+		for (int i = 0; i < count; i++) {
+			cascadeLists[i] = new DrawLists();
+		}
+		casterHashes = new long[count];
+		drawn = new boolean[count];
 	}
 	
 	private void setupDepthShader() throws Exception {
-		depthShaderProgram = new ShaderProgram();
-		depthShaderProgram.createVertexShader(Utils.loadResourceContent("/shaders/depth_vertex.vs"));
-		depthShaderProgram.createFragmentShader(Utils.loadResourceContent("/shaders/depth_fragment.fs"));
-		depthShaderProgram.link();
-		
-		depthShaderProgram.createUniform("isInstanced");
-		depthShaderProgram.createUniform("modelNonInstancedMatrix");
-		depthShaderProgram.createUniform("lightViewMatrix");
-		depthShaderProgram.createUniform("jointsMatrix");
-		depthShaderProgram.createUniform("orthoProjectionMatrix");
+		depthShader = new DepthShader(false);
+		if (Config.SHADOW_LAYERED.<Boolean> get()) {
+			layeredDepthShader = new DepthShader(true);
+			ShaderProgram program = layeredDepthShader.program;
+			depthLayerMatrices = new Mat4Uniform[Config.NUM_SHADOW_CASCADES.<Integer> get()];
+			for (int i = 0; i < depthLayerMatrices.length; i++) {
+				depthLayerMatrices[i] = program.createMat4Uniform("lightProjViewMatrix[" + i + "]");
+			}
+			depthLayerMask = program.createIntUniform("layerMask");
+		}
 	}
 	
 	public void bindTextures(int start) {
@@ -73,62 +121,165 @@ public class ShadowRenderer {
 		}
 	}
 	
-	public void render(Window window, Scene scene, Camera camera, Transformation transformation, Renderer renderer) {
+	/**
+	 * Renders depth of snapshot items into every cascade which needs it.
+	 *
+	 * @param bvh
+	 *           tree fitted to frame, null when culling is off
+	 */
+	public void render(Window window, Scene scene, SceneSnapshot frame, SceneBvh bvh, Camera camera, Transformation transformation, Renderer renderer) {
 		update(window, camera.getViewMatrix(), scene);
 		
 		glBindFramebuffer(GL_FRAMEBUFFER, shadowBuffer.getDepthMapFBO());
 		glViewport(0, 0, Config.SHADOW_MAP_WIDTH.<Integer> get(), Config.SHADOW_MAP_HEIGHT.<Integer> get());
-		glClear(GL_DEPTH_BUFFER_BIT);
 		
-		depthShaderProgram.bind();
+		depthQueueVisitor.transformation = transformation;
+		depthQueueVisitor.frame = frame;
+		eliminatedStateChanges = 0;
+		drawnCascades = 0;
+		if (casterSlots.length < frame.getSize()) {
+			casterSlots = new int[frame.getSize()];
+		}
 		
+		int dirtyMask = 0;
 		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
 			ShadowCascade shadowCascade = shadowCascades.get(i);
-			
-			depthShaderProgram.setUniformm4f("orthoProjectionMatrix", shadowCascade.getOrthoProjMatrix());
-			depthShaderProgram.setUniformm4f("lightViewMatrix", shadowCascade.getLightViewMatrix());
-			
-			glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, shadowBuffer.getDepthMapTexture().getIds()[i], 0);
-			glClear(GL_DEPTH_BUFFER_BIT);
-			
-			renderNonInstancedMeshes(scene, transformation);
-			renderInstancedMeshes(scene, transformation);
+			DrawLists lists = cascadeLists[i];
+			if (bvh != null) {
+				drawListBuilder.build(frame, casterSlots, bvh.cull(shadowCascade.getFrustum(), casterSlots), lists);
+			} else {
+				drawListBuilder.buildAll(frame, lists);
+			}
+			long hash = hashCasters(frame, lists);
+			if (drawn[i] && !shadowCascade.isBoundsChanged() && hash == casterHashes[i]) {
+				continue;
+			}
+			drawn[i] = true;
+			casterHashes[i] = hash;
+			drawnCascades++;
+			dirtyMask |= 1 << i;
+		}
+		
+		if (drawnCascades > 1 && layeredDepthShader != null) {
+			renderLayered(frame, dirtyMask, transformation);
+		} else if (drawnCascades > 0) {
+			shader = depthShader;
+			shader.program.bind();
+			for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
+				if ((dirtyMask & 1 << i) == 0) {
+					continue;
+				}
+				ShadowCascade shadowCascade = shadowCascades.get(i);
+				shader.orthoProjectionMatrix.set(shadowCascade.getOrthoProjMatrix());
+				shader.lightViewMatrix.set(shadowCascade.getLightViewMatrix());
+				
+				shadowBuffer.attachLayer(i);
+				glClear(GL_DEPTH_BUFFER_BIT);
+				renderCasters(frame, cascadeLists[i], transformation);
+			}
 		}
 		unbind();
 	}
 	
-	private void renderNonInstancedMeshes(Scene scene, Transformation transformation) {
-		depthShaderProgram.setUniformi("isInstanced", 0);
+	/**
+	 * Clears layers of mask, then draws union of their casters once.
+	 */
+	private void renderLayered(SceneSnapshot frame, int dirtyMask, Transformation transformation) {
+		shader = layeredDepthShader;
+		shader.program.bind();
+		int count = 0;
+		for (int i = 0; i < Config.NUM_SHADOW_CASCADES.<Integer> get(); i++) {
+			if ((dirtyMask & 1 << i) == 0) {
+				continue;
+			}
+			shadowBuffer.attachLayer(i);
+			glClear(GL_DEPTH_BUFFER_BIT);
+			
+			DrawLists lists = cascadeLists[i];
+			for (int g = 0; g < lists.getGroupCount(); g++) {
+				if (layeredSlots.length < count + lists.getCount(g)) {
+					layeredSlots = Arrays.copyOf(layeredSlots, Math.max(count + lists.getCount(g), layeredSlots.length * 2));
+				}
+				System.arraycopy(lists.getSlots(), lists.getStart(g), layeredSlots, count, lists.getCount(g));
+				count += lists.getCount(g);
+			}
+			depthLayerMatrices[i].set(shadowCascades.get(i).getLightProjViewMatrix());
+		}
+		drawListBuilder.build(frame, layeredSlots, count, layeredLists);
 		
-		Map<Mesh, List<Entity>> mapMeshes = scene.getEntityMeshes();
-		for (Mesh mesh : mapMeshes.keySet()) {
-			mesh.renderList(mapMeshes.get(mesh), (Entity gameItem) -> {
-				Matrix4f modelMatrix = transformation.buildModelMatrix(gameItem);
-				depthShaderProgram.setUniformm4f("modelNonInstancedMatrix", modelMatrix);
-			});
+		// vertex shader passes world positions, geometry shader projects them
+		shader.orthoProjectionMatrix.set(IDENTITY);
+		shader.lightViewMatrix.set(IDENTITY);
+		depthLayerMask.set(dirtyMask);
+		shadowBuffer.attachLayers();
+		renderCasters(frame, layeredLists, transformation);
+	}
+	
+	private void renderCasters(SceneSnapshot frame, DrawLists lists, Transformation transformation) {
+		queueNonInstancedMeshes(frame, lists);
+		shader.isInstanced.set(0);
+		depthQueue.submit(depthQueueVisitor);
+		eliminatedStateChanges += depthQueue.getEliminatedStateChanges();
+		renderInstancedMeshes(frame, lists, transformation);
+	}
+	
+	/**
+	 * Hash of meshes and interpolated transforms of casters, equal hash means
+	 * shadow map would be drawn the same.
+	 */
+	private static long hashCasters(SceneSnapshot frame, DrawLists lists) {
+		float[] t = frame.getInterpolated();
+		int[] slots = lists.getSlots();
+		long hash = 1;
+		for (int g = 0; g < lists.getGroupCount(); g++) {
+			hash = 31 * hash + System.identityHashCode(frame.getGroupMesh(g));
+			hash = 31 * hash + lists.getCount(g);
+			for (int i = lists.getStart(g), end = i + lists.getCount(g); i < end; i++) {
+				for (int o = slots[i] * SceneSnapshot.TRANSFORM_SIZE_FLOATS, k = 0; k < SceneSnapshot.TRANSFORM_SIZE_FLOATS; k++) {
+					hash = 31 * hash + Float.floatToIntBits(t[o + k]);
+				}
+			}
 		}
+		return hash;
 	}
 	
-	private void renderInstancedMeshes(Scene scene, Transformation transformation) {
-		depthShaderProgram.setUniformi("isInstanced", 1);
+	/**
+	 * Queues non instanced casters of cascade sorted by mesh.
+	 */
+	private void queueNonInstancedMeshes(SceneSnapshot frame, DrawLists lists) {
+		depthQueue.clear();
+		int[] slots = lists.getSlots();
+		for (int g = 0; g < frame.getGroupCount(); g++) {
+			Mesh mesh = frame.getGroupMesh(g);
+			if (mesh instanceof InstancedMesh) {
+				continue;
+			}
+			long meshKey = depthQueue.key(shader.program, null, null, mesh, 0);
+			for (int i = lists.getStart(g), end = i + lists.getCount(g); i < end; i++) {
+				depthQueue.add(meshKey, mesh, frame.ref(slots[i]));
+			}
+		}
+	}
+	
+	public void resetStats() {
+		eliminatedStateChanges = 0;
+		drawnCascades = 0;
+	}
+	
+	private void renderInstancedMeshes(SceneSnapshot frame, DrawLists lists, Transformation transformation) {
+		shader.isInstanced.set(1);
 		
-		Map<InstancedMesh, List<Entity>> mapMeshes = scene.getGameInstancedMeshes();
-		for (InstancedMesh mesh : mapMeshes.keySet()) {
-			filteredItems.clear();
-			nextId = 0;
-			for (Entity gameItem : mapMeshes.get(mesh)) {
-				if (gameItem.isInsideFrustum()) {
-					filteredItems.put(nextId++, gameItem);
-				}
+		for (int g = 0; g < frame.getGroupCount(); g++) {
+			if (frame.getGroupMesh(g) instanceof InstancedMesh) {
+				((InstancedMesh) frame.getGroupMesh(g)).renderListInstanced(frame, lists.getSlots(), lists.getStart(g), lists.getCount(g), false, transformation, null);
 			}
-			bindTextures(GL_TEXTURE2);
-			
-			mesh.renderListInstanced(filteredItems, transformation, null);
 		}
 	}
 	
 	private void unbind() {
-		depthShaderProgram.unbind();
+		if (shader != null) {
+			shader.program.unbind();
+		}
 		glBindFramebuffer(GL_FRAMEBUFFER, 0);
 	}
 	
@@ -136,8 +287,72 @@ public class ShadowRenderer {
 		if (shadowBuffer != null) {
 			shadowBuffer.cleanup();
 		}
-		if (depthShaderProgram != null) {
-			depthShaderProgram.cleanup();
+		if (depthShader != null) {
+			depthShader.program.cleanup();
+		}
+		if (layeredDepthShader != null) {
+			layeredDepthShader.program.cleanup();
+		}
+	}
+	
+	/**
+	 * Depth program with its uniforms.
+	 */
+	private static class DepthShader {
+		private final ShaderProgram program;
+		private final IntUniform isInstanced;
+		private final Mat4Uniform modelMatrix;
+		private final Mat4Uniform lightViewMatrix;
+		private final Mat4Uniform orthoProjectionMatrix;
+		
+		DepthShader(boolean layered) throws Exception {
+			program = new ShaderProgram();
+			program.createVertexShader(Utils.loadResourceContent("/shaders/depth_vertex.vs"));
+			if (layered) {
+				program.createGeometryShader(Utils.loadResourceContent("/shaders/depth_layered.gs"));
+			}
+			program.createFragmentShader(Utils.loadResourceContent("/shaders/depth_fragment.fs"));
+			program.link();
+			
+			isInstanced = program.createIntUniform("isInstanced");
+			modelMatrix = program.createMat4Uniform("modelNonInstancedMatrix");
+			lightViewMatrix = program.createMat4Uniform("lightViewMatrix");
+			program.createUniform("jointsMatrix");
+			orthoProjectionMatrix = program.createMat4Uniform("orthoProjectionMatrix");
+		}
+	}
+	
+	/**
+	 * Depth pass needs only vertex arrays and model matrices.
+	 */
+	private class DepthQueueVisitor implements RenderQueueVisitor<Mesh, Integer> {
+		private Transformation transformation;
+		private SceneSnapshot frame;
+		
+		@Override
+		public void bindShader(Mesh mesh) {}
+		
+		@Override
+		public void bindMaterial(Mesh mesh) {}
+		
+		@Override
+		public void bindTexture(Mesh mesh) {}
+		
+		@Override
+		public void bindMesh(Mesh mesh) {
+			mesh.bindVertexArray();
+		}
+		
+		@Override
+		public void unbindMesh(Mesh mesh) {
+			mesh.unbindVertexArray();
+		}
+		
+		@Override
+		public void draw(Mesh mesh, Integer slot) {
+			Matrix4f modelMatrix = transformation.buildModelMatrix(frame, slot);
+			shader.modelMatrix.set(modelMatrix);
+			mesh.drawElements();
 		}
 	}
 }
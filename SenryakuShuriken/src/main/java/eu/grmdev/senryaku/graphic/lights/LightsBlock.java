@@ -0,0 +1,111 @@
+package eu.grmdev.senryaku.graphic.lights;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.core.SceneLight;
+
+/**
+ * Writes scene lights in view space into <code>Lights</code> uniform block
+ * (std140 layout) of scene fragment shader:
+ *
+ * <pre>
+ * PointLight pointLights[MAX_POINT_LIGHTS]; // 48 bytes each
+ * SpotLight spotLights[MAX_SPOT_LIGHTS];    // 64 bytes each
+ * DirectionalLight directionalLight;        // 32 bytes
+ * vec3 ambientLight;
+ * float specularPower;
+ * </pre>
+ *
+ * Unused light slots are zeroed.
+ */
+public class LightsBlock {
+	public static final int POINT_LIGHT_SIZE = 48;
+	public static final int SPOT_LIGHT_SIZE = 64;
+	public static final int DIRECTIONAL_LIGHT_SIZE = 32;
+	public static final int POINT_LIGHTS_OFFSET = 0;
+	public static final int SPOT_LIGHTS_OFFSET = POINT_LIGHTS_OFFSET + POINT_LIGHT_SIZE * Config.MAX_POINT_LIGHTS.<Integer> get();
+	public static final int DIRECTIONAL_LIGHT_OFFSET = SPOT_LIGHTS_OFFSET + SPOT_LIGHT_SIZE * Config.MAX_SPOT_LIGHTS.<Integer> get();
+	public static final int AMBIENT_LIGHT_OFFSET = DIRECTIONAL_LIGHT_OFFSET + DIRECTIONAL_LIGHT_SIZE;
+	public static final int SPECULAR_POWER_OFFSET = AMBIENT_LIGHT_OFFSET + 12;
+	public static final int SIZE = AMBIENT_LIGHT_OFFSET + 16;
+	
+	private final Vector4f aux;
+	
+	public LightsBlock() {
+		aux = new Vector4f();
+	}
+	
+	public void pack(ByteBuffer dest, SceneLight sceneLight, float specularPower, Matrix4f viewMatrix) {
+		PointLight[] pointLights = sceneLight.getPointLightList();
+		int numLights = pointLights != null ? Math.min(pointLights.length, Config.MAX_POINT_LIGHTS.<Integer> get()) : 0;
+		for (int i = 0; i < Config.MAX_POINT_LIGHTS.<Integer> get(); i++) {
+			int offset = POINT_LIGHTS_OFFSET + i * POINT_LIGHT_SIZE;
+			if (i < numLights) {
+				putPointLight(dest, offset, pointLights[i], viewMatrix);
+			} else {
+				zero(dest, offset, POINT_LIGHT_SIZE);
+			}
+		}
+		
+		SpotLight[] spotLights = sceneLight.getSpotLightList();
+		numLights = spotLights != null ? Math.min(spotLights.length, Config.MAX_SPOT_LIGHTS.<Integer> get()) : 0;
+		for (int i = 0; i < Config.MAX_SPOT_LIGHTS.<Integer> get(); i++) {
+			int offset = SPOT_LIGHTS_OFFSET + i * SPOT_LIGHT_SIZE;
+			if (i < numLights) {
+				SpotLight spotLight = spotLights[i];
+				putPointLight(dest, offset, spotLight.getPointLight(), viewMatrix);
+				putTransformed(dest, offset + POINT_LIGHT_SIZE, spotLight.getConeDirection(), 0, viewMatrix);
+				dest.putFloat(offset + POINT_LIGHT_SIZE + 12, spotLight.getCutOff());
+			} else {
+				zero(dest, offset, SPOT_LIGHT_SIZE);
+			}
+		}
+		
+		DirectionalLight dirLight = sceneLight.getDirectionalLight();
+		if (dirLight != null) {
+			putVec3(dest, DIRECTIONAL_LIGHT_OFFSET, dirLight.getColor());
+			putTransformed(dest, DIRECTIONAL_LIGHT_OFFSET + 16, dirLight.getDirection(), 0, viewMatrix);
+			dest.putFloat(DIRECTIONAL_LIGHT_OFFSET + 28, dirLight.getIntensity());
+		} else {
+			zero(dest, DIRECTIONAL_LIGHT_OFFSET, DIRECTIONAL_LIGHT_SIZE);
+		}
+		
+		putVec3(dest, AMBIENT_LIGHT_OFFSET, sceneLight.getAmbientLight());
+		dest.putFloat(SPECULAR_POWER_OFFSET, specularPower);
+	}
+	
+	private void putPointLight(ByteBuffer dest, int offset, PointLight light, Matrix4f viewMatrix) {
+		putVec3(dest, offset, light.getColor());
+		putTransformed(dest, offset + 16, light.getPosition(), 1, viewMatrix);
+		dest.putFloat(offset + 28, light.getIntensity());
+		PointLight.Attenuation att = light.getAttenuation();
+		dest.putFloat(offset + 32, att.getConstant());
+		dest.putFloat(offset + 36, att.getLinear());
+		dest.putFloat(offset + 40, att.getExponent());
+		dest.putFloat(offset + 44, 0);
+	}
+	
+	private void putTransformed(ByteBuffer dest, int offset, Vector3f v, float w, Matrix4f viewMatrix) {
+		aux.set(v, w).mul(viewMatrix);
+		dest.putFloat(offset, aux.x);
+		dest.putFloat(offset + 4, aux.y);
+		dest.putFloat(offset + 8, aux.z);
+	}
+	
+	private static void putVec3(ByteBuffer dest, int offset, Vector3f v) {
+		dest.putFloat(offset, v.x);
+		dest.putFloat(offset + 4, v.y);
+		dest.putFloat(offset + 8, v.z);
+	}
+	
+	private static void zero(ByteBuffer dest, int offset, int length) {
+		for (int i = 0; i < length; i += 4) {
+			dest.putInt(offset + i, 0);
+		}
+	}
+}
@@ -1,41 +1,77 @@
 package eu.grmdev.senryaku.graphic.mesh;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.*;
 import static org.lwjgl.opengl.GL14.GL_TEXTURE_COMPARE_MODE;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 
 import java.nio.ByteBuffer;
 
 import lombok.Getter;
 
+/**
+ * Single <code>GL_TEXTURE_2D_ARRAY</code> of equally sized layers, bound
+ * with one call for all of them.
+ */
 public class ArrTexture {
 	@Getter
-	private final int[] ids;
+	private final int id;
 	@Getter
 	private final int width;
 	@Getter
 	private final int height;
+	@Getter
+	private final int layers;
+	private final int pixelFormat;
+	private final int type;
 	
-	public ArrTexture(int numTextures, int width, int height, int pixelFormat) throws Exception {
-		ids = new int[numTextures];
-		glGenTextures(ids);
+	public ArrTexture(int layers, int width, int height, int internalFormat, int pixelFormat, int type) throws Exception {
+		this.id = glGenTextures();
 		this.width = width;
 		this.height = height;
+		this.layers = layers;
+		this.pixelFormat = pixelFormat;
+		this.type = type;
 		
-		for (int i = 0; i < numTextures; i++) {
-			glBindTexture(GL_TEXTURE_2D, ids[i]);
-			glTexImage2D(GL_TEXTURE_2D, 0, GL_DEPTH_COMPONENT, this.width, this.height, 0, pixelFormat, GL_FLOAT, (ByteBuffer) null);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_COMPARE_MODE, GL_NONE);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-		}
+		glBindTexture(GL_TEXTURE_2D_ARRAY, id);
+		glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, internalFormat, this.width, this.height, layers, 0, pixelFormat, type, (ByteBuffer) null);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_COMPARE_MODE, GL_NONE);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+		glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+	}
+	
+	/**
+	 * Replaces pixels of one layer, given in format and type of array.
+	 */
+	public void setLayer(int layer, ByteBuffer pixels) {
+		glBindTexture(GL_TEXTURE_2D_ARRAY, id);
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+		glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1, pixelFormat, type, pixels);
+		glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+	}
+	
+	/**
+	 * Generates mipmaps of all layers and makes them repeat, as material
+	 * textures do.
+	 */
+	public void generateMipmaps() {
+		glBindTexture(GL_TEXTURE_2D_ARRAY, id);
+		glGenerateMipmap(GL_TEXTURE_2D_ARRAY);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_REPEAT);
+		glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_REPEAT);
+		glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+	}
+	
+	public void bind() {
+		glBindTexture(GL_TEXTURE_2D_ARRAY, id);
 	}
 	
 	public void cleanup() {
-		for (int id : ids) {
-			glDeleteTextures(id);
-		}
+		glDeleteTextures(id);
 	}
 }
@@ -0,0 +1,88 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.*;
+
+import lombok.Getter;
+
+/**
+ * Block compressed image with all its mipmaps, uploaded as it is, without
+ * decoding or generating mipmaps at runtime.
+ */
+public class CompressedImage {
+	private final @Getter Format format;
+	private final @Getter int width;
+	private final @Getter int height;
+	/** Level 0 is full size */
+	private final ByteBuffer[] levels;
+	
+	public CompressedImage(Format format, int width, int height, ByteBuffer[] levels) {
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+	}
+	
+	public int getLevels() {
+		return levels.length;
+	}
+	
+	public ByteBuffer getLevel(int level) {
+		return levels[level].duplicate();
+	}
+	
+	public int getLevelWidth(int level) {
+		return Math.max(1, width >> level);
+	}
+	
+	public int getLevelHeight(int level) {
+		return Math.max(1, height >> level);
+	}
+	
+	public long getByteSize() {
+		long size = 0;
+		for (ByteBuffer level : levels) {
+			size += level.remaining();
+		}
+		return size;
+	}
+	
+	/**
+	 * Block formats of 4x4 texels.
+	 */
+	public enum Format {
+		/** Opaque RGB, 8 bytes per block */
+		BC1(8,EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT) ,
+		/** RGB with interpolated alpha, 16 bytes per block */
+		BC3(16,EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT) ,
+		/** High quality RGBA, 16 bytes per block */
+		BC7(16,GL42.GL_COMPRESSED_RGBA_BPTC_UNORM);
+		
+		private final @Getter int blockBytes;
+		private final @Getter int glFormat;
+		/** Set from OpenGL capabilities, images of other formats fall back */
+		private volatile @Getter boolean supported;
+		
+		private Format(int blockBytes, int glFormat) {
+			this.blockBytes = blockBytes;
+			this.glFormat = glFormat;
+		}
+		
+		/**
+		 * @return bytes of image of given size
+		 */
+		public int size(int width, int height) {
+			return ((width + 3) / 4) * ((height + 3) / 4) * blockBytes;
+		}
+		
+		/**
+		 * Render thread, marks formats supported by current context.
+		 */
+		public static void detectSupport(GLCapabilities caps) {
+			BC1.supported = caps.GL_EXT_texture_compression_s3tc;
+			BC3.supported = caps.GL_EXT_texture_compression_s3tc;
+			BC7.supported = caps.OpenGL42 || caps.GL_ARB_texture_compression_bptc;
+		}
+	}
+}
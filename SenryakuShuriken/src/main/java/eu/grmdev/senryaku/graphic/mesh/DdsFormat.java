@@ -0,0 +1,166 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+import eu.grmdev.senryaku.graphic.mesh.CompressedImage.Format;
+
+/**
+ * DirectDraw Surface file (<code>.dds</code>) of {@link CompressedImage},
+ * little endian:
+ *
+ * <pre>
+ * 0   magic "DDS "           4   int header size 124, int flags
+ * 12  int height, width      20  int level 0 size, int depth
+ * 28  int mipmap count       32  11 reserved ints
+ * 76  pixel format: int size 32, int flags FOURCC, fourCC, 5 unused ints
+ * 108 int caps, caps2..4     124 reserved int
+ * 128 if fourCC is "DX10": int DXGI format, dimension 3, 0, array size 1, 0
+ *     levels, largest first, tightly packed 4x4 blocks
+ * </pre>
+ *
+ * BC1 and BC3 use fourCC "DXT1" and "DXT5", BC7 is stored with DXGI format
+ * in extended header.
+ */
+public final class DdsFormat {
+	public static final String EXTENSION = ".dds";
+	private static final int MAGIC = 0x20534444;
+	private static final int HEADER_SIZE = 124;
+	private static final int DX10_HEADER_SIZE = 20;
+	private static final int FLAGS = 0x1 | 0x2 | 0x4 | 0x1000 | 0x20000 | 0x80000;
+	private static final int FLAG_MIPMAP_COUNT = 0x20000;
+	private static final int PIXEL_FORMAT_SIZE = 32;
+	private static final int PIXEL_FORMAT_FOURCC = 0x4;
+	private static final int CAPS = 0x1000 | 0x8 | 0x400000;
+	private static final int FOURCC_DXT1 = fourCC("DXT1");
+	private static final int FOURCC_DXT5 = fourCC("DXT5");
+	private static final int FOURCC_DX10 = fourCC("DX10");
+	private static final int DXGI_BC1_UNORM = 71;
+	private static final int DXGI_BC3_UNORM = 77;
+	private static final int DXGI_BC7_UNORM = 98;
+	private static final int DIMENSION_TEXTURE_2D = 3;
+	
+	private DdsFormat() {}
+	
+	private static int fourCC(String code) {
+		return code.charAt(0) | code.charAt(1) << 8 | code.charAt(2) << 16 | code.charAt(3) << 24;
+	}
+	
+	/**
+	 * @return name of compressed file of image file
+	 */
+	public static String nameOf(String imageFile) {
+		int dot = imageFile.lastIndexOf('.');
+		return (dot > imageFile.lastIndexOf('/') ? imageFile.substring(0, dot) : imageFile) + EXTENSION;
+	}
+	
+	/**
+	 * Reads image from buffer, its levels stay views into it.
+	 *
+	 * @throws IOException
+	 *            when buffer does not hold image of known format
+	 */
+	public static CompressedImage read(ByteBuffer source) throws IOException {
+		ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < 4 + HEADER_SIZE || buffer.getInt() != MAGIC) { throw new IOException("Not a DDS file"); }
+		int start = buffer.position();
+		if (buffer.getInt() != HEADER_SIZE) { throw new IOException("Corrupted DDS header"); }
+		int flags = buffer.getInt();
+		int height = buffer.getInt();
+		int width = buffer.getInt();
+		buffer.position(start + 24);
+		int mipmaps = (flags & FLAG_MIPMAP_COUNT) != 0 ? Math.max(1, buffer.getInt()) : 1;
+		buffer.position(start + 76);
+		buffer.getInt();
+		int pixelFlags = buffer.getInt();
+		int fourCC = buffer.getInt();
+		buffer.position(start + HEADER_SIZE);
+		if (width <= 0 || height <= 0 || mipmaps > 32) { throw new IOException("Corrupted DDS size " + width + "x" + height); }
+		if ((pixelFlags & PIXEL_FORMAT_FOURCC) == 0) { throw new IOException("Uncompressed DDS is not supported"); }
+		
+		Format format;
+		if (fourCC == FOURCC_DXT1) {
+			format = Format.BC1;
+		} else if (fourCC == FOURCC_DXT5) {
+			format = Format.BC3;
+		} else if (fourCC == FOURCC_DX10) {
+			if (buffer.remaining() < DX10_HEADER_SIZE) { throw new IOException("Corrupted DDS header"); }
+			int dxgi = buffer.getInt();
+			buffer.position(buffer.position() + DX10_HEADER_SIZE - 4);
+			format = formatOf(dxgi);
+		} else {
+			throw new IOException("Unsupported DDS format " + Integer.toHexString(fourCC));
+		}
+		
+		ByteBuffer[] levels = new ByteBuffer[mipmaps];
+		for (int i = 0; i < mipmaps; i++) {
+			int size = format.size(Math.max(1, width >> i), Math.max(1, height >> i));
+			if (buffer.remaining() < size) { throw new IOException("DDS file too short for level " + i); }
+			ByteBuffer level = buffer.slice();
+			level.limit(size);
+			levels[i] = level;
+			buffer.position(buffer.position() + size);
+		}
+		return new CompressedImage(format, width, height, levels);
+	}
+	
+	private static Format formatOf(int dxgi) throws IOException {
+		switch (dxgi) {
+			case DXGI_BC1_UNORM :
+				return Format.BC1;
+			case DXGI_BC3_UNORM :
+				return Format.BC3;
+			case DXGI_BC7_UNORM :
+				return Format.BC7;
+			default :
+				throw new IOException("Unsupported DXGI format " + dxgi);
+		}
+	}
+	
+	public static void write(CompressedImage image, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = writeHeader(image);
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			for (int i = 0; i < image.getLevels(); i++) {
+				ByteBuffer level = image.getLevel(i);
+				while (level.hasRemaining()) {
+					channel.write(level);
+				}
+			}
+		}
+	}
+	
+	static ByteBuffer writeHeader(CompressedImage image) {
+		boolean dx10 = image.getFormat() == Format.BC7;
+		ByteBuffer buffer = ByteBuffer.allocate(4 + HEADER_SIZE + (dx10 ? DX10_HEADER_SIZE : 0)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(HEADER_SIZE);
+		buffer.putInt(FLAGS);
+		buffer.putInt(image.getHeight());
+		buffer.putInt(image.getWidth());
+		buffer.putInt(image.getLevel(0).remaining());
+		buffer.putInt(0);
+		buffer.putInt(image.getLevels());
+		buffer.position(4 + 76);
+		buffer.putInt(PIXEL_FORMAT_SIZE);
+		buffer.putInt(PIXEL_FORMAT_FOURCC);
+		buffer.putInt(dx10 ? FOURCC_DX10 : image.getFormat() == Format.BC1 ? FOURCC_DXT1 : FOURCC_DXT5);
+		buffer.position(4 + 108);
+		buffer.putInt(CAPS);
+		buffer.position(4 + HEADER_SIZE);
+		if (dx10) {
+			buffer.putInt(DXGI_BC7_UNORM);
+			buffer.putInt(DIMENSION_TEXTURE_2D);
+			buffer.putInt(0);
+			buffer.putInt(1);
+			buffer.putInt(0);
+		}
+		buffer.clear();
+		return buffer;
+	}
+}
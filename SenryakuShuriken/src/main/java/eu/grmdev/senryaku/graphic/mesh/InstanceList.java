@@ -0,0 +1,57 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import eu.grmdev.senryaku.core.entity.Entity;
+import lombok.Getter;
+
+/**
+ * Reusable flat array of entities submitted to {@link InstancedMesh}. Grows
+ * when needed but never shrinks, so filling it every frame does not produce
+ * garbage.
+ */
+public class InstanceList {
+	private @Getter Entity[] entities;
+	private @Getter int size;
+	
+	public InstanceList(int initialCapacity) {
+		entities = new Entity[Math.max(1, initialCapacity)];
+		size = 0;
+	}
+	
+	public void add(Entity entity) {
+		if (size == entities.length) {
+			entities = Arrays.copyOf(entities, entities.length * 2);
+		}
+		entities[size++] = entity;
+	}
+	
+	/**
+	 * Adds all entities which passed frustum culling
+	 *
+	 * @param source
+	 *           entities of one mesh
+	 */
+	public void addVisible(Collection<Entity> source) {
+		for (Entity entity : source) {
+			if (entity.isInsideFrustum()) {
+				add(entity);
+			}
+		}
+	}
+	
+	public void addAll(Collection<Entity> source) {
+		for (Entity entity : source) {
+			add(entity);
+		}
+	}
+	
+	/**
+	 * Clears list and releases references, capacity stays the same.
+	 */
+	public void clear() {
+		Arrays.fill(entities, 0, size, null);
+		size = 0;
+	}
+}
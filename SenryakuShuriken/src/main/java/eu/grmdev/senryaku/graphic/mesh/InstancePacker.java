@@ -0,0 +1,198 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import org.joml.Matrix4f;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.graphic.Transformation;
+import eu.grmdev.senryaku.graphic.particles.ParticleSnapshot;
+
+/**
+ * Packs per instance data (model matrix, texture atlas offset and selection
+ * flag) into the buffer consumed by {@link InstancedMesh}. Does not touch
+ * OpenGL, so it can be used and measured without a context.
+ */
+public final class InstancePacker {
+	public static final int FLOAT_SIZE_BYTES = 4;
+	public static final int VECTOR4F_SIZE_BYTES = 4 * FLOAT_SIZE_BYTES;
+	public static final int MATRIX_SIZE_FLOATS = 4 * 4;
+	public static final int MATRIX_SIZE_BYTES = MATRIX_SIZE_FLOATS * FLOAT_SIZE_BYTES;
+	public static final int INSTANCE_SIZE_FLOATS = MATRIX_SIZE_FLOATS + 3;
+	public static final int INSTANCE_SIZE_BYTES = INSTANCE_SIZE_FLOATS * FLOAT_SIZE_BYTES;
+	
+	private InstancePacker() {}
+	
+	/**
+	 * Packs <code>count</code> entities starting at <code>from</code> in one
+	 * linear pass.
+	 *
+	 * @param entities
+	 *           flat entity array, only first entries are used
+	 * @param from
+	 *           index of first entity to pack
+	 * @param count
+	 *           number of entities to pack
+	 * @param dest
+	 *           instance data buffer, written with absolute puts from 0
+	 * @param numCols
+	 *           texture atlas columns, 0 when mesh has no texture
+	 * @param numRows
+	 *           texture atlas rows, 0 when mesh has no texture
+	 * @param billBoardView
+	 *           view matrix for billboards or null
+	 * @param transformation
+	 *           used to build model matrices
+	 * @return number of packed instances
+	 */
+	public static int pack(Entity[] entities, int from, int count, FloatBuffer dest, int numCols, int numRows, Matrix4f billBoardView, Transformation transformation) {
+		for (int i = 0; i < count; i++) {
+			packEntity(entities[from + i], i, dest, numCols, numRows, billBoardView, transformation);
+		}
+		return count;
+	}
+	
+	/**
+	 * Packs entities pointed by primitive index list.
+	 *
+	 * @param entities
+	 *           source list
+	 * @param indices
+	 *           indices of entities in source list
+	 * @param from
+	 *           first index in <code>indices</code> to pack
+	 * @param count
+	 *           number of indices to pack
+	 * @see #pack(Entity[], int, int, FloatBuffer, int, int, Matrix4f,
+	 *      Transformation)
+	 * @return number of packed instances
+	 */
+	public static int pack(List<Entity> entities, int[] indices, int from, int count, FloatBuffer dest, int numCols, int numRows, Matrix4f billBoardView, Transformation transformation) {
+		for (int i = 0; i < count; i++) {
+			packEntity(entities.get(indices[from + i]), i, dest, numCols, numRows, billBoardView, transformation);
+		}
+		return count;
+	}
+	
+	/**
+	 * Packs interpolated snapshot slots.
+	 *
+	 * @param slots
+	 *           snapshot slots to pack
+	 * @param from
+	 *           first index in <code>slots</code> to pack
+	 * @param count
+	 *           number of slots to pack
+	 * @see #pack(Entity[], int, int, FloatBuffer, int, int, Matrix4f,
+	 *      Transformation)
+	 * @return number of packed instances
+	 */
+	public static int pack(SceneSnapshot frame, int[] slots, int from, int count, FloatBuffer dest, int numCols, int numRows, Matrix4f billBoardView, Transformation transformation) {
+		int[] textPos = frame.getTextPos();
+		for (int i = 0; i < count; i++) {
+			int slot = slots[from + i];
+			int buffPos = INSTANCE_SIZE_FLOATS * i;
+			Matrix4f modelMatrix = transformation.buildModelMatrix(frame, slot);
+			if (billBoardView != null) {
+				billBoardView.transpose3x3(modelMatrix);
+			}
+			packInstance(modelMatrix, textPos[slot], frame.isSelected(slot), buffPos, dest, numCols, numRows);
+		}
+		return count;
+	}
+	
+	/**
+	 * Packs particles straight from snapshot arrays, model matrix is written
+	 * element by element. Billboards get transposed rotation of view and no
+	 * scale, the same as {@link Entity} billboards, other particles get scale
+	 * only.
+	 *
+	 * @param from
+	 *           index of first particle to pack
+	 * @param count
+	 *           number of particles to pack
+	 * @see #pack(Entity[], int, int, FloatBuffer, int, int, Matrix4f,
+	 *      Transformation)
+	 * @return number of packed instances
+	 */
+	public static int pack(ParticleSnapshot particles, int from, int count, FloatBuffer dest, int numCols, int numRows, Matrix4f billBoardView) {
+		float[] posX = particles.getPosX();
+		float[] posY = particles.getPosY();
+		float[] posZ = particles.getPosZ();
+		float[] scale = particles.getScale();
+		int[] frame = particles.getFrame();
+		boolean atlas = numCols > 0 && numRows > 0;
+		float colStep = atlas ? 1f / numCols : 0;
+		float rowStep = atlas ? 1f / numRows : 0;
+		for (int i = 0; i < count; i++) {
+			int p = from + i;
+			int buffPos = INSTANCE_SIZE_FLOATS * i;
+			if (billBoardView != null) {
+				dest.put(buffPos, billBoardView.m00());
+				dest.put(buffPos + 1, billBoardView.m10());
+				dest.put(buffPos + 2, billBoardView.m20());
+				dest.put(buffPos + 4, billBoardView.m01());
+				dest.put(buffPos + 5, billBoardView.m11());
+				dest.put(buffPos + 6, billBoardView.m21());
+				dest.put(buffPos + 8, billBoardView.m02());
+				dest.put(buffPos + 9, billBoardView.m12());
+				dest.put(buffPos + 10, billBoardView.m22());
+			} else {
+				float s = scale[p];
+				dest.put(buffPos, s);
+				dest.put(buffPos + 1, 0);
+				dest.put(buffPos + 2, 0);
+				dest.put(buffPos + 4, 0);
+				dest.put(buffPos + 5, s);
+				dest.put(buffPos + 6, 0);
+				dest.put(buffPos + 8, 0);
+				dest.put(buffPos + 9, 0);
+				dest.put(buffPos + 10, s);
+			}
+			dest.put(buffPos + 3, 0);
+			dest.put(buffPos + 7, 0);
+			dest.put(buffPos + 11, 0);
+			dest.put(buffPos + 12, posX[p]);
+			dest.put(buffPos + 13, posY[p]);
+			dest.put(buffPos + 14, posZ[p]);
+			dest.put(buffPos + 15, 1);
+			buffPos += MATRIX_SIZE_FLOATS;
+			if (atlas) {
+				int textPos = frame[p];
+				dest.put(buffPos, textPos % numCols * colStep);
+				dest.put(buffPos + 1, textPos / numCols * rowStep);
+			} else {
+				dest.put(buffPos, 0);
+				dest.put(buffPos + 1, 0);
+			}
+			dest.put(buffPos + 2, 0);
+		}
+		return count;
+	}
+	
+	private static void packEntity(Entity entity, int i, FloatBuffer dest, int numCols, int numRows, Matrix4f billBoardView, Transformation transformation) {
+		int buffPos = INSTANCE_SIZE_FLOATS * i;
+		Matrix4f modelMatrix = transformation.buildModelMatrix(entity);
+		if (billBoardView != null) {
+			billBoardView.transpose3x3(modelMatrix);
+		}
+		packInstance(modelMatrix, entity.getTextPos(), entity.isSelected(), buffPos, dest, numCols, numRows);
+	}
+	
+	private static void packInstance(Matrix4f modelMatrix, int textPos, boolean selected, int buffPos, FloatBuffer dest, int numCols, int numRows) {
+		modelMatrix.get(buffPos, dest);
+		buffPos += MATRIX_SIZE_FLOATS;
+		if (numCols > 0 && numRows > 0) {
+			int col = textPos % numCols;
+			int row = textPos / numCols;
+			dest.put(buffPos, (float) col / numCols);
+			dest.put(buffPos + 1, (float) row / numRows);
+		} else {
+			dest.put(buffPos, 0);
+			dest.put(buffPos + 1, 0);
+		}
+		dest.put(buffPos + 2, selected ? 1 : 0);
+	}
+}
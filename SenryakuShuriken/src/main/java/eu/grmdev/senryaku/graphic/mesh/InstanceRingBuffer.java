@@ -0,0 +1,165 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import static eu.grmdev.senryaku.graphic.mesh.InstancePacker.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL44.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Ring of instance data regions in one VBO. Every chunk drawn by
+ * {@link InstancedMesh} gets its own region, so the CPU never writes memory
+ * the GPU may still read. There are {@link #FRAMES_IN_FLIGHT} times as many
+ * regions as uploads done in one frame.
+ * <p>
+ * In {@link InstanceUpload#PERSISTENT} mode regions are written directly
+ * through a persistent, coherent mapping and a fence is placed after each
+ * draw. Region is reused only after its fence is signaled. When persistent
+ * mapping is not supported {@link InstanceUpload#ORPHAN} is used instead.
+ */
+public class InstanceRingBuffer {
+	public static final int FRAMES_IN_FLIGHT = 3;
+	private static final long FENCE_TIMEOUT_NS = 1_000_000L;
+	private static @Getter @Setter InstanceUpload defaultUpload = InstanceUpload.ORPHAN;
+	
+	private final @Getter int vboId;
+	private final int regions;
+	private final int regionFloats;
+	private final long regionBytes;
+	private final @Getter InstanceUpload upload;
+	private final long[] fences;
+	private FloatBuffer[] mappedRegions;
+	private FloatBuffer staging;
+	private int current;
+	
+	/**
+	 * @param vboId
+	 *           buffer that will hold the ring
+	 * @param instancesPerRegion
+	 *           max instances of one draw call
+	 * @param uploadsPerFrame
+	 *           expected number of draw calls per frame
+	 */
+	public InstanceRingBuffer(int vboId, int instancesPerRegion, int uploadsPerFrame) {
+		this.vboId = vboId;
+		this.regions = FRAMES_IN_FLIGHT * Math.max(1, uploadsPerFrame);
+		this.regionFloats = instancesPerRegion * INSTANCE_SIZE_FLOATS;
+		this.regionBytes = (long) regionFloats * FLOAT_SIZE_BYTES;
+		this.fences = new long[regions];
+		this.upload = defaultUpload == InstanceUpload.PERSISTENT && isPersistentSupported() ? InstanceUpload.PERSISTENT : InstanceUpload.ORPHAN;
+		this.current = regions - 1;
+		
+		glBindBuffer(GL_ARRAY_BUFFER, vboId);
+		if (upload == InstanceUpload.PERSISTENT) {
+			int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+			glBufferStorage(GL_ARRAY_BUFFER, regionBytes * regions, flags);
+			ByteBuffer mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0, regionBytes * regions, flags);
+			FloatBuffer all = mapped.asFloatBuffer();
+			mappedRegions = new FloatBuffer[regions];
+			for (int i = 0; i < regions; i++) {
+				all.limit((i + 1) * regionFloats).position(i * regionFloats);
+				mappedRegions[i] = all.slice();
+			}
+		} else {
+			glBufferData(GL_ARRAY_BUFFER, regionBytes * regions, GL_STREAM_DRAW);
+			staging = MemoryUtil.memAllocFloat(regionFloats);
+		}
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+	
+	public static boolean isPersistentSupported() {
+		GLCapabilities caps = GL.getCapabilities();
+		return caps.OpenGL44 || caps.GL_ARB_buffer_storage;
+	}
+	
+	/**
+	 * Moves to next region and waits until GPU stopped reading it.
+	 *
+	 * @return buffer to pack next chunk into, written from index 0
+	 */
+	public FloatBuffer next() {
+		current = (current + 1) % regions;
+		if (upload == InstanceUpload.PERSISTENT) {
+			waitFence(current);
+			return mappedRegions[current];
+		}
+		staging.clear();
+		return staging;
+	}
+	
+	/**
+	 * Makes packed instances of current region visible to GPU. VBO must be
+	 * bound to <code>GL_ARRAY_BUFFER</code>.
+	 *
+	 * @param instances
+	 *           number of packed instances
+	 * @return byte offset of current region in VBO
+	 */
+	public long commit(int instances) {
+		long offset = current * regionBytes;
+		if (upload == InstanceUpload.ORPHAN) {
+			if (current == 0) {
+				glBufferData(GL_ARRAY_BUFFER, regionBytes * regions, GL_STREAM_DRAW);
+			}
+			staging.limit(instances * INSTANCE_SIZE_FLOATS);
+			glBufferSubData(GL_ARRAY_BUFFER, offset, staging);
+		}
+		return offset;
+	}
+	
+	/**
+	 * Guards current region, call after draw call which reads it.
+	 */
+	public void fence() {
+		if (upload == InstanceUpload.PERSISTENT) {
+			fences[current] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+		}
+	}
+	
+	private void waitFence(int region) {
+		long sync = fences[region];
+		if (sync == 0) { return; }
+		int waitFlags = 0;
+		while (true) {
+			int result = glClientWaitSync(sync, waitFlags, FENCE_TIMEOUT_NS);
+			if (result == GL_ALREADY_SIGNALED || result == GL_CONDITION_SATISFIED || result == GL_WAIT_FAILED) {
+				break;
+			}
+			waitFlags = GL_SYNC_FLUSH_COMMANDS_BIT;
+		}
+		glDeleteSync(sync);
+		fences[region] = 0;
+	}
+	
+	/**
+	 * Deletes fences and unmaps buffer. VBO itself is deleted by its mesh.
+	 */
+	public void cleanup() {
+		for (int i = 0; i < regions; i++) {
+			if (fences[i] != 0) {
+				glDeleteSync(fences[i]);
+				fences[i] = 0;
+			}
+		}
+		if (mappedRegions != null) {
+			glBindBuffer(GL_ARRAY_BUFFER, vboId);
+			glUnmapBuffer(GL_ARRAY_BUFFER);
+			glBindBuffer(GL_ARRAY_BUFFER, 0);
+			mappedRegions = null;
+		}
+		if (staging != null) {
+			MemoryUtil.memFree(staging);
+			staging = null;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+/**
+ * Strategy used to stream per instance data to the GPU.
+ */
+public enum InstanceUpload {
+	/**
+	 * Ring of buffer regions mapped once with <code>glBufferStorage</code>
+	 * (OpenGL 4.4 or ARB_buffer_storage), each region guarded by a fence.
+	 */
+	PERSISTENT,
+	/**
+	 * Buffer is orphaned when ring wraps and regions are written with
+	 * <code>glBufferSubData</code>. Works on every OpenGL 3.2 context.
+	 */
+	ORPHAN;
+}
@@ -1,5 +1,6 @@
 package eu.grmdev.senryaku.graphic.mesh;
 
+import static eu.grmdev.senryaku.graphic.mesh.InstancePacker.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
@@ -7,64 +8,71 @@ import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
 import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
 
-import java.nio.FloatBuffer;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.joml.Matrix4f;
-import org.lwjgl.system.MemoryUtil;
 
+import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.core.SceneSnapshot;
 import eu.grmdev.senryaku.core.entity.Entity;
 import eu.grmdev.senryaku.graphic.Transformation;
+import eu.grmdev.senryaku.graphic.particles.ParticleSnapshot;
 
 public class InstancedMesh extends Mesh {
-	private static final int FLOAT_SIZE_BYTES = 4;
-	private static final int VECTOR4F_SIZE_BYTES = 4 * FLOAT_SIZE_BYTES;
-	private static final int MATRIX_SIZE_FLOATS = 4 * 4;
-	private static final int MATRIX_SIZE_BYTES = MATRIX_SIZE_FLOATS * FLOAT_SIZE_BYTES;
-	private static final int INSTANCE_SIZE_BYTES = MATRIX_SIZE_BYTES + FLOAT_SIZE_BYTES * 2 + FLOAT_SIZE_BYTES;
-	private static final int INSTANCE_SIZE_FLOATS = MATRIX_SIZE_FLOATS + 3;
 	private final int numInstances;
 	private final int instanceDataVBO;
-	private FloatBuffer instanceDataBuffer;
+	private final InstanceRingBuffer instanceRing;
+	private final InstanceList mapInstances;
 	
 	public InstancedMesh(float[] positions, float[] textCoords, float[] normals, int[] indices, int numInstances) {
 		super(positions, textCoords, normals, indices, createEmptyIntArray(MAX_WEIGHTS * positions.length / 3, 0), createEmptyFloatArray(MAX_WEIGHTS * positions.length / 3, 0));
 		
 		this.numInstances = numInstances;
+		this.mapInstances = new InstanceList(numInstances);
 		
 		glBindVertexArray(vaoId);
 		
 		instanceDataVBO = glGenBuffers();
 		vboIdList.add(instanceDataVBO);
-		instanceDataBuffer = MemoryUtil.memAllocFloat(numInstances * INSTANCE_SIZE_FLOATS);
+		instanceRing = new InstanceRingBuffer(instanceDataVBO, numInstances, Config.NUM_SHADOW_CASCADES.<Integer> get() + 1);
 		glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
+		setInstanceAttribDivisors();
+		setInstanceAttribPointers(0);
+		
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindVertexArray(0);
+	}
+	
+	/**
+	 * Points instanced attributes at ring region starting at
+	 * <code>offset</code>. VAO and instance VBO must be bound.
+	 */
+	static void setInstanceAttribPointers(long offset) {
 		int start = 5;
-		int strideStart = 0;
+		long strideStart = offset;
 		
 		for (int i = 0; i < 4; i++) {
 			glVertexAttribPointer(start, 4, GL_FLOAT, false, INSTANCE_SIZE_BYTES, strideStart);
-			glVertexAttribDivisor(start, 1);
 			start++;
 			strideStart += VECTOR4F_SIZE_BYTES;
 		}
 		
 		glVertexAttribPointer(start, 2, GL_FLOAT, false, INSTANCE_SIZE_BYTES, strideStart);
-		glVertexAttribDivisor(start, 1);
 		strideStart += FLOAT_SIZE_BYTES * 2;
 		start++;
 		
 		glVertexAttribPointer(start, 1, GL_FLOAT, false, INSTANCE_SIZE_BYTES, strideStart);
-		glVertexAttribDivisor(start, 1);
-		start++;
-		
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindVertexArray(0);
 	}
 	
-	@Override
-	protected void initRender() {
-		super.initRender();
+	static void setInstanceAttribDivisors() {
+		int start = 5;
+		for (int i = 0; i < 4 + 2; i++) {
+			glVertexAttribDivisor(start + i, 1);
+		}
+	}
+	
+	static void enableInstanceAttribs() {
 		int start = 5;
 		int numElements = 4 * 2 + 2;
 		for (int i = 0; i < numElements; i++) {
@@ -72,78 +80,163 @@ public class InstancedMesh extends Mesh {
 		}
 	}
 	
-	@Override
-	protected void endRender() {
+	static void disableInstanceAttribs() {
 		int start = 5;
 		int numElements = 4 * 2 + 2;
 		for (int i = 0; i < numElements; i++) {
 			glDisableVertexAttribArray(start + i);
 		}
+	}
+	
+	@Override
+	protected void initRender() {
+		super.initRender();
+		enableInstanceAttribs();
+	}
+	
+	@Override
+	protected void endRender() {
+		disableInstanceAttribs();
 		super.endRender();
 	}
 	
-	public void renderListInstanced(ConcurrentHashMap<Integer, Entity> entities, Transformation transformation, Matrix4f viewMatrix) {
+	public void renderListInstanced(Map<Integer, Entity> entities, Transformation transformation, Matrix4f viewMatrix) {
 		renderListInstanced(entities, false, transformation, viewMatrix);
 	}
 	
-	public void renderListInstanced(ConcurrentHashMap<Integer, Entity> entities, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+	/**
+	 * Renders all values of map. Values are copied once to reusable flat array,
+	 * prefer {@link #renderListInstanced(Entity[], int, boolean, Transformation, Matrix4f)}
+	 * when entities are already gathered.
+	 */
+	public void renderListInstanced(Map<Integer, Entity> entities, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+		mapInstances.clear();
+		mapInstances.addAll(entities.values());
+		renderListInstanced(mapInstances.getEntities(), mapInstances.getSize(), billBoard, transformation, viewMatrix);
+		mapInstances.clear();
+	}
+	
+	public void renderListInstanced(InstanceList instances, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+		renderListInstanced(instances.getEntities(), instances.getSize(), billBoard, transformation, viewMatrix);
+	}
+	
+	/**
+	 * Renders first <code>count</code> entities of flat array in chunks of
+	 * {@link #numInstances}. Each chunk is packed in one linear pass.
+	 */
+	public void renderListInstanced(Entity[] entities, int count, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+		if (count <= 0) { return; }
 		initRender();
 		
-		int chunkSize = numInstances;
-		int length = entities.size();
-		for (int i = 0; i < length; i += chunkSize) {
-			int end = Math.min(length, i + chunkSize);
-			List<Entity> subList = new ArrayList<>();
-			Iterator<Integer> it = entities.keySet().iterator();
-			for (int j = 0; j < end; j++) {
-				subList.add(entities.get(it.next()));
-			}
-			renderChunkInstanced(subList, billBoard, transformation, viewMatrix);
+		Matrix4f billBoardView = billBoard ? viewMatrix : null;
+		for (int i = 0; i < count; i += numInstances) {
+			int chunk = Math.min(numInstances, count - i);
+			InstancePacker.pack(entities, i, chunk, instanceRing.next(), getAtlasCols(), getAtlasRows(), billBoardView, transformation);
+			renderChunkInstanced(chunk);
 		}
 		
 		endRender();
 	}
 	
-	private void renderChunkInstanced(List<Entity> entities, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
-		this.instanceDataBuffer.clear();
-		int i = 0;
-		Texture text = getMaterial().getTexture();
-		for (Entity entity : entities) {
-			Matrix4f modelMatrix = transformation.buildModelMatrix(entity);
-			if (viewMatrix != null && billBoard) {
-				viewMatrix.transpose3x3(modelMatrix);
-			}
-			modelMatrix.get(INSTANCE_SIZE_FLOATS * i, instanceDataBuffer);
-			if (text != null) {
-				int col = entity.getTextPos() % text.getNumCols();
-				int row = entity.getTextPos() / text.getNumCols();
-				float textXOffset = (float) col / text.getNumCols();
-				float textYOffset = (float) row / text.getNumRows();
-				int buffPos = INSTANCE_SIZE_FLOATS * i + MATRIX_SIZE_FLOATS;
-				this.instanceDataBuffer.put(buffPos, textXOffset);
-				this.instanceDataBuffer.put(buffPos + 1, textYOffset);
-			}
-			
-			int buffPos = INSTANCE_SIZE_FLOATS * i + MATRIX_SIZE_FLOATS + 2;
-			this.instanceDataBuffer.put(buffPos, entity.isSelected() ? 1 : 0);
-			
-			i++;
+	/**
+	 * Renders entities of list pointed by primitive index list.
+	 *
+	 * @param indices
+	 *           indices of entities to render
+	 * @param count
+	 *           number of used indices
+	 */
+	public void renderListInstanced(List<Entity> entities, int[] indices, int count, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+		if (count <= 0) { return; }
+		initRender();
+		
+		Matrix4f billBoardView = billBoard ? viewMatrix : null;
+		for (int i = 0; i < count; i += numInstances) {
+			int chunk = Math.min(numInstances, count - i);
+			InstancePacker.pack(entities, indices, i, chunk, instanceRing.next(), getAtlasCols(), getAtlasRows(), billBoardView, transformation);
+			renderChunkInstanced(chunk);
+		}
+		
+		endRender();
+	}
+	
+	/**
+	 * Renders interpolated transforms of scene snapshot slots.
+	 *
+	 * @param slots
+	 *           snapshot slots to render
+	 * @param count
+	 *           number of used slots
+	 */
+	public void renderListInstanced(SceneSnapshot frame, int[] slots, int count, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+		renderListInstanced(frame, slots, 0, count, billBoard, transformation, viewMatrix);
+	}
+	
+	/**
+	 * Renders <code>count</code> snapshot slots starting at <code>from</code>,
+	 * e.g. one list of {@link eu.grmdev.senryaku.graphic.culling.DrawLists}.
+	 */
+	public void renderListInstanced(SceneSnapshot frame, int[] slots, int from, int count, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+		if (count <= 0) { return; }
+		initRender();
+		
+		Matrix4f billBoardView = billBoard ? viewMatrix : null;
+		for (int i = 0; i < count; i += numInstances) {
+			int chunk = Math.min(numInstances, count - i);
+			InstancePacker.pack(frame, slots, from + i, chunk, instanceRing.next(), getAtlasCols(), getAtlasRows(), billBoardView, transformation);
+			renderChunkInstanced(chunk);
+		}
+		
+		endRender();
+	}
+	
+	/**
+	 * Renders particle snapshot, packed straight from its arrays.
+	 */
+	public void renderListInstanced(ParticleSnapshot particles, boolean billBoard, Matrix4f viewMatrix) {
+		int count = particles.getSize();
+		if (count <= 0) { return; }
+		initRender();
+		
+		Matrix4f billBoardView = billBoard ? viewMatrix : null;
+		for (int i = 0; i < count; i += numInstances) {
+			int chunk = Math.min(numInstances, count - i);
+			InstancePacker.pack(particles, i, chunk, instanceRing.next(), getAtlasCols(), getAtlasRows(), billBoardView);
+			renderChunkInstanced(chunk);
 		}
 		
+		endRender();
+	}
+	
+	private int getAtlasCols() {
+		Texture text = getMaterial().getTexture();
+		return text != null ? text.getNumCols() : 0;
+	}
+	
+	private int getAtlasRows() {
+		Texture text = getMaterial().getTexture();
+		return text != null ? text.getNumRows() : 0;
+	}
+	
+	/**
+	 * Uploads (or just fences in persistent mode) chunk packed into current
+	 * ring region and draws it.
+	 */
+	private void renderChunkInstanced(int instances) {
 		glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
-		glBufferData(GL_ARRAY_BUFFER, instanceDataBuffer, GL_DYNAMIC_READ);
+		long offset = instanceRing.commit(instances);
+		setInstanceAttribPointers(offset);
 		
-		glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, entities.size());
+		glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, instances);
+		instanceRing.fence();
 		
 		glBindBuffer(GL_ARRAY_BUFFER, 0);
 	}
 	
 	@Override
 	public void remove() {
+		if (ResourceManager.getInstance().release(this)) { return; }
+		instanceRing.cleanup();
 		super.remove();
-		if (this.instanceDataBuffer != null) {
-			MemoryUtil.memFree(this.instanceDataBuffer);
-			this.instanceDataBuffer = null;
-		}
 	}
 }
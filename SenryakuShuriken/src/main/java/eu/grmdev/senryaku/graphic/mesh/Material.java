@@ -66,6 +66,17 @@ public class Material {
 		return this.texture != null;
 	}
 	
+	/**
+	 * @return layer of texture in {@link TextureLayers}, -1 when not packed
+	 */
+	public int getLayer() {
+		return texture != null ? texture.getLayer() : -1;
+	}
+	
+	public boolean isLayered() {
+		return getLayer() >= 0;
+	}
+	
 	public boolean hasNormalMap() {
 		return this.normalMap != null;
 	}
@@ -25,6 +25,8 @@ public class Mesh {
 	private @Getter @Setter Material material;
 	private @Getter @Setter float boundingRadius;
 	private @Getter @Setter boolean normalsEnabled;
+	/** Bytes of vertex and index buffers */
+	private @Getter final long byteSize;
 	
 	public Mesh(float[] positions, float[] textCoords, float[] normals, int[] indices) {
 		this(positions, textCoords, normals, indices, createEmptyIntArray(MAX_WEIGHTS * positions.length / 3, 0), createEmptyFloatArray(MAX_WEIGHTS * positions.length / 3, 0));
@@ -42,6 +44,7 @@ public class Mesh {
 			
 			normalsEnabled = true;
 			vertexCount = indices.length;
+			byteSize = 4L * (positions.length + textCoords.length + normals.length + weights.length + jointIndices.length + indices.length);
 			vboIdList = new ArrayList<>();
 			
 			vaoId = glGenVertexArrays();
@@ -164,18 +167,36 @@ public class Mesh {
 	}
 	
 	protected void initRender() {
+		bindTextures();
+		bindVertexArray();
+	}
+	
+	protected void endRender() {
+		unbindVertexArray();
+		
+		glBindTexture(GL_TEXTURE_2D, 0);
+	}
+	
+	/**
+	 * Binds material texture to unit 0 and normal map to unit 1. Layered
+	 * texture is not bound, its array is bound once per frame.
+	 */
+	public void bindTextures() {
 		Texture texture = material != null ? material.getTexture() : null;
-		if (texture != null) {
+		if (texture != null && texture.getLayer() < 0) {
 			glActiveTexture(GL_TEXTURE0);
-			glBindTexture(GL_TEXTURE_2D, texture.getId());
+			texture.bind();
 		}
 		Texture normalMap = material != null ? material.getNormalMap() : null;
 		if (normalMap != null && normalsEnabled) {
 			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
 			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
 			glActiveTexture(GL_TEXTURE1);
-			glBindTexture(GL_TEXTURE_2D, normalMap.getId());
+			normalMap.bind();
 		}
+	}
+	
+	public void bindVertexArray() {
 		glBindVertexArray(getVaoId());
 		glEnableVertexAttribArray(0);
 		glEnableVertexAttribArray(1);
@@ -184,15 +205,20 @@ public class Mesh {
 		glEnableVertexAttribArray(4);
 	}
 	
-	protected void endRender() {
+	public void unbindVertexArray() {
 		glDisableVertexAttribArray(0);
 		glDisableVertexAttribArray(1);
 		glDisableVertexAttribArray(2);
 		glDisableVertexAttribArray(3);
 		glDisableVertexAttribArray(4);
 		glBindVertexArray(0);
-		
-		glBindTexture(GL_TEXTURE_2D, 0);
+	}
+	
+	/**
+	 * Draws mesh once, vertex array must be bound.
+	 */
+	public void drawElements() {
+		glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
 	}
 	
 	protected static float[] createEmptyFloatArray(int length, float defaultValue) {
@@ -207,21 +233,20 @@ public class Mesh {
 		return result;
 	}
 	
+	/**
+	 * Deletes buffers and texture of mesh. Mesh managed by
+	 * {@link ResourceManager} is only released and managed textures are kept,
+	 * as other meshes may share them.
+	 */
 	public void remove() {
-		glDisableVertexAttribArray(0);
-		
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		for (int vboId : vboIdList) {
-			glDeleteBuffers(vboId);
-		}
+		ResourceManager resources = ResourceManager.getInstance();
+		if (resources.release(this)) { return; }
+		deleteBuffers();
 		
-		Texture texture = material.getTexture();
-		if (texture != null) {
+		Texture texture = material != null ? material.getTexture() : null;
+		if (texture != null && !resources.isManaged(texture)) {
 			texture.cleanup();
 		}
-		
-		glBindVertexArray(0);
-		glDeleteVertexArrays(vaoId);
 	}
 	
 	public void deleteBuffers() {
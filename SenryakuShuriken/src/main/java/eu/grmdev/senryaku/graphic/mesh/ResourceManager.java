@@ -0,0 +1,263 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+
+import lombok.Getter;
+
+/**
+ * Owns textures and meshes shared by several users. Users acquire resource
+ * and release it when done. Resources nobody references stay resident, so
+ * that they are hits of next lookup, until resident bytes exceed budget and
+ * {@link #trim(long)} evicts them, least recently used first. A texture is
+ * referenced by every managed mesh using it.
+ * <p>
+ * Lookups may be done on any thread, GPU objects are deleted only by
+ * {@link #trim(long)} and {@link #cleanup()} on render thread.
+ */
+public class ResourceManager {
+	private static ResourceManager INSTANCE;
+	/** Access ordered, so eldest entry is least recently used */
+	private final LinkedHashMap<String, Resource> resources;
+	private final Map<Object, Resource> byValue;
+	/** Incremented by every trim, resources used since last trim are kept */
+	private long frame;
+	private @Getter long hits;
+	private @Getter long misses;
+	private @Getter long evictions;
+	/** Bytes of resident resources, as of last trim */
+	private @Getter long residentBytes;
+	
+	private ResourceManager() {
+		resources = new LinkedHashMap<>(64, 0.75f, true);
+		byValue = new IdentityHashMap<>();
+	}
+	
+	public static synchronized ResourceManager getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new ResourceManager();
+		}
+		return INSTANCE;
+	}
+	
+	/**
+	 * Render thread, deletes all resources of instance, next
+	 * {@link #getInstance()} creates new one with zeroed statistics.
+	 */
+	public static synchronized void destroy() {
+		if (INSTANCE != null) {
+			INSTANCE.cleanup();
+			INSTANCE = null;
+		}
+	}
+	
+	/**
+	 * Texture for meshes created by loader of
+	 * {@link #acquireMeshes(String, Callable)}, it is not referenced until
+	 * those meshes are.
+	 */
+	public synchronized Texture getTexture(String path, int numCols, int numRows) {
+		Resource resource = lookup(path);
+		if (resource == null) {
+			int layer = TextureLayers.getInstance().getLayer(path);
+			Texture texture = layer >= 0 ? Texture.layer(numCols, numRows, layer) : TextureLoader.getInstance().load(path, numCols, numRows);
+			resource = register(path, texture);
+		}
+		return (Texture) resource.value;
+	}
+	
+	public Texture getTexture(String path) {
+		return getTexture(path, 1, 1);
+	}
+	
+	public Texture acquireTexture(String path) {
+		return acquireTexture(path, 1, 1);
+	}
+	
+	/**
+	 * Texture used directly, must be released by {@link #release(Object)}.
+	 */
+	public synchronized Texture acquireTexture(String path, int numCols, int numRows) {
+		Texture texture = getTexture(path, numCols, numRows);
+		byValue.get(texture).refs++;
+		return texture;
+	}
+	
+	/**
+	 * Meshes stored under given key, created by loader when not resident. Each
+	 * of them must be released by {@link #release(Object)}, which
+	 * {@link Mesh#remove()} does.
+	 */
+	public synchronized Mesh[] acquireMeshes(String key, Callable<Mesh[]> loader) throws Exception {
+		Resource resource = lookup(key);
+		if (resource == null) {
+			Mesh[] meshes = loader.call();
+			for (int i = 0; i < meshes.length; i++) {
+				Resource mesh = new Resource(meshes[i]);
+				byValue.put(meshes[i], mesh);
+				Texture texture = meshes[i].getMaterial() != null ? meshes[i].getMaterial().getTexture() : null;
+				if (texture != null && byValue.containsKey(texture)) {
+					mesh.texture = texture;
+					byValue.get(texture).refs++;
+				}
+			}
+			resource = register(key, meshes);
+		}
+		Mesh[] meshes = (Mesh[]) resource.value;
+		for (Mesh mesh : meshes) {
+			Resource r = byValue.get(mesh);
+			r.refs++;
+			r.usedFrame = frame;
+		}
+		return meshes;
+	}
+	
+	/**
+	 * Drops one reference of managed resource, it stays resident until
+	 * evicted. Releasing unreferenced resource does nothing.
+	 *
+	 * @return false when resource is not managed
+	 */
+	public synchronized boolean release(Object value) {
+		Resource resource = byValue.get(value);
+		if (resource == null) { return false; }
+		if (resource.refs > 0) {
+			resource.refs--;
+		}
+		return true;
+	}
+	
+	public synchronized boolean isManaged(Object value) {
+		return byValue.containsKey(value);
+	}
+	
+	/**
+	 * @return fraction of lookups which found resident resource
+	 */
+	public synchronized float getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (float) hits / lookups;
+	}
+	
+	public synchronized int getResidentCount() {
+		return byValue.size();
+	}
+	
+	/**
+	 * Render thread, evicts unreferenced resources, least recently used first,
+	 * until resident bytes fit budget. Resources used since last trim are not
+	 * evicted.
+	 */
+	public synchronized void trim(long budgetBytes) {
+		residentBytes = 0;
+		for (Resource resource : byValue.values()) {
+			// textures grow when their image is uploaded
+			resource.bytes = resource.value instanceof Texture ? ((Texture) resource.value).getByteSize() : ((Mesh) resource.value).getByteSize();
+			residentBytes += resource.bytes;
+		}
+		// evicted meshes release their textures, so they are tried again
+		for (boolean evicted = true; evicted && residentBytes > budgetBytes;) {
+			evicted = false;
+			for (Iterator<Resource> it = resources.values().iterator(); it.hasNext() && residentBytes > budgetBytes;) {
+				Resource resource = it.next();
+				if (isEvictable(resource)) {
+					it.remove();
+					evict(resource);
+					evicted = true;
+				}
+			}
+		}
+		frame++;
+	}
+	
+	/**
+	 * Render thread, deletes all resources.
+	 */
+	public synchronized void cleanup() {
+		for (Resource resource : resources.values()) {
+			if (resource.value instanceof Mesh[]) {
+				for (Mesh mesh : (Mesh[]) resource.value) {
+					byValue.remove(mesh);
+					mesh.remove();
+				}
+			}
+		}
+		for (Object texture : byValue.keySet()) {
+			((Texture) texture).cleanup();
+		}
+		resources.clear();
+		byValue.clear();
+		residentBytes = 0;
+	}
+	
+	private Resource lookup(String key) {
+		Resource resource = resources.get(key);
+		if (resource == null) {
+			misses++;
+		} else {
+			hits++;
+			resource.usedFrame = frame;
+		}
+		return resource;
+	}
+	
+	/**
+	 * Meshes are registered also one by one, only by value.
+	 */
+	private Resource register(String key, Object value) {
+		Resource resource = new Resource(value);
+		resource.usedFrame = frame;
+		resources.put(key, resource);
+		if (value instanceof Texture) {
+			byValue.put(value, resource);
+		}
+		return resource;
+	}
+	
+	/**
+	 * A mesh group is evictable when all of its meshes are.
+	 */
+	private boolean isEvictable(Resource resource) {
+		if (resource.usedFrame == frame) { return false; }
+		if (resource.value instanceof Mesh[]) {
+			for (Mesh mesh : (Mesh[]) resource.value) {
+				Resource r = byValue.get(mesh);
+				if (r.refs > 0 || r.usedFrame == frame) { return false; }
+			}
+			return true;
+		}
+		return resource.refs == 0;
+	}
+	
+	private void evict(Resource resource) {
+		if (resource.value instanceof Mesh[]) {
+			for (Mesh mesh : (Mesh[]) resource.value) {
+				Resource r = byValue.remove(mesh);
+				residentBytes -= r.bytes;
+				// unmanaged now, removing deletes buffers and unshared texture
+				mesh.remove();
+				if (r.texture != null) {
+					release(r.texture);
+				}
+			}
+		} else {
+			byValue.remove(resource.value);
+			residentBytes -= resource.bytes;
+			((Texture) resource.value).cleanup();
+		}
+		evictions++;
+	}
+	
+	private static class Resource {
+		private final Object value;
+		private int refs;
+		private long bytes;
+		private long usedFrame;
+		/** Managed texture referenced by mesh */
+		private Texture texture;
+		
+		private Resource(Object value) {
+			this.value = value;
+		}
+	}
+}
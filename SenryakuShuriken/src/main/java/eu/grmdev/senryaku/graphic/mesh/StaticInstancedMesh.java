@@ -0,0 +1,79 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import static eu.grmdev.senryaku.graphic.mesh.InstancePacker.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+
+import java.nio.FloatBuffer;
+
+import lombok.Getter;
+
+/**
+ * Mesh drawn with per instance data uploaded once, e.g. terrain tiles.
+ * Instance data uses {@link InstancePacker} layout. Any contiguous range of
+ * instances can be drawn with one instanced draw call.
+ */
+public class StaticInstancedMesh extends Mesh {
+	private static final int SELECTED_OFFSET_BYTES = (MATRIX_SIZE_FLOATS + 2) * FLOAT_SIZE_BYTES;
+	private final int instanceDataVBO;
+	private final @Getter int numInstances;
+	private final float[] selectedValue;
+	
+	/**
+	 * @param instanceData
+	 *           packed data of all instances, from position to limit
+	 */
+	public StaticInstancedMesh(float[] positions, float[] textCoords, float[] normals, int[] indices, FloatBuffer instanceData) {
+		super(positions, textCoords, normals, indices);
+		numInstances = instanceData.remaining() / INSTANCE_SIZE_FLOATS;
+		selectedValue = new float[1];
+		
+		glBindVertexArray(vaoId);
+		instanceDataVBO = glGenBuffers();
+		vboIdList.add(instanceDataVBO);
+		glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
+		glBufferData(GL_ARRAY_BUFFER, instanceData, GL_STATIC_DRAW);
+		InstancedMesh.setInstanceAttribDivisors();
+		InstancedMesh.setInstanceAttribPointers(0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindVertexArray(0);
+	}
+	
+	/**
+	 * Draws <code>count</code> instances starting at <code>first</code> with
+	 * current material.
+	 */
+	public void renderRange(int first, int count) {
+		if (count <= 0) { return; }
+		initRender();
+		InstancedMesh.enableInstanceAttribs();
+		glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
+		InstancedMesh.setInstanceAttribPointers((long) first * INSTANCE_SIZE_BYTES);
+		
+		glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, count);
+		
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		InstancedMesh.disableInstanceAttribs();
+		endRender();
+	}
+	
+	/**
+	 * Updates selection flag of one instance in place.
+	 */
+	public void setSelected(int instance, boolean selected) {
+		selectedValue[0] = selected ? 1 : 0;
+		glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
+		glBufferSubData(GL_ARRAY_BUFFER, (long) instance * INSTANCE_SIZE_BYTES + SELECTED_OFFSET_BYTES, selectedValue);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+	
+	/**
+	 * Deletes buffers only, material textures are shared with other meshes.
+	 */
+	@Override
+	public void remove() {
+		deleteBuffers();
+	}
+}
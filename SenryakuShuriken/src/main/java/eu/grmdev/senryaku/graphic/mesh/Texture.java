@@ -1,9 +1,10 @@
 package eu.grmdev.senryaku.graphic.mesh;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL13.glCompressedTexImage2D;
 import static org.lwjgl.opengl.GL30.glGenerateMipmap;
-import static org.lwjgl.stb.STBImage.stbi_load_from_memory;
+import static org.lwjgl.stb.STBImage.*;
 import static org.lwjgl.system.MemoryStack.stackPush;
 
 import java.io.IOException;
@@ -16,16 +17,27 @@ import eu.grmdev.senryaku.core.misc.Utils;
 import lombok.Getter;
 
 public class Texture {
+	/** Opaque mid grey pixel shown until asynchronous load completes */
+	private static final int PLACEHOLDER_RGBA = 0xff808080;
+	/** 0 until created on render thread */
 	@Getter
-	private final int id;
+	private int id;
 	@Getter
-	private final int width;
+	private int width;
 	@Getter
-	private final int height;
+	private int height;
+	/** Image is uploaded, false while placeholder is shown */
+	@Getter
+	private volatile boolean loaded;
 	@Getter
 	private int numRows = 1;
 	@Getter
 	private int numCols = 1;
+	/** Layer in {@link TextureLayers}, -1 when texture has own image */
+	@Getter
+	private int layer = -1;
+	/** Bytes of uploaded compressed image, 0 for RGBA image */
+	private long compressedBytes;
 	
 	/**
 	 * Creates an empty texture.
@@ -48,6 +60,28 @@ public class Texture {
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+		loaded = true;
+	}
+	
+	/**
+	 * Texture to be loaded by {@link TextureLoader}, may be created on any
+	 * thread.
+	 */
+	Texture(int numCols, int numRows) {
+		this.width = 1;
+		this.height = 1;
+		this.numCols = numCols;
+		this.numRows = numRows;
+	}
+	
+	/**
+	 * Describes layer of {@link TextureLayers}, has no image of its own.
+	 */
+	static Texture layer(int numCols, int numRows, int layer) {
+		Texture texture = new Texture(numCols, numRows);
+		texture.layer = layer;
+		texture.loaded = true;
+		return texture;
 	}
 	
 	public Texture(String fileName, int numCols, int numRows) throws Exception {
@@ -68,27 +102,89 @@ public class Texture {
 			
 			ByteBuffer decodedImage = stbi_load_from_memory(imageData, w, h, avChannels, 4);
 			
-			this.width = w.get();
-			this.height = h.get();
-			
-			this.id = glGenTextures();
-			glBindTexture(GL_TEXTURE_2D, this.id);
-			
-			// Tell OpenGL how to unpack the RGBA bytes
-			glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
-			
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-			glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, this.width, this.height, 0, GL_RGBA, GL_UNSIGNED_BYTE, decodedImage);
-			glGenerateMipmap(GL_TEXTURE_2D);
+			create();
+			upload(w.get(), h.get(), decodedImage);
+			stbi_image_free(decodedImage);
 		}
 	}
 	
+	/**
+	 * Render thread, creates texture object holding placeholder pixel, if not
+	 * created yet.
+	 */
+	void create() {
+		if (id != 0) { return; }
+		this.id = glGenTextures();
+		glBindTexture(GL_TEXTURE_2D, this.id);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE, new int[]{PLACEHOLDER_RGBA});
+	}
+	
+	/**
+	 * Render thread, replaces image of texture with RGBA pixels.
+	 */
+	void upload(int width, int height, ByteBuffer pixels) {
+		bindForUpload(width, height);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, this.width, this.height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+		finishUpload();
+	}
+	
+	/**
+	 * Render thread, replaces image of texture with RGBA pixels of buffer bound
+	 * to <code>GL_PIXEL_UNPACK_BUFFER</code>.
+	 */
+	void upload(int width, int height, long pixelBufferOffset) {
+		bindForUpload(width, height);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, this.width, this.height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixelBufferOffset);
+		finishUpload();
+	}
+	
+	/**
+	 * Render thread, replaces image of texture with compressed image and its
+	 * precomputed mipmaps.
+	 */
+	void upload(CompressedImage image) {
+		bindForUpload(image.getWidth(), image.getHeight());
+		for (int level = 0; level < image.getLevels(); level++) {
+			glCompressedTexImage2D(GL_TEXTURE_2D, level, image.getFormat().getGlFormat(), image.getLevelWidth(level), image.getLevelHeight(level), 0, image.getLevel(level));
+		}
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, image.getLevels() - 1);
+		compressedBytes = image.getByteSize();
+		loaded = true;
+	}
+	
+	private void bindForUpload(int width, int height) {
+		create();
+		this.width = width;
+		this.height = height;
+		glBindTexture(GL_TEXTURE_2D, this.id);
+		// Tell OpenGL how to unpack the RGBA bytes
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+	}
+	
+	private void finishUpload() {
+		glGenerateMipmap(GL_TEXTURE_2D);
+		loaded = true;
+	}
+	
+	/**
+	 * @return bytes of image with its mipmaps
+	 */
+	public long getByteSize() {
+		if (layer >= 0) { return 0; }
+		if (compressedBytes > 0) { return compressedBytes; }
+		return (long) width * height * 4 * 4 / 3;
+	}
+	
 	public void bind() {
+		create();
 		glBindTexture(GL_TEXTURE_2D, id);
 	}
 	
 	public void cleanup() {
+		// layers and textures not created yet have no texture object
+		if (id == 0) { return; }
 		glDeleteTextures(id);
 	}
 }
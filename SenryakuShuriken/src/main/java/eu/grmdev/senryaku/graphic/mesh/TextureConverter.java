@@ -0,0 +1,246 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.lwjgl.BufferUtils;
+
+import eu.grmdev.senryaku.graphic.mesh.CompressedImage.Format;
+import eu.grmdev.senryaku.graphic.mesh.TextureLoader.Image;
+
+/**
+ * Converts images to {@link DdsFormat} with box filtered mipmaps. Usage:
+ * <code>TextureConverter &lt;output dir&gt; &lt;textures dir&gt;</code>, each
+ * <code>dir/name.png</code> is written as <code>output dir/dir/name.dds</code>.
+ * Opaque images are encoded as BC1, others as BC3. BC7 files made by other
+ * tools are loaded, but not written.
+ */
+public class TextureConverter {
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.err.println("Usage: TextureConverter <output dir> <textures dir>");
+			System.exit(1);
+		}
+		Path outDir = Paths.get(args[0]);
+		Path texturesDir = Paths.get(args[1]);
+		List<Path> images;
+		try (Stream<Path> files = Files.walk(texturesDir)) {
+			images = files.filter(TextureConverter::isImage).collect(Collectors.toList());
+		}
+		for (Path image : images) {
+			Path out = outDir.resolve(DdsFormat.nameOf(texturesDir.relativize(image).toString().replace('\\', '/')));
+			Files.createDirectories(out.getParent());
+			convert(image, out);
+		}
+	}
+	
+	private static boolean isImage(Path path) {
+		String name = path.getFileName().toString().toLowerCase();
+		return Files.isRegularFile(path) && (name.endsWith(".png") || name.endsWith(".jpg"));
+	}
+	
+	/**
+	 * @return written compressed image file
+	 */
+	public static Path convert(Path imageFile, Path out) throws Exception {
+		byte[] bytes = Files.readAllBytes(imageFile);
+		ByteBuffer data = BufferUtils.createByteBuffer(bytes.length);
+		data.put(bytes).flip();
+		Image image = TextureLoader.decode(null, data);
+		try {
+			DdsFormat.write(compress(image.getPixels(), image.getWidth(), image.getHeight()), out);
+		}
+		finally {
+			image.free();
+		}
+		System.out.println("Converted " + imageFile + " -> " + out);
+		return out;
+	}
+	
+	/**
+	 * Compresses RGBA pixels and their mipmaps down to 1x1.
+	 */
+	public static CompressedImage compress(ByteBuffer rgba, int width, int height) {
+		Format format = isOpaque(rgba, width, height) ? Format.BC1 : Format.BC3;
+		int count = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+		ByteBuffer[] levels = new ByteBuffer[count];
+		ByteBuffer pixels = rgba;
+		for (int level = 0; level < count; level++) {
+			int w = Math.max(1, width >> level);
+			int h = Math.max(1, height >> level);
+			if (level > 0) {
+				pixels = downsample(pixels, Math.max(1, width >> level - 1), Math.max(1, height >> level - 1));
+			}
+			levels[level] = encode(format, pixels, w, h);
+		}
+		return new CompressedImage(format, width, height, levels);
+	}
+	
+	private static boolean isOpaque(ByteBuffer rgba, int width, int height) {
+		for (int i = 0; i < width * height; i++) {
+			if (rgba.get(i * 4 + 3) != (byte) 0xff) { return false; }
+		}
+		return true;
+	}
+	
+	/**
+	 * Averages 2x2 texels, odd edge texels are repeated.
+	 */
+	static ByteBuffer downsample(ByteBuffer src, int width, int height) {
+		int w = Math.max(1, width / 2);
+		int h = Math.max(1, height / 2);
+		ByteBuffer dst = ByteBuffer.allocate(w * h * 4);
+		for (int y = 0; y < h; y++) {
+			int y0 = Math.min(y * 2, height - 1);
+			int y1 = Math.min(y * 2 + 1, height - 1);
+			for (int x = 0; x < w; x++) {
+				int x0 = Math.min(x * 2, width - 1);
+				int x1 = Math.min(x * 2 + 1, width - 1);
+				for (int c = 0; c < 4; c++) {
+					int sum = (src.get((y0 * width + x0) * 4 + c) & 0xff) + (src.get((y0 * width + x1) * 4 + c) & 0xff)
+						+ (src.get((y1 * width + x0) * 4 + c) & 0xff) + (src.get((y1 * width + x1) * 4 + c) & 0xff);
+					dst.put((y * w + x) * 4 + c, (byte) ((sum + 2) / 4));
+				}
+			}
+		}
+		return dst;
+	}
+	
+	/**
+	 * Encodes level in blocks of 4x4 texels, texels outside of it repeat edge.
+	 */
+	private static ByteBuffer encode(Format format, ByteBuffer pixels, int width, int height) {
+		ByteBuffer texels = pixels.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer out = ByteBuffer.allocate(format.size(width, height)).order(ByteOrder.LITTLE_ENDIAN);
+		int[] block = new int[16];
+		for (int by = 0; by < height; by += 4) {
+			for (int bx = 0; bx < width; bx += 4) {
+				for (int i = 0; i < 16; i++) {
+					int x = Math.min(bx + i % 4, width - 1);
+					int y = Math.min(by + i / 4, height - 1);
+					block[i] = texels.getInt((y * width + x) * 4);
+				}
+				if (format == Format.BC3) {
+					encodeAlphaBlock(block, out);
+				}
+				encodeColorBlock(block, out);
+			}
+		}
+		out.flip();
+		return out;
+	}
+	
+	private static int channel(int rgba, int c) {
+		return rgba >>> c * 8 & 0xff;
+	}
+	
+	/**
+	 * Writes 8 byte color block of texels packed as little endian RGBA. Colors
+	 * are interpolated between inset corners of their bounding box.
+	 */
+	static void encodeColorBlock(int[] block, ByteBuffer out) {
+		int[] min = {255, 255, 255};
+		int[] max = {0, 0, 0};
+		for (int texel : block) {
+			for (int c = 0; c < 3; c++) {
+				min[c] = Math.min(min[c], channel(texel, c));
+				max[c] = Math.max(max[c], channel(texel, c));
+			}
+		}
+		for (int c = 0; c < 3; c++) {
+			int inset = (max[c] - min[c]) >> 4;
+			min[c] += inset;
+			max[c] -= inset;
+		}
+		int color0 = to565(max);
+		int color1 = to565(min);
+		// color0 > color1 selects 4 color mode in BC1
+		if (color0 < color1) {
+			int swap = color0;
+			color0 = color1;
+			color1 = swap;
+		}
+		int indices = 0;
+		if (color0 != color1) {
+			int[][] palette = new int[4][];
+			palette[0] = from565(color0);
+			palette[1] = from565(color1);
+			palette[2] = new int[3];
+			palette[3] = new int[3];
+			for (int c = 0; c < 3; c++) {
+				palette[2][c] = (2 * palette[0][c] + palette[1][c]) / 3;
+				palette[3][c] = (palette[0][c] + 2 * palette[1][c]) / 3;
+			}
+			for (int i = 0; i < 16; i++) {
+				int best = 0;
+				int bestError = Integer.MAX_VALUE;
+				for (int p = 0; p < 4; p++) {
+					int error = 0;
+					for (int c = 0; c < 3; c++) {
+						int d = channel(block[i], c) - palette[p][c];
+						error += d * d;
+					}
+					if (error < bestError) {
+						bestError = error;
+						best = p;
+					}
+				}
+				indices |= best << i * 2;
+			}
+		}
+		out.putShort((short) color0);
+		out.putShort((short) color1);
+		out.putInt(indices);
+	}
+	
+	/**
+	 * Writes 8 byte alpha block of BC3, alpha is interpolated in 8 steps between
+	 * its maximum and minimum.
+	 */
+	static void encodeAlphaBlock(int[] block, ByteBuffer out) {
+		int alpha0 = 0;
+		int alpha1 = 255;
+		for (int texel : block) {
+			alpha0 = Math.max(alpha0, channel(texel, 3));
+			alpha1 = Math.min(alpha1, channel(texel, 3));
+		}
+		long indices = 0;
+		if (alpha0 != alpha1) {
+			int[] palette = new int[8];
+			palette[0] = alpha0;
+			palette[1] = alpha1;
+			for (int p = 2; p < 8; p++) {
+				palette[p] = ((8 - p) * alpha0 + (p - 1) * alpha1) / 7;
+			}
+			for (int i = 0; i < 16; i++) {
+				int best = 0;
+				for (int p = 1; p < 8; p++) {
+					if (Math.abs(channel(block[i], 3) - palette[p]) < Math.abs(channel(block[i], 3) - palette[best])) {
+						best = p;
+					}
+				}
+				indices |= (long) best << i * 3;
+			}
+		}
+		out.put((byte) alpha0);
+		out.put((byte) alpha1);
+		for (int i = 0; i < 6; i++) {
+			out.put((byte) (indices >>> i * 8));
+		}
+	}
+	
+	private static int to565(int[] rgb) {
+		return (rgb[0] * 31 + 127) / 255 << 11 | (rgb[1] * 63 + 127) / 255 << 5 | (rgb[2] * 31 + 127) / 255;
+	}
+	
+	private static int[] from565(int color) {
+		int r = color >> 11 & 0x1f;
+		int g = color >> 5 & 0x3f;
+		int b = color & 0x1f;
+		return new int[]{r << 3 | r >> 2, g << 2 | g >> 4, b << 3 | b >> 2};
+	}
+}
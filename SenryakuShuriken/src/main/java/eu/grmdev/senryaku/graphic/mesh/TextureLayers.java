@@ -0,0 +1,154 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.core.misc.Utils;
+import eu.grmdev.senryaku.graphic.mesh.TextureLoader.Image;
+import lombok.Getter;
+
+/**
+ * Material textures packed into layers of one texture array, so that they
+ * are bound once per frame. Textures listed in manifest are decoded at
+ * startup and scaled to common layer size. {@link Texture} of a packed path
+ * only describes its layer, see {@link Material#getLayer()}.
+ */
+public class TextureLayers {
+	public static final String MANIFEST = "/textures/layers.txt";
+	private static TextureLayers INSTANCE;
+	private final Map<String, Integer> layers;
+	private @Getter ArrTexture array;
+	
+	private TextureLayers() {
+		layers = new ConcurrentHashMap<>();
+	}
+	
+	public static synchronized TextureLayers getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new TextureLayers();
+		}
+		return INSTANCE;
+	}
+	
+	/**
+	 * Render thread, decodes textures listed in manifest on worker threads and
+	 * uploads them as layers of given size. Textures which cannot be loaded are
+	 * left out.
+	 */
+	public void build(String manifest, int size) throws Exception {
+		List<String> paths = readManifest(manifest);
+		List<Callable<ByteBuffer>> tasks = new ArrayList<>();
+		for (String path : paths) {
+			tasks.add(() -> {
+				Image image = TextureLoader.decode(null, Utils.ioResourceToByteBuffer(path, false, 1024));
+				try {
+					return scale(image.getPixels(), image.getWidth(), image.getHeight(), size);
+				}
+				finally {
+					image.free();
+				}
+			});
+		}
+		List<Future<ByteBuffer>> scaled = ForkJoinPool.commonPool().invokeAll(tasks);
+		
+		List<ByteBuffer> pixels = new ArrayList<>();
+		for (int i = 0; i < paths.size(); i++) {
+			try {
+				pixels.add(scaled.get(i).get());
+				layers.put(paths.get(i), pixels.size() - 1);
+			}
+			catch (ExecutionException e) {
+				System.err.println("Cannot load texture layer " + paths.get(i) + ": " + e.getCause().getMessage());
+			}
+		}
+		if (pixels.isEmpty()) { return; }
+		array = new ArrTexture(pixels.size(), size, size, GL_RGBA8, GL_RGBA, GL_UNSIGNED_BYTE);
+		for (int i = 0; i < pixels.size(); i++) {
+			array.setLayer(i, pixels.get(i));
+			MemoryUtil.memFree(pixels.get(i));
+		}
+		array.generateMipmaps();
+	}
+	
+	/**
+	 * @return paths listed in manifest, one per line, <code>#</code> starts a
+	 *         comment
+	 */
+	public static List<String> readManifest(String manifest) throws Exception {
+		List<String> paths = new ArrayList<>();
+		for (String line : Utils.readAllLines(manifest)) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				paths.add(normalize(line));
+			}
+		}
+		return paths;
+	}
+	
+	/**
+	 * Model materials may name textures with backslashes.
+	 */
+	private static String normalize(String path) {
+		return path.replace('\\', '/').replaceAll("/+", "/");
+	}
+	
+	/**
+	 * @return layer of texture or -1 when it is not packed
+	 */
+	public int getLayer(String path) {
+		Integer layer = layers.get(normalize(path));
+		return layer != null ? layer : -1;
+	}
+	
+	/**
+	 * Bilinear scaling of RGBA pixels to square image, which must be freed with
+	 * {@link MemoryUtil#memFree(java.nio.Buffer)}.
+	 */
+	public static ByteBuffer scale(ByteBuffer src, int width, int height, int size) {
+		ByteBuffer dst = MemoryUtil.memAlloc(size * size * 4);
+		float sx = (float) width / size;
+		float sy = (float) height / size;
+		for (int y = 0; y < size; y++) {
+			float fy = Math.max(0, (y + 0.5f) * sy - 0.5f);
+			int y0 = Math.min((int) fy, height - 1);
+			int y1 = Math.min(y0 + 1, height - 1);
+			float ty = fy - y0;
+			for (int x = 0; x < size; x++) {
+				float fx = Math.max(0, (x + 0.5f) * sx - 0.5f);
+				int x0 = Math.min((int) fx, width - 1);
+				int x1 = Math.min(x0 + 1, width - 1);
+				float tx = fx - x0;
+				for (int c = 0; c < 4; c++) {
+					float a = (src.get((y0 * width + x0) * 4 + c) & 0xff) * (1 - tx) + (src.get((y0 * width + x1) * 4 + c) & 0xff) * tx;
+					float b = (src.get((y1 * width + x0) * 4 + c) & 0xff) * (1 - tx) + (src.get((y1 * width + x1) * 4 + c) & 0xff) * tx;
+					dst.put((y * size + x) * 4 + c, (byte) Math.round(a * (1 - ty) + b * ty));
+				}
+			}
+		}
+		return dst;
+	}
+	
+	/**
+	 * Binds array to given texture unit, unit 0 is active again after that.
+	 */
+	public void bind(int unit) {
+		if (array == null) { return; }
+		glActiveTexture(unit);
+		array.bind();
+		glActiveTexture(GL_TEXTURE0);
+	}
+	
+	public void cleanup() {
+		if (array != null) {
+			array.cleanup();
+			array = null;
+		}
+		layers.clear();
+	}
+}
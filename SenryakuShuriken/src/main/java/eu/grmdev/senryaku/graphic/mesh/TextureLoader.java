@@ -0,0 +1,232 @@
+package eu.grmdev.senryaku.graphic.mesh;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryStack.stackPush;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.core.misc.Utils;
+import lombok.Getter;
+
+/**
+ * Loads textures without stalling render thread. Files are read and decoded
+ * on worker threads, render thread creates texture objects and uploads
+ * decoded images through pixel buffers in {@link #update(long)}, within a
+ * time budget per frame. Until then textures show a placeholder pixel.
+ * <p>
+ * Compressed image with precomputed mipmaps, stored next to image file by
+ * {@link TextureConverter}, is preferred when GPU supports its format.
+ */
+public class TextureLoader {
+	/** Pixel buffers used in turn, so that a new upload does not wait on last */
+	private static final int PIXEL_BUFFERS = 2;
+	private static TextureLoader INSTANCE;
+	private final ExecutorService workers;
+	/** Textures which still need texture object */
+	private final Queue<Texture> created;
+	private final Queue<Image> decoded;
+	private final AtomicInteger pending;
+	private int[] pixelBuffers;
+	private int nextPixelBuffer;
+	/** Images uploaded by last update */
+	private @Getter int uploaded;
+	
+	private TextureLoader(int threads) {
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "TEXTURE_LOADER_THREAD");
+			thread.setDaemon(true);
+			return thread;
+		});
+		created = new ConcurrentLinkedQueue<>();
+		decoded = new ConcurrentLinkedQueue<>();
+		pending = new AtomicInteger();
+	}
+	
+	public static synchronized TextureLoader getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new TextureLoader(Config.TEXTURE_LOADER_THREADS.<Integer> get());
+		}
+		return INSTANCE;
+	}
+	
+	/**
+	 * Starts loading texture, may be called on any thread.
+	 *
+	 * @return texture showing placeholder until loaded
+	 */
+	public Texture load(String fileName) {
+		return load(fileName, 1, 1);
+	}
+	
+	public Texture load(String fileName, int numCols, int numRows) {
+		Texture texture = new Texture(numCols, numRows);
+		created.add(texture);
+		pending.incrementAndGet();
+		workers.execute(() -> {
+			try {
+				CompressedImage compressed = readCompressed(fileName);
+				if (compressed != null) {
+					decoded.add(new Image(texture, compressed));
+				} else {
+					decoded.add(decode(texture, Utils.ioResourceToByteBuffer(fileName, false, 1024)));
+				}
+			}
+			catch (Exception e) {
+				System.err.println("Cannot load texture " + fileName + ": " + e.getMessage());
+				pending.decrementAndGet();
+			}
+		});
+		return texture;
+	}
+	
+	/**
+	 * @return compressed image of image file, null when there is none or its
+	 *         format is not supported
+	 */
+	static CompressedImage readCompressed(String fileName) {
+		String compressedFile = DdsFormat.nameOf(fileName);
+		if (!Utils.existsResourceFile(compressedFile)) { return null; }
+		try {
+			CompressedImage image = DdsFormat.read(Utils.ioResourceToByteBuffer(compressedFile, true, 1024));
+			return image.getFormat().isSupported() ? image : null;
+		}
+		catch (IOException e) {
+			System.err.println("Cannot read compressed texture " + compressedFile + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Decodes image file to RGBA pixels, which must be freed by
+	 * {@link Image#free()}.
+	 *
+	 * @param texture
+	 *           texture image is for, may be null
+	 */
+	public static Image decode(Texture texture, ByteBuffer imageData) throws Exception {
+		try (MemoryStack stack = stackPush()) {
+			IntBuffer w = stack.mallocInt(1);
+			IntBuffer h = stack.mallocInt(1);
+			IntBuffer avChannels = stack.mallocInt(1);
+			ByteBuffer pixels = stbi_load_from_memory(imageData, w, h, avChannels, 4);
+			if (pixels == null) { throw new Exception("Cannot decode image: " + stbi_failure_reason()); }
+			return new Image(texture, w.get(), h.get(), pixels);
+		}
+	}
+	
+	/**
+	 * @return textures not uploaded yet
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+	
+	/**
+	 * Render thread, creates texture objects of new textures and uploads
+	 * decoded images until budget runs out. At least one image is uploaded.
+	 */
+	public void update(long budgetNanos) {
+		long start = System.nanoTime();
+		for (Texture texture; (texture = created.poll()) != null;) {
+			texture.create();
+		}
+		uploaded = 0;
+		if (decoded.isEmpty()) { return; }
+		if (pixelBuffers == null) {
+			pixelBuffers = new int[PIXEL_BUFFERS];
+			glGenBuffers(pixelBuffers);
+		}
+		for (Image image; System.nanoTime() - start < budgetNanos || uploaded == 0;) {
+			if ((image = decoded.poll()) == null) {
+				break;
+			}
+			upload(image);
+			image.free();
+			pending.decrementAndGet();
+			uploaded++;
+		}
+		glBindTexture(GL_TEXTURE_2D, 0);
+	}
+	
+	/**
+	 * Uploads compressed image directly, it holds all its mipmaps. Pixels are
+	 * copied into orphaned pixel buffer, texture reads them from there.
+	 */
+	private void upload(Image image) {
+		if (image.compressed != null) {
+			image.texture.upload(image.compressed);
+			return;
+		}
+		int size = image.width * image.height * 4;
+		glBindBuffer(GL_PIXEL_UNPACK_BUFFER, pixelBuffers[nextPixelBuffer]);
+		nextPixelBuffer = (nextPixelBuffer + 1) % PIXEL_BUFFERS;
+		glBufferData(GL_PIXEL_UNPACK_BUFFER, size, GL_STREAM_DRAW);
+		ByteBuffer mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, size, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+		if (mapped != null) {
+			MemoryUtil.memCopy(MemoryUtil.memAddress(image.pixels), MemoryUtil.memAddress(mapped), size);
+			glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+			image.texture.upload(image.width, image.height, 0L);
+			glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+		} else {
+			glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+			image.texture.upload(image.width, image.height, image.pixels);
+		}
+	}
+	
+	public void cleanup() {
+		workers.shutdownNow();
+		for (Image image; (image = decoded.poll()) != null;) {
+			image.free();
+		}
+		if (pixelBuffers != null) {
+			glDeleteBuffers(pixelBuffers);
+			pixelBuffers = null;
+		}
+	}
+	
+	/**
+	 * Decoded RGBA pixels of texture, or its compressed image.
+	 */
+	public static class Image {
+		private final Texture texture;
+		private final @Getter int width;
+		private final @Getter int height;
+		private final @Getter ByteBuffer pixels;
+		private final CompressedImage compressed;
+		
+		Image(Texture texture, int width, int height, ByteBuffer pixels) {
+			this.texture = texture;
+			this.width = width;
+			this.height = height;
+			this.pixels = pixels;
+			this.compressed = null;
+		}
+		
+		Image(Texture texture, CompressedImage compressed) {
+			this.texture = texture;
+			this.width = compressed.getWidth();
+			this.height = compressed.getHeight();
+			this.pixels = null;
+			this.compressed = compressed;
+		}
+		
+		public void free() {
+			if (pixels != null) {
+				stbi_image_free(pixels);
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import java.util.Random;
+
+import org.joml.Vector3f;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Emission shared by particle backends: one particle per creation period of
+ * elapsed time, randomized around base particle with emitter's own random.
+ */
+public abstract class AbstractParticleEmitter implements IParticleEmitter {
+	private @Getter final int maxParticles;
+	private @Getter @Setter boolean active;
+	private @Getter final Particle baseParticle;
+	private @Getter @Setter long creationPeriodMillis;
+	private long creationTime;
+	private @Getter @Setter float speedRndRange;
+	private @Getter @Setter float positionRndRange;
+	private @Getter @Setter float scaleRndRange;
+	private @Setter long animRange;
+	private final Random random;
+	
+	protected AbstractParticleEmitter(Particle baseParticle, int maxParticles, long creationPeriodMillis, Random random) {
+		this.baseParticle = baseParticle;
+		this.maxParticles = maxParticles;
+		this.active = false;
+		this.creationTime = 0;
+		this.creationPeriodMillis = creationPeriodMillis;
+		this.random = random;
+	}
+	
+	/**
+	 * Spawns particles for elapsed time while {@link #isFull()} is false.
+	 *
+	 * @param elapsedTime
+	 *           Elapsed time in milliseconds
+	 */
+	protected void emit(long elapsedTime) {
+		creationTime += elapsedTime;
+		if (creationPeriodMillis <= 0) {
+			creationTime = 0;
+			while (!isFull()) {
+				createParticle();
+			}
+		} else {
+			while (creationTime >= creationPeriodMillis && !isFull()) {
+				creationTime -= creationPeriodMillis;
+				createParticle();
+			}
+			if (isFull()) {
+				creationTime %= creationPeriodMillis;
+			}
+		}
+	}
+	
+	private void createParticle() {
+		float sign = random.nextBoolean() ? -1.0f : 1.0f;
+		float speedInc = sign * random.nextFloat() * speedRndRange;
+		float posInc = sign * random.nextFloat() * positionRndRange;
+		float scaleInc = sign * random.nextFloat() * scaleRndRange;
+		long updateAnimInc = (long) sign * (long) (random.nextFloat() * animRange);
+		Vector3f pos = baseParticle.getPosition();
+		Vector3f speed = baseParticle.getSpeed();
+		spawn(pos.x + posInc, pos.y + posInc, pos.z + posInc, speed.x + speedInc, speed.y + speedInc, speed.z + speedInc, baseParticle.getTtl(),
+					baseParticle.getScale() + scaleInc, baseParticle.getUpdateTextureMillis() + updateAnimInc);
+	}
+	
+	/**
+	 * @return true when no more particles can be spawned now
+	 */
+	protected abstract boolean isFull();
+	
+	/**
+	 * @param ttl
+	 *           time to live in milliseconds
+	 * @param animPeriod
+	 *           duration of one animation frame in milliseconds
+	 */
+	protected abstract void spawn(float x, float y, float z, float vx, float vy, float vz, float ttl, float scale, float animPeriod);
+}
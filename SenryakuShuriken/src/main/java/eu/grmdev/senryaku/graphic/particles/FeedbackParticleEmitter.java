@@ -0,0 +1,98 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+/**
+ * GPU particle backend. Logic thread only records {@link ParticleTick}s with
+ * elapsed time and spawned particles, render thread replays them on
+ * {@link ParticleFeedback} with transform feedback. Particles go into ring of
+ * <code>maxParticles</code> slots, so when they are spawned faster than they
+ * die the oldest ones are replaced instead of new ones being skipped.
+ */
+public class FeedbackParticleEmitter extends AbstractParticleEmitter {
+	/** When render thread falls behind, further ticks are merged into one */
+	private static final int MAX_PENDING_TICKS = 64;
+	private final ConcurrentLinkedQueue<ParticleTick> pending;
+	private final ConcurrentLinkedQueue<ParticleTick> free;
+	private final AtomicInteger pendingCount;
+	private ParticleTick tick;
+	private @Getter ParticleFeedback feedback;
+	
+	public FeedbackParticleEmitter(Particle baseParticle, int maxParticles, long creationPeriodMillis, long seed) {
+		super(baseParticle, maxParticles, creationPeriodMillis, new Random(seed));
+		pending = new ConcurrentLinkedQueue<>();
+		free = new ConcurrentLinkedQueue<>();
+		pendingCount = new AtomicInteger();
+	}
+	
+	@Override
+	public void update(long elapsedTime) {
+		if (tick == null) {
+			tick = free.poll();
+			if (tick == null) {
+				tick = new ParticleTick();
+			}
+		}
+		tick.addElapsedTime(elapsedTime);
+		emit(elapsedTime);
+		if (pendingCount.get() < MAX_PENDING_TICKS) {
+			pending.add(tick);
+			pendingCount.incrementAndGet();
+			tick = null;
+		}
+	}
+	
+	/**
+	 * At most one ring of particles per tick, older ones would be overwritten
+	 * right away.
+	 */
+	@Override
+	protected boolean isFull() {
+		return tick.getCount() >= getMaxParticles();
+	}
+	
+	@Override
+	protected void spawn(float x, float y, float z, float vx, float vy, float vz, float ttl, float scale, float animPeriod) {
+		tick.add(x, y, z, vx, vy, vz, ttl, scale, animPeriod);
+	}
+	
+	/**
+	 * Render thread, replays ticks recorded since last call. GPU buffers are
+	 * created on first call.
+	 */
+	public void simulate(ParticleUpdateProgram program) {
+		if (feedback == null) {
+			feedback = new ParticleFeedback(getMaxParticles());
+		}
+		int animFrames = getBaseParticle().getAnimFrames();
+		ParticleTick next;
+		while ((next = pending.poll()) != null) {
+			pendingCount.decrementAndGet();
+			feedback.step(program, next.getElapsedTime(), animFrames);
+			feedback.spawn(next.getRecords(), next.getCount());
+			next.reset();
+			free.add(next);
+		}
+	}
+	
+	/**
+	 * Render thread, particle shader must be bound.
+	 */
+	public void render() {
+		if (feedback != null) {
+			feedback.render(getBaseParticle().getMesh());
+		}
+	}
+	
+	@Override
+	public void cleanup() {
+		if (feedback != null) {
+			feedback.cleanup();
+			feedback = null;
+		}
+	}
+}
@@ -1,95 +1,78 @@
 package eu.grmdev.senryaku.graphic.particles;
 
-import java.util.Iterator;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Random;
 
-import org.joml.Vector3f;
-
-import eu.grmdev.senryaku.core.IGame;
-import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.misc.TripleBuffer;
 import lombok.Getter;
-import lombok.Setter;
 
-public class FlowParticleEmitter implements IParticleEmitter {
-	private @Getter @Setter int maxParticles;
-	private @Getter @Setter boolean active;
-	private @Getter final ConcurrentHashMap<Integer, Entity> particles;
-	private static int nextId = 0;
-	private @Getter final Particle baseParticle;
-	private @Getter @Setter long creationPeriodMillis;
-	private long lastCreationTime;
-	private @Getter @Setter float speedRndRange;
-	private @Getter @Setter float positionRndRange;
-	private @Getter @Setter float scaleRndRange;
-	private @Setter long animRange;
-	private IGame game;
+/**
+ * CPU particle backend, particles live in {@link ParticlePool} updated on
+ * logic thread and are handed to render thread as {@link ParticleSnapshot}.
+ */
+public class FlowParticleEmitter extends AbstractParticleEmitter {
+	private @Getter final ParticlePool particles;
+	private final TripleBuffer<ParticleSnapshot> snapshots;
 	
 	public FlowParticleEmitter(Particle baseParticle, int maxParticles, long creationPeriodMillis) {
-		this.particles = new ConcurrentHashMap<>();
-		this.baseParticle = baseParticle;
-		this.maxParticles = maxParticles;
-		this.active = false;
-		this.lastCreationTime = 0;
-		this.creationPeriodMillis = creationPeriodMillis;
+		this(baseParticle, maxParticles, creationPeriodMillis, new Random());
 	}
 	
 	/**
-	 * Particle life update
-	 * 
-	 * @param elapsedTime
+	 * @param seed
+	 *           seed of spawn randomness, emitters with the same seed and
+	 *           elapsed times produce the same particles
 	 */
-	public void update(long elapsedTime) {
-		long now = System.currentTimeMillis();
-		if (lastCreationTime == 0) {
-			lastCreationTime = now;
-		}
-		Iterator<Integer> it = particles.keySet().iterator();
-		while (it.hasNext()) {
-			Particle particle = (Particle) particles.get(it.next());
-			if (particle.updateTtl(elapsedTime) < 0) {
-				it.remove();
-			} else {
-				updatePosition(particle, elapsedTime);
-			}
-		}
-		
-		int length = this.getParticles().size();
-		if (now - lastCreationTime >= this.creationPeriodMillis && length < maxParticles) {
-			createParticle();
-			this.lastCreationTime = now;
-		}
+	public FlowParticleEmitter(Particle baseParticle, int maxParticles, long creationPeriodMillis, long seed) {
+		this(baseParticle, maxParticles, creationPeriodMillis, new Random(seed));
 	}
 	
-	private void createParticle() {
-		Particle particle = new Particle(this.getBaseParticle(), game);
-		float sign = Math.random() > 0.5d ? -1.0f : 1.0f;
-		float speedInc = sign * (float) Math.random() * this.speedRndRange;
-		float posInc = sign * (float) Math.random() * this.positionRndRange;
-		float scaleInc = sign * (float) Math.random() * this.scaleRndRange;
-		long updateAnimInc = (long) sign * (long) (Math.random() * this.animRange);
-		particle.getPosition().add(posInc, posInc, posInc);
-		particle.getSpeed().add(speedInc, speedInc, speedInc);
-		particle.setScale(particle.getScale() + scaleInc);
-		particle.setUpdateTextureMillis(particle.getUpdateTextureMillis() + updateAnimInc);
-		particles.put(nextId++, particle);
+	private FlowParticleEmitter(Particle baseParticle, int maxParticles, long creationPeriodMillis, Random random) {
+		super(baseParticle, maxParticles, creationPeriodMillis, random);
+		this.particles = new ParticlePool(maxParticles);
+		this.snapshots = new TripleBuffer<>(() -> new ParticleSnapshot(maxParticles));
 	}
 	
 	/**
-	 * Updates a particle position
-	 * 
-	 * @param particle
-	 *           The particle to update
+	 * Particle life update, spawns one particle per creation period of
+	 * elapsed time while pool is not full.
+	 *
 	 * @param elapsedTime
 	 *           Elapsed time in milliseconds
 	 */
-	public void updatePosition(Particle particle, long elapsedTime) {
-		Vector3f speed = particle.getSpeed();
-		float delta = elapsedTime / 1000.0f;
-		float dx = speed.x * delta;
-		float dy = speed.y * delta;
-		float dz = speed.z * delta;
-		Vector3f pos = particle.getPosition();
-		particle.setPosition(pos.x + dx, pos.y + dy, pos.z + dz);
+	@Override
+	public void update(long elapsedTime) {
+		particles.update(elapsedTime, getBaseParticle().getAnimFrames());
+		emit(elapsedTime);
+	}
+	
+	/**
+	 * Second half of {@link #update(long)}, after pool was advanced and
+	 * compacted. Spawns new particles and publishes snapshot for render
+	 * thread.
+	 */
+	@Override
+	protected void emit(long elapsedTime) {
+		super.emit(elapsedTime);
+		snapshots.getWriteBuffer().copyFrom(particles);
+		snapshots.publish();
+	}
+	
+	@Override
+	protected boolean isFull() {
+		return particles.isFull();
+	}
+	
+	@Override
+	protected void spawn(float x, float y, float z, float vx, float vy, float vz, float ttl, float scale, float animPeriod) {
+		particles.spawn(x, y, z, vx, vy, vz, ttl, scale, animPeriod);
+	}
+	
+	/**
+	 * Latest particles published by logic thread, called by render thread
+	 * only.
+	 */
+	public ParticleSnapshot acquireSnapshot() {
+		return snapshots.acquire();
 	}
 	
 	/**
@@ -97,8 +80,6 @@ public class FlowParticleEmitter implements IParticleEmitter {
 	 */
 	@Override
 	public void cleanup() {
-		for (Integer id : getParticles().keySet()) {
-			getParticles().get(id).cleanup();
-		}
+		particles.clear();
 	}
 }
@@ -1,15 +1,17 @@
 package eu.grmdev.senryaku.graphic.particles;
 
-import java.util.concurrent.ConcurrentHashMap;
-
-import eu.grmdev.senryaku.core.entity.Entity;
-
 public interface IParticleEmitter {
-	ConcurrentHashMap<Integer, Entity> getParticles();
-	
 	Particle getBaseParticle();
 	
 	boolean isActive();
-
+	
+	/**
+	 * Logic thread update
+	 *
+	 * @param elapsedTime
+	 *           Elapsed time in milliseconds
+	 */
+	void update(long elapsedTime);
+	
 	void cleanup();
 }
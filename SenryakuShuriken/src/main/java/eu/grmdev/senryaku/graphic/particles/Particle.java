@@ -4,14 +4,18 @@ import org.joml.Vector3f;
 
 import eu.grmdev.senryaku.core.IGame;
 import eu.grmdev.senryaku.core.entity.Entity;
+import eu.grmdev.senryaku.core.entity.EntityStore;
 import eu.grmdev.senryaku.graphic.mesh.Mesh;
 import eu.grmdev.senryaku.graphic.mesh.Texture;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * Template of particles spawned by emitter, live particles are kept in
+ * {@link ParticlePool}.
+ */
 public class Particle extends Entity {
 	private @Getter @Setter long updateTextureMillis;
-	private @Getter long currentAnimTimeMillis;
 	private @Getter @Setter Vector3f speed;
 	/**
 	 * Time to live for particle in milliseconds.
@@ -20,49 +24,30 @@ public class Particle extends Entity {
 	private @Getter int animFrames;
 	
 	public Particle(Mesh mesh, Vector3f speed, long ttl, long updateTextureMillis, IGame game) {
-		super(mesh, game);
-		this.speed = new Vector3f(speed);
-		this.ttl = ttl;
-		this.updateTextureMillis = updateTextureMillis;
-		this.currentAnimTimeMillis = 0;
-		Texture texture = this.getMesh().getMaterial().getTexture();
-		this.animFrames = texture.getNumCols() * texture.getNumRows();
+		this(mesh, speed, ttl, updateTextureMillis, frames(mesh.getMaterial().getTexture()), game);
 	}
 	
-	public Particle(Particle baseParticle, IGame game) {
-		super(baseParticle.getMesh(), game);
-		Vector3f aux = baseParticle.getPosition();
-		setPosition(aux.x, aux.y, aux.z);
-		setRotation(baseParticle.getRotation());
-		setScale(baseParticle.getScale());
-		this.speed = new Vector3f(baseParticle.speed);
-		this.ttl = baseParticle.getTtl();
-		this.updateTextureMillis = baseParticle.getUpdateTextureMillis();
-		this.currentAnimTimeMillis = 0;
-		this.animFrames = baseParticle.getAnimFrames();
+	/**
+	 * @param animFrames
+	 *           frames of texture atlas animation, 0 disables animation
+	 */
+	public Particle(Mesh mesh, Vector3f speed, long ttl, long updateTextureMillis, int animFrames, IGame game) {
+		this(mesh, game.getEntityStore(), speed, ttl, updateTextureMillis, animFrames, game);
 	}
 	
 	/**
-	 * Updates the Particle's TTL
-	 * 
-	 * @param elapsedTime
-	 *           Elapsed Time in milliseconds
-	 * @return The Particle's TTL
+	 * Particle kept in given store instead of store of game.
 	 */
-	public long updateTtl(long elapsedTime) {
-		this.ttl -= elapsedTime;
-		this.currentAnimTimeMillis += elapsedTime;
-		if (this.currentAnimTimeMillis >= this.getUpdateTextureMillis() && this.animFrames > 0) {
-			this.currentAnimTimeMillis = 0;
-			int pos = this.getTextPos();
-			pos++;
-			if (pos < this.animFrames) {
-				this.setTextPos(pos);
-			} else {
-				this.setTextPos(0);
-			}
-		}
-		return this.ttl;
+	public Particle(Mesh mesh, EntityStore store, Vector3f speed, long ttl, long updateTextureMillis, int animFrames, IGame game) {
+		super(store, game);
+		setMesh(mesh);
+		this.speed = new Vector3f(speed);
+		this.ttl = ttl;
+		this.updateTextureMillis = updateTextureMillis;
+		this.animFrames = animFrames;
 	}
 	
-}
\ No newline at end of file
+	private static int frames(Texture texture) {
+		return texture.getNumCols() * texture.getNumRows();
+	}
+}
@@ -0,0 +1,11 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+/**
+ * Where particles of emitter are simulated.
+ */
+public enum ParticleBackend {
+	/** {@link FlowParticleEmitter}, particles in {@link ParticlePool} on logic thread */
+	CPU ,
+	/** {@link FeedbackParticleEmitter}, particles in GPU buffers advanced by transform feedback */
+	GPU;
+}
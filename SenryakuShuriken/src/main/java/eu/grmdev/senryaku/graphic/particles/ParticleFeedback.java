@@ -0,0 +1,141 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import static eu.grmdev.senryaku.graphic.particles.ParticleRing.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.graphic.mesh.Mesh;
+import lombok.Getter;
+
+/**
+ * GPU state of particles, two buffers of {@link ParticleRing} records which
+ * are swapped by every transform feedback step. Render thread only.
+ */
+public class ParticleFeedback {
+	/** First instance attribute, the same as instance matrix of {@link eu.grmdev.senryaku.graphic.mesh.InstancedMesh} */
+	private static final int POSITION_ATTRIB = 5;
+	private static final int LIFE_ATTRIB = 6;
+	private final @Getter int capacity;
+	private final int[] vbos;
+	private final int[] vaos;
+	private int source;
+	private @Getter int cursor;
+	private FloatBuffer upload;
+	
+	public ParticleFeedback(int capacity) {
+		this.capacity = capacity;
+		vbos = new int[2];
+		vaos = new int[2];
+		FloatBuffer dead = MemoryUtil.memCallocFloat(capacity * STATE_SIZE_FLOATS);
+		try {
+			for (int i = 0; i < capacity; i++) {
+				dead.put(i * STATE_SIZE_FLOATS + TTL, DEAD_TTL);
+			}
+			for (int i = 0; i < 2; i++) {
+				vbos[i] = glGenBuffers();
+				glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+				glBufferData(GL_ARRAY_BUFFER, dead, GL_DYNAMIC_COPY);
+				
+				vaos[i] = glGenVertexArrays();
+				glBindVertexArray(vaos[i]);
+				glVertexAttribPointer(0, 3, GL_FLOAT, false, STATE_SIZE_BYTES, POSITION * 4);
+				glVertexAttribPointer(1, 3, GL_FLOAT, false, STATE_SIZE_BYTES, VELOCITY * 4);
+				glVertexAttribPointer(2, 4, GL_FLOAT, false, STATE_SIZE_BYTES, LIFE * 4);
+				glVertexAttribPointer(3, 1, GL_FLOAT, false, STATE_SIZE_BYTES, SCALE * 4);
+				for (int attrib = 0; attrib < 4; attrib++) {
+					glEnableVertexAttribArray(attrib);
+				}
+				glBindVertexArray(0);
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, 0);
+		}
+		finally {
+			MemoryUtil.memFree(dead);
+		}
+	}
+	
+	/**
+	 * Advances all slots, see {@link ParticleRing#step(float, int)}.
+	 */
+	public void step(ParticleUpdateProgram program, float elapsedMillis, int animFrames) {
+		program.run(vaos[source], vbos[1 - source], capacity, elapsedMillis, animFrames);
+		source = 1 - source;
+	}
+	
+	/**
+	 * Uploads spawned records at cursor, see
+	 * {@link ParticleRing#spawn(float[], int)}.
+	 */
+	public void spawn(float[] records, int count) {
+		int first = ParticleRing.firstKept(count, capacity);
+		cursor = (cursor + first) % capacity;
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[source]);
+		int i = first;
+		while (i < count) {
+			int run = Math.min(count - i, capacity - cursor);
+			if (upload == null || upload.capacity() < run * STATE_SIZE_FLOATS) {
+				MemoryUtil.memFree(upload);
+				upload = MemoryUtil.memAllocFloat(Math.min(capacity, Math.max(run, 64)) * STATE_SIZE_FLOATS);
+			}
+			upload.clear();
+			upload.put(records, i * STATE_SIZE_FLOATS, run * STATE_SIZE_FLOATS).flip();
+			glBufferSubData(GL_ARRAY_BUFFER, (long) cursor * STATE_SIZE_BYTES, upload);
+			i += run;
+			cursor = (cursor + run) % capacity;
+		}
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+	
+	/**
+	 * Draws one instance of mesh per slot, dead slots are moved out of view
+	 * by vertex shader.
+	 */
+	public void render(Mesh mesh) {
+		mesh.bindTextures();
+		mesh.bindVertexArray();
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[source]);
+		glVertexAttribPointer(POSITION_ATTRIB, 3, GL_FLOAT, false, STATE_SIZE_BYTES, POSITION * 4);
+		glVertexAttribPointer(LIFE_ATTRIB, 4, GL_FLOAT, false, STATE_SIZE_BYTES, LIFE * 4);
+		glVertexAttribDivisor(POSITION_ATTRIB, 1);
+		glVertexAttribDivisor(LIFE_ATTRIB, 1);
+		glEnableVertexAttribArray(POSITION_ATTRIB);
+		glEnableVertexAttribArray(LIFE_ATTRIB);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		
+		glDrawElementsInstanced(GL_TRIANGLES, mesh.getVertexCount(), GL_UNSIGNED_INT, 0, capacity);
+		
+		glDisableVertexAttribArray(POSITION_ATTRIB);
+		glDisableVertexAttribArray(LIFE_ATTRIB);
+		mesh.unbindVertexArray();
+		glBindTexture(GL_TEXTURE_2D, 0);
+	}
+	
+	/**
+	 * Reads current state back, for tests and debugging.
+	 *
+	 * @param dest
+	 *           receives first <code>dest.remaining()</code> floats
+	 */
+	public void read(FloatBuffer dest) {
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[source]);
+		glGetBufferSubData(GL_ARRAY_BUFFER, 0, dest);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+	
+	public void cleanup() {
+		for (int i = 0; i < 2; i++) {
+			glDeleteVertexArrays(vaos[i]);
+			glDeleteBuffers(vbos[i]);
+		}
+		MemoryUtil.memFree(upload);
+		upload = null;
+	}
+}
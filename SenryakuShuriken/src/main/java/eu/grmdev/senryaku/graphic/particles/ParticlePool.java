@@ -0,0 +1,171 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import lombok.Getter;
+
+/**
+ * Fixed capacity particle storage, one primitive array per attribute. Live
+ * particles always occupy <code>[0, size)</code>, dead ones are replaced by
+ * the last live particle, so nothing is allocated after construction.
+ * <p>
+ * Used by logic thread only, render thread gets {@link ParticleSnapshot}.
+ */
+public class ParticlePool {
+	private final @Getter int capacity;
+	private final @Getter float[] posX;
+	private final @Getter float[] posY;
+	private final @Getter float[] posZ;
+	private final @Getter float[] velX;
+	private final @Getter float[] velY;
+	private final @Getter float[] velZ;
+	/** Time to live in milliseconds */
+	private final @Getter float[] ttl;
+	private final @Getter float[] scale;
+	/** Time since last animation frame change in milliseconds */
+	private final @Getter float[] animTime;
+	/** Duration of one animation frame in milliseconds */
+	private final @Getter float[] animPeriod;
+	private final @Getter int[] frame;
+	private int size;
+	
+	public ParticlePool(int capacity) {
+		this.capacity = capacity;
+		posX = new float[capacity];
+		posY = new float[capacity];
+		posZ = new float[capacity];
+		velX = new float[capacity];
+		velY = new float[capacity];
+		velZ = new float[capacity];
+		ttl = new float[capacity];
+		scale = new float[capacity];
+		animTime = new float[capacity];
+		animPeriod = new float[capacity];
+		frame = new int[capacity];
+	}
+	
+	/**
+	 * @return number of live particles
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	public boolean isFull() {
+		return size == capacity;
+	}
+	
+	/**
+	 * Adds particle at the end of live range.
+	 *
+	 * @param ttl
+	 *           time to live in milliseconds
+	 * @param animPeriod
+	 *           duration of one animation frame in milliseconds
+	 * @return index of new particle, -1 when pool is full
+	 */
+	public int spawn(float x, float y, float z, float vx, float vy, float vz, float ttl, float scale, float animPeriod) {
+		int i = size;
+		if (i == capacity) { return -1; }
+		posX[i] = x;
+		posY[i] = y;
+		posZ[i] = z;
+		velX[i] = vx;
+		velY[i] = vy;
+		velZ[i] = vz;
+		this.ttl[i] = ttl;
+		this.scale[i] = scale;
+		animTime[i] = 0;
+		this.animPeriod[i] = animPeriod;
+		frame[i] = 0;
+		size = i + 1;
+		return i;
+	}
+	
+	/**
+	 * Ages, animates and moves all particles, then removes those whose TTL
+	 * dropped below zero.
+	 *
+	 * @param elapsedMillis
+	 *           elapsed time in milliseconds
+	 * @param animFrames
+	 *           frames in texture atlas, 0 disables animation
+	 */
+	public void update(float elapsedMillis, int animFrames) {
+		advance(0, size, elapsedMillis, animFrames);
+		compact();
+	}
+	
+	/**
+	 * Ages, animates and moves particles of range without removing any.
+	 * Particles do not depend on each other, so disjoint ranges can be advanced
+	 * from different threads before {@link #compact()}.
+	 *
+	 * @see #update(float, int)
+	 */
+	public void advance(int from, int to, float elapsedMillis, int animFrames) {
+		float delta = elapsedMillis / 1000.0f;
+		for (int i = from; i < to; i++) {
+			float left = ttl[i] - elapsedMillis;
+			ttl[i] = left;
+			if (left < 0) {
+				continue;
+			}
+			float time = animTime[i] + elapsedMillis;
+			if (time >= animPeriod[i] && animFrames > 0) {
+				time = 0;
+				int next = frame[i] + 1;
+				frame[i] = next < animFrames ? next : 0;
+			}
+			animTime[i] = time;
+			posX[i] += velX[i] * delta;
+			posY[i] += velY[i] * delta;
+			posZ[i] += velZ[i] * delta;
+		}
+	}
+	
+	/**
+	 * Swap-removes every particle with negative TTL, in index order so the
+	 * result does not depend on how {@link #advance} was split.
+	 */
+	public void compact() {
+		int n = size;
+		int i = 0;
+		while (i < n) {
+			if (ttl[i] < 0) {
+				n--;
+				move(n, i);
+			} else {
+				i++;
+			}
+		}
+		size = n;
+	}
+	
+	/**
+	 * Swap-remove, order of live particles is not kept.
+	 */
+	public void remove(int i) {
+		if (i < 0 || i >= size) { throw new IndexOutOfBoundsException("Particle " + i + " of " + size); }
+		int last = size - 1;
+		move(last, i);
+		size = last;
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	private void move(int from, int to) {
+		if (from == to) { return; }
+		posX[to] = posX[from];
+		posY[to] = posY[from];
+		posZ[to] = posZ[from];
+		velX[to] = velX[from];
+		velY[to] = velY[from];
+		velZ[to] = velZ[from];
+		ttl[to] = ttl[from];
+		scale[to] = scale[from];
+		animTime[to] = animTime[from];
+		animPeriod[to] = animPeriod[from];
+		frame[to] = frame[from];
+	}
+}
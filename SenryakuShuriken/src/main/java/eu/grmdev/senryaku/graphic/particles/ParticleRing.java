@@ -0,0 +1,117 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import lombok.Getter;
+
+/**
+ * CPU reference of GPU particle backend, does exactly what
+ * <code>particles_update.vs</code> and {@link ParticleFeedback} do. Particles
+ * are records of {@link #STATE_SIZE_FLOATS} floats in fixed slots, new ones
+ * are written at ring cursor over the oldest slot, dead slots keep negative
+ * TTL and are not drawn.
+ *
+ * <pre>
+ * 0 position xyz   3 velocity xyz   6 ttl   7 animation time
+ * 8 animation period   9 frame   10 scale
+ * </pre>
+ */
+public class ParticleRing {
+	public static final int STATE_SIZE_FLOATS = 11;
+	public static final int STATE_SIZE_BYTES = STATE_SIZE_FLOATS * 4;
+	public static final int POSITION = 0;
+	public static final int VELOCITY = 3;
+	public static final int LIFE = 6;
+	public static final int TTL = LIFE;
+	public static final int ANIM_TIME = LIFE + 1;
+	public static final int ANIM_PERIOD = LIFE + 2;
+	public static final int FRAME = LIFE + 3;
+	public static final int SCALE = 10;
+	/** TTL of slot which never held particle */
+	public static final float DEAD_TTL = -1;
+	private final @Getter int capacity;
+	private final @Getter float[] state;
+	private @Getter int cursor;
+	
+	public ParticleRing(int capacity) {
+		this.capacity = capacity;
+		state = new float[capacity * STATE_SIZE_FLOATS];
+		for (int i = 0; i < capacity; i++) {
+			state[i * STATE_SIZE_FLOATS + TTL] = DEAD_TTL;
+		}
+	}
+	
+	/**
+	 * Writes one particle record at <code>offset</code> of array.
+	 */
+	public static void put(float[] dest, int offset, float x, float y, float z, float vx, float vy, float vz, float ttl, float scale, float animPeriod) {
+		dest[offset + POSITION] = x;
+		dest[offset + POSITION + 1] = y;
+		dest[offset + POSITION + 2] = z;
+		dest[offset + VELOCITY] = vx;
+		dest[offset + VELOCITY + 1] = vy;
+		dest[offset + VELOCITY + 2] = vz;
+		dest[offset + TTL] = ttl;
+		dest[offset + ANIM_TIME] = 0;
+		dest[offset + ANIM_PERIOD] = animPeriod;
+		dest[offset + FRAME] = 0;
+		dest[offset + SCALE] = scale;
+	}
+	
+	/**
+	 * Advances every live slot, same formulas as
+	 * {@link ParticlePool#advance(int, int, float, int)}.
+	 */
+	public void step(float elapsedMillis, int animFrames) {
+		float delta = elapsedMillis / 1000.0f;
+		for (int offset = 0; offset < state.length; offset += STATE_SIZE_FLOATS) {
+			if (state[offset + TTL] < 0) {
+				continue;
+			}
+			float left = state[offset + TTL] - elapsedMillis;
+			state[offset + TTL] = left;
+			if (left < 0) {
+				continue;
+			}
+			float time = state[offset + ANIM_TIME] + elapsedMillis;
+			if (time >= state[offset + ANIM_PERIOD] && animFrames > 0) {
+				time = 0;
+				float next = state[offset + FRAME] + 1;
+				state[offset + FRAME] = next < animFrames ? next : 0;
+			}
+			state[offset + ANIM_TIME] = time;
+			state[offset + POSITION] += state[offset + VELOCITY] * delta;
+			state[offset + POSITION + 1] += state[offset + VELOCITY + 1] * delta;
+			state[offset + POSITION + 2] += state[offset + VELOCITY + 2] * delta;
+		}
+	}
+	
+	/**
+	 * Copies <code>count</code> records to slots from cursor on, wrapping
+	 * around. When there are more records than slots only the last ones stay.
+	 */
+	public void spawn(float[] records, int count) {
+		int first = firstKept(count, capacity);
+		cursor = (cursor + first) % capacity;
+		for (int i = first; i < count; i++) {
+			System.arraycopy(records, i * STATE_SIZE_FLOATS, state, cursor * STATE_SIZE_FLOATS, STATE_SIZE_FLOATS);
+			cursor = cursor + 1 == capacity ? 0 : cursor + 1;
+		}
+	}
+	
+	/**
+	 * @return index of first of <code>count</code> records which is not
+	 *         overwritten by later ones
+	 */
+	static int firstKept(int count, int capacity) {
+		return Math.max(0, count - capacity);
+	}
+	
+	public int getLiveCount() {
+		int live = 0;
+		for (int offset = TTL; offset < state.length; offset += STATE_SIZE_FLOATS) {
+			if (state[offset] >= 0) {
+				live++;
+			}
+		}
+		return live;
+	}
+}
@@ -0,0 +1,115 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lombok.Getter;
+
+/**
+ * Updates particle emitters on fork/join pool. List of emitters is split
+ * until one task has at most {@link #splitSize} particles, emitters larger
+ * than that have their particle ranges advanced in parallel and then
+ * compacted. Spawning stays serial per emitter and uses its own random, so
+ * result does not depend on number of threads.
+ */
+public class ParticleSimulation {
+	private final @Getter ForkJoinPool pool;
+	private final @Getter int splitSize;
+	
+	public ParticleSimulation(ForkJoinPool pool, int splitSize) {
+		this.pool = pool;
+		this.splitSize = Math.max(1, splitSize);
+	}
+	
+	/**
+	 * Updates all emitters of list and waits for them. Other than
+	 * {@link FlowParticleEmitter}s just record their tick and count as empty.
+	 *
+	 * @param elapsedTime
+	 *           Elapsed time in milliseconds
+	 */
+	public void update(List<IParticleEmitter> emitters, long elapsedTime) {
+		if (emitters == null || emitters.isEmpty()) { return; }
+		pool.invoke(new EmittersTask(emitters, 0, emitters.size(), elapsedTime));
+	}
+	
+	private void updateEmitter(IParticleEmitter emitter, long elapsedTime) {
+		if (!(emitter instanceof FlowParticleEmitter)) {
+			emitter.update(elapsedTime);
+			return;
+		}
+		FlowParticleEmitter flow = (FlowParticleEmitter) emitter;
+		ParticlePool particles = flow.getParticles();
+		int size = particles.getSize();
+		if (size <= splitSize) {
+			emitter.update(elapsedTime);
+			return;
+		}
+		new RangeTask(particles, 0, size, elapsedTime, flow.getBaseParticle().getAnimFrames()).invoke();
+		particles.compact();
+		flow.emit(elapsedTime);
+	}
+	
+	private static int size(IParticleEmitter emitter) {
+		return emitter instanceof FlowParticleEmitter ? ((FlowParticleEmitter) emitter).getParticles().getSize() : 0;
+	}
+	
+	private class EmittersTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<IParticleEmitter> emitters;
+		private final int from;
+		private final int to;
+		private final long elapsedTime;
+		
+		EmittersTask(List<IParticleEmitter> emitters, int from, int to, long elapsedTime) {
+			this.emitters = emitters;
+			this.from = from;
+			this.to = to;
+			this.elapsedTime = elapsedTime;
+		}
+		
+		@Override
+		protected void compute() {
+			long particles = 0;
+			for (int i = from; i < to; i++) {
+				particles += size(emitters.get(i));
+			}
+			if (to - from == 1 || particles <= splitSize) {
+				for (int i = from; i < to; i++) {
+					updateEmitter(emitters.get(i), elapsedTime);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new EmittersTask(emitters, from, mid, elapsedTime), new EmittersTask(emitters, mid, to, elapsedTime));
+			}
+		}
+	}
+	
+	private class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final ParticlePool particles;
+		private final int from;
+		private final int to;
+		private final long elapsedTime;
+		private final int animFrames;
+		
+		RangeTask(ParticlePool particles, int from, int to, long elapsedTime, int animFrames) {
+			this.particles = particles;
+			this.from = from;
+			this.to = to;
+			this.elapsedTime = elapsedTime;
+			this.animFrames = animFrames;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= splitSize) {
+				particles.advance(from, to, elapsedTime, animFrames);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new RangeTask(particles, from, mid, elapsedTime, animFrames), new RangeTask(particles, mid, to, elapsedTime, animFrames));
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import lombok.Getter;
+
+/**
+ * Render side copy of {@link ParticlePool}, only what instance packing needs.
+ * Filled by logic thread and handed to render thread through
+ * {@link eu.grmdev.senryaku.core.misc.TripleBuffer}.
+ */
+public class ParticleSnapshot {
+	private final @Getter float[] posX;
+	private final @Getter float[] posY;
+	private final @Getter float[] posZ;
+	private final @Getter float[] scale;
+	private final @Getter int[] frame;
+	private @Getter int size;
+	
+	public ParticleSnapshot(int capacity) {
+		posX = new float[capacity];
+		posY = new float[capacity];
+		posZ = new float[capacity];
+		scale = new float[capacity];
+		frame = new int[capacity];
+	}
+	
+	/**
+	 * Copies live particles of pool, capacities must match.
+	 */
+	public void copyFrom(ParticlePool pool) {
+		int n = pool.getSize();
+		System.arraycopy(pool.getPosX(), 0, posX, 0, n);
+		System.arraycopy(pool.getPosY(), 0, posY, 0, n);
+		System.arraycopy(pool.getPosZ(), 0, posZ, 0, n);
+		System.arraycopy(pool.getScale(), 0, scale, 0, n);
+		System.arraycopy(pool.getFrame(), 0, frame, 0, n);
+		size = n;
+	}
+}
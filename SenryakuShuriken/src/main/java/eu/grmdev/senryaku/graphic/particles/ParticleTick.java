@@ -0,0 +1,39 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * One logic tick of GPU emitter sent to render thread: time to advance
+ * particles by, then records of particles spawned in that tick in
+ * {@link ParticleRing} layout.
+ */
+public class ParticleTick {
+	private static final int INITIAL_RECORDS = 16;
+	private @Getter long elapsedTime;
+	private @Getter float[] records;
+	private @Getter int count;
+	
+	public ParticleTick() {
+		records = new float[INITIAL_RECORDS * ParticleRing.STATE_SIZE_FLOATS];
+	}
+	
+	void addElapsedTime(long elapsedTime) {
+		this.elapsedTime += elapsedTime;
+	}
+	
+	void add(float x, float y, float z, float vx, float vy, float vz, float ttl, float scale, float animPeriod) {
+		int offset = count * ParticleRing.STATE_SIZE_FLOATS;
+		if (offset == records.length) {
+			records = Arrays.copyOf(records, records.length * 2);
+		}
+		ParticleRing.put(records, offset, x, y, z, vx, vy, vz, ttl, scale, animPeriod);
+		count++;
+	}
+	
+	void reset() {
+		elapsedTime = 0;
+		count = 0;
+	}
+}
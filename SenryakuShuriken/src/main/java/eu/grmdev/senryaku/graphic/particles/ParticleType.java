@@ -2,15 +2,30 @@ package eu.grmdev.senryaku.graphic.particles;
 
 import lombok.Getter;
 
+/**
+ * Particle look and emission parameters of map emitters. Time to live,
+ * scale and random ranges come from {@link eu.grmdev.senryaku.Config}.
+ */
 public enum ParticleType {
-	FIRE("/models/particle.obj","/textures/particle_anim.png") ,
-	STATIC("","");
+	FIRE("/models/particle.obj","/textures/particle_anim.png",1.5f,100,10,300) ,
+	STATIC("","",0,0,0,0);
 	
 	private @Getter String res;
 	private @Getter String tex;
+	/** Vertical speed in units per second */
+	private @Getter float riseSpeed;
+	/** Duration of one animation frame in milliseconds */
+	private @Getter long frameMillis;
+	/** Random change of frame duration in milliseconds */
+	private @Getter long frameRange;
+	private @Getter long creationPeriodMillis;
 	
-	private ParticleType(String res, String tex) {
+	private ParticleType(String res, String tex, float riseSpeed, long frameMillis, long frameRange, long creationPeriodMillis) {
 		this.res = res;
 		this.tex = tex;
+		this.riseSpeed = riseSpeed;
+		this.frameMillis = frameMillis;
+		this.frameRange = frameRange;
+		this.creationPeriodMillis = creationPeriodMillis;
 	}
 }
@@ -0,0 +1,57 @@
+package eu.grmdev.senryaku.graphic.particles;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+
+import eu.grmdev.senryaku.core.misc.Utils;
+import eu.grmdev.senryaku.graphic.ShaderProgram;
+import eu.grmdev.senryaku.graphic.uniform.FloatUniform;
+import eu.grmdev.senryaku.graphic.uniform.IntUniform;
+
+/**
+ * Transform feedback pass of GPU particles, one point per slot, nothing is
+ * rasterized. Shared by all {@link ParticleFeedback}s.
+ */
+public class ParticleUpdateProgram {
+	private final ShaderProgram shaderProgram;
+	private final FloatUniform elapsedMillis;
+	private final FloatUniform delta;
+	private final IntUniform animFrames;
+	
+	public ParticleUpdateProgram() throws Exception {
+		shaderProgram = new ShaderProgram();
+		shaderProgram.createVertexShader(Utils.loadResourceContent("/shaders/particles_update.vs"));
+		shaderProgram.setTransformFeedbackVaryings("outPosition", "outVelocity", "outLife", "outScale");
+		shaderProgram.link();
+		elapsedMillis = shaderProgram.createFloatUniform("elapsedMillis");
+		delta = shaderProgram.createFloatUniform("delta");
+		animFrames = shaderProgram.createIntUniform("animFrames");
+	}
+	
+	/**
+	 * Advances <code>count</code> slots of source vertex array into
+	 * destination buffer.
+	 */
+	void run(int sourceVao, int destVbo, int count, float elapsed, int frames) {
+		glEnable(GL_RASTERIZER_DISCARD);
+		shaderProgram.bind();
+		elapsedMillis.set(elapsed);
+		delta.set(elapsed / 1000.0f);
+		animFrames.set(frames);
+		
+		glBindVertexArray(sourceVao);
+		glBindBufferBase(GL_TRANSFORM_FEEDBACK_BUFFER, 0, destVbo);
+		glBeginTransformFeedback(GL_POINTS);
+		glDrawArrays(GL_POINTS, 0, count);
+		glEndTransformFeedback();
+		glBindBufferBase(GL_TRANSFORM_FEEDBACK_BUFFER, 0, 0);
+		glBindVertexArray(0);
+		
+		shaderProgram.unbind();
+		glDisable(GL_RASTERIZER_DISCARD);
+	}
+	
+	public void cleanup() {
+		shaderProgram.cleanup();
+	}
+}
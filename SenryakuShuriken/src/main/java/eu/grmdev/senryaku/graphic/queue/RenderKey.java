@@ -0,0 +1,68 @@
+package eu.grmdev.senryaku.graphic.queue;
+
+/**
+ * Packs render state of one draw item into 64-bit sort key. From most to
+ * least significant bits:
+ *
+ * <pre>
+ * | shader 6 | material 14 | texture 14 | mesh 14 | depth 16 |
+ * </pre>
+ *
+ * Keys are compared as unsigned numbers, so sorting them groups draws by
+ * shader, then material, then texture, then mesh, and orders each group
+ * front to back.
+ */
+public final class RenderKey {
+	public static final int SHADER_BITS = 6;
+	public static final int STATE_BITS = 14;
+	public static final int DEPTH_BITS = 16;
+	public static final int MAX_SHADER_ID = (1 << SHADER_BITS) - 1;
+	public static final int MAX_STATE_ID = (1 << STATE_BITS) - 1;
+	public static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+	
+	private static final int MESH_SHIFT = DEPTH_BITS;
+	private static final int TEXTURE_SHIFT = MESH_SHIFT + STATE_BITS;
+	private static final int MATERIAL_SHIFT = TEXTURE_SHIFT + STATE_BITS;
+	private static final int SHADER_SHIFT = MATERIAL_SHIFT + STATE_BITS;
+	
+	private RenderKey() {}
+	
+	public static long pack(int shader, int material, int texture, int mesh, int depth) {
+		return ((long) (shader & MAX_SHADER_ID) << SHADER_SHIFT) | ((long) (material & MAX_STATE_ID) << MATERIAL_SHIFT) | ((long) (texture & MAX_STATE_ID) << TEXTURE_SHIFT) | ((long) (mesh & MAX_STATE_ID) << MESH_SHIFT) | (depth & MAX_DEPTH);
+	}
+	
+	/**
+	 * Quantizes view distance into depth field.
+	 *
+	 * @param distance
+	 *           distance from camera, clamped to <code>[0, far]</code>
+	 * @param far
+	 *           far plane distance
+	 * @return depth in range <code>[0, MAX_DEPTH]</code>
+	 */
+	public static int quantizeDepth(float distance, float far) {
+		if (!(distance > 0) || far <= 0) { return 0; }
+		if (distance >= far) { return MAX_DEPTH; }
+		return (int) (distance / far * MAX_DEPTH);
+	}
+	
+	public static int shader(long key) {
+		return (int) (key >>> SHADER_SHIFT) & MAX_SHADER_ID;
+	}
+	
+	public static int material(long key) {
+		return (int) (key >>> MATERIAL_SHIFT) & MAX_STATE_ID;
+	}
+	
+	public static int texture(long key) {
+		return (int) (key >>> TEXTURE_SHIFT) & MAX_STATE_ID;
+	}
+	
+	public static int mesh(long key) {
+		return (int) (key >>> MESH_SHIFT) & MAX_STATE_ID;
+	}
+	
+	public static int depth(long key) {
+		return (int) key & MAX_DEPTH;
+	}
+}
@@ -0,0 +1,199 @@
+package eu.grmdev.senryaku.graphic.queue;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Collects draw items with {@link RenderKey} sort keys, sorts them and
+ * submits them to {@link RenderQueueVisitor} with minimal number of state
+ * changes. Arrays are reused between frames. Does not touch OpenGL.
+ *
+ * @param <M>
+ *           type of mesh carrying shared state
+ * @param <T>
+ *           type of drawn instance
+ */
+public class RenderQueue<M, T> {
+	private static final int STATES_PER_ITEM = 4;
+	private long[] keys;
+	private Object[] meshes;
+	private Object[] items;
+	private int[] order;
+	private int[] scratch;
+	private final int[] counts;
+	private @Getter int size;
+	private boolean sorted;
+	private final @Getter StateIds shaderIds;
+	private final @Getter StateIds materialIds;
+	private final @Getter StateIds textureIds;
+	private final @Getter StateIds meshIds;
+	/** State changes issued by last {@link #submit(RenderQueueVisitor)} */
+	private @Getter int issuedStateChanges;
+	/**
+	 * State changes avoided by last {@link #submit(RenderQueueVisitor)},
+	 * compared to binding shader, material, texture and mesh for every item
+	 */
+	private @Getter int eliminatedStateChanges;
+	
+	public RenderQueue(int initialCapacity) {
+		int capacity = Math.max(1, initialCapacity);
+		keys = new long[capacity];
+		meshes = new Object[capacity];
+		items = new Object[capacity];
+		order = new int[capacity];
+		scratch = new int[capacity];
+		counts = new int[256];
+		shaderIds = new StateIds(RenderKey.MAX_SHADER_ID);
+		materialIds = new StateIds(RenderKey.MAX_STATE_ID);
+		textureIds = new StateIds(RenderKey.MAX_STATE_ID);
+		meshIds = new StateIds(RenderKey.MAX_STATE_ID);
+	}
+	
+	/**
+	 * Builds key from state objects, registering ids for unseen ones.
+	 */
+	public long key(Object shader, Object material, Object texture, Object mesh, int depth) {
+		return RenderKey.pack(shaderIds.idOf(shader), materialIds.idOf(material), textureIds.idOf(texture), meshIds.idOf(mesh), depth);
+	}
+	
+	public void add(long key, M mesh, T item) {
+		if (size == keys.length) {
+			int capacity = size * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			meshes = Arrays.copyOf(meshes, capacity);
+			items = Arrays.copyOf(items, capacity);
+			order = new int[capacity];
+			scratch = new int[capacity];
+		}
+		keys[size] = key;
+		meshes[size] = mesh;
+		items[size] = item;
+		size++;
+		sorted = false;
+	}
+	
+	/**
+	 * Removes all items. Call at beginning of frame.
+	 */
+	public void clear() {
+		Arrays.fill(meshes, 0, size, null);
+		Arrays.fill(items, 0, size, null);
+		size = 0;
+		sorted = false;
+		shaderIds.compact();
+		materialIds.compact();
+		textureIds.compact();
+		meshIds.compact();
+	}
+	
+	/**
+	 * Stable LSD radix sort of item order by unsigned key, one byte per pass.
+	 * Passes over bytes equal in all keys are skipped.
+	 */
+	public void sort() {
+		if (sorted) { return; }
+		long and = -1L;
+		long or = 0L;
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+			and &= keys[i];
+			or |= keys[i];
+		}
+		long varying = and ^ or;
+		for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+			if (((varying >>> shift) & 0xFF) == 0) {
+				continue;
+			}
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < size; i++) {
+				counts[(int) (keys[order[i]] >>> shift) & 0xFF]++;
+			}
+			int sum = 0;
+			for (int b = 0; b < counts.length; b++) {
+				int c = counts[b];
+				counts[b] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < size; i++) {
+				int idx = order[i];
+				scratch[counts[(int) (keys[idx] >>> shift) & 0xFF]++] = idx;
+			}
+			int[] tmp = order;
+			order = scratch;
+			scratch = tmp;
+		}
+		sorted = true;
+	}
+	
+	/**
+	 * Sorts queue if needed and passes items to visitor in key order. Can be
+	 * called many times per frame, e.g. once for every shadow cascade.
+	 */
+	@SuppressWarnings("unchecked")
+	public void submit(RenderQueueVisitor<M, T> visitor) {
+		sort();
+		issuedStateChanges = 0;
+		M prevMesh = null;
+		long prevKey = 0;
+		for (int i = 0; i < size; i++) {
+			int idx = order[i];
+			long key = keys[idx];
+			M mesh = (M) meshes[idx];
+			int level = i == 0 ? 0 : changedLevel(prevKey, key);
+			if (level < STATES_PER_ITEM && i > 0) {
+				visitor.unbindMesh(prevMesh);
+			}
+			if (level <= 0) {
+				visitor.bindShader(mesh);
+				issuedStateChanges++;
+			}
+			if (level <= 1) {
+				visitor.bindMaterial(mesh);
+				issuedStateChanges++;
+			}
+			if (level <= 2) {
+				visitor.bindTexture(mesh);
+				issuedStateChanges++;
+			}
+			if (level <= 3) {
+				visitor.bindMesh(mesh);
+				issuedStateChanges++;
+			}
+			visitor.draw(mesh, (T) items[idx]);
+			prevMesh = mesh;
+			prevKey = key;
+		}
+		if (size > 0) {
+			visitor.unbindMesh(prevMesh);
+		}
+		eliminatedStateChanges = STATES_PER_ITEM * size - issuedStateChanges;
+	}
+	
+	private static int changedLevel(long prevKey, long key) {
+		if (RenderKey.shader(prevKey) != RenderKey.shader(key)) { return 0; }
+		if (RenderKey.material(prevKey) != RenderKey.material(key)) { return 1; }
+		if (RenderKey.texture(prevKey) != RenderKey.texture(key)) { return 2; }
+		if (RenderKey.mesh(prevKey) != RenderKey.mesh(key)) { return 3; }
+		return STATES_PER_ITEM;
+	}
+	
+	/**
+	 * @param position
+	 *           position in sorted order
+	 * @return item at given position, valid after {@link #sort()}
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int position) {
+		return (T) items[order[position]];
+	}
+	
+	@SuppressWarnings("unchecked")
+	public M getMesh(int position) {
+		return (M) meshes[order[position]];
+	}
+	
+	public long getKey(int position) {
+		return keys[order[position]];
+	}
+}
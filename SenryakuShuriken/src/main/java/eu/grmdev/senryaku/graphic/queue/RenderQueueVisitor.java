@@ -0,0 +1,28 @@
+package eu.grmdev.senryaku.graphic.queue;
+
+/**
+ * Receives sorted draw items from {@link RenderQueue}. Bind methods are
+ * called only when given state differs from state of previous item; change
+ * of a state always rebinds all less significant states.
+ *
+ * @param <M>
+ *           type of mesh carrying shared state
+ * @param <T>
+ *           type of drawn instance
+ */
+public interface RenderQueueVisitor<M, T> {
+	void bindShader(M mesh);
+	
+	void bindMaterial(M mesh);
+	
+	void bindTexture(M mesh);
+	
+	void bindMesh(M mesh);
+	
+	/**
+	 * Called before mesh is replaced and after last item.
+	 */
+	void unbindMesh(M mesh);
+	
+	void draw(M mesh, T item);
+}
@@ -0,0 +1,44 @@
+package eu.grmdev.senryaku.graphic.queue;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Assigns small, stable ids to state objects (shaders, materials, textures,
+ * meshes) so they fit into {@link RenderKey} fields. Id 0 is reserved for
+ * <code>null</code>.
+ */
+public class StateIds {
+	private final Map<Object, Integer> ids;
+	private final int maxId;
+	
+	public StateIds(int maxId) {
+		this.ids = new IdentityHashMap<>();
+		this.maxId = maxId;
+	}
+	
+	public int idOf(Object state) {
+		if (state == null) { return 0; }
+		Integer id = ids.get(state);
+		if (id == null) {
+			if (ids.size() >= maxId) { throw new IllegalStateException("Too many render states, limit is " + maxId); }
+			id = ids.size() + 1;
+			ids.put(state, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Forgets all ids when more than half of id space is used. Call only
+	 * between frames, ids given before reset are not valid after it.
+	 */
+	public void compact() {
+		if (ids.size() > maxId / 2) {
+			ids.clear();
+		}
+	}
+	
+	public int size() {
+		return ids.size();
+	}
+}
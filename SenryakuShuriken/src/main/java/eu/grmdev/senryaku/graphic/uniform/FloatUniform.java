@@ -0,0 +1,27 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import static org.lwjgl.opengl.GL20.glUniform1f;
+
+public class FloatUniform extends Uniform {
+	private float value;
+	
+	public FloatUniform(int location) {
+		super(location);
+	}
+	
+	public void set(float value) {
+		if (update(value)) {
+			glUniform1f(location, value);
+		}
+	}
+	
+	/**
+	 * @return true when value differs from last sent one and must be sent
+	 */
+	public boolean update(float value) {
+		if (sent && Float.floatToIntBits(this.value) == Float.floatToIntBits(value)) { return false; }
+		this.value = value;
+		sent = true;
+		return true;
+	}
+}
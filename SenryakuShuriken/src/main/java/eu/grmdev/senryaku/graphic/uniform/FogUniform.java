@@ -0,0 +1,20 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import eu.grmdev.senryaku.graphic.effects.Fog;
+import lombok.AllArgsConstructor;
+
+/**
+ * Handles of <code>Fog</code> struct fields.
+ */
+@AllArgsConstructor
+public class FogUniform {
+	private final IntUniform activeFog;
+	private final Vec3Uniform colour;
+	private final FloatUniform density;
+	
+	public void set(Fog fog) {
+		activeFog.set(fog.isActive());
+		colour.set(fog.getColor());
+		density.set(fog.getDensity());
+	}
+}
@@ -0,0 +1,31 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import static org.lwjgl.opengl.GL20.glUniform1i;
+
+public class IntUniform extends Uniform {
+	private int value;
+	
+	public IntUniform(int location) {
+		super(location);
+	}
+	
+	public void set(int value) {
+		if (update(value)) {
+			glUniform1i(location, value);
+		}
+	}
+	
+	public void set(boolean value) {
+		set(value ? 1 : 0);
+	}
+	
+	/**
+	 * @return true when value differs from last sent one and must be sent
+	 */
+	public boolean update(int value) {
+		if (sent && this.value == value) { return false; }
+		this.value = value;
+		sent = true;
+		return true;
+	}
+}
@@ -0,0 +1,37 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import static org.lwjgl.opengl.GL20.glUniformMatrix4fv;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryStack;
+
+public class Mat4Uniform extends Uniform {
+	private final Matrix4f value;
+	
+	public Mat4Uniform(int location) {
+		super(location);
+		value = new Matrix4f();
+	}
+	
+	public void set(Matrix4f value) {
+		if (update(value)) {
+			try (MemoryStack stack = MemoryStack.stackPush()) {
+				FloatBuffer fb = stack.mallocFloat(16);
+				value.get(fb);
+				glUniformMatrix4fv(location, false, fb);
+			}
+		}
+	}
+	
+	/**
+	 * @return true when value differs from last sent one and must be sent
+	 */
+	public boolean update(Matrix4f value) {
+		if (sent && this.value.equals(value)) { return false; }
+		this.value.set(value);
+		sent = true;
+		return true;
+	}
+}
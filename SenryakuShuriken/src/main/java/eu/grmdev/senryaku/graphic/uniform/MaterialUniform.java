@@ -0,0 +1,28 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import eu.grmdev.senryaku.graphic.mesh.Material;
+import lombok.AllArgsConstructor;
+
+/**
+ * Handles of <code>Material</code> struct fields.
+ */
+@AllArgsConstructor
+public class MaterialUniform {
+	private final Vec4Uniform ambient;
+	private final Vec4Uniform diffuse;
+	private final Vec4Uniform specular;
+	private final IntUniform hasTexture;
+	private final IntUniform hasNormalMap;
+	private final FloatUniform reflectance;
+	private final IntUniform layer;
+	
+	public void set(Material material) {
+		ambient.set(material.getAmbientColor());
+		diffuse.set(material.getDiffuseColor());
+		specular.set(material.getSpecularColor());
+		hasTexture.set(material.isTextured());
+		hasNormalMap.set(material.hasNormalMap());
+		reflectance.set(material.getReflectance());
+		layer.set(material.getLayer());
+	}
+}
@@ -0,0 +1,25 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import lombok.Getter;
+
+/**
+ * Handle of one uniform of one shader program. Created once by
+ * {@link eu.grmdev.senryaku.graphic.ShaderProgram}, keeps location and last
+ * value sent, so setting the same value again does not call OpenGL.
+ */
+public abstract class Uniform {
+	protected final @Getter int location;
+	protected boolean sent;
+	
+	protected Uniform(int location) {
+		this.location = location;
+		this.sent = false;
+	}
+	
+	/**
+	 * Forgets cached value, next set will be sent to OpenGL.
+	 */
+	public void invalidate() {
+		sent = false;
+	}
+}
@@ -0,0 +1,62 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import lombok.Getter;
+
+/**
+ * Uniform buffer object bound to fixed binding point. Block data is written
+ * into {@link #getData()} with absolute puts (std140 layout) and sent by
+ * {@link #upload()} only when it differs from data sent last time.
+ */
+public class UniformBuffer {
+	private final int id;
+	private final @Getter int binding;
+	private final @Getter int size;
+	private final @Getter ByteBuffer data;
+	private final ByteBuffer uploaded;
+	private boolean sent;
+	
+	public UniformBuffer(int binding, int size) {
+		this.binding = binding;
+		this.size = size;
+		data = MemoryUtil.memCalloc(size);
+		uploaded = MemoryUtil.memCalloc(size);
+		id = glGenBuffers();
+		glBindBuffer(GL_UNIFORM_BUFFER, id);
+		glBufferData(GL_UNIFORM_BUFFER, size, GL_DYNAMIC_DRAW);
+		glBindBuffer(GL_UNIFORM_BUFFER, 0);
+		glBindBufferBase(GL_UNIFORM_BUFFER, binding, id);
+	}
+	
+	/**
+	 * Sends data to GPU if it changed since last upload.
+	 *
+	 * @return true when data was sent
+	 */
+	public boolean upload() {
+		data.clear();
+		uploaded.clear();
+		if (sent && data.equals(uploaded)) { return false; }
+		uploaded.put(data);
+		data.clear();
+		uploaded.clear();
+		glBindBuffer(GL_UNIFORM_BUFFER, id);
+		glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+		glBindBuffer(GL_UNIFORM_BUFFER, 0);
+		sent = true;
+		return true;
+	}
+	
+	public void cleanup() {
+		glDeleteBuffers(id);
+		MemoryUtil.memFree(data);
+		MemoryUtil.memFree(uploaded);
+	}
+}
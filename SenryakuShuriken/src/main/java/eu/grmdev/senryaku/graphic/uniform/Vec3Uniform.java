@@ -0,0 +1,34 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import static org.lwjgl.opengl.GL20.glUniform3f;
+
+import org.joml.Vector3f;
+
+public class Vec3Uniform extends Uniform {
+	private final Vector3f value;
+	
+	public Vec3Uniform(int location) {
+		super(location);
+		value = new Vector3f();
+	}
+	
+	public void set(Vector3f value) {
+		set(value.x, value.y, value.z);
+	}
+	
+	public void set(float x, float y, float z) {
+		if (update(x, y, z)) {
+			glUniform3f(location, x, y, z);
+		}
+	}
+	
+	/**
+	 * @return true when value differs from last sent one and must be sent
+	 */
+	public boolean update(float x, float y, float z) {
+		if (sent && value.x == x && value.y == y && value.z == z) { return false; }
+		value.set(x, y, z);
+		sent = true;
+		return true;
+	}
+}
@@ -0,0 +1,30 @@
+package eu.grmdev.senryaku.graphic.uniform;
+
+import static org.lwjgl.opengl.GL20.glUniform4f;
+
+import org.joml.Vector4f;
+
+public class Vec4Uniform extends Uniform {
+	private final Vector4f value;
+	
+	public Vec4Uniform(int location) {
+		super(location);
+		value = new Vector4f();
+	}
+	
+	public void set(Vector4f value) {
+		if (update(value)) {
+			glUniform4f(location, value.x, value.y, value.z, value.w);
+		}
+	}
+	
+	/**
+	 * @return true when value differs from last sent one and must be sent
+	 */
+	public boolean update(Vector4f value) {
+		if (sent && this.value.equals(value)) { return false; }
+		this.value.set(value);
+		sent = true;
+		return true;
+	}
+}
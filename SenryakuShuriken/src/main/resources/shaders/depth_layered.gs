@@ -0,0 +1,27 @@
+#version 330
+
+const int NUM_CASCADES = 3;
+
+layout (triangles) in;
+layout (triangle_strip, max_vertices = 9) out;
+
+uniform mat4 lightProjViewMatrix[NUM_CASCADES];
+uniform int layerMask;
+
+void main()
+{
+    for (int layer = 0; layer < NUM_CASCADES; layer++)
+    {
+        if ( (layerMask & (1 << layer)) == 0 )
+        {
+            continue;
+        }
+        for (int i = 0; i < 3; i++)
+        {
+            gl_Layer = layer;
+            gl_Position = lightProjViewMatrix[layer] * gl_in[i].gl_Position;
+            EmitVertex();
+        }
+        EndPrimitive();
+    }
+}
@@ -0,0 +1,35 @@
+#version 330
+
+layout (location=0) in vec3 position;
+layout (location=1) in vec2 texCoord;
+layout (location=5) in vec3 particlePosition;
+// ttl, animation time, animation period, frame
+layout (location=6) in vec4 particleLife;
+
+out vec2 outTexCoord;
+
+uniform mat4 viewMatrix;
+uniform mat4 projectionMatrix;
+
+uniform int numCols;
+uniform int numRows;
+
+void main()
+{
+    // Dead slot, outside of clip volume
+    if (particleLife.x < 0.0) {
+        gl_Position = vec4(2.0, 2.0, 2.0, 1.0);
+        outTexCoord = vec2(0.0);
+        return;
+    }
+    // Billboard, rotation of inverse view without scale as for CPU particles
+    mat4 modelMatrix = mat4(transpose(mat3(viewMatrix)));
+    modelMatrix[3] = vec4(particlePosition, 1.0);
+    gl_Position = projectionMatrix * viewMatrix * modelMatrix * vec4(position, 1.0);
+    
+    int frame = int(particleLife.w);
+    float x = (texCoord.x / numCols + float(frame % numCols) / numCols);
+    float y = (texCoord.y / numRows + float(frame / numCols) / numRows);
+
+    outTexCoord = vec2(x, y);
+}
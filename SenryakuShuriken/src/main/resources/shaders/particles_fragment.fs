@@ -5,8 +5,17 @@ in vec3 mvPos;
 out vec4 fragColor;
 
 uniform sampler2D texture_sampler;
+uniform sampler2DArray textureLayers;
+uniform int layer;
 
 void main()
 {
-    fragColor = texture(texture_sampler, outTexCoord);
+    if (layer >= 0)
+    {
+        fragColor = texture(textureLayers, vec3(outTexCoord, layer));
+    }
+    else
+    {
+        fragColor = texture(texture_sampler, outTexCoord);
+    }
 }
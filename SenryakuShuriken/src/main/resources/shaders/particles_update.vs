@@ -0,0 +1,42 @@
+#version 330
+
+layout (location=0) in vec3 position;
+layout (location=1) in vec3 velocity;
+// ttl, animation time, animation period, frame
+layout (location=2) in vec4 life;
+layout (location=3) in float scale;
+
+out vec3 outPosition;
+out vec3 outVelocity;
+out vec4 outLife;
+out float outScale;
+
+uniform float elapsedMillis;
+uniform float delta;
+uniform int animFrames;
+
+void main()
+{
+    outPosition = position;
+    outVelocity = velocity;
+    outLife = life;
+    outScale = scale;
+    
+    // Dead slot, waits for spawn
+    if (life.x < 0.0) {
+        return;
+    }
+    float ttl = life.x - elapsedMillis;
+    outLife.x = ttl;
+    if (ttl < 0.0) {
+        return;
+    }
+    float time = life.y + elapsedMillis;
+    if (time >= life.z && animFrames > 0) {
+        time = 0.0;
+        float next = life.w + 1.0;
+        outLife.w = next < float(animFrames) ? next : 0.0;
+    }
+    outLife.y = time;
+    outPosition = position + velocity * delta;
+}
@@ -50,6 +50,7 @@ struct Material
     int hasTexture;
     int hasNormalMap;
     float reflectance;
+    int layer;
 };
 
 struct Fog
@@ -60,20 +61,29 @@ struct Fog
 };
 
 uniform sampler2D texture_sampler;
+uniform sampler2DArray textureLayers;
 uniform sampler2D normalMap;
-uniform sampler2D shadowMap_0;
-uniform sampler2D shadowMap_1;
-uniform sampler2D shadowMap_2;
-uniform vec3 ambientLight;
-uniform float specularPower;
+uniform sampler2DArray shadowMaps;
 uniform Material material;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
-uniform SpotLight spotLights[MAX_SPOT_LIGHTS];
-uniform DirectionalLight directionalLight;
 uniform Fog fog;
-uniform float cascadeFarPlanes[NUM_CASCADES];
 uniform int renderShadow;
 
+layout (std140) uniform Lights
+{
+    PointLight pointLights[MAX_POINT_LIGHTS];
+    SpotLight spotLights[MAX_SPOT_LIGHTS];
+    DirectionalLight directionalLight;
+    vec3 ambientLight;
+    float specularPower;
+};
+
+layout (std140) uniform Cascades
+{
+    mat4 lightViewMatrix[NUM_CASCADES];
+    mat4 orthoProjectionMatrix[NUM_CASCADES];
+    float cascadeFarPlanes[NUM_CASCADES];
+};
+
 vec4 ambientC;
 vec4 diffuseC;
 vec4 speculrC;
@@ -82,7 +92,14 @@ void setupColours(Material material, vec2 textCoord)
 {
     if (material.hasTexture == 1)
     {
-        ambientC = texture(texture_sampler, textCoord);
+        if (material.layer >= 0)
+        {
+            ambientC = texture(textureLayers, vec3(textCoord, material.layer));
+        }
+        else
+        {
+            ambientC = texture(texture_sampler, textCoord);
+        }
         diffuseC = ambientC;
         speculrC = ambientC;
     }
@@ -184,36 +201,12 @@ float calcShadow(vec4 position, int idx)
     float bias = 0.005;
 
     float shadowFactor = 0.0;
-    vec2 inc;
-    if (idx == 0)
-    {
-        inc = 1.0 / textureSize(shadowMap_0, 0);
-    }
-    else if (idx == 1)
-    {
-        inc = 1.0 / textureSize(shadowMap_1, 0);
-    }
-    else
-    {
-        inc = 1.0 / textureSize(shadowMap_2, 0);
-    }
+    vec2 inc = 1.0 / textureSize(shadowMaps, 0).xy;
     for(int row = -1; row <= 1; ++row)
     {
         for(int col = -1; col <= 1; ++col)
         {
-            float textDepth;
-            if (idx == 0)
-            {
-                textDepth = texture(shadowMap_0, projCoords.xy + vec2(row, col) * inc).r; 
-            }
-            else if (idx == 1)
-            {
-                textDepth = texture(shadowMap_1, projCoords.xy + vec2(row, col) * inc).r; 
-            }
-            else
-            {
-                textDepth = texture(shadowMap_2, projCoords.xy + vec2(row, col) * inc).r; 
-            }
+            float textDepth = texture(shadowMaps, vec3(projCoords.xy + vec2(row, col) * inc, idx)).r; 
             shadowFactor += projCoords.z - bias > textDepth ? 1.0 : 0.0;        
         }    
     }
@@ -25,12 +25,17 @@ uniform mat4 viewMatrix;
 uniform mat4 projectionMatrix;
 uniform mat4 modelNonInstancedMatrix;
 uniform mat4 jointsMatrix[MAX_JOINTS];
-uniform mat4 lightViewMatrix[NUM_CASCADES];
-uniform mat4 orthoProjectionMatrix[NUM_CASCADES];
 uniform int numCols;
 uniform int numRows;
 uniform float selectedNonInstanced;
 
+layout (std140) uniform Cascades
+{
+    mat4 lightViewMatrix[NUM_CASCADES];
+    mat4 orthoProjectionMatrix[NUM_CASCADES];
+    float cascadeFarPlanes[NUM_CASCADES];
+};
+
 void main()
 {
     vec4 initPos = vec4(0, 0, 0, 0);
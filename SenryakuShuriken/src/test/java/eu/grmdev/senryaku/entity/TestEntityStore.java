@@ -0,0 +1,72 @@
+package eu.grmdev.senryaku.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.entity.EntityStore;
+
+public class TestEntityStore {
+	@Test
+	public void testHandlesSurviveSwapRemove() {
+		EntityStore store = new EntityStore(2);
+		int[] handles = new int[5];
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = store.create(null);
+			store.setPosition(store.rowOf(handles[i]), i, 0, 0);
+		}
+		assertThat(store.getSize()).isEqualTo(5);
+		
+		store.destroy(handles[1]);
+		assertThat(store.getSize()).isEqualTo(4);
+		assertThat(store.isAlive(handles[1])).isFalse();
+		for (int i : new int[]{0, 2, 3, 4}) {
+			int row = store.rowOf(handles[i]);
+			assertThat(row).isBetween(0, 3);
+			assertThat(store.getTransforms()[row * EntityStore.TRANSFORM_SIZE_FLOATS + EntityStore.POSITION]).isEqualTo(i);
+		}
+		
+		int reused = store.create(null);
+		assertThat(reused).isNotEqualTo(handles[1]);
+		assertThat(store.isAlive(handles[1])).isFalse();
+		assertThat(store.isAlive(reused)).isTrue();
+		store.destroy(handles[1]);
+		assertThat(store.getSize()).isEqualTo(5);
+		assertThat(store.rowOf(EntityStore.NO_HANDLE)).isEqualTo(-1);
+	}
+	
+	@Test
+	public void testNewEntityHasIdentityTransform() {
+		EntityStore store = new EntityStore();
+		int row = store.rowOf(store.create(null));
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS;
+		assertThat(t[o + EntityStore.ROTATION + 3]).isEqualTo(1);
+		assertThat(t[o + EntityStore.SCALE]).isEqualTo(1);
+		assertThat(store.hasFlag(row, EntityStore.FLAG_INSIDE_FRUSTUM)).isTrue();
+		assertThat(store.hasFlag(row, EntityStore.FLAG_IN_SCENE)).isFalse();
+	}
+	
+	@Test
+	public void testSystemsAndQueries() {
+		EntityStore store = new EntityStore();
+		for (int i = 0; i < 10; i++) {
+			int row = store.rowOf(store.create(null));
+			store.setFlag(row, EntityStore.FLAG_IN_SCENE, i % 3 == 0);
+			store.move(row, 1, 0);
+		}
+		store.run((s, from, to) -> {
+			for (int row = from; row < to; row++) {
+				s.animate(row, 250);
+			}
+		});
+		float[] m = store.getMovement();
+		for (int row = 0; row < store.getSize(); row++) {
+			assertThat(m[row * EntityStore.MOVEMENT_SIZE_FLOATS + EntityStore.MOVE_NEXT]).isEqualTo(0.5f);
+		}
+		
+		int[] rows = new int[store.getSize()];
+		assertThat(store.query(EntityStore.FLAG_IN_SCENE, rows)).isEqualTo(4);
+		assertThat(rows[3]).isEqualTo(9);
+	}
+}
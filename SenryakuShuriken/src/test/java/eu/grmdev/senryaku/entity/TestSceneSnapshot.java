@@ -0,0 +1,101 @@
+package eu.grmdev.senryaku.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.joml.Quaternionf;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.Scene;
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.graphic.Camera;
+
+public class TestSceneSnapshot {
+	@Test
+	public void testInterpolation() {
+		SceneSnapshot frame = new SceneSnapshot();
+		frame.begin(200, 100);
+		int slot = frame.addSlot(0, 0);
+		int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+		SceneSnapshot.put(frame.getPrevious(), o, 0, 0, 0, new Quaternionf(), 1);
+		SceneSnapshot.put(frame.getCurrent(), o, 10, 2, -4, new Quaternionf().rotateY((float) Math.PI / 2), 3);
+		
+		assertThat(frame.interpolate(250)).isEqualTo(0.5f);
+		float[] t = frame.getInterpolated();
+		assertThat(t[o]).isEqualTo(5);
+		assertThat(t[o + 1]).isEqualTo(1);
+		assertThat(t[o + 2]).isEqualTo(-2);
+		assertThat(t[o + SceneSnapshot.SCALE]).isEqualTo(2);
+		Quaternionf expected = new Quaternionf().rotateY((float) Math.PI / 4);
+		assertThat(t[o + SceneSnapshot.ROTATION + 1]).isCloseTo(expected.y, within(1e-6f));
+		assertThat(t[o + SceneSnapshot.ROTATION + 3]).isCloseTo(expected.w, within(1e-6f));
+		
+		assertThat(frame.interpolate(150)).isEqualTo(0);
+		assertThat(frame.interpolate(400)).isEqualTo(1);
+		assertThat(frame.getInterpolated()[o]).isEqualTo(10);
+	}
+	
+	@Test
+	public void testRotationTakesShorterArc() {
+		SceneSnapshot frame = new SceneSnapshot();
+		frame.begin(200, 100);
+		frame.addSlot(0, 0);
+		SceneSnapshot.put(frame.getPrevious(), 0, 0, 0, 0, new Quaternionf(), 1);
+		SceneSnapshot.put(frame.getCurrent(), 0, 0, 0, 0, new Quaternionf(0, 0, 0, -1), 1);
+		frame.interpolate(250);
+		assertThat(Math.abs(frame.getInterpolated()[SceneSnapshot.ROTATION + 3])).isEqualTo(1);
+	}
+	
+	@Test
+	public void testGroups() {
+		SceneSnapshot frame = new SceneSnapshot();
+		frame.begin(0, 0);
+		for (int i = 0; i < 40; i++) {
+			frame.addSlot(i, i % 2 == 0 ? SceneSnapshot.FLAG_SELECTED : SceneSnapshot.FLAG_NO_CULLING);
+		}
+		frame.beginGroup(null);
+		frame.addItem(3);
+		frame.addItem(5);
+		frame.beginGroup(null);
+		frame.beginGroup(null);
+		for (int i = 0; i < 30; i++) {
+			frame.addItem(i);
+		}
+		assertThat(frame.getGroupCount()).isEqualTo(3);
+		assertThat(frame.getGroupEnd(1) - frame.getGroupStart(1)).isEqualTo(0);
+		assertThat(frame.getGroupEnd(2) - frame.getGroupStart(2)).isEqualTo(30);
+		assertThat(frame.isSelected(4)).isTrue();
+		assertThat(frame.isCullable(5)).isFalse();
+		
+		frame.setAllVisible();
+		frame.getVisible()[0] = false;
+		int[] slots = new int[frame.getItemCount()];
+		assertThat(frame.gatherVisible(0, slots)).isEqualTo(1);
+		assertThat(slots[0]).isEqualTo(5);
+		assertThat(frame.ref(35)).isSameAs(frame.ref(35));
+		
+		frame.begin(1, 0);
+		assertThat(frame.getSize()).isEqualTo(0);
+		assertThat(frame.getItemCount()).isEqualTo(0);
+	}
+	
+	@Test
+	public void testPublishedCameraIsInterpolated() {
+		Scene scene = new Scene();
+		Camera camera = new Camera();
+		assertThat(scene.acquireSnapshot().hasCamera()).isFalse();
+		
+		scene.publishSnapshot(1000, camera);
+		camera.setPosition(10, 0, 0);
+		camera.setRotation(0, 90, 0);
+		scene.publishSnapshot(2000, camera);
+		SceneSnapshot frame = scene.acquireSnapshot();
+		assertThat(frame.getTickNanos()).isEqualTo(2000);
+		assertThat(frame.getPreviousTickNanos()).isEqualTo(1000);
+		
+		Camera rendered = new Camera();
+		frame.interpolateCamera(2250, rendered);
+		assertThat(rendered.getPosition().x).isEqualTo(2.5f);
+		assertThat(rendered.getRotation().y).isEqualTo(22.5f);
+	}
+}
@@ -0,0 +1,106 @@
+package eu.grmdev.senryaku.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.joml.Intersectionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.entity.EntityStore;
+import eu.grmdev.senryaku.core.entity.SpatialGrid;
+
+public class TestSpatialGrid {
+	private static final int SIZE = 300;
+	
+	private static EntityStore tiles() {
+		EntityStore store = new EntityStore(SIZE * SIZE);
+		for (int x = 0; x < SIZE; x++) {
+			for (int z = 0; z < SIZE; z++) {
+				int row = store.rowOf(store.create(null));
+				store.setPosition(row, x, (x * 7 + z * 3) % 5 * 0.1f, z);
+				store.setIndexed(row, true);
+			}
+		}
+		return store;
+	}
+	
+	private static float intersect(EntityStore store, int handle, Vector3f origin, Vector3f dir) {
+		int row = store.rowOf(handle);
+		float[] t = store.getTransforms();
+		int o = row * EntityStore.TRANSFORM_SIZE_FLOATS;
+		float s = t[o + EntityStore.SCALE];
+		Vector3f min = new Vector3f(t[o] - s, t[o + 1] - s, t[o + 2] - s);
+		Vector3f max = new Vector3f(t[o] + s / 2, t[o + 1] + s / 2, t[o + 2] + s / 2);
+		Vector2f nearFar = new Vector2f();
+		return Intersectionf.intersectRayAab(origin, dir, min, max, nearFar) ? nearFar.x : Float.POSITIVE_INFINITY;
+	}
+	
+	private static int bruteForce(EntityStore store, Vector3f origin, Vector3f dir) {
+		float best = Float.POSITIVE_INFINITY;
+		int bestHandle = EntityStore.NO_HANDLE;
+		for (int row = 0; row < store.getSize(); row++) {
+			int handle = store.getHandle(row);
+			float hit = intersect(store, handle, origin, dir);
+			if (hit < best) {
+				best = hit;
+				bestHandle = handle;
+			}
+		}
+		return bestHandle;
+	}
+	
+	@Test
+	public void testRaycastMatchesLinearSearch() {
+		EntityStore store = tiles();
+		SpatialGrid grid = store.getGrid();
+		assertThat(grid.getSize()).isEqualTo(SIZE * SIZE);
+		Vector3f[][] rays = {
+			{new Vector3f(150.3f, 20, 150.7f), new Vector3f(0.1f, -1, 0.05f)},
+			{new Vector3f(-5, 0.2f, 100.5f), new Vector3f(1, 0, 0)},
+			{new Vector3f(-20, 30, -20), new Vector3f(1, -0.3f, 0.8f)},
+			{new Vector3f(310, 5, 40), new Vector3f(-1, -0.02f, 0.3f)}};
+		for (Vector3f[] ray : rays) {
+			Vector3f o = ray[0], d = ray[1];
+			int[] tests = new int[1];
+			int handle = grid.raycast(o.x, o.y, o.z, d.x, d.y, d.z, h -> {
+				tests[0]++;
+				return intersect(store, h, o, d);
+			});
+			assertThat(handle).isNotEqualTo(EntityStore.NO_HANDLE).isEqualTo(bruteForce(store, o, d));
+			assertThat(tests[0]).isLessThan(500);
+			assertThat(grid.getVisitedCells()).isLessThan(500);
+		}
+		
+		int miss = grid.raycast(0, 50, 0, 0, 1, 0, h -> intersect(store, h, new Vector3f(0, 50, 0), new Vector3f(0, 1, 0)));
+		assertThat(miss).isEqualTo(EntityStore.NO_HANDLE);
+	}
+	
+	@Test
+	public void testIndexFollowsEntity() {
+		EntityStore store = new EntityStore();
+		int handle = store.create(null);
+		int other = store.create(null);
+		store.setIndexed(store.rowOf(handle), true);
+		store.setIndexed(store.rowOf(other), true);
+		store.setPosition(store.rowOf(handle), 10, 0, 10);
+		store.setPosition(store.rowOf(other), 20, 0, 20);
+		SpatialGrid grid = store.getGrid();
+		Vector3f o = new Vector3f(10, 10, 10);
+		Vector3f down = new Vector3f(0, -1, 0);
+		assertThat(grid.raycast(o.x, o.y, o.z, 0, -1, 0, h -> intersect(store, h, o, down))).isEqualTo(handle);
+		
+		store.move(store.rowOf(handle), 5, 0);
+		store.animate(store.rowOf(handle), 1000);
+		store.animate(store.rowOf(handle), 1000);
+		assertThat(grid.raycast(o.x, o.y, o.z, 0, -1, 0, h -> intersect(store, h, o, down))).isEqualTo(EntityStore.NO_HANDLE);
+		o.x = 15;
+		assertThat(grid.raycast(o.x, o.y, o.z, 0, -1, 0, h -> intersect(store, h, o, down))).isEqualTo(handle);
+		
+		store.destroy(handle);
+		assertThat(grid.getSize()).isEqualTo(1);
+		assertThat(grid.raycast(o.x, o.y, o.z, 0, -1, 0, h -> intersect(store, h, o, down))).isEqualTo(EntityStore.NO_HANDLE);
+		store.setIndexed(store.rowOf(other), false);
+		assertThat(grid.getSize()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,79 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.opengl.GL;
+
+/**
+ * Hidden window with current OpenGL context for tests which need GPU. Tests
+ * are skipped when no context can be created, software GL such as llvmpipe
+ * is enough. With system property <code>senryaku.gl.required</code> set (CI
+ * runs under Xvfb) they fail instead of being skipped.
+ */
+public final class GlContext {
+	private static final boolean REQUIRED = Boolean.getBoolean("senryaku.gl.required");
+	
+	private GlContext() {}
+	
+	/**
+	 * @return window of current core profile context, {@link org.lwjgl.system.MemoryUtil#NULL}
+	 *         when it cannot be created
+	 * @throws IllegalStateException
+	 *            when context cannot be created, but is required
+	 */
+	public static long create(int major, int minor) {
+		try {
+			if (REQUIRED) {
+				GLFWErrorCallback.createPrint(System.err).set();
+			}
+			if (!glfwInit()) { return unavailable(major, minor); }
+		}
+		catch (Throwable e) {
+			if (REQUIRED) { throw new IllegalStateException("GLFW cannot be initialized", e); }
+			return NULL;
+		}
+		glfwDefaultWindowHints();
+		glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+		glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, major);
+		glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, minor);
+		glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+		glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
+		long window = glfwCreateWindow(16, 16, "test", NULL, NULL);
+		if (window == NULL) {
+			glfwTerminate();
+			return unavailable(major, minor);
+		}
+		glfwMakeContextCurrent(window);
+		GL.createCapabilities();
+		return window;
+	}
+	
+	private static long unavailable(int major, int minor) {
+		if (REQUIRED) { throw new IllegalStateException("No OpenGL " + major + "." + minor + " context"); }
+		return NULL;
+	}
+	
+	/**
+	 * Skips test when context lacks feature, fails it when GL tests are
+	 * required.
+	 */
+	public static void assumeSupported(String feature, boolean supported) {
+		if (REQUIRED) {
+			assertTrue("No " + feature, supported);
+		} else {
+			assumeTrue("No " + feature, supported);
+		}
+	}
+	
+	public static void destroy(long window) {
+		glfwDestroyWindow(window);
+		glfwTerminate();
+		if (REQUIRED) {
+			glfwSetErrorCallback(null).free();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.graphic.culling.DrawListBuilder;
+import eu.grmdev.senryaku.graphic.culling.DrawLists;
+
+public class TestDrawListBuilder {
+	@Test
+	public void testListsMatchVisibleItems() {
+		SceneSnapshot frame = new SceneSnapshot();
+		frame.begin(1, 0);
+		for (int i = 0; i < 100; i++) {
+			frame.addSlot(0, 0);
+		}
+		int[] groupSizes = {37, 0, 100, 5};
+		for (int size : groupSizes) {
+			frame.beginGroup(null);
+			for (int i = 0; i < size; i++) {
+				frame.addItem((i * 7) % 100);
+			}
+		}
+		int[] visibleSlots = new int[100];
+		int count = 0;
+		for (int slot = 0; slot < 100; slot++) {
+			if (slot % 3 != 0) {
+				visibleSlots[count++] = slot;
+			}
+		}
+		DrawLists lists = new DrawLists();
+		new DrawListBuilder(ForkJoinPool.commonPool(), 4).build(frame, visibleSlots, count, lists);
+		
+		int[] expected = new int[frame.getItemCount()];
+		assertThat(lists.getGroupCount()).isEqualTo(groupSizes.length);
+		for (int g = 0; g < groupSizes.length; g++) {
+			int n = frame.gatherVisible(g, expected);
+			int start = lists.getStart(g);
+			assertThat(lists.getCount(g)).isEqualTo(n);
+			assertThat(Arrays.copyOfRange(lists.getSlots(), start, start + n)).containsExactly(Arrays.copyOf(expected, n));
+			for (int i = start; i < start + n; i++) {
+				assertThat(lists.getSlots()[i] % 3).isNotZero();
+			}
+		}
+		
+		new DrawListBuilder(ForkJoinPool.commonPool(), 1000).buildAll(frame, lists);
+		assertThat(lists.getCount(2)).isEqualTo(100);
+		assertThat(lists.getStart(3)).isEqualTo(137);
+	}
+}
@@ -0,0 +1,102 @@
+package eu.grmdev.senryaku.graphic;
+
+import static eu.grmdev.senryaku.graphic.mesh.InstancePacker.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.graphic.mesh.InstanceRingBuffer;
+import eu.grmdev.senryaku.graphic.mesh.InstanceUpload;
+
+/**
+ * Uploads more chunks than ring has regions and copies each of them on GPU
+ * right after its upload, like a draw call reads it. Skipped when no OpenGL
+ * 3.3 context can be created.
+ */
+public class TestInstanceRingBuffer {
+	private static final int INSTANCES = 4;
+	private static final int CHUNK_FLOATS = INSTANCES * INSTANCE_SIZE_FLOATS;
+	private static final long CHUNK_BYTES = (long) CHUNK_FLOATS * FLOAT_SIZE_BYTES;
+	
+	@Test
+	public void testOrphanRingKeepsEveryChunk() {
+		long window = GlContext.create(3, 3);
+		assumeTrue("No OpenGL 3.3 context", window != NULL);
+		try {
+			uploadChunks(InstanceUpload.ORPHAN);
+		}
+		finally {
+			GlContext.destroy(window);
+		}
+	}
+	
+	@Test
+	public void testPersistentRingKeepsEveryChunk() {
+		long window = GlContext.create(3, 3);
+		assumeTrue("No OpenGL 3.3 context", window != NULL);
+		try {
+			GlContext.assumeSupported("persistent mapping", InstanceRingBuffer.isPersistentSupported());
+			uploadChunks(InstanceUpload.PERSISTENT);
+		}
+		finally {
+			GlContext.destroy(window);
+		}
+	}
+	
+	private static void uploadChunks(InstanceUpload upload) {
+		InstanceUpload previous = InstanceRingBuffer.getDefaultUpload();
+		InstanceRingBuffer.setDefaultUpload(upload);
+		int vbo = glGenBuffers();
+		int copies = glGenBuffers();
+		InstanceRingBuffer ring = null;
+		FloatBuffer read = null;
+		try {
+			ring = new InstanceRingBuffer(vbo, INSTANCES, 1);
+			assertThat(ring.getUpload()).isEqualTo(upload);
+			int regions = InstanceRingBuffer.FRAMES_IN_FLIGHT;
+			// wraps around ring several times
+			int chunks = regions * 3 + 1;
+			glBindBuffer(GL_COPY_WRITE_BUFFER, copies);
+			glBufferData(GL_COPY_WRITE_BUFFER, CHUNK_BYTES * chunks, GL_STATIC_READ);
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				FloatBuffer data = ring.next();
+				for (int f = 0; f < CHUNK_FLOATS; f++) {
+					data.put(f, chunk * 1000 + f);
+				}
+				glBindBuffer(GL_ARRAY_BUFFER, vbo);
+				long offset = ring.commit(INSTANCES);
+				assertThat(offset).isEqualTo(chunk % regions * CHUNK_BYTES);
+				glCopyBufferSubData(GL_ARRAY_BUFFER, GL_COPY_WRITE_BUFFER, offset, chunk * CHUNK_BYTES, CHUNK_BYTES);
+				ring.fence();
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, 0);
+			
+			read = MemoryUtil.memAllocFloat(CHUNK_FLOATS * chunks);
+			glGetBufferSubData(GL_COPY_WRITE_BUFFER, 0, read);
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				for (int f = 0; f < CHUNK_FLOATS; f++) {
+					assertThat(read.get(chunk * CHUNK_FLOATS + f)).as("chunk %d float %d", chunk, f).isEqualTo(chunk * 1000 + f);
+				}
+			}
+			assertThat(glGetError()).isEqualTo(GL_NO_ERROR);
+		}
+		finally {
+			MemoryUtil.memFree(read);
+			if (ring != null) {
+				ring.cleanup();
+			}
+			glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+			glDeleteBuffers(copies);
+			glDeleteBuffers(vbo);
+			InstanceRingBuffer.setDefaultUpload(previous);
+		}
+	}
+}
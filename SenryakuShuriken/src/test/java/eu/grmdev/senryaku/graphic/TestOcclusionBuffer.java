@@ -0,0 +1,74 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.map.Tile;
+import eu.grmdev.senryaku.core.map.TileGrid;
+import eu.grmdev.senryaku.core.map.WallOccluders;
+import eu.grmdev.senryaku.graphic.culling.OcclusionBuffer;
+
+public class TestOcclusionBuffer {
+	private static final Matrix4f PROJECTION = new Matrix4f().perspective((float) Math.toRadians(60), 2, 0.01f, 1000);
+	
+	/**
+	 * 20x20 floor with wall along x = 10, tiles 5..14 of z, seen from x = 2.
+	 */
+	private static OcclusionBuffer wallScene(WallOccluders[] occluders) {
+		Tile[][] tiles = new Tile[20][20];
+		for (Tile[] row : tiles) {
+			Arrays.fill(row, Tile.FLOOR);
+		}
+		for (int z = 5; z < 15; z++) {
+			tiles[10][z] = Tile.WALL;
+		}
+		occluders[0] = new WallOccluders(TileGrid.of(tiles), 1f);
+		Matrix4f view = new Matrix4f().lookAt(2, 1, 10, 20, 1, 10, 0, 1, 0);
+		OcclusionBuffer buffer = new OcclusionBuffer(256, 128);
+		buffer.begin(PROJECTION, view);
+		FrustumIntersection frustum = new FrustumIntersection(new Matrix4f(PROJECTION).mul(view));
+		occluders[0].rasterize(buffer, frustum, new Vector3f(2, 1, 10), 48);
+		buffer.finish();
+		return buffer;
+	}
+	
+	@Test
+	public void testWallIsMergedIntoOneBox() {
+		WallOccluders[] occluders = new WallOccluders[1];
+		OcclusionBuffer buffer = wallScene(occluders);
+		assertThat(occluders[0].getCount()).isEqualTo(1);
+		assertThat(buffer.getOccluderCount()).isEqualTo(1);
+		Vector3f min = new Vector3f();
+		Vector3f max = new Vector3f();
+		occluders[0].getBox(0, min, max);
+		assertThat(min.z).isBetween(4.5f, 4.55f);
+		assertThat(max.z).isBetween(14.45f, 14.5f);
+		assertThat(max.y).isBetween(1.45f, 1.5f);
+	}
+	
+	@Test
+	public void testBoxesBehindWallAreOccluded() {
+		OcclusionBuffer buffer = wallScene(new WallOccluders[1]);
+		// entity right behind the wall
+		assertThat(buffer.isVisible(14.5f, 0.5f, 9.5f, 15.5f, 1.2f, 10.5f)).isFalse();
+		// raised tile behind the wall
+		assertThat(buffer.isVisible(14.5f, 0.5f, 11.5f, 15.5f, 1.5f, 12.5f)).isFalse();
+		// in front of the wall
+		assertThat(buffer.isVisible(6.5f, 0.5f, 9.5f, 7.5f, 1.5f, 10.5f)).isTrue();
+		// the wall tiles themselves
+		assertThat(buffer.isVisible(9.5f, 0.5f, 9.5f, 10.5f, 1.5f, 10.5f)).isTrue();
+		// behind the wall but taller than it
+		assertThat(buffer.isVisible(14.5f, 0.5f, 9.5f, 15.5f, 4f, 10.5f)).isTrue();
+		// behind the wall but beside its end
+		assertThat(buffer.isVisible(14.5f, 0.5f, 17.5f, 15.5f, 1.5f, 18.5f)).isTrue();
+		// crossing the near plane
+		assertThat(buffer.isVisible(1, 0, 9, 3, 2, 11)).isTrue();
+		assertThat(buffer.getOccludedCount()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,133 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.Assume.assumeTrue;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.nio.FloatBuffer;
+import java.util.*;
+
+import org.junit.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.graphic.particles.*;
+
+public class TestParticleFeedback {
+	private static final int TICKS = 30;
+	
+	@Test
+	public void testRingMatchesPool() {
+		ParticlePool pool = new ParticlePool(64);
+		ParticleRing ring = new ParticleRing(64);
+		Random rnd = new Random(3);
+		float[] records = new float[4 * ParticleRing.STATE_SIZE_FLOATS];
+		for (int tick = 0; tick < TICKS; tick++) {
+			pool.update(20, 16);
+			ring.step(20, 16);
+			for (int i = 0; i < 4; i++) {
+				float x = rnd.nextFloat();
+				float vy = 1 + rnd.nextFloat();
+				float ttl = 100 + rnd.nextInt(200);
+				pool.spawn(x, 0.5f, tick, 0, vy, 0, ttl, 0.1f, 30);
+				ParticleRing.put(records, i * ParticleRing.STATE_SIZE_FLOATS, x, 0.5f, tick, 0, vy, 0, ttl, 0.1f, 30);
+			}
+			ring.spawn(records, 4);
+			assertThat(ring.getLiveCount()).isEqualTo(pool.getSize());
+		}
+		assertThat(liveRecords(ring.getState(), 64)).isEqualTo(poolRecords(pool));
+	}
+	
+	@Test
+	public void testRingKeepsNewestRecords() {
+		ParticleRing ring = new ParticleRing(4);
+		float[] records = new float[6 * ParticleRing.STATE_SIZE_FLOATS];
+		for (int i = 0; i < 6; i++) {
+			ParticleRing.put(records, i * ParticleRing.STATE_SIZE_FLOATS, i, 0, 0, 0, 0, 0, 100, 1, 10);
+		}
+		ring.spawn(records, 3);
+		ring.spawn(records, 6);
+		assertThat(ring.getCursor()).isEqualTo(1);
+		float[] state = ring.getState();
+		float[] xs = new float[4];
+		for (int i = 0; i < 4; i++) {
+			xs[i] = state[i * ParticleRing.STATE_SIZE_FLOATS + ParticleRing.POSITION];
+		}
+		assertThat(xs).containsExactly(5, 2, 3, 4);
+	}
+	
+	/**
+	 * Runs transform feedback against {@link ParticleRing}, skipped when no
+	 * OpenGL 3.3 context can be created (software GL such as llvmpipe is
+	 * enough).
+	 */
+	@Test
+	public void testGpuMatchesReference() throws Exception {
+		long window = GlContext.create(3, 3);
+		assumeTrue("No OpenGL 3.3 context", window != NULL);
+		ParticleUpdateProgram program = null;
+		ParticleFeedback feedback = null;
+		FloatBuffer read = null;
+		try {
+			program = new ParticleUpdateProgram();
+			int capacity = 50;
+			feedback = new ParticleFeedback(capacity);
+			ParticleRing ring = new ParticleRing(capacity);
+			Random rnd = new Random(5);
+			float[] records = new float[8 * ParticleRing.STATE_SIZE_FLOATS];
+			for (int tick = 0; tick < TICKS; tick++) {
+				float elapsed = 15 + tick % 4;
+				ring.step(elapsed, 16);
+				feedback.step(program, elapsed, 16);
+				int count = rnd.nextInt(8);
+				for (int i = 0; i < count; i++) {
+					ParticleRing.put(records, i * ParticleRing.STATE_SIZE_FLOATS, rnd.nextFloat(), 0.5f, rnd.nextFloat(), 0.1f, 1.5f, 0, 150 + rnd.nextInt(100), 0.1f, 40);
+				}
+				ring.spawn(records, count);
+				feedback.spawn(records, count);
+			}
+			read = MemoryUtil.memAllocFloat(capacity * ParticleRing.STATE_SIZE_FLOATS);
+			feedback.read(read);
+			float[] expected = ring.getState();
+			for (int i = 0; i < expected.length; i++) {
+				assertThat(read.get(i)).as("float %d", i).isCloseTo(expected[i], within(1e-3f));
+			}
+			assertThat(feedback.getCursor()).isEqualTo(ring.getCursor());
+		}
+		finally {
+			MemoryUtil.memFree(read);
+			if (feedback != null) {
+				feedback.cleanup();
+			}
+			if (program != null) {
+				program.cleanup();
+			}
+			GlContext.destroy(window);
+		}
+	}
+	
+	private static List<String> liveRecords(float[] state, int capacity) {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < capacity; i++) {
+			int offset = i * ParticleRing.STATE_SIZE_FLOATS;
+			if (state[offset + ParticleRing.TTL] >= 0) {
+				result.add(record(state[offset], state[offset + 1], state[offset + 2], state[offset + ParticleRing.TTL], (int) state[offset + ParticleRing.FRAME]));
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+	
+	private static List<String> poolRecords(ParticlePool pool) {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < pool.getSize(); i++) {
+			result.add(record(pool.getPosX()[i], pool.getPosY()[i], pool.getPosZ()[i], pool.getTtl()[i], pool.getFrame()[i]));
+		}
+		Collections.sort(result);
+		return result;
+	}
+	
+	private static String record(float x, float y, float z, float ttl, int frame) {
+		return x + " " + y + " " + z + " " + ttl + " " + frame;
+	}
+}
@@ -0,0 +1,122 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.joml.Matrix4f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.misc.TripleBuffer;
+import eu.grmdev.senryaku.graphic.mesh.InstancePacker;
+import eu.grmdev.senryaku.graphic.particles.ParticlePool;
+import eu.grmdev.senryaku.graphic.particles.ParticleSnapshot;
+
+public class TestParticlePool {
+	@Test
+	public void testSwapRemove() {
+		ParticlePool pool = new ParticlePool(4);
+		pool.spawn(0, 0, 0, 0, 1, 0, 50, 1, 100);
+		pool.spawn(1, 0, 0, 0, 1, 0, 500, 1, 100);
+		pool.spawn(2, 0, 0, 0, 1, 0, 50, 1, 100);
+		pool.spawn(3, 0, 0, 0, 1, 0, 500, 1, 100);
+		assertThat(pool.isFull()).isTrue();
+		assertThat(pool.spawn(4, 0, 0, 0, 0, 0, 1, 1, 1)).isEqualTo(-1);
+		
+		pool.update(100, 0);
+		assertThat(pool.getSize()).isEqualTo(2);
+		assertThat(pool.getPosX()[0]).isEqualTo(3);
+		assertThat(pool.getPosX()[1]).isEqualTo(1);
+		assertThat(pool.getPosY()[0]).isCloseTo(0.1f, within(1e-6f));
+		assertThat(pool.getTtl()[1]).isEqualTo(400);
+		
+		pool.remove(0);
+		assertThat(pool.getSize()).isEqualTo(1);
+		assertThat(pool.getPosX()[0]).isEqualTo(1);
+	}
+	
+	@Test
+	public void testAnimation() {
+		ParticlePool pool = new ParticlePool(1);
+		pool.spawn(0, 0, 0, 0, 0, 0, 10000, 1, 100);
+		for (int i = 0; i < 3; i++) {
+			pool.update(100, 3);
+		}
+		assertThat(pool.getFrame()[0]).isEqualTo(0);
+		pool.update(50, 3);
+		pool.update(50, 3);
+		assertThat(pool.getFrame()[0]).isEqualTo(1);
+	}
+	
+	@Test
+	public void testPackMatchesEntityMatrices() {
+		ParticlePool pool = new ParticlePool(2);
+		pool.spawn(1, 2, 3, 0, 0, 0, 1000, 0.5f, 100);
+		pool.spawn(4, 5, 6, 0, 0, 0, 1000, 0.5f, 100);
+		pool.getFrame()[1] = 6;
+		ParticleSnapshot snapshot = new ParticleSnapshot(2);
+		snapshot.copyFrom(pool);
+		Matrix4f view = new Matrix4f().lookAt(0, 10, 10, 0, 0, 0, 0, 1, 0);
+		FloatBuffer buffer = FloatBuffer.allocate(2 * InstancePacker.INSTANCE_SIZE_FLOATS);
+		
+		InstancePacker.pack(snapshot, 0, 2, buffer, 4, 4, view);
+		Matrix4f expected = new Matrix4f().translationRotateScale(4, 5, 6, 0, 0, 0, 1, 0.5f, 0.5f, 0.5f);
+		view.transpose3x3(expected);
+		float[] values = new float[InstancePacker.MATRIX_SIZE_FLOATS];
+		expected.get(values);
+		int base = InstancePacker.INSTANCE_SIZE_FLOATS;
+		for (int i = 0; i < values.length; i++) {
+			assertThat(buffer.get(base + i)).isCloseTo(values[i], within(1e-6f));
+		}
+		assertThat(buffer.get(base + 16)).isEqualTo(0.5f);
+		assertThat(buffer.get(base + 17)).isEqualTo(0.25f);
+		
+		InstancePacker.pack(snapshot, 0, 1, buffer, 0, 0, null);
+		new Matrix4f().translationRotateScale(1, 2, 3, 0, 0, 0, 1, 0.5f, 0.5f, 0.5f).get(values);
+		for (int i = 0; i < values.length; i++) {
+			assertThat(buffer.get(i)).isEqualTo(values[i]);
+		}
+	}
+	
+	@Test
+	public void testSplitAdvanceMatchesUpdate() {
+		ParticlePool serial = new ParticlePool(1000);
+		ParticlePool split = new ParticlePool(1000);
+		Random rnd = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			float ttl = rnd.nextFloat() * 300;
+			serial.spawn(i, 0, 0, 0, 1, 0, ttl, 1, 50);
+			split.spawn(i, 0, 0, 0, 1, 0, ttl, 1, 50);
+		}
+		for (int tick = 0; tick < 5; tick++) {
+			serial.update(50, 4);
+			int size = split.getSize();
+			for (int from = 0; from < size; from += 37) {
+				split.advance(from, Math.min(size, from + 37), 50, 4);
+			}
+			split.compact();
+			assertThat(split.getSize()).isEqualTo(serial.getSize());
+			assertThat(Arrays.copyOf(split.getPosX(), size)).containsExactly(Arrays.copyOf(serial.getPosX(), size));
+			assertThat(Arrays.copyOf(split.getFrame(), size)).containsExactly(Arrays.copyOf(serial.getFrame(), size));
+		}
+	}
+	
+	@Test
+	public void testTripleBuffer() {
+		int[] counter = {0};
+		TripleBuffer<int[]> buffer = new TripleBuffer<>(() -> new int[]{counter[0]++});
+		int[] first = buffer.acquire();
+		buffer.getWriteBuffer()[0] = 10;
+		buffer.publish();
+		buffer.getWriteBuffer()[0] = 11;
+		buffer.publish();
+		int[] latest = buffer.acquire();
+		assertThat(latest[0]).isEqualTo(11);
+		assertThat(latest).isNotSameAs(first);
+		assertThat(buffer.acquire()).isSameAs(latest);
+		assertThat(buffer.getWriteBuffer()).isNotSameAs(latest);
+	}
+}
@@ -0,0 +1,95 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.grmdev.senryaku.graphic.queue.*;
+
+public class TestRenderQueue {
+	@Test
+	public void testKeyPacking() {
+		long key = RenderKey.pack(63, 12345, 7, 16383, 65535);
+		assertThat(RenderKey.shader(key)).isEqualTo(63);
+		assertThat(RenderKey.material(key)).isEqualTo(12345);
+		assertThat(RenderKey.texture(key)).isEqualTo(7);
+		assertThat(RenderKey.mesh(key)).isEqualTo(16383);
+		assertThat(RenderKey.depth(key)).isEqualTo(65535);
+		assertThat(RenderKey.quantizeDepth(-1, 100)).isEqualTo(0);
+		assertThat(RenderKey.quantizeDepth(50, 100)).isEqualTo(RenderKey.MAX_DEPTH / 2);
+		assertThat(RenderKey.quantizeDepth(500, 100)).isEqualTo(RenderKey.MAX_DEPTH);
+	}
+	
+	@Test
+	public void testSortOrder() {
+		RenderQueue<String, Integer> queue = new RenderQueue<>(2);
+		queue.add(RenderKey.pack(63, 1, 1, 1, 0), "last", 0);
+		queue.add(RenderKey.pack(1, 2, 1, 1, 10), "far", 1);
+		queue.add(RenderKey.pack(1, 2, 1, 1, 5), "near", 2);
+		queue.add(RenderKey.pack(1, 1, 3, 1, 0), "first", 3);
+		queue.add(RenderKey.pack(1, 2, 1, 1, 5), "near", 4);
+		queue.sort();
+		
+		assertThat(queue.getSize()).isEqualTo(5);
+		assertThat(queue.getMesh(0)).isEqualTo("first");
+		assertThat(queue.getMesh(1)).isEqualTo("near");
+		assertThat(queue.get(1)).isEqualTo(2);
+		assertThat(queue.get(2)).isEqualTo(4);
+		assertThat(queue.getMesh(3)).isEqualTo("far");
+		assertThat(queue.getMesh(4)).isEqualTo("last");
+		for (int i = 1; i < queue.getSize(); i++) {
+			assertThat(Long.compareUnsigned(queue.getKey(i - 1), queue.getKey(i))).isLessThanOrEqualTo(0);
+		}
+	}
+	
+	@Test
+	public void testSubmitEliminatesStateChanges() {
+		RenderQueue<String, Integer> queue = new RenderQueue<>(4);
+		String[] meshes = {"a", "b", "a", "b", "a", "b"};
+		for (int i = 0; i < meshes.length; i++) {
+			queue.add(queue.key("shader", "material", "texture", meshes[i], i), meshes[i], i);
+		}
+		List<String> calls = new ArrayList<>();
+		queue.submit(new RenderQueueVisitor<String, Integer>() {
+			@Override
+			public void bindShader(String mesh) {
+				calls.add("shader");
+			}
+			
+			@Override
+			public void bindMaterial(String mesh) {
+				calls.add("material");
+			}
+			
+			@Override
+			public void bindTexture(String mesh) {
+				calls.add("texture");
+			}
+			
+			@Override
+			public void bindMesh(String mesh) {
+				calls.add("bind " + mesh);
+			}
+			
+			@Override
+			public void unbindMesh(String mesh) {
+				calls.add("unbind " + mesh);
+			}
+			
+			@Override
+			public void draw(String mesh, Integer item) {
+				calls.add("draw " + item);
+			}
+		});
+		
+		assertThat(calls).containsExactly("shader", "material", "texture", "bind a", "draw 0", "draw 2", "draw 4", "unbind a", "bind b", "draw 1", "draw 3", "draw 5", "unbind b");
+		assertThat(queue.getIssuedStateChanges()).isEqualTo(5);
+		assertThat(queue.getEliminatedStateChanges()).isEqualTo(4 * 6 - 5);
+		
+		queue.clear();
+		assertThat(queue.getSize()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,87 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.graphic.mesh.ResourceManager;
+import eu.grmdev.senryaku.graphic.mesh.Texture;
+
+public class TestResourceManager {
+	private ResourceManager resources;
+	
+	@Before
+	public void setUp() {
+		ResourceManager.destroy();
+		resources = ResourceManager.getInstance();
+	}
+	
+	@Test
+	public void testSecondLookupIsHit() {
+		Texture texture = resources.getTexture("/textures/test_lookup.png");
+		assertThat(resources.getTexture("/textures/test_lookup.png")).isSameAs(texture);
+		assertThat(resources.getMisses()).isEqualTo(1);
+		assertThat(resources.getHits()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testReleaseOnlyManaged() {
+		Texture texture = resources.acquireTexture("/textures/test_release.png");
+		assertThat(resources.isManaged(texture)).isTrue();
+		assertThat(resources.release(texture)).isTrue();
+		// unreferenced resource stays resident
+		assertThat(resources.release(texture)).isTrue();
+		assertThat(resources.release(new Object())).isFalse();
+	}
+	
+	@Test
+	public void testResidentBytesWithinBudgetAreKept() {
+		Texture texture = resources.getTexture("/textures/test_budget.png");
+		resources.trim(Long.MAX_VALUE);
+		assertThat(resources.isManaged(texture)).isTrue();
+		assertThat(resources.getResidentBytes()).isEqualTo(texture.getByteSize());
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedIsEvictedOverBudget() {
+		Texture older = resources.getTexture("/textures/test_lru_older.png");
+		Texture newer = resources.getTexture("/textures/test_lru_newer.png");
+		resources.trim(Long.MAX_VALUE);
+		// lookup makes older texture most recently used
+		resources.getTexture("/textures/test_lru_older.png");
+		resources.trim(Long.MAX_VALUE);
+		long resident = resources.getResidentBytes();
+		assertThat(resident).isEqualTo(older.getByteSize() + newer.getByteSize());
+		
+		resources.trim(resident - 1);
+		assertThat(resources.isManaged(newer)).isFalse();
+		assertThat(resources.isManaged(older)).isTrue();
+		assertThat(resources.getEvictions()).isEqualTo(1);
+		assertThat(resources.getResidentBytes()).isEqualTo(older.getByteSize());
+	}
+	
+	@Test
+	public void testUsedSinceLastTrimIsKept() {
+		Texture texture = resources.getTexture("/textures/test_used.png");
+		resources.trim(0);
+		assertThat(resources.isManaged(texture)).isTrue();
+		resources.trim(0);
+		assertThat(resources.isManaged(texture)).isFalse();
+	}
+	
+	@Test
+	public void testReferencedIsNeverEvicted() {
+		Texture texture = resources.acquireTexture("/textures/test_referenced.png");
+		resources.trim(0);
+		resources.trim(0);
+		assertThat(resources.isManaged(texture)).isTrue();
+		assertThat(resources.getResidentBytes()).isEqualTo(texture.getByteSize());
+		assertThat(resources.getEvictions()).isZero();
+		
+		resources.release(texture);
+		resources.trim(0);
+		assertThat(resources.isManaged(texture)).isFalse();
+		assertThat(resources.getEvictions()).isEqualTo(1);
+	}
+}
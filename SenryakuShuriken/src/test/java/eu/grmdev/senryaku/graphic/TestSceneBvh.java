@@ -0,0 +1,74 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.SceneSnapshot;
+import eu.grmdev.senryaku.graphic.culling.SceneBvh;
+
+public class TestSceneBvh {
+	private static final int COUNT = 5000;
+	
+	private static SceneSnapshot frame(int count, float shift) {
+		Random rnd = new Random(7);
+		SceneSnapshot frame = new SceneSnapshot();
+		frame.begin(200, 100);
+		Quaternionf rotation = new Quaternionf();
+		for (int i = 0; i < count; i++) {
+			int slot = frame.addSlot(0, i % 100 == 0 ? SceneSnapshot.FLAG_NO_CULLING : 0, (1 << 24) | i, 0.5f);
+			int o = slot * SceneSnapshot.TRANSFORM_SIZE_FLOATS;
+			float x = rnd.nextFloat() * 140 + (i % 3 == 0 ? shift : 0);
+			float z = rnd.nextFloat() * 140;
+			SceneSnapshot.put(frame.getPrevious(), o, x, 0, z, rotation, 1);
+			SceneSnapshot.put(frame.getCurrent(), o, x, 0, z, rotation, 1);
+		}
+		frame.interpolate(200);
+		return frame;
+	}
+	
+	private static int[] sorted(int[] slots, int count) {
+		int[] result = Arrays.copyOf(slots, count);
+		Arrays.sort(result);
+		return result;
+	}
+	
+	@Test
+	public void testCullingMatchesLinearFilter() {
+		FrustumCullingFilter filter = new FrustumCullingFilter();
+		Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(60), 16f / 9, 0.1f, 100);
+		filter.updateFrustum(projection, new Matrix4f().lookAt(70, 15, 80, 70, 0, 70, 0, 1, 0));
+		SceneBvh bvh = new SceneBvh(ForkJoinPool.commonPool(), 256);
+		int[] linear = new int[COUNT];
+		int[] culled = new int[COUNT];
+		float[] shifts = {0, 0.2f, 30};
+		int[] sizes = {COUNT, COUNT, COUNT / 2};
+		for (int i = 0; i < shifts.length; i++) {
+			SceneSnapshot frame = frame(sizes[i], shifts[i]);
+			int expected = filter.filter(frame, linear);
+			bvh.update(frame);
+			int count = bvh.cull(filter.getFrustum(), culled);
+			// boxes enclose spheres, so tree may only keep a few extra slots
+			assertThat(sorted(culled, count)).contains(sorted(linear, expected));
+			assertThat(count).isGreaterThan(50).isLessThan(expected * 2).isLessThan(sizes[i] / 4);
+			assertThat(bvh.getHeight()).isLessThan(30);
+		}
+	}
+	
+	@Test
+	public void testSmallMovesKeepTree() {
+		SceneBvh bvh = new SceneBvh(ForkJoinPool.commonPool(), 256);
+		bvh.update(frame(COUNT, 0));
+		assertThat(bvh.getReinserted()).isEqualTo(COUNT - COUNT / 100);
+		bvh.update(frame(COUNT, 0.2f));
+		assertThat(bvh.getReinserted()).isZero();
+		bvh.update(frame(COUNT, 5));
+		assertThat(bvh.getReinserted()).isGreaterThan(COUNT / 4);
+	}
+}
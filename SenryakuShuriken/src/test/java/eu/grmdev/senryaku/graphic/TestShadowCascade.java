@@ -0,0 +1,72 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.graphic.effects.shadow.ShadowCascade;
+
+public class TestShadowCascade {
+	private static final int MAP_SIZE = 1024;
+	private static final Vector3f LIGHT = new Vector3f(0, 1, 1).normalize();
+	
+	private static Matrix4f view(float x, float angle) {
+		return new Matrix4f().rotationY(angle).translate(-x, -2, -5);
+	}
+	
+	@Test
+	public void testSameViewKeepsBounds() {
+		ShadowCascade cascade = new ShadowCascade(0.01f, 50, MAP_SIZE, -1);
+		cascade.update(2, view(3, 0.3f), LIGHT);
+		assertThat(cascade.isBoundsChanged()).isTrue();
+		Matrix4f ortho = new Matrix4f(cascade.getOrthoProjMatrix());
+		for (int i = 0; i < 3; i++) {
+			cascade.update(2, view(3, 0.3f), LIGHT);
+			assertThat(cascade.isBoundsChanged()).isFalse();
+		}
+		assertThat(cascade.getOrthoProjMatrix()).isEqualTo(ortho);
+	}
+	
+	@Test
+	public void testBoundsAreSnappedToTexels() {
+		ShadowCascade cascade = new ShadowCascade(0.01f, 50, MAP_SIZE, -1);
+		cascade.update(2, view(0, 0), LIGHT);
+		Matrix4f ortho = cascade.getOrthoProjMatrix();
+		float width = 2 / ortho.m00();
+		for (int i = 1; i < 20; i++) {
+			cascade.update(2, view(i * 0.37f, i * 0.2f), LIGHT);
+			// size does not change when camera turns
+			assertThat(2 / ortho.m00()).isEqualTo(width);
+			float texels = -ortho.m30() / ortho.m00() / (width / MAP_SIZE);
+			assertThat(Math.abs(texels - Math.round(texels))).isLessThan(0.05f);
+		}
+	}
+	
+	@Test
+	public void testCachedCascadeMovesOnlyWhenSliceLeavesIt() {
+		ShadowCascade cascade = new ShadowCascade(50, 100, MAP_SIZE, 0.2f);
+		cascade.update(2, view(0, 0), LIGHT);
+		assertThat(cascade.isBoundsChanged()).isTrue();
+		cascade.update(2, view(1, 0.01f), LIGHT);
+		assertThat(cascade.isBoundsChanged()).isFalse();
+		cascade.update(2, view(40, 0), LIGHT);
+		assertThat(cascade.isBoundsChanged()).isTrue();
+		cascade.update(2, view(40, 0), new Vector3f(0, 1, 0.5f).normalize());
+		assertThat(cascade.isBoundsChanged()).isTrue();
+	}
+	
+	@Test
+	public void testFrustumHoldsSlice() {
+		ShadowCascade cascade = new ShadowCascade(0.01f, 50, MAP_SIZE, -1);
+		Matrix4f view = view(3, 0.3f);
+		cascade.update(2, view, LIGHT);
+		Vector3f eye = view.invert(new Matrix4f()).getTranslation(new Vector3f());
+		Vector3f forward = view.positiveZ(new Vector3f()).negate();
+		for (float d = 0.5f; d < 50; d += 5) {
+			Vector3f p = new Vector3f(forward).mul(d).add(eye);
+			assertThat(cascade.getFrustum().testPoint(p)).isTrue();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE_COMPRESSED;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+
+import eu.grmdev.senryaku.graphic.mesh.*;
+import eu.grmdev.senryaku.graphic.mesh.CompressedImage.Format;
+
+public class TestTextureCompression {
+	
+	private static ByteBuffer pixels(int width, int height, int rgba) {
+		ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < width * height; i++) {
+			pixels.putInt(i * 4, rgba);
+		}
+		return pixels;
+	}
+	
+	@Test
+	public void testOpaqueImageIsBc1WithAllMipmaps() throws Exception {
+		CompressedImage image = TextureConverter.compress(pixels(8, 4, 0xff0000ff), 8, 4);
+		assertThat(image.getFormat()).isEqualTo(Format.BC1);
+		assertThat(image.getLevels()).isEqualTo(4);
+		assertThat(image.getLevel(0).remaining()).isEqualTo(2 * 8);
+		assertThat(image.getLevel(3).remaining()).isEqualTo(8);
+		ByteBuffer block = image.getLevel(0).order(ByteOrder.LITTLE_ENDIAN);
+		assertThat(block.getShort(0) & 0xffff).isEqualTo(0xf800);
+		assertThat(block.getInt(4)).isZero();
+	}
+	
+	@Test
+	public void testTransparentImageIsBc3() {
+		ByteBuffer pixels = pixels(4, 4, 0x80ffffff);
+		pixels.put(3, (byte) 0);
+		CompressedImage image = TextureConverter.compress(pixels, 4, 4);
+		assertThat(image.getFormat()).isEqualTo(Format.BC3);
+		ByteBuffer block = image.getLevel(0);
+		assertThat(block.get(0) & 0xff).isEqualTo(0x80);
+		assertThat(block.get(1) & 0xff).isEqualTo(0);
+		// first texel takes alpha1, others alpha0
+		assertThat(block.get(2) & 0x7).isEqualTo(1);
+	}
+	
+	@Test
+	public void testDdsRoundTrip() throws Exception {
+		CompressedImage image = TextureConverter.compress(pixels(16, 8, 0xff20c040), 16, 8);
+		Path file = Files.createTempFile("texture", DdsFormat.EXTENSION);
+		try {
+			DdsFormat.write(image, file);
+			byte[] bytes = Files.readAllBytes(file);
+			ByteBuffer data = BufferUtils.createByteBuffer(bytes.length);
+			data.put(bytes).flip();
+			CompressedImage read = DdsFormat.read(data);
+			assertThat(read.getFormat()).isEqualTo(image.getFormat());
+			assertThat(read.getWidth()).isEqualTo(16);
+			assertThat(read.getHeight()).isEqualTo(8);
+			assertThat(read.getLevels()).isEqualTo(image.getLevels());
+			for (int i = 0; i < image.getLevels(); i++) {
+				assertThat(read.getLevel(i)).isEqualTo(image.getLevel(i));
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testReadRejectsOtherFiles() {
+		assertThatThrownBy(() -> DdsFormat.read(ByteBuffer.allocate(256))).isInstanceOf(IOException.class);
+		assertThat(DdsFormat.nameOf("/textures/monster/skin.png")).isEqualTo("/textures/monster/skin.dds");
+	}
+	
+	/**
+	 * Loads texture whose compressed image is on classpath through
+	 * {@link TextureLoader}, skipped without OpenGL context supporting BC1.
+	 */
+	@Test
+	public void testLoaderUploadsCompressedImage() throws Exception {
+		long window = GlContext.create(3, 3);
+		assumeTrue("No OpenGL 3.3 context", window != NULL);
+		Path file = null;
+		try {
+			Format.detectSupport(GL.getCapabilities());
+			GlContext.assumeSupported("S3TC support", Format.BC1.isSupported());
+			CompressedImage image = TextureConverter.compress(pixels(8, 8, 0xff3060c0), 8, 8);
+			Path textures = Paths.get(getClass().getResource("/").toURI()).resolve("textures");
+			Files.createDirectories(textures);
+			file = textures.resolve("test_compressed" + DdsFormat.EXTENSION);
+			DdsFormat.write(image, file);
+			
+			TextureLoader loader = TextureLoader.getInstance();
+			Texture texture = loader.load("/textures/test_compressed.png");
+			long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (!texture.isLoaded() && System.nanoTime() < end) {
+				loader.update(TimeUnit.MILLISECONDS.toNanos(2));
+				Thread.sleep(1);
+			}
+			assertThat(texture.isLoaded()).isTrue();
+			assertThat(texture.getWidth()).isEqualTo(8);
+			assertThat(texture.getByteSize()).isEqualTo(image.getByteSize());
+			texture.bind();
+			assertThat(glGetTexLevelParameteri(GL_TEXTURE_2D, 0, GL_TEXTURE_COMPRESSED)).isEqualTo(GL_TRUE);
+			assertThat(glGetTexLevelParameteri(GL_TEXTURE_2D, 0, GL_TEXTURE_INTERNAL_FORMAT)).isEqualTo(Format.BC1.getGlFormat());
+			assertThat(glGetTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL)).isEqualTo(image.getLevels() - 1);
+			assertThat(glGetError()).isEqualTo(GL_NO_ERROR);
+			texture.cleanup();
+		}
+		finally {
+			if (file != null) {
+				Files.delete(file);
+			}
+			GlContext.destroy(window);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryUtil;
+
+import eu.grmdev.senryaku.core.misc.Utils;
+import eu.grmdev.senryaku.graphic.mesh.TextureLayers;
+import eu.grmdev.senryaku.graphic.mesh.TextureLoader;
+import eu.grmdev.senryaku.graphic.mesh.TextureLoader.Image;
+
+public class TestTextureLayers {
+	
+	@Test
+	public void testManifestTexturesDecode() throws Exception {
+		for (String path : TextureLayers.readManifest(TextureLayers.MANIFEST)) {
+			Image image = TextureLoader.decode(null, Utils.ioResourceToByteBuffer(path, true, 1024));
+			assertThat(image.getWidth()).as(path).isPositive();
+			image.free();
+		}
+	}
+	
+	@Test
+	public void testScaleKeepsUniformColor() {
+		ByteBuffer src = BufferUtils.createByteBuffer(6 * 3 * 4);
+		for (int i = 0; i < 6 * 3; i++) {
+			src.put(i * 4, (byte) 10).put(i * 4 + 1, (byte) 200).put(i * 4 + 2, (byte) 30).put(i * 4 + 3, (byte) 255);
+		}
+		ByteBuffer dst = TextureLayers.scale(src, 6, 3, 4);
+		for (int i = 0; i < 4 * 4; i++) {
+			assertThat(dst.get(i * 4 + 1) & 0xff).isEqualTo(200);
+			assertThat(dst.get(i * 4 + 3) & 0xff).isEqualTo(255);
+		}
+		MemoryUtil.memFree(dst);
+	}
+	
+	@Test
+	public void testScaleInterpolatesBetweenTexels() {
+		ByteBuffer src = BufferUtils.createByteBuffer(2 * 4);
+		src.put(0, (byte) 0).put(4, (byte) 200);
+		ByteBuffer dst = TextureLayers.scale(src, 2, 1, 4);
+		assertThat(dst.get(0) & 0xff).isEqualTo(0);
+		assertThat(dst.get(4) & 0xff).isEqualTo(50);
+		assertThat(dst.get(8) & 0xff).isEqualTo(150);
+		assertThat(dst.get(12) & 0xff).isEqualTo(200);
+		MemoryUtil.memFree(dst);
+	}
+}
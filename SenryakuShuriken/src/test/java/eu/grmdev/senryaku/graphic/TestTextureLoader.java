@@ -0,0 +1,56 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import eu.grmdev.senryaku.graphic.mesh.TextureLoader;
+import eu.grmdev.senryaku.graphic.mesh.TextureLoader.Image;
+
+public class TestTextureLoader {
+	private static ByteBuffer png(int width, int height, int argb) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, argb);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		ByteBuffer buffer = BufferUtils.createByteBuffer(out.size());
+		buffer.put(out.toByteArray()).flip();
+		return buffer;
+	}
+	
+	@Test
+	public void testDecodesToRgba() throws Exception {
+		Image image = TextureLoader.decode(null, png(3, 2, 0x80102030));
+		try {
+			assertThat(image.getWidth()).isEqualTo(3);
+			assertThat(image.getHeight()).isEqualTo(2);
+			ByteBuffer pixels = image.getPixels();
+			assertThat(pixels.remaining()).isEqualTo(3 * 2 * 4);
+			assertThat(pixels.get(0) & 0xff).isEqualTo(0x10);
+			assertThat(pixels.get(1) & 0xff).isEqualTo(0x20);
+			assertThat(pixels.get(2) & 0xff).isEqualTo(0x30);
+			assertThat(pixels.get(3) & 0xff).isEqualTo(0x80);
+		}
+		finally {
+			image.free();
+		}
+	}
+	
+	@Test
+	public void testBrokenImageFails() {
+		ByteBuffer garbage = BufferUtils.createByteBuffer(16);
+		assertThatThrownBy(() -> TextureLoader.decode(null, garbage)).hasMessageContaining("Cannot decode image");
+	}
+}
@@ -0,0 +1,63 @@
+package eu.grmdev.senryaku.graphic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.SceneLight;
+import eu.grmdev.senryaku.graphic.lights.*;
+import eu.grmdev.senryaku.graphic.uniform.IntUniform;
+import eu.grmdev.senryaku.graphic.uniform.Mat4Uniform;
+
+public class TestUniforms {
+	@Test
+	public void testUnchangedValuesAreNotSent() {
+		IntUniform intUniform = new IntUniform(0);
+		assertThat(intUniform.update(0)).isTrue();
+		assertThat(intUniform.update(0)).isFalse();
+		assertThat(intUniform.update(1)).isTrue();
+		intUniform.invalidate();
+		assertThat(intUniform.update(1)).isTrue();
+		
+		Mat4Uniform matUniform = new Mat4Uniform(0);
+		Matrix4f matrix = new Matrix4f().translate(1, 2, 3);
+		assertThat(matUniform.update(matrix)).isTrue();
+		assertThat(matUniform.update(new Matrix4f(matrix))).isFalse();
+		matrix.m30(5);
+		assertThat(matUniform.update(matrix)).isTrue();
+	}
+	
+	@Test
+	public void testLightsBlockLayout() {
+		assertThat(LightsBlock.SPOT_LIGHTS_OFFSET).isEqualTo(240);
+		assertThat(LightsBlock.DIRECTIONAL_LIGHT_OFFSET).isEqualTo(560);
+		assertThat(LightsBlock.SIZE).isEqualTo(608);
+		
+		SceneLight sceneLight = new SceneLight();
+		sceneLight.setAmbientLight(new Vector3f(0.1f, 0.2f, 0.3f));
+		PointLight pointLight = new PointLight(new Vector3f(1, 1, 1), new Vector3f(1, 2, 3), 4, new PointLight.Attenuation(5, 6, 7));
+		sceneLight.setPointLightList(new PointLight[]{pointLight});
+		sceneLight.setDirectionalLight(new DirectionalLight(new Vector3f(1, 0, 0), new Vector3f(0, 1, 0), 8));
+		Matrix4f viewMatrix = new Matrix4f().translate(10, 0, 0);
+		
+		ByteBuffer data = ByteBuffer.allocate(LightsBlock.SIZE).order(ByteOrder.nativeOrder());
+		data.putFloat(LightsBlock.POINT_LIGHT_SIZE, 99);
+		new LightsBlock().pack(data, sceneLight, 10, viewMatrix);
+		
+		assertThat(data.getFloat(16)).isEqualTo(11);
+		assertThat(data.getFloat(20)).isEqualTo(2);
+		assertThat(data.getFloat(28)).isEqualTo(4);
+		assertThat(data.getFloat(36)).isEqualTo(6);
+		assertThat(data.getFloat(LightsBlock.POINT_LIGHT_SIZE)).isEqualTo(0);
+		assertThat(data.getFloat(LightsBlock.DIRECTIONAL_LIGHT_OFFSET + 16)).isEqualTo(0);
+		assertThat(data.getFloat(LightsBlock.DIRECTIONAL_LIGHT_OFFSET + 20)).isEqualTo(1);
+		assertThat(data.getFloat(LightsBlock.DIRECTIONAL_LIGHT_OFFSET + 28)).isEqualTo(8);
+		assertThat(data.getFloat(LightsBlock.AMBIENT_LIGHT_OFFSET + 8)).isEqualTo(0.3f);
+		assertThat(data.getFloat(LightsBlock.SPECULAR_POWER_OFFSET)).isEqualTo(10);
+	}
+}
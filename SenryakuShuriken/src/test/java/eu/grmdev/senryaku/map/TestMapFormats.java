@@ -0,0 +1,116 @@
+package eu.grmdev.senryaku.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.joml.Vector2i;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.map.*;
+import eu.grmdev.senryaku.graphic.particles.ParticleType;
+
+public class TestMapFormats {
+	@Test
+	public void testTextMapIsTransposedWithEmitters() throws IOException {
+		MapData data = SmapParser.parse(new StringReader("1|2|3|0|Test|Default\n1 2 4\n3 1"));
+		
+		assertThat(data.getTitle()).isEqualTo("Test");
+		assertThat(data.getBackground()).isEqualTo("Default");
+		assertThat(data.getSizeX()).isEqualTo(3);
+		assertThat(data.getSizeZ()).isEqualTo(2);
+		assertThat(data.getTile(1, 0)).isEqualTo(Tile.WALL);
+		assertThat(data.getTile(0, 1)).isEqualTo(Tile.GRASS);
+		assertThat(data.getTile(2, 1)).isEqualTo(Tile.EMPTY);
+		assertThat(data.getEmitterCount()).isEqualTo(1);
+		assertThat(data.getEmitterX(0)).isEqualTo(2);
+		assertThat(data.getEmitterZ(0)).isEqualTo(0);
+		assertThat(data.getEmitterType(0)).isEqualTo(ParticleType.FIRE);
+	}
+	
+	@Test
+	public void testBinaryRoundTrip() throws IOException {
+		MapData text = GameMapFactory.load("/maps/map_3.smap");
+		Path file = Files.createTempFile("map_3", BinaryMapFormat.EXTENSION);
+		try {
+			BinaryMapFormat.write(text, file);
+			MapData binary = BinaryMapFormat.load(file);
+			
+			assertThat(binary.getTitle()).isEqualTo(text.getTitle());
+			assertThat(binary.getBackground()).isEqualTo(text.getBackground());
+			assertThat(binary.getStartPos()).isEqualTo(text.getStartPos());
+			assertThat(binary.getEndPos()).isEqualTo(text.getEndPos());
+			assertThat(binary.getTiles()).isEqualTo(text.getTiles());
+			assertThat(Arrays.deepEquals(binary.toTiles(), text.toTiles())).isTrue();
+			assertThat(binary.getEmitterCount()).isEqualTo(text.getEmitterCount()).isGreaterThan(0);
+			for (int i = 0; i < text.getEmitterCount(); i++) {
+				assertThat(binary.getEmitterX(i)).isEqualTo(text.getEmitterX(i));
+				assertThat(binary.getEmitterZ(i)).isEqualTo(text.getEmitterZ(i));
+				assertThat(binary.getEmitterType(i)).isEqualTo(text.getEmitterType(i));
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testTooLongStringIsNotWritten() throws IOException {
+		char[] title = new char[0x10000];
+		Arrays.fill(title, 'T');
+		MapData data = new MapData(new String(title), "Default", new Vector2i(), new Vector2i(1, 0), new TileGrid(new byte[4], 2, 2, 2), new int[0]);
+		Path file = Files.createTempFile("long_title", BinaryMapFormat.EXTENSION);
+		try {
+			assertThatThrownBy(() -> BinaryMapFormat.write(data, file)).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("65536");
+			assertThat(Files.size(file)).isZero();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testCorruptedBinaryIsRejected() {
+		assertThatThrownBy(() -> BinaryMapFormat.read(ByteBuffer.allocate(64))).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> GameMapFactory.load("/maps/map_1.txt")).isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	@Test
+	public void testParserReportsErrorPosition() {
+		assertThatThrownBy(() -> SmapParser.parse(new StringReader("0|0|1|1|T|bg\n1 1\n1 1 x 1"))).isInstanceOf(MapFormatException.class).hasFieldOrPropertyWithValue("line", 3).hasFieldOrPropertyWithValue("column", 5);
+		assertThatThrownBy(() -> SmapParser.parse(new StringReader("0|a|1|1|T|bg\n1"))).isInstanceOf(MapFormatException.class).hasFieldOrPropertyWithValue("line", 1).hasFieldOrPropertyWithValue("column", 3);
+		assertThatThrownBy(() -> SmapParser.parse(ByteBuffer.wrap("0|0|1|1|T|bg".getBytes()))).isInstanceOf(MapFormatException.class).hasFieldOrPropertyWithValue("line", 2);
+	}
+	
+	@Test
+	public void testReaderAndBufferParseGrowingGrid() throws IOException {
+		StringBuilder text = new StringBuilder("0|0|1|1|Big|bg\r\n");
+		for (int z = 0; z < 300; z++) {
+			for (int x = 0; x <= z % 40; x++) {
+				text.append(x == z % 7 ? 4 : 1).append(' ');
+			}
+			text.append("\r\n");
+		}
+		MapData fromReader = SmapParser.parse(new StringReader(text.toString()));
+		MapData fromBuffer = SmapParser.parse(ByteBuffer.wrap(text.toString().getBytes()));
+		
+		for (MapData data : Arrays.asList(fromReader, fromBuffer)) {
+			assertThat(data.getTitle()).isEqualTo("Big");
+			assertThat(data.getBackground()).isEqualTo("bg");
+			assertThat(data.getSizeX()).isEqualTo(40);
+			assertThat(data.getSizeZ()).isEqualTo(300);
+			assertThat(data.getTile(0, 0)).isEqualTo(Tile.CONE);
+			assertThat(data.getTile(2, 299)).isEqualTo(Tile.FLOOR);
+			assertThat(data.getTile(39, 299)).isEqualTo(Tile.EMPTY);
+			assertThat(data.getTile(6, 293)).isEqualTo(Tile.CONE);
+		}
+		assertThat(fromBuffer.getTiles()).isEqualTo(fromReader.getTiles());
+		assertThat(fromBuffer.getEmitterCount()).isEqualTo(fromReader.getEmitterCount());
+	}
+}
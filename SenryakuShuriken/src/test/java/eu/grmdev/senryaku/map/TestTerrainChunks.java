@@ -0,0 +1,107 @@
+package eu.grmdev.senryaku.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.map.*;
+
+public class TestTerrainChunks {
+	private static Tile[][] grid(int rows, int cols, Tile tile) {
+		Tile[][] tiles = new Tile[rows][cols];
+		for (Tile[] row : tiles) {
+			Arrays.fill(row, tile);
+		}
+		return tiles;
+	}
+	
+	@Test
+	public void testFlatChunkHasNoInnerSideFaces() {
+		Tile[][] tiles = grid(4, 4, Tile.FLOOR);
+		TerrainChunkData data = TerrainChunkData.build(TileGrid.of(tiles), 0, 0, 4, 1f);
+		
+		// top and bottom of 16 tiles plus 4 border sides of 4 tiles
+		assertThat(data.getFaceCount()).isEqualTo(16 * 2 + 4 * 4);
+		assertThat(data.getGroupCount()).isEqualTo(1);
+		assertThat(data.getIndices()[0]).hasSize(data.getFaceCount() * 6);
+		assertThat(data.getPositions()[0]).hasSize(data.getFaceCount() * 4 * 3);
+		assertThat(data.getMin()).isEqualTo(new Vector3f(-0.5f, -0.5f, -0.5f));
+		assertThat(data.getMax()).isEqualTo(new Vector3f(3.5f, 0.5f, 3.5f));
+	}
+	
+	@Test
+	public void testWallKeepsSidesAndGroupsByTile() {
+		Tile[][] tiles = grid(3, 3, Tile.FLOOR);
+		tiles[1][1] = Tile.WALL;
+		TerrainChunkData data = TerrainChunkData.build(TileGrid.of(tiles), 0, 0, 3, 1f);
+		
+		assertThat(data.getGroupCount()).isEqualTo(2);
+		int wall = Arrays.asList(data.getGroupTiles()).indexOf(Tile.WALL);
+		assertThat(data.getIndices()[wall]).hasSize(6 * 6);
+		assertThat(data.getMax().y).isEqualTo(1.5f);
+		for (int index : data.getIndices()[wall]) {
+			assertThat(index).isBetween(0, 6 * 4 - 1);
+		}
+	}
+	
+	@Test
+	public void testChunkAtBorderUsesNeighbourOutsideChunk() {
+		Tile[][] tiles = grid(4, 4, Tile.FLOOR);
+		TerrainChunkData inner = TerrainChunkData.build(TileGrid.of(tiles), 0, 0, 2, 1f);
+		TerrainChunkData truncated = TerrainChunkData.build(TileGrid.of(tiles), 3, 3, 2, 1f);
+		
+		assertThat(inner.getFaceCount()).isEqualTo(4 * 2 + 2 * 2);
+		assertThat(truncated.getFaceCount()).isEqualTo(2 + 2);
+		assertThat(truncated.getMax()).isEqualTo(new Vector3f(3.5f, 0.5f, 3.5f));
+	}
+	
+	@Test
+	public void testStreamerLoadsOnlyViewDistanceAndEvictsLeastRecentlyUsed() {
+		Tile[][] tiles = grid(256, 256, Tile.FLOOR);
+		TerrainStreamer streamer = new TerrainStreamer(TileGrid.of(tiles), 1f, 16, 16f, Runnable::run);
+		Vector3f camera = new Vector3f(128, 0, 128);
+		
+		streamer.update(camera);
+		assertThat(streamer.getChunksInRange()).isEmpty();
+		assertThat(streamer.getPendingCount()).isEqualTo(9);
+		streamer.update(camera);
+		assertThat(streamer.getChunksInRange()).hasSize(9);
+		assertThat(streamer.getResidentCount()).isEqualTo(9);
+		assertThat(streamer.getCapacity()).isEqualTo(25);
+		
+		for (int x = 128; x < 256; x += 16) {
+			camera.x = x;
+			streamer.update(camera);
+			streamer.update(camera);
+			assertThat(streamer.getResidentCount()).isLessThanOrEqualTo(streamer.getCapacity());
+		}
+		assertThat(streamer.getEvicted()).isGreaterThan(0);
+		assertThat(streamer.getChunksInRange()).allMatch(c -> c.getChunkX() >= 14);
+		streamer.cleanup();
+	}
+	
+	@Test
+	public void testFailedChunkIsNotLeftPending() {
+		TileGrid broken = new TileGrid(new byte[64 * 64], 64, 64, 64) {
+			@Override
+			public Tile get(int x, int z) {
+				throw new IllegalStateException("Corrupted tile " + x + ", " + z);
+			}
+		};
+		TerrainStreamer streamer = new TerrainStreamer(broken, 1f, 16, 16f, Runnable::run);
+		Vector3f camera = new Vector3f(32, 0, 32);
+		
+		streamer.update(camera);
+		assertThat(streamer.getPendingCount()).isEqualTo(9);
+		streamer.update(camera);
+		assertThat(streamer.getPendingCount()).isZero();
+		assertThat(streamer.getFailedCount()).isEqualTo(9);
+		assertThat(streamer.getResidentCount()).isZero();
+		streamer.update(camera);
+		assertThat(streamer.getPendingCount()).isZero();
+		streamer.cleanup();
+	}
+}
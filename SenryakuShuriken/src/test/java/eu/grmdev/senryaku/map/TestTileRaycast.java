@@ -0,0 +1,61 @@
+package eu.grmdev.senryaku.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import eu.grmdev.senryaku.Config;
+import eu.grmdev.senryaku.core.map.*;
+
+public class TestTileRaycast {
+	/** Grid as large as streamed terrain, 1M tiles */
+	private static final int SIZE = 1024;
+	
+	private static byte[] floor() {
+		byte[] ids = new byte[SIZE * SIZE];
+		Arrays.fill(ids, (byte) Tile.FLOOR.getId());
+		return ids;
+	}
+	
+	@Test
+	public void testStreamedSizeGridPicksTileBelowRay() {
+		assertThat(SIZE * SIZE).isGreaterThanOrEqualTo(Config.TERRAIN_STREAMING_MIN_TILES.<Integer> get());
+		TileGrid grid = new TileGrid(floor(), SIZE, SIZE, SIZE);
+		TileHit hit = grid.raycast(600.2f, 20, 300.4f, 0, -1, 0, 1f);
+		assertThat(hit.getX()).isEqualTo(600);
+		assertThat(hit.getZ()).isEqualTo(300);
+		assertThat(hit.getTile()).isEqualTo(Tile.FLOOR);
+		assertThat(hit.getEntity()).isNull();
+	}
+	
+	@Test
+	public void testWallInFrontOfFloorIsHit() {
+		byte[] ids = floor();
+		ids[700 * SIZE + 500] = (byte) Tile.WALL.getId();
+		TileGrid grid = new TileGrid(ids, SIZE, SIZE, SIZE);
+		// slanted ray from far away, skims over floor and meets wall side
+		TileHit hit = grid.raycast(100, 1.2f, 500, 1, -0.001f, 0, 1f);
+		assertThat(hit.getX()).isEqualTo(700);
+		assertThat(hit.getZ()).isEqualTo(500);
+		assertThat(hit.getTile()).isEqualTo(Tile.WALL);
+	}
+	
+	@Test
+	public void testDiagonalRayHitsFloorWhereItReachesTop() {
+		TileGrid grid = new TileGrid(floor(), SIZE, SIZE, SIZE);
+		// floor top is at 0.5, reached after 10 units along x and z
+		TileHit hit = grid.raycast(10.1f, 10.5f, 20.1f, 1, -1, 1, 1f);
+		assertThat(hit.getX()).isEqualTo(20);
+		assertThat(hit.getZ()).isEqualTo(30);
+	}
+	
+	@Test
+	public void testRayMissingGridGivesNull() {
+		TileGrid grid = new TileGrid(floor(), SIZE, SIZE, SIZE);
+		assertThat(grid.raycast(-10, 5, -10, -1, -1, 0, 1f)).isNull();
+		assertThat(grid.raycast(10, 5, 10, 0, 1, 0, 1f)).isNull();
+		assertThat(grid.raycast(10, 5, 10, 1, 0, 0, 1f)).isNull();
+	}
+}
@@ -0,0 +1,105 @@
+package eu.grmdev.senryaku.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import eu.grmdev.senryaku.core.entity.EntityStore;
+import eu.grmdev.senryaku.core.misc.FixedStepScheduler;
+import eu.grmdev.senryaku.core.misc.LoopStats;
+import eu.grmdev.senryaku.graphic.anim.TranslateAnimation;
+
+public class TestFixedStepScheduler {
+	private static final long MS = 1_000_000L;
+	private long now;
+	
+	@Test
+	public void testAccumulatesWholeSteps() {
+		FixedStepScheduler scheduler = new FixedStepScheduler(20, 5, () -> now);
+		now = 1000 * MS;
+		scheduler.start();
+		assertThat(scheduler.advance()).isEqualTo(1);
+		assertThat(scheduler.getStepMillis()).isEqualTo(50);
+		
+		now += 30 * MS;
+		assertThat(scheduler.advance()).isEqualTo(0);
+		assertThat(scheduler.getWaitNanos()).isEqualTo(20 * MS);
+		assertThat(scheduler.getAlpha()).isCloseTo(0.6f, within(1e-6f));
+		now += 40 * MS;
+		assertThat(scheduler.advance()).isEqualTo(1);
+		now += 80 * MS;
+		assertThat(scheduler.advance()).isEqualTo(2);
+		assertThat(scheduler.getWaitNanos()).isEqualTo(50 * MS);
+	}
+	
+	@Test
+	public void testCatchUpIsLimited() {
+		FixedStepScheduler scheduler = new FixedStepScheduler(20, 5, () -> now);
+		now = 0;
+		scheduler.start();
+		scheduler.advance();
+		now += 1010 * MS;
+		assertThat(scheduler.advance()).isEqualTo(5);
+		assertThat(scheduler.getWaitNanos()).isEqualTo(40 * MS);
+		now += 40 * MS;
+		assertThat(scheduler.advance()).isEqualTo(1);
+		assertThat(scheduler.getStats().getDroppedSteps()).isEqualTo(15);
+	}
+	
+	@Test
+	public void testStats() {
+		LoopStats stats = new LoopStats();
+		long t = 0;
+		assertThat(stats.record(t, 50 * MS)).isFalse();
+		for (int i = 0; i < 19; i++) {
+			t += i % 2 == 0 ? 48 * MS : 52 * MS;
+			assertThat(stats.record(t, 50 * MS)).isFalse();
+		}
+		t += 54 * MS;
+		assertThat(stats.record(t, 50 * MS)).isTrue();
+		assertThat(stats.getRate()).isEqualTo(20);
+		assertThat(stats.getMaxJitterMillis()).isEqualTo(4);
+		assertThat(stats.getMeanJitterMillis()).isCloseTo(2.1f, within(1e-4f));
+		assertThat(stats.getWindows()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testWaitsUntilNextStep() {
+		FixedStepScheduler scheduler = new FixedStepScheduler(200, 1);
+		scheduler.start();
+		scheduler.advance();
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			long wait = scheduler.getWaitNanos();
+			scheduler.waitForNextStep();
+			assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(wait);
+			assertThat(scheduler.advance()).isEqualTo(1);
+		}
+	}
+	
+	@Test
+	public void testAnimationDependsOnTimeOnly() {
+		EntityStore store = new EntityStore();
+		TranslateAnimation slowAnim = new TranslateAnimation(store, store.create(null));
+		TranslateAnimation fastAnim = new TranslateAnimation(store, store.create(null));
+		slowAnim.move(2, -1);
+		fastAnim.move(2, -1);
+		for (int i = 0; i < 5; i++) {
+			slowAnim.animate(50);
+		}
+		for (int i = 0; i < 25; i++) {
+			fastAnim.animate(10);
+		}
+		assertThat(slowAnim.getNextPosition().x).isCloseTo(1, within(1e-5f));
+		assertThat(fastAnim.getNextPosition().x).isCloseTo(1, within(1e-5f));
+		assertThat(fastAnim.getNextPosition().z).isCloseTo(-0.5f, within(1e-5f));
+		for (int i = 0; i < 6; i++) {
+			slowAnim.animate(50);
+		}
+		Vector3f slow = slowAnim.getPosition();
+		assertThat(slow.x).isEqualTo(2);
+		assertThat(slow.z).isEqualTo(-1);
+	}
+}